@@ -0,0 +1,86 @@
+package dms;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+// Modelo da tabela de setores: guarda só as referências aos setores e consulta a quantidade de
+// documentos de cada um quando a linha é exibida (o serviço mantém um contador por setor e um
+// total por subárvore da hierarquia).
+// Deve ser usado só na thread de eventos.
+class DepartmentTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Código", "Nome", "Setor superior", "Qtd. Documentos",
+            "Com subsetores"};
+
+    private final DocumentService documentService;
+    private Department[] departments = new Department[0];
+
+    public DepartmentTableModel(DocumentService documentService) {
+        this.documentService = documentService;
+    }
+
+    // Na ordem da hierarquia: cada setor seguido dos seus subsetores
+    public void refresh() {
+        DepartmentTree tree = documentService.getDepartmentTree();
+        List<Department> ordered = new ArrayList<>(documentService.getDepartmentCount());
+        for (String root : tree.getRoots()) {
+            for (String code : tree.getSubtree(root)) {
+                Department department = documentService.getDepartment(code);
+                if (department != null) {
+                    ordered.add(department);
+                }
+            }
+        }
+        departments = ordered.toArray(new Department[0]);
+        fireTableDataChanged();
+    }
+
+    // A quantidade de documentos é lida ao pintar: basta repintar as linhas
+    public void countsChanged() {
+        if (departments.length > 0) {
+            fireTableRowsUpdated(0, departments.length - 1);
+        }
+    }
+
+    public Department getDepartmentAt(int row) {
+        return departments[row];
+    }
+
+    @Override
+    public int getRowCount() {
+        return departments.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 3 ? Integer.class : column == 4 ? Long.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Department department = departments[row];
+        switch (column) {
+            case 0: return department.getCode();
+            case 1: return department.getName();
+            case 2: return department.getParentCode() == null ? "" : department.getParentCode();
+            case 3: return documentService.getDocumentCountByDepartment(department);
+            default: return documentService.getSubtreeDocumentCount(department.getCode());
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+}
@@ -0,0 +1,675 @@
+package dms;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Modo servidor, sem interface gráfica: documentos, setores, transferências, agendamentos e
+// histórico expostos em HTTP/JSON
+//
+// Usa o HttpServer do JDK com uma tarefa por requisição (threads virtuais em Java 21 ou superior,
+// ver BackgroundExecutors), então uma requisição esperando o fsync do log não segura as outras.
+// Toda resposta tem tamanho fixo, o que mantém a conexão aberta para a requisição seguinte
+// (keep-alive do HTTP/1.1). Os lotes em /api/documents/batch e /api/transfers/batch aplicam
+// vários itens por requisição com um único fsync.
+//
+//   GET    /api/departments                         setores com a contagem de documentos e da subárvore
+//   POST   /api/departments                         {"code", "name", "parent"}
+//   GET    /api/departments/{code}                  setor com o caminho, os subsetores e os totais
+//   GET    /api/documents?offset&limit&department&q página de documentos, por setor ou por busca
+//   POST   /api/documents                           {"id", "title", "content", "department"}
+//   POST   /api/documents/batch                     {"items": [documento, ...]}
+//   GET    /api/documents/{id}                      documento com o conteúdo
+//   GET    /api/documents/{id}/history              histórico de transferências do documento
+//   POST   /api/transfers                           {"document", "source", "target"}
+//   POST   /api/transfers/batch                     {"allOrNothing", "items": [transferência, ...]}
+//   POST   /api/transfers/subtree                   {"department", "target"}: setor e subsetores inteiros
+//   GET    /api/schedules?limit                     próxima transferência agendada de cada documento
+//   POST   /api/schedules                           {"document", "source", "target", "delaySeconds"}
+//   DELETE /api/schedules?document&source&target    cancela a agendada e as encadeadas depois dela
+//   GET    /api/history?from&to&source&target&cursor&limit   registro global, página a página
+//   GET    /api/metrics, /api/statistics            relatórios em texto
+//
+// Executar a partir do jar da aplicação (ou pela classe dms.DocumentApiServer):
+//   java -Ddms.httpPort=8080 -Ddms.dataDir=dados -jar app/target/sistema-documentos-1.0-SNAPSHOT.jar --server
+public class DocumentApiServer {
+    static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1_024;
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 10_000;
+
+    static {
+        // Os padrões do HttpServer do JDK servem a poucos clientes: acima de 200 conexões ociosas as
+        // excedentes são fechadas, e sem TCP_NODELAY uma resposta pequena pode esperar o ACK atrasado
+        // do cliente. Lidos quando o primeiro servidor é criado; -D na linha de comando prevalece.
+        setDefaultProperty("sun.net.httpserver.maxIdleConnections", "4096");
+        setDefaultProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static void setDefaultProperty(String name, String value) {
+        if (System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+
+    private final DocumentService documentService;
+    private final AutomaticTransferScheduler scheduler;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Porta 0 escolhe uma porta livre; getPort informa qual
+    DocumentApiServer(DocumentService documentService, AutomaticTransferScheduler scheduler, int port)
+            throws IOException {
+        this.documentService = documentService;
+        this.scheduler = scheduler;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = BackgroundExecutors.newPerTaskExecutor("http");
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    void start() {
+        server.start();
+        EventLog.info("Servidor HTTP iniciado", "porta", getPort());
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Aguarda até um segundo as requisições em andamento
+    void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+        EventLog.info("Servidor HTTP parado", "porta", getPort());
+    }
+
+    // Erro de requisição, devolvido ao cliente como {"error": mensagem} com o status indicado
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String contentType;
+        private final String body;
+
+        Response(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Response response;
+        try {
+            response = route(exchange);
+        } catch (ApiException e) {
+            response = error(e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // JSON, cursor ou número inválido
+            response = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            EventLog.error("Falha ao atender requisição", "caminho", exchange.getRequestURI().getPath(),
+                    "erro", e.toString());
+            response = error(500, "Erro interno: " + e.getMessage());
+        }
+
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        // Tamanho fixo (ou -1 sem corpo): sem ele o servidor usa chunked ou fecha a conexão
+        exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        switch (path[0]) {
+            case "departments":
+                if (path.length == 1 && method.equals("GET")) {
+                    return listDepartments();
+                }
+                if (path.length == 1 && method.equals("POST")) {
+                    return createDepartment(readObject(exchange));
+                }
+                if (path.length == 2 && method.equals("GET")) {
+                    return getDepartment(path[1]);
+                }
+                break;
+            case "documents":
+                if (path.length == 1 && method.equals("GET")) {
+                    return listDocuments(parameters);
+                }
+                if (path.length == 1 && method.equals("POST")) {
+                    return createDocument(readObject(exchange));
+                }
+                if (path.length == 2 && path[1].equals("batch") && method.equals("POST")) {
+                    return createDocuments(readObject(exchange));
+                }
+                if (path.length == 2 && method.equals("GET")) {
+                    return getDocument(path[1]);
+                }
+                if (path.length == 3 && path[2].equals("history") && method.equals("GET")) {
+                    return getDocumentHistory(path[1]);
+                }
+                break;
+            case "transfers":
+                if (path.length == 1 && method.equals("POST")) {
+                    return transfer(readObject(exchange));
+                }
+                if (path.length == 2 && path[1].equals("batch") && method.equals("POST")) {
+                    return transferBatch(readObject(exchange));
+                }
+                if (path.length == 2 && path[1].equals("subtree") && method.equals("POST")) {
+                    return transferSubtree(readObject(exchange));
+                }
+                break;
+            case "schedules":
+                if (path.length == 1 && method.equals("GET")) {
+                    return listSchedules(parameters);
+                }
+                if (path.length == 1 && method.equals("POST")) {
+                    return schedule(readObject(exchange));
+                }
+                if (path.length == 1 && method.equals("DELETE")) {
+                    return cancelSchedule(parameters);
+                }
+                break;
+            case "history":
+                if (path.length == 1 && method.equals("GET")) {
+                    return queryHistory(parameters);
+                }
+                break;
+            case "metrics":
+                if (path.length == 1 && method.equals("GET")) {
+                    return text(documentService.getMetrics().dump());
+                }
+                break;
+            case "statistics":
+                if (path.length == 1 && method.equals("GET")) {
+                    return text(documentService.getAnalytics().report());
+                }
+                break;
+            default:
+                throw new ApiException(404, "Recurso não encontrado: " + exchange.getRequestURI().getPath());
+        }
+        throw new ApiException(405, "Operação não suportada: " + method + " " + exchange.getRequestURI().getPath());
+    }
+
+    // Setores
+
+    private Response listDepartments() {
+        Json.Writer json = new Json.Writer().beginObject().name("items").beginArray();
+        for (Department department : documentService.getAllDepartments()) {
+            json.beginObject()
+                    .name("code").value(department.getCode())
+                    .name("name").value(department.getName())
+                    .name("parent").value(department.getParentCode())
+                    .name("documents").value(documentService.getDocumentCountByDepartment(department))
+                    .name("subtreeDocuments").value(documentService.getSubtreeDocumentCount(department.getCode()))
+                    .endObject();
+        }
+        return json(200, json.endArray().endObject());
+    }
+
+    private Response getDepartment(String code) {
+        Department department = requireDepartment(code);
+        DepartmentTree tree = documentService.getDepartmentTree();
+        Json.Writer json = new Json.Writer().beginObject()
+                .name("code").value(department.getCode())
+                .name("name").value(department.getName())
+                .name("parent").value(department.getParentCode())
+                .name("documents").value(documentService.getDocumentCountByDepartment(department))
+                .name("subtreeDocuments").value(documentService.getSubtreeDocumentCount(code))
+                .name("path").beginArray();
+        for (String ancestor : tree.getPath(code)) {
+            json.value(ancestor);
+        }
+        json.endArray().name("children").beginArray();
+        for (String child : tree.getChildren(code)) {
+            json.beginObject()
+                    .name("code").value(child)
+                    .name("subtreeDocuments").value(documentService.getSubtreeDocumentCount(child))
+                    .endObject();
+        }
+        return json(200, json.endArray().endObject());
+    }
+
+    private Response createDepartment(Map<String, Object> body) {
+        String code = requiredString(body, "code");
+        String name = requiredString(body, "name");
+        String parent = optionalString(body, "parent");
+        if (documentService.getDepartment(code) != null) {
+            throw new ApiException(409, "Setor já existe: " + code);
+        }
+        // Setor superior inexistente: IllegalArgumentException do serviço, respondida com 400
+        documentService.registerDepartment(new Department(code, name, parent));
+        return json(201, new Json.Writer().beginObject().name("code").value(code).name("name").value(name)
+                .name("parent").value(parent).endObject());
+    }
+
+    // Documentos
+
+    private Response listDocuments(Map<String, String> parameters) {
+        int offset = intParameter(parameters, "offset", 0, 0, Integer.MAX_VALUE);
+        int limit = intParameter(parameters, "limit", DEFAULT_PAGE_SIZE, 1, MAX_PAGE_SIZE);
+        String query = parameters.get("q");
+        String departmentCode = parameters.get("department");
+        if (query != null && departmentCode != null) {
+            throw new ApiException(400, "Use q ou department, não os dois");
+        }
+
+        Json.Writer json = new Json.Writer().beginObject();
+        List<Document> page = new ArrayList<>();
+        if (query != null) {
+            // A busca devolve os resultados em ordem de relevância até o fim da página pedida
+            List<Document> found = documentService.searchDocuments(query, (int) Math.min((long) offset + limit,
+                    Integer.MAX_VALUE));
+            page = found.subList(Math.min(offset, found.size()), found.size());
+        } else if (departmentCode != null) {
+            if (documentService.getDepartment(departmentCode) == null) {
+                throw new ApiException(404, "Setor não encontrado: " + departmentCode);
+            }
+            List<Document> documents = documentService.getDocumentsByDepartment(departmentCode);
+            json.name("total").value(documents.size());
+            page = documents.subList(Math.min(offset, documents.size()),
+                    (int) Math.min((long) offset + limit, documents.size()));
+        } else {
+            int total = documentService.getDocumentCount();
+            json.name("total").value(total);
+            for (int i = offset; i < total && i - offset < limit; i++) {
+                page.add(documentService.getDocumentAt(i));
+            }
+        }
+
+        json.name("offset").value(offset).name("items").beginArray();
+        for (Document document : page) {
+            writeDocument(json, document, false);
+        }
+        return json(200, json.endArray().endObject());
+    }
+
+    private Response createDocument(Map<String, Object> body) {
+        Document document = toDocument(body);
+        // addDocuments recusa ids repetidos com o lock do documento, sem janela entre conferir e inserir
+        if (!documentService.addDocuments(Collections.singletonList(document)).isEmpty()) {
+            throw new ApiException(409, "Documento já existe: " + document.getId());
+        }
+        return json(201, writeDocument(new Json.Writer(), document, false));
+    }
+
+    // Todos os itens são validados antes de qualquer inserção; ids já existentes são devolvidos
+    private Response createDocuments(Map<String, Object> body) {
+        List<Map<String, Object>> items = requiredItems(body);
+        List<Document> batch = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                batch.add(toDocument(items.get(i)));
+            } catch (ApiException e) {
+                throw new ApiException(e.status, "Item " + i + ": " + e.getMessage());
+            }
+        }
+        List<Document> duplicates = documentService.addDocuments(batch);
+        Json.Writer json = new Json.Writer().beginObject()
+                .name("added").value(batch.size() - duplicates.size())
+                .name("duplicates").beginArray();
+        for (Document duplicate : duplicates) {
+            json.value(duplicate.getId());
+        }
+        return json(200, json.endArray().endObject());
+    }
+
+    private Document toDocument(Map<String, Object> body) {
+        String id = requiredString(body, "id");
+        String title = requiredString(body, "title");
+        String content = optionalString(body, "content");
+        Department department = requireDepartment(requiredString(body, "department"));
+        return new Document(id, title, content == null ? "" : content, department);
+    }
+
+    private Response getDocument(String id) {
+        return json(200, writeDocument(new Json.Writer(), requireDocument(id), true));
+    }
+
+    private Response getDocumentHistory(String id) {
+        Document document = requireDocument(id);
+        Json.Writer json = new Json.Writer().beginObject()
+                .name("id").value(document.getId())
+                .name("items").beginArray();
+        for (TransferRecord record : document.getTransferHistory()) {
+            writeRecord(json.beginObject(), record).endObject();
+        }
+        return json(200, json.endArray().endObject());
+    }
+
+    // Transferências
+
+    private Response transfer(Map<String, Object> body) {
+        String documentId = requiredString(body, "document");
+        String source = requiredString(body, "source");
+        String target = requiredString(body, "target");
+        if (documentService.transferDocument(documentId, source, target)) {
+            return json(200, statusObject(TransferStatus.TRANSFERRED));
+        }
+        // O serviço só informa a recusa; o motivo é deduzido depois, como nos avisos do log
+        TransferStatus status = documentService.getDocument(documentId) == null ? TransferStatus.DOCUMENT_NOT_FOUND
+                : documentService.getDepartment(source) == null || documentService.getDepartment(target) == null
+                ? TransferStatus.DEPARTMENT_NOT_FOUND : TransferStatus.NOT_IN_SOURCE;
+        return json(status == TransferStatus.NOT_IN_SOURCE ? 409 : 404, statusObject(status));
+    }
+
+    private Response transferBatch(Map<String, Object> body) {
+        boolean allOrNothing = Boolean.TRUE.equals(body.get("allOrNothing"));
+        List<Map<String, Object>> items = requiredItems(body);
+        List<TransferRequest> batch = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> item = items.get(i);
+            try {
+                batch.add(new TransferRequest(requiredString(item, "document"), requiredString(item, "source"),
+                        requiredString(item, "target")));
+            } catch (ApiException e) {
+                throw new ApiException(e.status, "Item " + i + ": " + e.getMessage());
+            }
+        }
+        BatchTransferResult result = documentService.transferDocuments(batch, allOrNothing);
+        Json.Writer json = new Json.Writer().beginObject()
+                .name("transferred").value(result.getTransferredCount())
+                .name("failed").value(result.getFailedCount())
+                .name("statuses").beginArray();
+        for (int i = 0; i < result.size(); i++) {
+            json.value(result.getStatus(i).name());
+        }
+        return json(200, json.endArray().endObject());
+    }
+
+    // Resultado só com os totais: o lote tem um item por documento da subárvore
+    private Response transferSubtree(Map<String, Object> body) {
+        String code = requireDepartment(requiredString(body, "department")).getCode();
+        String target = requireDepartment(requiredString(body, "target")).getCode();
+        BatchTransferResult result = documentService.transferSubtree(code, target);
+        return json(200, new Json.Writer().beginObject()
+                .name("transferred").value(result.getTransferredCount())
+                .name("failed").value(result.getFailedCount())
+                .endObject());
+    }
+
+    private static Json.Writer statusObject(TransferStatus status) {
+        return new Json.Writer().beginObject().name("status").value(status.name()).endObject();
+    }
+
+    // Agendamentos
+
+    private Response listSchedules(Map<String, String> parameters) {
+        int limit = intParameter(parameters, "limit", DEFAULT_PAGE_SIZE, 1, MAX_PAGE_SIZE);
+        Json.Writer json = new Json.Writer().beginObject()
+                .name("pending").value(scheduler.getPendingCount())
+                .name("completed").value(scheduler.getCompletedCount())
+                .name("failed").value(scheduler.getFailedCount())
+                .name("items").beginArray();
+        int written = 0;
+        for (ScheduledTransfer transfer : scheduler.getScheduledTasks().values()) {
+            if (written++ == limit) {
+                break;
+            }
+            json.beginObject()
+                    .name("taskId").value(transfer.getTaskId())
+                    .name("document").value(transfer.getDocumentId())
+                    .name("source").value(transfer.getSourceDeptCode())
+                    .name("target").value(transfer.getTargetDeptCode())
+                    .name("dueAtMillis").value(transfer.getDueAtMillis())
+                    .name("remainingSeconds").value(transfer.getRemainingSeconds())
+                    .endObject();
+        }
+        return json(200, json.endArray().endObject());
+    }
+
+    private Response schedule(Map<String, Object> body) {
+        String documentId = requiredString(body, "document");
+        String source = requiredString(body, "source");
+        String target = requiredString(body, "target");
+        Object delay = body.get("delaySeconds");
+        if (!(delay instanceof Long) || (Long) delay < 0 || (Long) delay > Integer.MAX_VALUE) {
+            throw new ApiException(400, "Campo delaySeconds deve ser um inteiro não negativo");
+        }
+        requireDocument(documentId);
+        requireDepartment(source);
+        requireDepartment(target);
+        scheduler.scheduleTransfer(documentId, source, target, ((Long) delay).intValue());
+        return json(202, new Json.Writer().beginObject()
+                .name("taskId").value(ScheduledTransfer.taskId(documentId, source, target))
+                .endObject());
+    }
+
+    private Response cancelSchedule(Map<String, String> parameters) {
+        scheduler.cancelScheduledTransfer(requiredParameter(parameters, "document"),
+                requiredParameter(parameters, "source"), requiredParameter(parameters, "target"));
+        return new Response(204, "application/json", "");
+    }
+
+    // Registro global de transferências
+
+    private Response queryHistory(Map<String, String> parameters) {
+        TransferAuditLog.Query query = new TransferAuditLog.Query(dateParameter(parameters, "from"),
+                dateParameter(parameters, "to"), parameters.get("source"), parameters.get("target"));
+        String cursor = parameters.get("cursor");
+        TransferAuditLog.Page page = documentService.getAuditLog().query(query,
+                cursor == null ? null : TransferAuditLog.Cursor.parse(cursor),
+                intParameter(parameters, "limit", DEFAULT_PAGE_SIZE, 1, MAX_PAGE_SIZE));
+        Json.Writer json = new Json.Writer().beginObject().name("items").beginArray();
+        for (TransferAuditLog.Entry entry : page.getEntries()) {
+            json.beginObject().name("document").value(entry.getDocumentId());
+            writeRecord(json, entry.getRecord()).endObject();
+        }
+        // Nulo na última página; senão é repassado em cursor para pedir a seguinte
+        json.endArray().name("next").value(page.getNext() == null ? null : page.getNext().toString());
+        return json(200, json.endObject());
+    }
+
+    // Aceita data (2024-03-01, meia-noite) ou data e hora ISO (2024-03-01T14:30)
+    private static LocalDateTime dateParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.indexOf('T') < 0 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Data inválida em " + name + ": " + value);
+        }
+    }
+
+    // Serialização
+
+    private static Json.Writer writeDocument(Json.Writer json, Document document, boolean withContent) {
+        json.beginObject()
+                .name("id").value(document.getId())
+                .name("title").value(document.getTitle())
+                .name("department").value(document.getCurrentDepartment().getCode())
+                .name("createdAt").value(document.getCreatedAt().toString())
+                .name("updatedAt").value(document.getUpdatedAt().toString());
+        if (withContent) {
+            json.name("content").value(document.getContent());
+        }
+        return json.endObject();
+    }
+
+    private static Json.Writer writeRecord(Json.Writer json, TransferRecord record) {
+        return json.name("source").value(record.getSource() == null ? null : record.getSource().getCode())
+                .name("target").value(record.getTarget().getCode())
+                .name("reason").value(record.getReason())
+                .name("timestamp").value(record.getTimestamp().toString());
+    }
+
+    private static Response json(int status, Json.Writer json) {
+        return new Response(status, "application/json; charset=utf-8", json.toString());
+    }
+
+    private static Response text(String body) {
+        return new Response(200, "text/plain; charset=utf-8", body);
+    }
+
+    private static Response error(int status, String message) {
+        return json(status, new Json.Writer().beginObject().name("error").value(message).endObject());
+    }
+
+    // Leitura da requisição
+
+    private Document requireDocument(String id) {
+        Document document = documentService.getDocument(id);
+        if (document == null) {
+            throw new ApiException(404, "Documento não encontrado: " + id);
+        }
+        return document;
+    }
+
+    private Department requireDepartment(String code) {
+        Department department = documentService.getDepartment(code);
+        if (department == null) {
+            throw new ApiException(404, "Setor não encontrado: " + code);
+        }
+        return department;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readObject(HttpExchange exchange) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new ApiException(413, "Corpo da requisição maior que " + MAX_BODY_BYTES + " bytes");
+        }
+        Object value = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+        if (!(value instanceof Map)) {
+            throw new ApiException(400, "Esperado um objeto JSON");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static String requiredString(Map<String, Object> object, String name) {
+        Object value = object.get(name);
+        if (!(value instanceof String) || ((String) value).isEmpty()) {
+            throw new ApiException(400, "Campo obrigatório: " + name);
+        }
+        return (String) value;
+    }
+
+    private static String optionalString(Map<String, Object> object, String name) {
+        Object value = object.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new ApiException(400, "Campo " + name + " deve ser texto");
+        }
+        return (String) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> requiredItems(Map<String, Object> body) {
+        Object items = body.get("items");
+        if (!(items instanceof List)) {
+            throw new ApiException(400, "Campo obrigatório: items");
+        }
+        for (Object item : (List<Object>) items) {
+            if (!(item instanceof Map)) {
+                throw new ApiException(400, "Cada item deve ser um objeto JSON");
+            }
+        }
+        return (List<Map<String, Object>>) items;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String requiredParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new ApiException(400, "Parâmetro obrigatório: " + name);
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue, int min, int max) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Mesma resposta do valor fora do intervalo
+        }
+        throw new ApiException(400, "Parâmetro " + name + " deve estar entre " + min + " e " + max);
+    }
+
+    public static void main(String[] args) {
+        DocumentService documentService = new DocumentService();
+        // Mesma pasta de dados da interface gráfica (-Ddms.dataDir)
+        DataDirectory dataDirectory = DataDirectory.open(documentService);
+        AutomaticTransferScheduler scheduler = new AutomaticTransferScheduler(documentService,
+                TransferSchedulingMode.SCHEDULED_EXECUTOR, 1, dataDirectory.getScheduleStore());
+        scheduler.start();
+
+        // Métricas no JMX e, a cada -Ddms.metricsDumpSeconds segundos (60 por padrão, 0 desliga), no console
+        documentService.getMetrics().registerMBean();
+        long dumpSeconds = Long.getLong("dms.metricsDumpSeconds", 60);
+        if (dumpSeconds > 0) {
+            documentService.getMetrics().startPeriodicDump(dumpSeconds, TimeUnit.SECONDS, () -> System.out);
+        }
+
+        DocumentApiServer server;
+        try {
+            server = new DocumentApiServer(documentService, scheduler,
+                    Integer.getInteger("dms.httpPort", DEFAULT_PORT));
+            server.start();
+        } catch (IOException e) {
+            EventLog.error("Falha ao iniciar o servidor HTTP", "erro", e.getMessage());
+            scheduler.stop();
+            dataDirectory.close();
+            System.exit(1);
+            return;
+        }
+        // Ao sair: para de aceitar requisições, para o agendador e só então grava o snapshot
+        dataDirectory.closeOnShutdown(() -> {
+            server.stop();
+            scheduler.stop();
+        });
+    }
+}
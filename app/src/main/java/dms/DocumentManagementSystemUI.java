@@ -0,0 +1,892 @@
+package dms;
+
+import javax.swing.*;
+import javax.swing.border.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+public class DocumentManagementSystemUI {
+    private static final int SEARCH_RESULT_LIMIT = 500;
+    // Protótipos de largura para as comboboxes não medirem todos os itens
+    private static final String DOCUMENT_ITEM_PROTOTYPE = "DOC000000 - Título de documento com tamanho típico";
+    private static final String DEPARTMENT_ITEM_PROTOTYPE = "CODIGO - Nome de setor com tamanho típico";
+    
+    // Componentes principais da aplicação
+    private JFrame mainFrame;
+    private JTabbedPane tabbedPane;
+    private DocumentService documentService;
+    private AutomaticTransferScheduler scheduler;
+    // Chamadas ao serviço que podem demorar rodam aqui, fora da thread de eventos
+    private final ExecutorService backgroundExecutor = BackgroundExecutors.newPerTaskExecutor("tarefa-ui");
+    // Alterações do serviço (inclusive do agendador) chegam às telas no máximo uma vez por quadro
+    private UiRefreshCoalescer refreshCoalescer;
+    // Só o resultado da busca mais recente é exibido
+    private int searchGeneration;
+    
+    // Indicadores do dashboard, lidos dos contadores do serviço e do agendador
+    private static final int DASHBOARD_REFRESH_MILLIS = 1_000;
+    private static final int RECENT_ACTIVITY_CAPACITY = 256;
+    private static final int RECENT_ACTIVITY_SHOWN = 50;
+    private final JLabel documentsCountLabel = new JLabel("0");
+    private final JLabel departmentsCountLabel = new JLabel("0");
+    private final JLabel pendingTransfersLabel = new JLabel("0");
+    private final JLabel completedTransfersLabel = new JLabel("0");
+    private JTextArea activityTextArea;
+    private RecentActivity recentActivity;
+    private long shownActivityCount = -1;
+    
+    // Painéis para cada funcionalidade
+    private JPanel dashboardPanel;
+    private JPanel documentsPanel;
+    private JPanel departmentsPanel;
+    private JPanel transfersPanel;
+    private JPanel historyPanel;
+    
+    // Componentes para gerenciamento de documentos
+    private JTable documentsTable;
+    private DocumentTableModel documentsTableModel;
+    private JTextField documentSearchField;
+    
+    // Componentes para gerenciamento de departamentos
+    private JTable departmentsTable;
+    private DepartmentTableModel departmentsTableModel;
+    
+    // Componentes para transferências
+    private JComboBox<String> documentComboBox;
+    private JComboBox<String> sourceDeptComboBox;
+    private JComboBox<String> targetDeptComboBox;
+    private JSpinner delaySpinner;
+    // Setores exibidos nas comboboxes de origem e destino, lidos a cada atualização
+    private Department[] departmentItems = new Department[0];
+    
+    // Componentes para histórico
+    private JComboBox<String> historyDocumentComboBox;
+    private JTextArea historyTextArea;
+    // Consulta ao registro de transferências de todos os documentos, exibida em páginas
+    private static final int HISTORY_PAGE_SIZE = 200;
+    private static final String ANY_DEPARTMENT_ITEM = "Qualquer setor";
+    private static final DateTimeFormatter HISTORY_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private JTextField historyFromField;
+    private JTextField historyToField;
+    private JComboBox<String> historySourceComboBox;
+    private JComboBox<String> historyTargetComboBox;
+    private JButton historyNextPageButton;
+    private TransferAuditLog.Query historyQuery;
+    private TransferAuditLog.Cursor historyCursor;
+    private int historyPage;
+    
+    public DocumentManagementSystemUI() {
+        documentService = new DocumentService();
+        
+        // Guardar os últimos eventos para o painel de atividades recentes, inclusive os do carregamento
+        recentActivity = new RecentActivity(EventLog.getSink(), RECENT_ACTIVITY_CAPACITY);
+        EventLog.setSink(recentActivity);
+        
+        // Configurar a interface gráfica; as abas aparecem quando os dados terminarem de carregar
+        setupUI();
+        
+        // Recuperar o estado gravado e iniciar o agendador fora da thread de eventos
+        runInBackground("Falha ao carregar os dados", () -> {
+            // Diretório de dados configurável com -Ddms.dataDir=<caminho>
+            DataDirectory dataDirectory = DataDirectory.open(documentService);
+            scheduler = new AutomaticTransferScheduler(documentService, TransferSchedulingMode.SCHEDULED_EXECUTOR, 1,
+                    dataDirectory.getScheduleStore());
+            // Ao sair: para o agendador e só então grava o snapshot
+            dataDirectory.closeOnShutdown(scheduler::stop);
+            
+            // Inicializar com alguns dados de exemplo apenas quando não há nada gravado
+            if (documentService.getAllDepartments().isEmpty()) {
+                initializeExampleData();
+            }
+            refreshCoalescer = new UiRefreshCoalescer(this::applyChanges);
+            documentService.addChangeListener(refreshCoalescer);
+            
+            // Iniciar o agendador
+            scheduler.start();
+            
+            // Métricas no JMX e, a cada -Ddms.metricsDumpSeconds segundos (60 por padrão, 0 desliga), no console
+            documentService.getMetrics().registerMBean();
+            long dumpSeconds = Long.getLong("dms.metricsDumpSeconds", 60);
+            if (dumpSeconds > 0) {
+                documentService.getMetrics().startPeriodicDump(dumpSeconds, TimeUnit.SECONDS, () -> System.out);
+            }
+            return null;
+        }, ignored -> {
+            updateDocumentsTable();
+            updateDepartmentsTable();
+            updateComboBoxes();
+            mainFrame.setContentPane(tabbedPane);
+            mainFrame.revalidate();
+            mainFrame.repaint();
+            
+            // O dashboard lê só contadores mantidos pelo serviço e pelo agendador, então pode atualizar sempre
+            refreshDashboard();
+            new javax.swing.Timer(DASHBOARD_REFRESH_MILLIS, e -> refreshDashboard()).start();
+        });
+    }
+    
+    // Executa o trabalho numa thread de fundo e entrega o resultado (ou o erro) na thread de eventos
+    private <T> void runInBackground(String failureMessage, Callable<T> work, Consumer<T> onSuccess) {
+        backgroundExecutor.execute(() -> {
+            try {
+                T result = work.call();
+                SwingUtilities.invokeLater(() -> onSuccess.accept(result));
+            } catch (Exception e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(mainFrame,
+                        failureMessage + ": " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE));
+            }
+        });
+    }
+    
+    private void setupUI() {
+        // Configurar o frame principal
+        mainFrame = new JFrame("Sistema de Gerenciamento de Documentos");
+        mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        mainFrame.setSize(800, 600);
+        mainFrame.setLocationRelativeTo(null);
+        
+        // Criar o painel com abas
+        tabbedPane = new JTabbedPane();
+        
+        // Configurar cada painel
+        setupDashboardPanel();
+        setupDocumentsPanel();
+        setupDepartmentsPanel();
+        setupTransfersPanel();
+        setupHistoryPanel();
+        
+        // Adicionar os painéis ao tabbedPane
+        tabbedPane.addTab("Dashboard", new ImageIcon(), dashboardPanel, "Visão geral do sistema");
+        tabbedPane.addTab("Documentos", new ImageIcon(), documentsPanel, "Gerenciar documentos");
+        tabbedPane.addTab("Setores", new ImageIcon(), departmentsPanel, "Gerenciar setores");
+        tabbedPane.addTab("Transferências", new ImageIcon(), transfersPanel, "Configurar transferências");
+        tabbedPane.addTab("Histórico", new ImageIcon(), historyPanel, "Visualizar histórico de transferências");
+        
+        // Enquanto os dados carregam o frame mostra só um aviso
+        JLabel loadingLabel = new JLabel("Carregando dados...", SwingConstants.CENTER);
+        mainFrame.add(loadingLabel);
+        
+        // Exibir o frame
+        mainFrame.setVisible(true);
+    }
+    
+    private void setupDashboardPanel() {
+        dashboardPanel = new JPanel(new BorderLayout());
+        dashboardPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        
+        // Painel superior com informações gerais
+        JPanel infoPanel = new JPanel(new GridLayout(1, 4, 10, 0));
+        infoPanel.setBorder(new EmptyBorder(0, 0, 10, 0));
+        
+        // Card para total de documentos
+        JPanel docsCard = createInfoCard("Total de Documentos", documentsCountLabel);
+        
+        // Card para total de setores
+        JPanel deptsCard = createInfoCard("Total de Setores", departmentsCountLabel);
+        
+        // Card para transferências pendentes
+        JPanel transfersCard = createInfoCard("Transferências Pendentes", pendingTransfersLabel);
+        
+        // Card para transferências realizadas
+        JPanel completedCard = createInfoCard("Transferências Realizadas", completedTransfersLabel);
+        
+        infoPanel.add(docsCard);
+        infoPanel.add(deptsCard);
+        infoPanel.add(transfersCard);
+        infoPanel.add(completedCard);
+        
+        // Painel central com atividades recentes
+        JPanel activityPanel = new JPanel(new BorderLayout());
+        activityPanel.setBorder(BorderFactory.createTitledBorder("Atividades Recentes"));
+        
+        activityTextArea = new JTextArea();
+        activityTextArea.setEditable(false);
+        JScrollPane activityScrollPane = new JScrollPane(activityTextArea);
+        activityPanel.add(activityScrollPane, BorderLayout.CENTER);
+        
+        // Adicionar os painéis ao dashboard
+        dashboardPanel.add(infoPanel, BorderLayout.NORTH);
+        dashboardPanel.add(activityPanel, BorderLayout.CENTER);
+        
+        // Painel inferior com ações rápidas
+        JPanel quickActionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        quickActionsPanel.setBorder(BorderFactory.createTitledBorder("Ações Rápidas"));
+        
+        JButton newDocButton = new JButton("Novo Documento");
+        JButton newDeptButton = new JButton("Novo Setor");
+        JButton newTransferButton = new JButton("Nova Transferência");
+        JButton metricsButton = new JButton("Métricas");
+        metricsButton.addActionListener(e -> showMetrics());
+        JButton analyticsButton = new JButton("Estatísticas");
+        analyticsButton.addActionListener(e -> showAnalytics());
+        
+        quickActionsPanel.add(newDocButton);
+        quickActionsPanel.add(newDeptButton);
+        quickActionsPanel.add(newTransferButton);
+        quickActionsPanel.add(metricsButton);
+        quickActionsPanel.add(analyticsButton);
+        
+        dashboardPanel.add(quickActionsPanel, BorderLayout.SOUTH);
+    }
+    
+    // Relatório das métricas desde o início: latências, resultados e fila do agendador
+    private void showMetrics() {
+        JTextArea metricsTextArea = new JTextArea(documentService.getMetrics().dump());
+        metricsTextArea.setEditable(false);
+        metricsTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(mainFrame, new JScrollPane(metricsTextArea), "Métricas de Transferência",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    // Fluxo entre setores, permanência e vazão, lidos dos agregados sem percorrer os históricos
+    private void showAnalytics() {
+        JTextArea analyticsTextArea = new JTextArea(documentService.getAnalytics().report());
+        analyticsTextArea.setEditable(false);
+        analyticsTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(mainFrame, new JScrollPane(analyticsTextArea), "Estatísticas de Transferência",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    private JPanel createInfoCard(String title, JLabel valueLabel) {
+        JPanel card = new JPanel(new BorderLayout());
+        card.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(Color.LIGHT_GRAY),
+            new EmptyBorder(10, 10, 10, 10)
+        ));
+        
+        JLabel titleLabel = new JLabel(title);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        
+        valueLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        valueLabel.setHorizontalAlignment(JLabel.CENTER);
+        
+        card.add(titleLabel, BorderLayout.NORTH);
+        card.add(valueLabel, BorderLayout.CENTER);
+        
+        return card;
+    }
+    
+    private void setupDocumentsPanel() {
+        documentsPanel = new JPanel(new BorderLayout());
+        documentsPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        
+        // Painel superior com formulário para adicionar documentos
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(BorderFactory.createTitledBorder("Adicionar Novo Documento"));
+        
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        
+        // ID do documento
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        formPanel.add(new JLabel("ID:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 0;
+        JTextField idField = new JTextField(10);
+        formPanel.add(idField, gbc);
+        
+        // Título do documento
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        formPanel.add(new JLabel("Título:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 1;
+        gbc.gridwidth = 3;
+        JTextField titleField = new JTextField(30);
+        formPanel.add(titleField, gbc);
+        
+        // Conteúdo do documento
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        formPanel.add(new JLabel("Conteúdo:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 2;
+        JTextField contentField = new JTextField(30);
+        formPanel.add(contentField, gbc);
+        
+        // Setor do documento
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        formPanel.add(new JLabel("Setor:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 3;
+        gbc.gridwidth = 1;
+        JComboBox<String> deptComboBox = new JComboBox<>();
+        formPanel.add(deptComboBox, gbc);
+        
+        // Botão para adicionar
+        gbc.gridx = 2;
+        gbc.gridy = 3;
+        JButton addButton = new JButton("Adicionar");
+        formPanel.add(addButton, gbc);
+        
+        // Tabela de documentos
+        documentsTableModel = new DocumentTableModel(documentService);
+        documentsTable = new JTable(documentsTableModel);
+        JScrollPane tableScrollPane = new JScrollPane(documentsTable);
+        
+        // Busca por título e conteúdo; com a busca vazia a tabela mostra todos os documentos
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        documentSearchField = new JTextField(30);
+        documentSearchField.setToolTipText("Termos sem acento ou com acento; termine com * para buscar por prefixo");
+        documentSearchField.addActionListener(e -> updateDocumentsTable());
+        JButton searchButton = new JButton("Pesquisar");
+        searchButton.addActionListener(e -> updateDocumentsTable());
+        JButton clearSearchButton = new JButton("Limpar");
+        clearSearchButton.addActionListener(e -> {
+            documentSearchField.setText("");
+            updateDocumentsTable();
+        });
+        searchPanel.add(new JLabel("Buscar:"));
+        searchPanel.add(documentSearchField);
+        searchPanel.add(searchButton);
+        searchPanel.add(clearSearchButton);
+        
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(searchPanel, BorderLayout.NORTH);
+        tablePanel.add(tableScrollPane, BorderLayout.CENTER);
+        
+        // Painel de botões para ações na tabela
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton editButton = new JButton("Editar");
+        JButton deleteButton = new JButton("Excluir");
+        JButton viewButton = new JButton("Visualizar");
+        JButton importButton = new JButton("Importar...");
+        importButton.addActionListener(e -> importFromFile(true));
+        JButton exportButton = new JButton("Exportar...");
+        exportButton.addActionListener(e -> exportToFile());
+        
+        buttonPanel.add(editButton);
+        buttonPanel.add(deleteButton);
+        buttonPanel.add(viewButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(exportButton);
+        
+        // Adicionar componentes ao painel de documentos
+        documentsPanel.add(formPanel, BorderLayout.NORTH);
+        documentsPanel.add(tablePanel, BorderLayout.CENTER);
+        documentsPanel.add(buttonPanel, BorderLayout.SOUTH);
+    }
+    
+    private void setupDepartmentsPanel() {
+        departmentsPanel = new JPanel(new BorderLayout());
+        departmentsPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        
+        // Painel superior com formulário para adicionar setores
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBorder(BorderFactory.createTitledBorder("Adicionar Novo Setor"));
+        
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        
+        // Código do setor
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        formPanel.add(new JLabel("Código:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 0;
+        JTextField codeField = new JTextField(10);
+        formPanel.add(codeField, gbc);
+        
+        // Nome do setor
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        formPanel.add(new JLabel("Nome:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 1;
+        JTextField nameField = new JTextField(20);
+        formPanel.add(nameField, gbc);
+        
+        // Botão para adicionar
+        gbc.gridx = 2;
+        gbc.gridy = 1;
+        JButton addButton = new JButton("Adicionar");
+        formPanel.add(addButton, gbc);
+        
+        // Tabela de setores
+        departmentsTableModel = new DepartmentTableModel(documentService);
+        departmentsTable = new JTable(departmentsTableModel);
+        JScrollPane tableScrollPane = new JScrollPane(departmentsTable);
+        
+        // Painel de botões para ações na tabela
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton editButton = new JButton("Editar");
+        JButton deleteButton = new JButton("Excluir");
+        JButton importButton = new JButton("Importar...");
+        importButton.addActionListener(e -> importFromFile(false));
+        
+        buttonPanel.add(editButton);
+        buttonPanel.add(deleteButton);
+        buttonPanel.add(importButton);
+        
+        // Adicionar componentes ao painel de setores
+        departmentsPanel.add(formPanel, BorderLayout.NORTH);
+        departmentsPanel.add(tableScrollPane, BorderLayout.CENTER);
+        departmentsPanel.add(buttonPanel, BorderLayout.SOUTH);
+    }
+    
+    // Importa setores ou documentos de um arquivo CSV/JSON-lines; registros inválidos vão para o arquivo de rejeitados
+    private void importFromFile(boolean documents) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV ou JSON-lines", "csv", "jsonl", "json"));
+        if (chooser.showOpenDialog(mainFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        Path rejectFile = BulkImporter.defaultRejectFile(file);
+        
+        // Importar fora da thread de eventos; as tabelas acompanham pelos avisos de alteração do serviço
+        runInBackground("Falha na importação", () -> {
+            BulkImporter importer = new BulkImporter(documentService);
+            return documents ? importer.importDocuments(file, rejectFile) : importer.importDepartments(file, rejectFile);
+        }, result -> {
+            String message = result.toString();
+            if (result.getRejected() > 0) {
+                message += "\nRegistros rejeitados gravados em " + rejectFile;
+            }
+            JOptionPane.showMessageDialog(mainFrame, message, "Importação concluída", JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+    
+    // Exporta todos os documentos com histórico; o formato segue a extensão (.csv, .jsonl ou binário)
+    private void exportToFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV, JSON-lines ou binário", "csv", "jsonl", "dmsx"));
+        if (chooser.showSaveDialog(mainFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        
+        runInBackground("Falha na exportação",
+                () -> new BulkExporter(documentService).export(file, BulkExporter.Format.of(file)),
+                result -> JOptionPane.showMessageDialog(mainFrame, result.toString(), "Exportação concluída",
+                        JOptionPane.INFORMATION_MESSAGE));
+    }
+    
+    private void setupTransfersPanel() {
+        transfersPanel = new JPanel(new BorderLayout());
+        transfersPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        
+        // Painel para transferência manual
+        JPanel manualPanel = new JPanel(new GridBagLayout());
+        manualPanel.setBorder(BorderFactory.createTitledBorder("Transferência Manual"));
+        
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        
+        // Documento
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        manualPanel.add(new JLabel("Documento:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 0;
+        documentComboBox = createDocumentComboBox();
+        manualPanel.add(documentComboBox, gbc);
+        
+        // Setor de origem
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        manualPanel.add(new JLabel("De:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 1;
+        sourceDeptComboBox = createDepartmentComboBox();
+        manualPanel.add(sourceDeptComboBox, gbc);
+        
+        // Setor de destino
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        manualPanel.add(new JLabel("Para:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 2;
+        targetDeptComboBox = createDepartmentComboBox();
+        manualPanel.add(targetDeptComboBox, gbc);
+        
+        // Botão para transferir
+        gbc.gridx = 1;
+        gbc.gridy = 3;
+        JButton transferButton = new JButton("Transferir Agora");
+        transferButton.addActionListener(e -> transferSelectedDocument());
+        manualPanel.add(transferButton, gbc);
+        
+        // Painel para transferência automática
+        JPanel autoPanel = new JPanel(new GridBagLayout());
+        autoPanel.setBorder(BorderFactory.createTitledBorder("Transferência Automática"));
+        
+        // Reutilizar os mesmos componentes de seleção
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        autoPanel.add(new JLabel("Documento:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 0;
+        JComboBox<String> autoDocumentComboBox = new JComboBox<>();
+        autoPanel.add(autoDocumentComboBox, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        autoPanel.add(new JLabel("De:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 1;
+        JComboBox<String> autoSourceDeptComboBox = new JComboBox<>();
+        autoPanel.add(autoSourceDeptComboBox, gbc);
+        
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        autoPanel.add(new JLabel("Para:"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 2;
+        JComboBox<String> autoTargetDeptComboBox = new JComboBox<>();
+        autoPanel.add(autoTargetDeptComboBox, gbc);
+        
+        // Atraso para transferência automática
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        autoPanel.add(new JLabel("Atraso (segundos):"), gbc);
+        
+        gbc.gridx = 1;
+        gbc.gridy = 3;
+        delaySpinner = new JSpinner(new SpinnerNumberModel(5, 1, 3600, 1));
+        autoPanel.add(delaySpinner, gbc);
+        
+        // Botão para agendar
+        gbc.gridx = 1;
+        gbc.gridy = 4;
+        JButton scheduleButton = new JButton("Agendar Transferência");
+        autoPanel.add(scheduleButton, gbc);
+        
+        // Painel para transferências agendadas
+        JPanel scheduledPanel = new JPanel(new BorderLayout());
+        scheduledPanel.setBorder(BorderFactory.createTitledBorder("Transferências Agendadas"));
+        
+        String[] columnNames = {"Documento", "De", "Para", "Tempo Restante"};
+        DefaultTableModel scheduledTableModel = new DefaultTableModel(columnNames, 0);
+        JTable scheduledTable = new JTable(scheduledTableModel);
+        JScrollPane scheduledScrollPane = new JScrollPane(scheduledTable);
+        
+        JButton cancelButton = new JButton("Cancelar Transferência");
+        JPanel scheduledButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        scheduledButtonPanel.add(cancelButton);
+        
+        scheduledPanel.add(scheduledScrollPane, BorderLayout.CENTER);
+        scheduledPanel.add(scheduledButtonPanel, BorderLayout.SOUTH);
+        
+        // Organizar os painéis
+        JPanel topPanel = new JPanel(new GridLayout(1, 2, 10, 0));
+        topPanel.add(manualPanel);
+        topPanel.add(autoPanel);
+        
+        transfersPanel.add(topPanel, BorderLayout.NORTH);
+        transfersPanel.add(scheduledPanel, BorderLayout.CENTER);
+    }
+    
+    private void setupHistoryPanel() {
+        historyPanel = new JPanel(new BorderLayout());
+        historyPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        
+        // Painel superior para seleção de documento
+        JPanel selectionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        selectionPanel.add(new JLabel("Selecione o documento:"));
+        
+        historyDocumentComboBox = createDocumentComboBox();
+        selectionPanel.add(historyDocumentComboBox);
+        
+        JButton viewButton = new JButton("Visualizar Histórico");
+        viewButton.addActionListener(e -> showSelectedHistory());
+        selectionPanel.add(viewButton);
+        
+        // Consulta às transferências de todos os documentos por período e setores
+        JPanel queryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        queryPanel.add(new JLabel("Transferências de"));
+        historyFromField = new JTextField(8);
+        historyFromField.setToolTipText("dd/mm/aaaa; em branco para desde o início");
+        queryPanel.add(historyFromField);
+        queryPanel.add(new JLabel("até"));
+        historyToField = new JTextField(8);
+        historyToField.setToolTipText("dd/mm/aaaa, inclusive; em branco para até hoje");
+        queryPanel.add(historyToField);
+        queryPanel.add(new JLabel("Origem:"));
+        historySourceComboBox = createDepartmentFilterComboBox();
+        queryPanel.add(historySourceComboBox);
+        queryPanel.add(new JLabel("Destino:"));
+        historyTargetComboBox = createDepartmentFilterComboBox();
+        queryPanel.add(historyTargetComboBox);
+        
+        JButton queryButton = new JButton("Consultar");
+        queryButton.addActionListener(e -> queryTransfers());
+        queryPanel.add(queryButton);
+        historyNextPageButton = new JButton("Próxima página");
+        historyNextPageButton.setEnabled(false);
+        historyNextPageButton.addActionListener(e -> showTransferPage());
+        queryPanel.add(historyNextPageButton);
+        
+        // Área de texto para exibir o histórico
+        historyTextArea = new JTextArea();
+        historyTextArea.setEditable(false);
+        JScrollPane historyScrollPane = new JScrollPane(historyTextArea);
+        
+        // Adicionar componentes ao painel de histórico
+        JPanel controlsPanel = new JPanel(new GridLayout(2, 1));
+        controlsPanel.add(selectionPanel);
+        controlsPanel.add(queryPanel);
+        historyPanel.add(controlsPanel, BorderLayout.NORTH);
+        historyPanel.add(historyScrollPane, BorderLayout.CENTER);
+    }
+    
+    private void initializeExampleData() {
+        // Criar alguns setores
+        Department financeiro = new Department("FIN", "Financeiro");
+        Department rh = new Department("RH", "Recursos Humanos");
+        Department ti = new Department("TI", "Tecnologia da Informação");
+        Department juridico = new Department("JUR", "Jurídico");
+        
+        documentService.registerDepartment(financeiro);
+        documentService.registerDepartment(rh);
+        documentService.registerDepartment(ti);
+        documentService.registerDepartment(juridico);
+        
+        // Criar alguns documentos
+        Document doc1 = new Document("DOC001", "Relatório Financeiro Q1", "Relatório financeiro do primeiro trimestre", financeiro);
+        Document doc2 = new Document("DOC002", "Contratações Pendentes", "Lista de contratações pendentes", rh);
+        Document doc3 = new Document("DOC003", "Plano de Infraestrutura", "Plano de atualização da infraestrutura", ti);
+        
+        documentService.addDocument(doc1);
+        documentService.addDocument(doc2);
+        documentService.addDocument(doc3);
+    }
+    
+    // Leitura de contadores: custo constante, independente do número de documentos
+    private void refreshDashboard() {
+        documentsCountLabel.setText(String.format("%,d", documentService.getDocumentCount()));
+        departmentsCountLabel.setText(String.format("%,d", documentService.getDepartmentCount()));
+        completedTransfersLabel.setText(String.format("%,d", documentService.getTransferCount()));
+        pendingTransfersLabel.setText(String.format("%,d", scheduler.getPendingCount()));
+        int unloadedBuckets = scheduler.getUnloadedBucketCount();
+        pendingTransfersLabel.setToolTipText(unloadedBuckets == 0
+                ? "Transferências automáticas aguardando execução"
+                : "Agendadas para os próximos minutos; mais " + unloadedBuckets + " faixas de um minuto na fila em disco");
+        
+        // Reescrever a lista só quando houver eventos novos
+        long recorded = recentActivity.getRecordedCount();
+        if (recorded != shownActivityCount) {
+            shownActivityCount = recorded;
+            StringBuilder text = new StringBuilder();
+            for (RecentActivity.Entry entry : recentActivity.latest(RECENT_ACTIVITY_SHOWN)) {
+                text.append(entry).append('\n');
+            }
+            activityTextArea.setText(text.toString());
+            activityTextArea.setCaretPosition(0);
+        }
+    }
+    
+    // As tabelas e comboboxes leem as linhas do serviço sob demanda; atualizar só relê os tamanhos
+    private void updateDocumentsTable() {
+        // Com uma busca ativa, só os resultados em ordem de relevância
+        String query = documentSearchField.getText().trim();
+        int generation = ++searchGeneration;
+        if (query.isEmpty()) {
+            documentsTableModel.showAll();
+            return;
+        }
+        runInBackground("Falha na busca", () -> documentService.searchDocuments(query, SEARCH_RESULT_LIMIT), results -> {
+            if (generation == searchGeneration) {
+                documentsTableModel.showResults(results);
+            }
+        });
+    }
+    
+    // Aplica as alterações acumuladas no último quadro, atualizando só o que mudou
+    private void applyChanges(UiRefreshCoalescer.Changes changes) {
+        if (changes.isDocumentsAdded()) {
+            documentsTableModel.appendRows();
+            ((LazyComboBoxModel) documentComboBox.getModel()).refresh();
+            ((LazyComboBoxModel) historyDocumentComboBox.getModel()).refresh();
+        }
+        if (changes.isDocumentsTransferred()) {
+            documentsTableModel.rowsChanged(changes.getTransferredIds());
+        }
+        if (changes.isDepartmentsRegistered()) {
+            updateDepartmentsTable();
+            departmentItems = documentService.getAllDepartments().toArray(new Department[0]);
+            ((LazyComboBoxModel) sourceDeptComboBox.getModel()).refresh();
+            ((LazyComboBoxModel) targetDeptComboBox.getModel()).refresh();
+            ((LazyComboBoxModel) historySourceComboBox.getModel()).refresh();
+            ((LazyComboBoxModel) historyTargetComboBox.getModel()).refresh();
+        } else if (changes.isDocumentsAdded() || changes.isDocumentsTransferred()) {
+            departmentsTableModel.countsChanged();
+        }
+    }
+    
+    private void transferSelectedDocument() {
+        String documentId = selectedKey(documentComboBox);
+        String sourceCode = selectedKey(sourceDeptComboBox);
+        String targetCode = selectedKey(targetDeptComboBox);
+        if (documentId == null || sourceCode == null || targetCode == null) {
+            return;
+        }
+        runInBackground("Falha na transferência",
+                () -> documentService.transferDocument(documentId, sourceCode, targetCode), transferred -> {
+            if (!transferred) {
+                JOptionPane.showMessageDialog(mainFrame, "Não foi possível transferir " + documentId + " de "
+                        + sourceCode + " para " + targetCode + ".\nVerifique se o documento está no setor de origem.",
+                        "Transferência recusada", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+    }
+    
+    private void showSelectedHistory() {
+        String documentId = selectedKey(historyDocumentComboBox);
+        if (documentId != null) {
+            runInBackground("Falha ao ler o histórico", () -> documentService.getDocumentHistory(documentId),
+                    historyTextArea::setText);
+        }
+    }
+    
+    private void queryTransfers() {
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            from = parseHistoryDate(historyFromField.getText());
+            to = parseHistoryDate(historyToField.getText());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(mainFrame, "Data inválida: " + e.getParsedString()
+                    + "\nUse o formato dd/mm/aaaa.", "Consulta de transferências", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        // A data final entra inteira na consulta
+        historyQuery = new TransferAuditLog.Query(from, to == null ? null : to.plusDays(1),
+                selectedDepartmentFilter(historySourceComboBox), selectedDepartmentFilter(historyTargetComboBox));
+        historyCursor = null;
+        historyPage = 0;
+        showTransferPage();
+    }
+    
+    // Cada página continua do cursor da anterior; o custo depende só do tamanho da página
+    private void showTransferPage() {
+        TransferAuditLog.Query query = historyQuery;
+        TransferAuditLog.Cursor after = historyCursor;
+        int page = ++historyPage;
+        historyNextPageButton.setEnabled(false);
+        runInBackground("Falha na consulta de transferências",
+                () -> documentService.getAuditLog().query(query, after, HISTORY_PAGE_SIZE), result -> {
+            // Uma consulta nova substituiu esta enquanto a página era lida
+            if (query != historyQuery) {
+                return;
+            }
+            historyCursor = result.getNext();
+            historyNextPageButton.setEnabled(result.getNext() != null);
+            StringBuilder text = new StringBuilder();
+            text.append("Transferências - página ").append(page).append(": ")
+                .append(result.getEntries().size()).append(" registros")
+                .append(result.getNext() != null ? ", há mais na próxima página" : "").append("\n\n");
+            for (TransferAuditLog.Entry entry : result.getEntries()) {
+                text.append(entry).append('\n');
+            }
+            historyTextArea.setText(text.toString());
+            historyTextArea.setCaretPosition(0);
+        });
+    }
+    
+    // Campo em branco não limita o período
+    private static LocalDateTime parseHistoryDate(String text) {
+        String trimmed = text.trim();
+        return trimmed.isEmpty() ? null : LocalDate.parse(trimmed, HISTORY_DATE_FORMAT).atStartOfDay();
+    }
+    
+    private static String selectedDepartmentFilter(JComboBox<String> comboBox) {
+        return ANY_DEPARTMENT_ITEM.equals(comboBox.getSelectedItem()) ? null : selectedKey(comboBox);
+    }
+    
+    // Os itens das comboboxes têm a forma "CHAVE - descrição"
+    private static String selectedKey(JComboBox<String> comboBox) {
+        Object item = comboBox.getSelectedItem();
+        if (item == null) {
+            return null;
+        }
+        String text = item.toString();
+        int separator = text.indexOf(" - ");
+        return separator < 0 ? text : text.substring(0, separator);
+    }
+    
+    private void updateDepartmentsTable() {
+        departmentsTableModel.refresh();
+    }
+    
+    private void updateComboBoxes() {
+        departmentItems = documentService.getAllDepartments().toArray(new Department[0]);
+        for (JComboBox<String> comboBox : Arrays.asList(documentComboBox, historyDocumentComboBox,
+                sourceDeptComboBox, targetDeptComboBox, historySourceComboBox, historyTargetComboBox)) {
+            ((LazyComboBoxModel) comboBox.getModel()).refresh();
+        }
+    }
+    
+    private JComboBox<String> createDocumentComboBox() {
+        return LazyComboBoxModel.createComboBox(new LazyComboBoxModel(documentService::getDocumentCount, index -> {
+            Document doc = documentService.getDocumentAt(index);
+            return doc.getId() + " - " + doc.getTitle();
+        }), DOCUMENT_ITEM_PROTOTYPE);
+    }
+    
+    private JComboBox<String> createDepartmentComboBox() {
+        return LazyComboBoxModel.createComboBox(new LazyComboBoxModel(() -> departmentItems.length, index -> {
+            Department dept = departmentItems[index];
+            return dept.getCode() + " - " + dept.getName();
+        }), DEPARTMENT_ITEM_PROTOTYPE);
+    }
+    
+    // Setores para filtrar consultas, com "Qualquer setor" como primeiro item
+    private JComboBox<String> createDepartmentFilterComboBox() {
+        return LazyComboBoxModel.createComboBox(new LazyComboBoxModel(() -> departmentItems.length + 1, index -> {
+            if (index == 0) {
+                return ANY_DEPARTMENT_ITEM;
+            }
+            Department dept = departmentItems[index - 1];
+            return dept.getCode() + " - " + dept.getName();
+        }), DEPARTMENT_ITEM_PROTOTYPE);
+    }
+    
+    public static void main(String[] args) {
+        // Com --server, sobe só a API HTTP, sem janela (ver DocumentApiServer)
+        if (Arrays.asList(args).contains("--server")) {
+            DocumentApiServer.main(args);
+            return;
+        }
+
+        // Usar o Event Dispatch Thread para criar a UI
+        SwingUtilities.invokeLater(() -> {
+            try {
+                // Tentar usar o look and feel do sistema
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            new DocumentManagementSystemUI();
+        });
+    }
+}
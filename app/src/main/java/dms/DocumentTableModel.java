@@ -0,0 +1,135 @@
+package dms;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Modelo da tabela de documentos que lê as linhas do serviço sob demanda
+//
+// A JTable só pede os valores das linhas visíveis, então a tabela não guarda uma cópia do acervo:
+// guarda o número de linhas e um cache LRU das últimas linhas lidas, com as células formatadas
+// na primeira vez em que são exibidas. Sem busca as linhas seguem a ordem de inserção do serviço;
+// com busca, a lista de resultados. Deve ser usado só na thread de eventos.
+class DocumentTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"ID", "Título", "Setor Atual", "Data de Criação"};
+    private static final int CACHED_ROWS = 512;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final DocumentService documentService;
+    // Resultados de uma busca; nulo mostra todos os documentos
+    private List<Document> results;
+    private int rowCount;
+    private final Map<Integer, Object[]> rows = new LinkedHashMap<Integer, Object[]>(CACHED_ROWS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > CACHED_ROWS;
+        }
+    };
+
+    public DocumentTableModel(DocumentService documentService) {
+        this.documentService = documentService;
+    }
+
+    public void showAll() {
+        results = null;
+        reload();
+    }
+
+    public void showResults(List<Document> searchResults) {
+        results = searchResults;
+        reload();
+    }
+
+    private void reload() {
+        rowCount = results == null ? documentService.getDocumentCount() : results.size();
+        rows.clear();
+        fireTableDataChanged();
+    }
+
+    // Documentos novos entram no fim da ordem de inserção; a seleção e a rolagem são preservadas
+    public void appendRows() {
+        if (results != null) {
+            return;
+        }
+        int previous = rowCount;
+        rowCount = documentService.getDocumentCount();
+        if (rowCount > previous) {
+            fireTableRowsInserted(previous, rowCount - 1);
+        }
+    }
+
+    // Só as linhas em cache podem estar desatualizadas: as demais serão lidas do serviço quando exibidas.
+    // Com ids nulo todas as linhas são tratadas como alteradas.
+    public void rowsChanged(Set<String> documentIds) {
+        if (documentIds == null) {
+            rows.clear();
+            if (rowCount > 0) {
+                fireTableRowsUpdated(0, rowCount - 1);
+            }
+            return;
+        }
+        List<Integer> changed = new ArrayList<>();
+        for (Iterator<Map.Entry<Integer, Object[]>> it = rows.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Object[]> entry = it.next();
+            Document document = (Document) entry.getValue()[COLUMNS.length];
+            if (documentIds.contains(document.getId())) {
+                it.remove();
+                changed.add(entry.getKey());
+            }
+        }
+        for (int row : changed) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    public Document getDocumentAt(int row) {
+        return results == null ? documentService.getDocumentAt(row) : results.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object[] cells = rows.get(row);
+        if (cells == null) {
+            // A última coluna guarda o documento para formatar as demais quando forem pedidas
+            cells = new Object[COLUMNS.length + 1];
+            cells[COLUMNS.length] = getDocumentAt(row);
+            rows.put(row, cells);
+        }
+        if (cells[column] == null) {
+            Document document = (Document) cells[COLUMNS.length];
+            switch (column) {
+                case 0: cells[column] = document.getId(); break;
+                case 1: cells[column] = document.getTitle(); break;
+                case 2: cells[column] = document.getCurrentDepartment().getName(); break;
+                default: cells[column] = document.getCreatedAt().format(DATE_FORMAT); break;
+            }
+        }
+        return cells[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+}
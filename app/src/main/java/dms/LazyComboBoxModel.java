@@ -0,0 +1,123 @@
+package dms;
+
+import javax.accessibility.Accessible;
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import javax.swing.JComboBox;
+import javax.swing.plaf.basic.ComboPopup;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+// Modelo de combobox que monta o texto de cada item só quando a lista pede
+//
+// O tamanho e os itens vêm de funções (por exemplo, quantidade e documento por posição no
+// serviço), e só os últimos textos montados ficam em cache. A combobox e a lista do popup
+// precisam de um protótipo de tamanho para não medir todos os itens, e a posição selecionada é
+// guardada no modelo porque a JComboBox a procuraria item a item: use createComboBox.
+// Deve ser usado só na thread de eventos.
+class LazyComboBoxModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+    private static final long serialVersionUID = 1L;
+    private static final int CACHED_ITEMS = 256;
+
+    private final IntSupplier sizeSource;
+    private final IntFunction<String> itemSource;
+    private int size;
+    private Object selectedItem;
+    private int selectedIndex = -1;
+    private final Map<Integer, String> items = new LinkedHashMap<Integer, String>(CACHED_ITEMS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHED_ITEMS;
+        }
+    };
+
+    public LazyComboBoxModel(IntSupplier sizeSource, IntFunction<String> itemSource) {
+        this.sizeSource = sizeSource;
+        this.itemSource = itemSource;
+    }
+
+    static JComboBox<String> createComboBox(LazyComboBoxModel model, String prototype) {
+        JComboBox<String> comboBox = new JComboBox<String>(model) {
+            @Override
+            public int getSelectedIndex() {
+                int index = model.getSelectedIndex();
+                return index >= 0 || model.getSelectedItem() == null ? index : super.getSelectedIndex();
+            }
+
+            @Override
+            public void setSelectedIndex(int index) {
+                if (index < -1 || index >= model.getSize()) {
+                    throw new IllegalArgumentException("setSelectedIndex: " + index + " out of bounds");
+                }
+                model.setSelectedIndex(index);
+            }
+        };
+        comboBox.setPrototypeDisplayValue(prototype);
+        // Sem altura fixa de célula a JList do popup mede todos os itens a cada seleção
+        Accessible popup = comboBox.getUI().getAccessibleChild(comboBox, 0);
+        if (popup instanceof ComboPopup) {
+            ((ComboPopup) popup).getList().setPrototypeCellValue(prototype);
+        }
+        return comboBox;
+    }
+
+    // Relê o tamanho; como a DefaultComboBoxModel, seleciona o primeiro item se nada estiver selecionado
+    public void refresh() {
+        int previous = size;
+        size = sizeSource.getAsInt();
+        items.clear();
+        if (size < previous) {
+            fireIntervalRemoved(this, size, previous - 1);
+        }
+        if (previous > 0 && size > 0) {
+            fireContentsChanged(this, 0, Math.min(previous, size) - 1);
+        }
+        if (size > previous) {
+            fireIntervalAdded(this, previous, size - 1);
+        }
+        if (size == 0) {
+            setSelectedIndex(-1);
+        } else if (selectedItem == null) {
+            setSelectedIndex(0);
+        } else if (selectedIndex >= size) {
+            selectedIndex = -1;
+        }
+    }
+
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    public void setSelectedIndex(int index) {
+        selectedIndex = index;
+        selectedItem = index < 0 ? null : getElementAt(index);
+        fireContentsChanged(this, -1, -1);
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return items.computeIfAbsent(index, itemSource::apply);
+    }
+
+    @Override
+    public void setSelectedItem(Object item) {
+        if (item == null ? selectedItem != null : !item.equals(selectedItem)) {
+            selectedItem = item;
+            // Posição desconhecida: a JComboBox procura o item quando precisar dela
+            selectedIndex = -1;
+            fireContentsChanged(this, -1, -1);
+        }
+    }
+
+    @Override
+    public Object getSelectedItem() {
+        return selectedItem;
+    }
+}
@@ -0,0 +1,125 @@
+package dms;
+
+import javax.swing.SwingUtilities;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Junta as alterações do serviço e entrega à interface no máximo uma vez por quadro
+//
+// Os avisos chegam de qualquer thread (interface, agendador, importação) e só marcam o que mudou:
+// documentos novos, setores novos e os ids dos documentos transferidos. O primeiro aviso depois de
+// uma entrega agenda a próxima para o fim do quadro atual; a entrega roda na thread de eventos com
+// tudo o que se acumulou até ali. Acima de MAX_TRACKED_IDS transferências num quadro os ids deixam
+// de ser guardados e a interface repinta tudo o que está visível.
+class UiRefreshCoalescer implements DocumentService.ChangeListener {
+    static final long FRAME_MILLIS = 33;
+    private static final int MAX_TRACKED_IDS = 4_096;
+
+    static class Changes {
+        private final boolean documentsAdded;
+        private final boolean departmentsRegistered;
+        private final Set<String> transferredIds;
+
+        Changes(boolean documentsAdded, boolean departmentsRegistered, Set<String> transferredIds) {
+            this.documentsAdded = documentsAdded;
+            this.departmentsRegistered = departmentsRegistered;
+            this.transferredIds = transferredIds;
+        }
+
+        public boolean isDocumentsAdded() {
+            return documentsAdded;
+        }
+
+        public boolean isDepartmentsRegistered() {
+            return departmentsRegistered;
+        }
+
+        public boolean isDocumentsTransferred() {
+            return transferredIds == null || !transferredIds.isEmpty();
+        }
+
+        // Ids transferidos no quadro; nulo quando foram tantos que vale tratar todos como alterados
+        public Set<String> getTransferredIds() {
+            return transferredIds;
+        }
+    }
+
+    private final Consumer<Changes> applier;
+    private final ScheduledExecutorService timer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean documentsAdded = new AtomicBoolean();
+    private final AtomicBoolean departmentsRegistered = new AtomicBoolean();
+    private final AtomicBoolean tooManyTransfers = new AtomicBoolean();
+    private final Set<String> transferredIds = ConcurrentHashMap.newKeySet();
+    private volatile long lastFlushNanos;
+
+    // O applier roda na thread de eventos
+    public UiRefreshCoalescer(Consumer<Changes> applier) {
+        this.applier = applier;
+        this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "ui-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastFlushNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS);
+    }
+
+    @Override
+    public void documentAdded(Document document) {
+        documentsAdded.set(true);
+        scheduleFlush();
+    }
+
+    @Override
+    public void documentTransferred(Document document) {
+        if (!tooManyTransfers.get()) {
+            if (transferredIds.size() < MAX_TRACKED_IDS) {
+                transferredIds.add(document.getId());
+            } else {
+                tooManyTransfers.set(true);
+            }
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void departmentRegistered(Department department) {
+        departmentsRegistered.set(true);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.get() || !flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long elapsed = System.nanoTime() - lastFlushNanos;
+        long delay = Math.max(0, TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS) - elapsed);
+        timer.schedule(() -> SwingUtilities.invokeLater(this::flush), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void flush() {
+        lastFlushNanos = System.nanoTime();
+        // Liberar o agendamento antes de ler: avisos que chegarem daqui em diante geram outra entrega
+        flushScheduled.set(false);
+        // Remover id a id: um id acrescentado durante a leitura fica para a próxima entrega
+        boolean all = tooManyTransfers.getAndSet(false);
+        Set<String> ids = new HashSet<>();
+        for (String id : transferredIds) {
+            transferredIds.remove(id);
+            ids.add(id);
+        }
+        applier.accept(new Changes(documentsAdded.getAndSet(false), departmentsRegistered.getAndSet(false),
+                all ? null : Collections.unmodifiableSet(ids)));
+    }
+
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,211 @@
+package dms;
+
+// Carga na API HTTP: muitos clientes simultâneos com conexões keep-alive
+//
+// Sobe o DocumentApiServer no mesmo processo, numa porta livre e só em memória, com os documentos
+// divididos entre dois setores. Cada cliente é uma thread com documentos próprios, então sabe o
+// setor atual de cada um e toda transferência pedida é válida; as requisições saem de um único
+// HttpClient em HTTP/1.1, que reaproveita uma conexão por cliente. Depois de um aquecimento, três
+// fases medidas: leitura de documento, transferência individual e transferência em lote. Para cada
+// uma informa requisições e transferências por segundo, a latência de cada requisição vista pelo
+// cliente (p50, p99, p99,9 e máximo) e as respostas com erro. No fim confere se o setor de cada
+// documento no serviço é o que o cliente dono dele espera.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/ApiLoadBenchmark.java
+//   java -cp out dms.ApiLoadBenchmark [clientes] [segundos por fase] [documentos] [itens por lote]
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ApiLoadBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "JUR"};
+
+    private enum Phase { READ, TRANSFER, BATCH }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int documentCount = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        if (documentCount < clients) {
+            throw new IllegalArgumentException("São necessários ao menos tantos documentos quanto clientes");
+        }
+
+        // Silenciar o console: cada transferência gera um evento no log
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        DocumentService service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        List<Document> documents = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            documents.add(new Document("DOC" + i, "Documento " + i, "Conteúdo " + i,
+                    service.getDepartment(DEPARTMENTS[0])));
+        }
+        service.addDocuments(documents);
+        AutomaticTransferScheduler scheduler = new AutomaticTransferScheduler(service);
+        DocumentApiServer server = new DocumentApiServer(service, scheduler, 0);
+        server.start();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String base = "http://localhost:" + server.getPort() + "/api/";
+        // Setor atual de cada documento, por índice de DEPARTMENTS; só o cliente dono escreve
+        int[] departments = new int[documentCount];
+
+        console.printf("%d clientes, %d documentos, lotes de %d itens, %s%n", clients, documentCount, batchSize,
+                System.getProperty("java.version"));
+        console.printf("%-10s %12s %14s %10s %10s %10s %10s %8s%n", "fase", "req/s", "transf/s", "p50 ms",
+                "p99 ms", "p99,9 ms", "máx ms", "erros");
+        runPhase(client, base, Phase.TRANSFER, clients, Math.max(2, seconds / 2), documentCount, batchSize,
+                departments, null);
+        for (Phase phase : Phase.values()) {
+            runPhase(client, base, phase, clients, seconds, documentCount, batchSize, departments, console);
+        }
+
+        int mismatched = 0;
+        for (int i = 0; i < documentCount; i++) {
+            if (!service.getDocument("DOC" + i).getCurrentDepartment().getCode().equals(DEPARTMENTS[departments[i]])) {
+                mismatched++;
+            }
+        }
+        server.stop();
+        System.setOut(console);
+        System.out.println(mismatched == 0 ? "Setores conferem com os clientes"
+                : mismatched + " documentos em setor diferente do esperado");
+    }
+
+    // Sem console a fase é aquecimento e não é relatada
+    private static void runPhase(HttpClient client, String base, Phase phase, int clients, int seconds,
+                                 int documentCount, int batchSize, int[] departments, PrintStream console)
+            throws Exception {
+        TransferMetrics.Histogram latency = new TransferMetrics.Histogram();
+        LongAdder requests = new LongAdder();
+        LongAdder transfers = new LongAdder();
+        LongAdder errors = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<?>> futures = new ArrayList<>();
+        long[] window = new long[2];
+
+        for (int c = 0; c < clients; c++) {
+            int clientIndex = c;
+            futures.add(executor.submit(() -> {
+                // Documentos deste cliente: clientIndex, clientIndex + clients, ...
+                int next = clientIndex;
+                start.await();
+                long deadline = window[1];
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request;
+                    int[] touched;
+                    if (phase == Phase.READ) {
+                        touched = new int[] {next};
+                        request = HttpRequest.newBuilder(URI.create(base + "documents/DOC" + next)).GET().build();
+                    } else {
+                        touched = new int[phase == Phase.BATCH ? batchSize : 1];
+                        for (int i = 0; i < touched.length; i++) {
+                            touched[i] = next;
+                            next += clients;
+                            if (next >= documentCount) {
+                                next = clientIndex;
+                            }
+                        }
+                        request = HttpRequest.newBuilder(URI.create(base
+                                        + (phase == Phase.BATCH ? "transfers/batch" : "transfers")))
+                                .POST(HttpRequest.BodyPublishers.ofString(transferBody(phase, touched, departments)))
+                                .header("Content-Type", "application/json")
+                                .build();
+                    }
+                    if (phase == Phase.READ) {
+                        next += clients;
+                        if (next >= documentCount) {
+                            next = clientIndex;
+                        }
+                    }
+
+                    long begin = System.nanoTime();
+                    HttpResponse<String> response;
+                    try {
+                        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    } catch (IOException e) {
+                        errors.increment();
+                        continue;
+                    }
+                    latency.record(System.nanoTime() - begin);
+                    requests.increment();
+
+                    if (response.statusCode() != 200
+                            || phase == Phase.BATCH && !response.body().contains("\"failed\":0")) {
+                        errors.increment();
+                        // Estado incerto: reler o setor dos documentos tocados
+                        for (int document : touched) {
+                            departments[document] = fetchDepartment(client, base, document);
+                        }
+                    } else if (phase != Phase.READ) {
+                        for (int document : touched) {
+                            departments[document] ^= 1;
+                        }
+                        transfers.add(touched.length);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        window[0] = System.nanoTime();
+        window[1] = window[0] + TimeUnit.SECONDS.toNanos(seconds);
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double elapsed = (System.nanoTime() - window[0]) / 1e9;
+        executor.shutdown();
+
+        if (console != null) {
+            TransferMetrics.Snapshot snapshot = latency.snapshot();
+            console.printf("%-10s %,12.0f %,14.0f %10.2f %10.2f %10.2f %10.2f %8d%n", phase,
+                    requests.sum() / elapsed, transfers.sum() / elapsed,
+                    snapshot.valueAtPercentile(50) / 1e6, snapshot.valueAtPercentile(99) / 1e6,
+                    snapshot.valueAtPercentile(99.9) / 1e6, snapshot.getMax() / 1e6, errors.sum());
+        }
+    }
+
+    // Cada documento vai do setor atual para o outro; num lote os itens de um mesmo documento se alternam
+    private static String transferBody(Phase phase, int[] touched, int[] departments) {
+        StringBuilder body = new StringBuilder(phase == Phase.BATCH ? "{\"items\":[" : "");
+        Map<Integer, Integer> pending = new HashMap<>();
+        for (int i = 0; i < touched.length; i++) {
+            int document = touched[i];
+            int source = pending.getOrDefault(document, departments[document]);
+            pending.put(document, source ^ 1);
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"document\":\"DOC").append(document)
+                    .append("\",\"source\":\"").append(DEPARTMENTS[source])
+                    .append("\",\"target\":\"").append(DEPARTMENTS[source ^ 1]).append("\"}");
+        }
+        return phase == Phase.BATCH ? body.append("]}").toString() : body.toString();
+    }
+
+    private static int fetchDepartment(HttpClient client, String base, int document) throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(base + "documents/DOC" + document)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        return response.body().contains("\"department\":\"" + DEPARTMENTS[1] + "\"") ? 1 : 0;
+    }
+}
@@ -0,0 +1,96 @@
+package dms;
+
+// Transferência em lote (transferDocuments) comparada a um laço sobre transferDocument
+//
+// No estilo do JMH: iterações de aquecimento descartadas, seguidas de iterações medidas com
+// média e desvio padrão. Cada iteração move todos os documentos do lote para o setor seguinte,
+// então todos os itens são válidos em todas as iterações. Mede também o lote tudo-ou-nada.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/BatchTransferBenchmark.java
+//   java -cp out dms.BatchTransferBenchmark [tamanhos separados por vírgula] [aquecimento] [medições]
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+
+public class BatchTransferBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR", "ADM", "COM", "LOG", "DIR"};
+
+    private enum Variant { LOOP, BATCH, BATCH_ALL_OR_NOTHING }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1_000, 10_000, 100_000};
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int measured = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        console.printf("%-22s %10s %14s %12s %16s%n", "variante", "lote", "ms/op", "± desvio", "itens/s");
+        for (int size : sizes) {
+            for (Variant variant : Variant.values()) {
+                DocumentService service = populate(size);
+                int[] round = {0};
+                for (int i = 0; i < warmup; i++) {
+                    runIteration(service, variant, size, round[0]++);
+                }
+                double[] millis = new double[measured];
+                for (int i = 0; i < measured; i++) {
+                    millis[i] = runIteration(service, variant, size, round[0]++);
+                }
+                double mean = Arrays.stream(millis).average().orElse(0);
+                double deviation = Math.sqrt(Arrays.stream(millis).map(m -> (m - mean) * (m - mean)).sum()
+                        / Math.max(1, measured - 1));
+                console.printf("%-22s %10d %14.3f %12.3f %,16.0f%n", variant, size, mean, deviation,
+                        size / (mean / 1000.0));
+            }
+        }
+        System.setOut(console);
+    }
+
+    private static DocumentService populate(int size) {
+        DocumentService service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < size; i++) {
+            service.addDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo " + i,
+                    service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length])));
+        }
+        return service;
+    }
+
+    private static double runIteration(DocumentService service, Variant variant, int size, int round) {
+        List<TransferRequest> requests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            requests.add(new TransferRequest("DOC" + i, DEPARTMENTS[(i + round) % DEPARTMENTS.length],
+                    DEPARTMENTS[(i + round + 1) % DEPARTMENTS.length]));
+        }
+
+        long begin = System.nanoTime();
+        int transferred = 0;
+        switch (variant) {
+            case LOOP:
+                for (TransferRequest request : requests) {
+                    if (service.transferDocument(request.getDocumentId(), request.getSourceDeptCode(),
+                            request.getTargetDeptCode())) {
+                        transferred++;
+                    }
+                }
+                break;
+            case BATCH:
+                transferred = service.transferDocuments(requests, false).getTransferredCount();
+                break;
+            default:
+                transferred = service.transferDocuments(requests, true).getTransferredCount();
+        }
+        double millis = (System.nanoTime() - begin) / 1e6;
+        if (transferred != size) {
+            throw new IllegalStateException(variant + ": " + transferred + " de " + size + " transferidos");
+        }
+        return millis;
+    }
+}
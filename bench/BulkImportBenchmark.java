@@ -0,0 +1,126 @@
+package dms;
+
+// Vazão da importação em massa de documentos a partir de CSV e JSON-lines
+//
+// Gera arquivos com campos entre aspas, vírgulas e quebras de linha no conteúdo, além de uma
+// fração de registros inválidos (setor inexistente, id vazio, JSON malformado, id repetido).
+// Importa cada arquivo num serviço só em memória com arquivo de rejeitados e confere se todos
+// os registros válidos entraram e todos os inválidos foram rejeitados. Por fim confirma que,
+// sem arquivo de rejeitados, o primeiro registro inválido interrompe a importação.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/BulkImportBenchmark.java
+//   java -cp out dms.BulkImportBenchmark [documentos] [workers] [diretório]
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class BulkImportBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR", "ADM", "COM", "LOG", "DIR"};
+    private static final int INVALID_EVERY = 100;
+
+    public static void main(String[] args) throws Exception {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("dms-import");
+        Files.createDirectories(directory);
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Path departments = directory.resolve("setores.csv");
+        try (Writer out = Files.newBufferedWriter(departments, StandardCharsets.UTF_8)) {
+            out.write("code,name\n");
+            for (String code : DEPARTMENTS) {
+                out.write(code + ",Setor " + code + "\n");
+            }
+        }
+        Path csv = directory.resolve("documentos.csv");
+        Path jsonl = directory.resolve("documentos.jsonl");
+        long invalid = generate(csv, jsonl, documentCount);
+        console.printf("Documentos: %,d (%,d inválidos por arquivo), workers: %d, CSV: %,d MB, JSON-lines: %,d MB%n",
+                documentCount, invalid, workers, Files.size(csv) >> 20, Files.size(jsonl) >> 20);
+
+        for (Path file : new Path[] {csv, jsonl}) {
+            DocumentService service = new DocumentService();
+            BulkImporter importer = new BulkImporter(service, workers, 1_000);
+            importer.importDepartments(departments, null);
+            Path rejects = BulkImporter.defaultRejectFile(file);
+            BulkImporter.ImportResult result = importer.importDocuments(file, rejects);
+            console.printf("%-18s %,12.0f registros/s  (%,d importados, %,d rejeitados, %,d ms)%n",
+                    file.getFileName(), result.getRowsPerSecond(), result.getImported(), result.getRejected(),
+                    result.getElapsedMillis());
+
+            long rejectLines;
+            try (Stream<String> lines = Files.lines(rejects, StandardCharsets.UTF_8)) {
+                rejectLines = lines.filter(line -> line.contains("\"line\":") || line.matches(".*,\\d+,[^,]*$")).count();
+            }
+            if (result.getImported() != documentCount - invalid || result.getRejected() != invalid
+                    || service.getAllDocuments().size() != documentCount - invalid || rejectLines < invalid) {
+                console.println("FALHA: contagens de importados e rejeitados não conferem");
+                System.exit(1);
+            }
+            Document sample = service.getDocument("DOC1");
+            if (sample == null || !sample.getContent().equals(content(1))) {
+                console.println("FALHA: conteúdo importado difere do gerado");
+                System.exit(1);
+            }
+        }
+
+        // Sem arquivo de rejeitados a importação para no primeiro registro inválido
+        DocumentService service = new DocumentService();
+        BulkImporter importer = new BulkImporter(service, workers, 1_000);
+        importer.importDepartments(departments, null);
+        try {
+            importer.importDocuments(csv, null);
+            console.println("FALHA: importação sem arquivo de rejeitados não foi interrompida");
+            System.exit(1);
+        } catch (IOException e) {
+            console.println("Modo estrito interrompido: " + e.getMessage());
+        }
+
+        System.setOut(console);
+        if (args.length <= 2) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Grava os dois arquivos com o mesmo conteúdo e devolve quantos registros inválidos cada um tem
+    private static long generate(Path csv, Path jsonl, int documentCount) throws IOException {
+        long invalid = 0;
+        try (Writer csvOut = new BufferedWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8), 1 << 16);
+             Writer jsonOut = new BufferedWriter(Files.newBufferedWriter(jsonl, StandardCharsets.UTF_8), 1 << 16)) {
+            csvOut.write("id,title,department,content\n");
+            for (int i = 0; i < documentCount; i++) {
+                String id = "DOC" + i;
+                String department = DEPARTMENTS[i % DEPARTMENTS.length];
+                if (i % INVALID_EVERY == INVALID_EVERY - 1) {
+                    // Alternar entre os tipos de erro
+                    switch ((i / INVALID_EVERY) % 3) {
+                        case 0: department = "XXX"; break;
+                        case 1: id = ""; break;
+                        default: id = "DOC" + (i - 1); break;
+                    }
+                    invalid++;
+                }
+                String title = "Relatório " + i + ", revisão " + (i % 7);
+                csvOut.write(id + "," + BulkImporter.csvQuote(title) + "," + department + ","
+                        + BulkImporter.csvQuote(content(i)) + "\n");
+                jsonOut.write("{\"id\":" + Json.quote(id) + ",\"title\":" + Json.quote(title)
+                        + ",\"content\":" + Json.quote(content(i)) + ",\"department\":\"" + department + "\"}\n");
+            }
+        }
+        return invalid;
+    }
+
+    private static String content(int i) {
+        return i % 10 == 0
+                ? "Conteúdo com \"aspas\", vírgulas\ne quebra de linha " + i
+                : "Conteúdo do documento " + i;
+    }
+}
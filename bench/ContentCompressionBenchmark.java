@@ -0,0 +1,98 @@
+package dms;
+
+// Espaço economizado pela deduplicação e compressão do ContentStore e o custo na leitura
+//
+// Gera um acervo parecido com o real: metade dos documentos é cópia exata de um de poucos
+// modelos, a outra metade é um modelo preenchido com dados próprios (quase igual, mas único). Para
+// cada modo de compressão grava o acervo num ContentStore novo e informa os bytes gravados contra
+// os bytes originais, a vazão da gravação e a latência de leitura sem cache (read) de textos
+// sorteados. Todos os textos lidos são conferidos com os originais.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/ContentCompressionBenchmark.java
+//   java -cp out dms.ContentCompressionBenchmark [documentos] [modelos]
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+public class ContentCompressionBenchmark {
+    private static final String[] WORDS = {"relatório", "contrato", "pagamento", "fornecedor", "processo",
+            "análise", "orçamento", "projeto", "reunião", "aprovação", "documento", "setor", "prazo", "revisão",
+            "licitação", "proposta", "auditoria", "despesa", "receita", "planejamento"};
+
+    public static void main(String[] args) throws IOException {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int templateCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        String[] templates = new String[templateCount];
+        for (int t = 0; t < templateCount; t++) {
+            templates[t] = template(t);
+        }
+        String[] contents = new String[documentCount];
+        long rawBytes = 0;
+        for (int i = 0; i < documentCount; i++) {
+            contents[i] = contentFor(i, templates);
+            rawBytes += contents[i].getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+        }
+        System.out.printf("Documentos: %,d, modelos: %d, texto original: %,.1f MB%n", documentCount, templateCount,
+                rawBytes / (1024.0 * 1024.0));
+        System.out.printf("%-8s %12s %8s %12s %14s %14s%n", "modo", "gravado MB", "razão", "gravação/s",
+                "leitura p50", "leitura p99");
+
+        for (ContentStore.Compression mode : ContentStore.Compression.values()) {
+            Path directory = Files.createTempDirectory("dms-compressao");
+            ContentStore store = new ContentStore(directory, ContentStore.DEFAULT_CACHE_CHARS, mode);
+            long[] references = new long[documentCount];
+            long start = System.nanoTime();
+            for (int i = 0; i < documentCount; i++) {
+                references[i] = store.store(contents[i]);
+            }
+            double storeSeconds = (System.nanoTime() - start) / 1e9;
+
+            Random random = new Random(3);
+            long[] latencies = new long[50_000];
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < latencies.length; i++) {
+                    int document = random.nextInt(documentCount);
+                    long readStart = System.nanoTime();
+                    String content = store.read(references[document]);
+                    latencies[i] = System.nanoTime() - readStart;
+                    if (!content.equals(contents[document])) {
+                        throw new IllegalStateException("Conteúdo diferente no documento " + document);
+                    }
+                }
+            }
+            Arrays.sort(latencies);
+            System.out.printf("%-8s %,12.1f %7.1fx %,12.0f %11.1f µs %11.1f µs%n", mode,
+                    store.getStoredBytes() / (1024.0 * 1024.0), rawBytes / (double) store.getStoredBytes(),
+                    documentCount / storeSeconds, latencies[latencies.length / 2] / 1e3,
+                    latencies[latencies.length * 99 / 100] / 1e3);
+            store.close();
+        }
+        System.out.println("Conteúdo conferido: OK");
+    }
+
+    // Modelo de 2 a 6 KB com parágrafos de texto corrido
+    private static String template(int number) {
+        Random random = new Random(1_000 + number);
+        int length = 2048 + random.nextInt(4 * 1024);
+        StringBuilder text = new StringBuilder("Modelo ").append(number).append(": ");
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? ".\n" : " ");
+        }
+        return text.toString();
+    }
+
+    // Documentos pares são cópias exatas de um modelo; ímpares, o modelo com cabeçalho e valores próprios
+    private static String contentFor(int document, String[] templates) {
+        String template = templates[document % templates.length];
+        if (document % 2 == 0) {
+            return template;
+        }
+        Random random = new Random(document);
+        return "Processo nº " + document + "/" + (2000 + random.nextInt(25)) + "\nInteressado: Fornecedor "
+                + random.nextInt(100_000) + "\nValor: R$ " + random.nextInt(1_000_000) + "," + random.nextInt(100)
+                + "\n\n" + template;
+    }
+}
@@ -0,0 +1,125 @@
+package dms;
+
+// Heap ocupado pelo conteúdo dos documentos com e sem o ContentStore, e custo de ler o conteúdo
+//
+// Carrega o mesmo acervo (textos de 1 a 8 KB) em dois serviços: um com o conteúdo no heap, como
+// antes, e outro com o ContentStore em arquivos mapeados. Mede o heap usado depois de coletar o
+// lixo e, no serviço com store, a latência de getContent para leituras espalhadas pelo acervo
+// (quase tudo fora do cache) e para um conjunto pequeno relido várias vezes (cache). Todos os
+// textos lidos são conferidos com os originais.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/ContentStoreBenchmark.java
+//   java -cp out dms.ContentStoreBenchmark [documentos] [diretório]
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.*;
+
+public class ContentStoreBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR"};
+    private static final String[] WORDS = {"relatório", "contrato", "pagamento", "fornecedor", "processo",
+            "análise", "orçamento", "projeto", "reunião", "aprovação", "documento", "setor", "prazo", "revisão",
+            "licitação", "proposta", "auditoria", "despesa", "receita", "planejamento"};
+
+    public static void main(String[] args) throws IOException {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("dms-conteudo");
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.setSink((level, message, key1, value1, key2, value2, key3, value3) -> { });
+
+        long baseline = usedHeap();
+        DocumentService onHeap = populate(new DocumentService(), documentCount);
+        long onHeapBytes = usedHeap() - baseline;
+        long contentChars = 0;
+        for (int i = 0; i < documentCount; i++) {
+            contentChars += onHeap.getDocument("DOC" + i).getContent().length();
+        }
+        onHeap = null;
+
+        baseline = usedHeap();
+        ContentStore store = new ContentStore(directory);
+        DocumentService paged = new DocumentService();
+        paged.attachContentStore(store);
+        populate(paged, documentCount);
+        long pagedBytes = usedHeap() - baseline;
+
+        console.printf("Documentos: %,d, conteúdo: %,.1f MB de texto%n", documentCount, contentChars / (1024.0 * 1024.0));
+        console.printf("Conteúdo no heap:   heap %,8.1f MB%n", onHeapBytes / (1024.0 * 1024.0));
+        console.printf("ContentStore:       heap %,8.1f MB, arquivos %,.1f MB em %s%n", pagedBytes / (1024.0 * 1024.0),
+                store.getStoredBytes() / (1024.0 * 1024.0), directory);
+
+        Random random = new Random(7);
+        long[] scattered = new long[20_000];
+        for (int i = 0; i < scattered.length; i++) {
+            scattered[i] = timeRead(paged, random.nextInt(documentCount));
+        }
+        long[] hot = new long[20_000];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = timeRead(paged, random.nextInt(50));
+        }
+        report(console, "Leituras espalhadas", scattered);
+        report(console, "Conjunto pequeno (cache)", hot);
+        console.printf("Cache: %,d acertos, %,d faltas%n", store.getCacheHits(), store.getCacheMisses());
+        console.println("Conteúdo conferido: OK");
+        store.close();
+    }
+
+    private static DocumentService populate(DocumentService service, int documentCount) {
+        for (String code : DEPARTMENTS) {
+            service.restoreDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < documentCount; i++) {
+            service.restoreDocument(new Document("DOC" + i, "Documento " + i, contentFor(i),
+                    service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length])));
+        }
+        return service;
+    }
+
+    // Texto determinístico de 1 a 8 KB a partir do número do documento
+    private static String contentFor(int document) {
+        Random random = new Random(document);
+        int length = 1024 + random.nextInt(7 * 1024);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static long timeRead(DocumentService service, int document) {
+        Document target = service.getDocument("DOC" + document);
+        long start = System.nanoTime();
+        String content = target.getContent();
+        long elapsed = System.nanoTime() - start;
+        if (!content.equals(contentFor(document))) {
+            throw new IllegalStateException("Conteúdo diferente no documento " + document);
+        }
+        return elapsed;
+    }
+
+    private static void report(PrintStream console, String label, long[] latencies) {
+        Arrays.sort(latencies);
+        console.printf("%-26s p50 %6.1f µs, p99 %6.1f µs%n", label, latencies[latencies.length / 2] / 1e3,
+                latencies[latencies.length * 99 / 100] / 1e3);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,110 @@
+package dms;
+
+// Custo do registro de eventos no caminho das transferências
+//
+// Compara a vazão de transferências concorrentes com o destino de eventos síncrono (formatar a
+// mensagem e chamar println na própria thread, como antes) e com o AsyncEventSink. Nos dois casos
+// a saída vai para um arquivo com flush a cada linha, como um console; um destino que descarta
+// tudo serve de referência para o custo da transferência em si. Informa também quantos
+// eventos o destino assíncrono descartou por buffer cheio. A última linha mede o destino assíncrono
+// com o RecentActivity na frente, como a interface gráfica usa para o painel de atividades.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/EventSinkBenchmark.java
+//   java -cp out dms.EventSinkBenchmark [threads separadas por vírgula] [segundos]
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class EventSinkBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR", "ADM", "COM", "LOG", "DIR"};
+    private static final int DOCUMENTS = 100_000;
+
+    // Comportamento anterior: mensagem montada e escrita pela thread que publica
+    private static class SynchronousSink implements EventLog.Sink {
+        private final PrintStream out;
+
+        SynchronousSink(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void publish(EventLog.Level level, String message, String key1, Object value1, String key2,
+                            Object value2, String key3, Object value3) {
+            out.println(level + " " + message + (key1 == null ? "" : " " + key1 + "=" + value1)
+                    + (key2 == null ? "" : " " + key2 + "=" + value2) + (key3 == null ? "" : " " + key3 + "=" + value3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1, 4, 16};
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Path file = Files.createTempFile("dms-events", ".log");
+        PrintStream console = System.out;
+        console.printf("%-10s %8s %18s %12s%n", "destino", "threads", "transferências/s", "descartados");
+        try (PrintStream out = new PrintStream(new FileOutputStream(file.toFile()), true)) {
+            for (int threads : threadCounts) {
+                // Referência: eventos descartados sem formatação
+                EventLog.setSink((level, message, key1, value1, key2, value2, key3, value3) -> { });
+                console.printf("%-10s %8d %,18.0f %12s%n", "nenhum", threads, run(threads, seconds), "-");
+
+                EventLog.setSink(new SynchronousSink(out));
+                console.printf("%-10s %8d %,18.0f %12s%n", "síncrono", threads, run(threads, seconds), "-");
+
+                AsyncEventSink async = new AsyncEventSink(AsyncEventSink.DEFAULT_CAPACITY, EventLog.Level.INFO, () -> out);
+                EventLog.setSink(async);
+                double throughput = run(threads, seconds);
+                async.flush();
+                console.printf("%-10s %8d %,18.0f %,12d%n", "assíncr.", threads, throughput, async.getDroppedCount());
+                async.close();
+
+                async = new AsyncEventSink(AsyncEventSink.DEFAULT_CAPACITY, EventLog.Level.INFO, () -> out);
+                EventLog.setSink(new RecentActivity(async, 256));
+                throughput = run(threads, seconds);
+                async.flush();
+                console.printf("%-10s %8d %,18.0f %,12d%n", "+recentes", threads, throughput, async.getDroppedCount());
+                async.close();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static double run(int threads, int seconds) throws InterruptedException {
+        DocumentService service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < DOCUMENTS; i++) {
+            service.addDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo " + i,
+                    service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length])));
+        }
+
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String id = "DOC" + random.nextInt(DOCUMENTS);
+                    String source = service.getDocument(id).getCurrentDepartment().getCode();
+                    if (service.transferDocument(id, source, DEPARTMENTS[random.nextInt(DEPARTMENTS.length)])) {
+                        completed.increment();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return completed.sum() / (double) seconds;
+    }
+}
@@ -0,0 +1,158 @@
+package dms;
+
+// Exportação em fluxo dos documentos e do histórico enquanto o serviço recebe transferências
+//
+// Popula o serviço com documentos já transferidos várias vezes e exporta nos três formatos com
+// threads transferindo documentos ao mesmo tempo. Mede registros de histórico por segundo, tamanho
+// dos arquivos, pico de heap durante a exportação e a vazão de transferências com e sem exportação
+// em andamento. Confere a leitura de volta do formato binário e a exportação incremental.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/ExportBenchmark.java
+//   java -cp out dms.ExportBenchmark [documentos] [transferências por documento] [threads] [diretório]
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+public class ExportBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR", "ADM", "COM", "LOG", "DIR"};
+
+    public static void main(String[] args) throws Exception {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int transfersPerDocument = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        Path directory = args.length > 3 ? Paths.get(args[3]) : Files.createTempDirectory("dms-export");
+        Files.createDirectories(directory);
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        DocumentService service = populate(documentCount, transfersPerDocument);
+        console.printf("Documentos: %,d, histórico: %,d registros, threads transferindo: %d%n",
+                documentCount, (long) documentCount * (transfersPerDocument + 1), threads);
+        console.printf("Transferências sem exportação: %,10.0f/s%n", transfersPerSecond(service, documentCount, threads, 2));
+
+        BulkExporter exporter = new BulkExporter(service);
+        Map<BulkExporter.Format, Path> files = new LinkedHashMap<>();
+        files.put(BulkExporter.Format.CSV, directory.resolve("exportacao.csv"));
+        files.put(BulkExporter.Format.JSON_LINES, directory.resolve("exportacao.jsonl"));
+        files.put(BulkExporter.Format.BINARY, directory.resolve("exportacao.dmsx"));
+
+        console.printf("%-12s %14s %10s %14s %16s%n", "formato", "histórico/s", "MB", "heap pico MB", "transferências/s");
+        for (Map.Entry<BulkExporter.Format, Path> entry : files.entrySet()) {
+            System.gc();
+            resetPeakHeap();
+            ExecutorService load = Executors.newSingleThreadExecutor();
+            Future<Double> transfers = load.submit(() -> transfersPerSecond(service, documentCount, threads, 3));
+            BulkExporter.ExportResult result = exporter.export(entry.getValue(), entry.getKey());
+            double liveThroughput = transfers.get();
+            load.shutdown();
+            console.printf("%-12s %,14.0f %,10.1f %,14.1f %,16.0f%n", entry.getKey(),
+                    result.getHistoryRows() * 1000.0 / Math.max(1, result.getElapsedMillis()),
+                    result.getBytes() / (1024.0 * 1024.0), peakHeap() / (1024.0 * 1024.0), liveThroughput);
+        }
+
+        long readBack = BulkExporter.readBinary(files.get(BulkExporter.Format.BINARY), document -> { });
+        if (readBack != documentCount) {
+            console.println("FALHA: exportação binária com " + readBack + " documentos");
+            System.exit(1);
+        }
+
+        // Incremental: só os documentos transferidos depois da marca da exportação anterior
+        BulkExporter.ExportResult full = exporter.export(files.get(BulkExporter.Format.BINARY), BulkExporter.Format.BINARY);
+        Set<String> changed = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            String id = "DOC" + ThreadLocalRandom.current().nextInt(documentCount);
+            Document document = service.getDocument(id);
+            String source = document.getCurrentDepartment().getCode();
+            String target = DEPARTMENTS[(Arrays.asList(DEPARTMENTS).indexOf(source) + 1) % DEPARTMENTS.length];
+            if (service.transferDocument(id, source, target)) {
+                changed.add(id);
+            }
+        }
+        Path incremental = directory.resolve("incremental.dmsx");
+        BulkExporter.ExportResult delta = exporter.export(incremental, BulkExporter.Format.BINARY, full.getStartedAt());
+        Set<String> exported = new HashSet<>();
+        BulkExporter.readBinary(incremental, document -> exported.add(document.getId()));
+        console.printf("Incremental: %,d documentos alterados, %,d exportados em %,d ms%n",
+                changed.size(), delta.getDocuments(), delta.getElapsedMillis());
+        if (!exported.containsAll(changed)) {
+            console.println("FALHA: a exportação incremental não contém todos os documentos alterados");
+            System.exit(1);
+        }
+
+        System.setOut(console);
+        if (args.length <= 3) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static DocumentService populate(int documentCount, int transfersPerDocument) {
+        DocumentService service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < documentCount; i++) {
+            String id = "DOC" + i;
+            service.addDocument(new Document(id, "Documento " + i, "Conteúdo do documento " + i,
+                    service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length])));
+            for (int t = 0; t < transfersPerDocument; t++) {
+                service.transferDocument(id, DEPARTMENTS[(i + t) % DEPARTMENTS.length],
+                        DEPARTMENTS[(i + t + 1) % DEPARTMENTS.length]);
+            }
+        }
+        return service;
+    }
+
+    private static double transfersPerSecond(DocumentService service, int documentCount, int threads, int seconds)
+            throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String id = "DOC" + random.nextInt(documentCount);
+                    String source = service.getDocument(id).getCurrentDepartment().getCode();
+                    if (service.transferDocument(id, source, DEPARTMENTS[random.nextInt(DEPARTMENTS.length)])) {
+                        completed.increment();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return completed.sum() / (double) seconds;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
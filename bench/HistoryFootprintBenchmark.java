@@ -0,0 +1,147 @@
+package dms;
+
+// Memória ocupada pelo histórico de transferências: lista de objetos contra o formato compacto
+//
+// Monta o mesmo histórico (documentos × transferências por documento, com os motivos usados pelo
+// serviço e alguns motivos livres) de duas formas: como o Document guardava antes, uma
+// CopyOnWriteArrayList de TransferRecord com LocalDateTime por documento, e com o TransferHistory.
+// Para cada forma mede o heap usado depois de coletar o lixo e o tempo para percorrer todos os
+// registros; no fim confere que o formato compacto devolve os mesmos registros.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/HistoryFootprintBenchmark.java
+//   java -cp out dms.HistoryFootprintBenchmark [documentos] [transferências por documento]
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class HistoryFootprintBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR", "ADM", "COM", "LOG", "DIR"};
+    private static final String[] REASONS = {TransferHistory.MANUAL_REASON, TransferHistory.BATCH_REASON,
+            TransferHistory.MANUAL_REASON, "Transferência agendada: revisão", "Transferência agendada: arquivo"};
+
+    public static void main(String[] args) {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int transfersPerDocument = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long records = (long) documentCount * (transfersPerDocument + 1);
+
+        Department[] departments = new Department[DEPARTMENTS.length];
+        Map<String, Department> departmentsByCode = new HashMap<>();
+        for (int i = 0; i < departments.length; i++) {
+            departments[i] = new Department(DEPARTMENTS[i], "Setor " + DEPARTMENTS[i]);
+            departmentsByCode.put(DEPARTMENTS[i], departments[i]);
+        }
+        System.out.printf("Documentos: %,d, registros por documento: %d, total: %,d registros%n",
+                documentCount, transfersPerDocument + 1, records);
+
+        long baseline = usedHeap();
+        List<List<TransferRecord>> legacy = new ArrayList<>(documentCount);
+        for (int d = 0; d < documentCount; d++) {
+            List<TransferRecord> history = new CopyOnWriteArrayList<>();
+            forEachRecord(d, transfersPerDocument, departments,
+                    (source, target, reason, timestamp) -> history.add(new TransferRecord(source, target, reason, timestamp)));
+            legacy.add(history);
+        }
+        long legacyBytes = usedHeap() - baseline;
+        long legacyNanos = 0;
+        for (int round = 0; round < 3; round++) {
+            legacyNanos = traverse(legacy);
+        }
+        report("Lista de TransferRecord", legacyBytes, records, legacyNanos);
+
+        List<TransferHistory> compact = new ArrayList<>(documentCount);
+        for (int d = 0; d < documentCount; d++) {
+            TransferHistory history = new TransferHistory(1);
+            forEachRecord(d, transfersPerDocument, departments, history::append);
+            compact.add(history);
+        }
+        long compactBytes = usedHeap() - baseline - legacyBytes;
+        List<List<TransferRecord>> views = new ArrayList<>(documentCount);
+        long compactNanos = 0;
+        for (int round = 0; round < 3; round++) {
+            views.clear();
+            long start = System.nanoTime();
+            for (TransferHistory history : compact) {
+                views.add(history.view(departmentsByCode::get));
+            }
+            traverse(views);
+            compactNanos = System.nanoTime() - start;
+        }
+        report("TransferHistory", compactBytes, records, compactNanos);
+        System.out.printf("Redução: %.1fx%n", legacyBytes / (double) Math.max(1, compactBytes));
+
+        // Conferir que o formato compacto devolve exatamente os mesmos registros
+        for (int d = 0; d < documentCount; d++) {
+            List<TransferRecord> expected = legacy.get(d);
+            List<TransferRecord> actual = views.get(d);
+            if (expected.size() != actual.size()) {
+                throw new IllegalStateException("Tamanho diferente no documento " + d);
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                TransferRecord a = expected.get(i);
+                TransferRecord b = actual.get(i);
+                if (!Objects.equals(a.getSource(), b.getSource()) || !a.getTarget().equals(b.getTarget())
+                        || !a.getReason().equals(b.getReason()) || !a.getTimestamp().equals(b.getTimestamp())) {
+                    throw new IllegalStateException("Registro " + i + " diferente no documento " + d + ": " + a + " / " + b);
+                }
+            }
+        }
+        System.out.println("Registros conferidos: OK");
+    }
+
+    interface RecordConsumer {
+        void accept(Department source, Department target, String reason, LocalDateTime timestamp);
+    }
+
+    // Histórico determinístico: criação seguida de transferências em sequência, com horários distintos
+    private static void forEachRecord(int document, int transfers, Department[] departments, RecordConsumer consumer) {
+        Random random = new Random(document);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 8, 0).plusSeconds(document)
+                .plusNanos(random.nextInt(1_000_000) * 1_000L);
+        Department current = departments[random.nextInt(departments.length)];
+        consumer.accept(null, current, TransferHistory.CREATION_REASON, timestamp);
+        for (int t = 0; t < transfers; t++) {
+            Department target = departments[(Arrays.asList(departments).indexOf(current) + 1
+                    + random.nextInt(departments.length - 1)) % departments.length];
+            timestamp = timestamp.plusNanos(random.nextInt(86_400) * 1_000_000_000L + random.nextInt(1_000_000) * 1_000L);
+            consumer.accept(current, target, REASONS[random.nextInt(REASONS.length)], timestamp);
+            current = target;
+        }
+    }
+
+    private static long traverse(List<List<TransferRecord>> histories) {
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (List<TransferRecord> history : histories) {
+            for (TransferRecord record : history) {
+                checksum += record.getTarget().getCode().length() + record.getTimestamp().getNano();
+            }
+        }
+        if (checksum == 42) {
+            System.out.println();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String label, long bytes, long records, long traverseNanos) {
+        System.out.printf("%-24s %,10.1f MB  %6.1f bytes/registro  leitura %,6.0f ms (%,.0f registros/s)%n", label,
+                bytes / (1024.0 * 1024.0), bytes / (double) records, traverseNanos / 1e6, records / (traverseNanos / 1e9));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Repetir até estabilizar: uma coleta pode liberar objetos que a anterior só finalizou
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
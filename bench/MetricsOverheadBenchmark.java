@@ -0,0 +1,172 @@
+package dms;
+
+// Custo das métricas de transferência com a coleta ligada e desligada
+//
+// Mede o registro isolado no histograma, com uma e várias threads, o custo das chamadas que uma
+// transferência faz às métricas (início da medição e registro do resultado), e depois a vazão de
+// transferDocument e de transferDocuments com os documentos indo e voltando entre dois setores.
+// Os documentos são percorridos em trechos de 1.000, e a coleta é ligada e desligada a cada trecho
+// (invertendo a ordem a cada passada): pausas do coletor, ruído da máquina e o histórico dos
+// documentos, que cresce a cada volta, caem por igual nos dois lados. Os eventos vão para um destino
+// vazio, então a diferença aparece sobre o custo mínimo da transferência (o pior caso para as métricas).
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/MetricsOverheadBenchmark.java
+//   java -cp out dms.MetricsOverheadBenchmark [documentos] [threads] [passadas]
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class MetricsOverheadBenchmark {
+    private static final int CHUNK_DOCUMENTS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int passes = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        EventLog.setSink((level, message, key1, value1, key2, value2, key3, value3) -> { });
+        System.out.printf("Documentos: %,d, threads: %d, passadas: %d%n", documentCount, threads, passes);
+
+        // Registro isolado
+        for (int threadCount : new int[] {1, Math.max(2, threads)}) {
+            TransferMetrics.Histogram histogram = new TransferMetrics.Histogram();
+            int perThread = 20_000_000 / threadCount;
+            recordAll(histogram, threadCount, perThread);
+            long start = System.nanoTime();
+            recordAll(histogram, threadCount, perThread);
+            System.out.printf("Histogram.record, %d thread(s): %,.1f ns por registro%n", threadCount,
+                    (System.nanoTime() - start) / (double) perThread);
+        }
+
+        // Chamadas de uma transferência: startTimer e recordTransfer, ligadas e desligadas
+        TransferMetrics callMetrics = new TransferMetrics();
+        for (boolean enabled : new boolean[] {false, true}) {
+            callMetrics.setEnabled(enabled);
+            recordTransfers(callMetrics, 5_000_000);
+            long start = System.nanoTime();
+            recordTransfers(callMetrics, 20_000_000);
+            System.out.printf("startTimer + recordTransfer, %s: %,.1f ns por transferência%n",
+                    enabled ? "ligado" : "desligado", (System.nanoTime() - start) / 20e6);
+        }
+
+        DocumentService service = new DocumentService();
+        service.restoreDepartment(new Department("A", "Setor A"));
+        service.restoreDepartment(new Department("B", "Setor B"));
+        for (int i = 0; i < documentCount; i++) {
+            service.restoreDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo", service.getDepartment("A")));
+        }
+        TransferMetrics metrics = service.getMetrics();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Aquecimento dos dois caminhos, com e sem métricas
+        measure(service, executor, threads, documentCount, 2, false);
+        measure(service, executor, threads, documentCount, 2, true);
+
+        Totals single = measure(service, executor, threads, documentCount, passes, false);
+        Totals batches = measure(service, executor, threads, documentCount, passes, true);
+        executor.shutdown();
+
+        System.out.printf("%-22s %14s %14s %10s%n", "ns por transferência", "desligado", "ligado", "custo");
+        single.report("transferDocument");
+        batches.report("transferDocuments");
+        metrics.setEnabled(true);
+        System.out.println();
+        System.out.print(metrics.dump());
+    }
+
+    private static void recordTransfers(TransferMetrics metrics, int count) {
+        for (int i = 0; i < count; i++) {
+            metrics.recordTransfer(metrics.startTimer(), TransferStatus.TRANSFERRED);
+        }
+    }
+
+    // Tempo e transferências com a coleta desligada [0] e ligada [1]
+    private static final class Totals {
+        final long[] nanos = new long[2];
+        final long[] transfers = new long[2];
+
+        void report(String name) {
+            double disabled = nanos[0] / (double) transfers[0];
+            double enabled = nanos[1] / (double) transfers[1];
+            System.out.printf("%-22s %,14.1f %,14.1f %9.1f%%%n", name, disabled, enabled,
+                    (enabled - disabled) / disabled * 100);
+        }
+    }
+
+    // Cada trecho vai de A para B e volta
+    private static Totals measure(DocumentService service, ExecutorService executor, int threads,
+                                  int documentCount, int passes, boolean batched) throws Exception {
+        Totals totals = new Totals();
+        for (int pass = 0; pass < passes; pass++) {
+            for (int first = 0; first < documentCount; first += 2 * CHUNK_DOCUMENTS) {
+                for (int side = 0; side < 2; side++) {
+                    int enabled = side ^ (pass & 1);
+                    int from = first + side * CHUNK_DOCUMENTS;
+                    int to = Math.min(documentCount, from + CHUNK_DOCUMENTS);
+                    if (from >= to) {
+                        continue;
+                    }
+                    service.getMetrics().setEnabled(enabled == 1);
+                    long start = System.nanoTime();
+                    runChunk(service, executor, threads, from, to, batched);
+                    totals.nanos[enabled] += System.nanoTime() - start;
+                    totals.transfers[enabled] += 2 * (to - from);
+                }
+            }
+        }
+        return totals;
+    }
+
+    private static void recordAll(TransferMetrics.Histogram histogram, int threadCount, int perThread)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            workers[t] = new Thread(() -> {
+                long value = ThreadLocalRandom.current().nextLong(1_000, 100_000);
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(value + (i & 1023));
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    // Cada thread leva a sua parte do trecho de A para B e de volta, uma a uma ou num lote por sentido
+    private static void runChunk(DocumentService service, ExecutorService executor, int threads, int from, int to,
+                                 boolean batched) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                for (String[] direction : new String[][] {{"A", "B"}, {"B", "A"}}) {
+                    List<TransferRequest> batch = new ArrayList<>();
+                    for (int i = from + offset; i < to; i += threads) {
+                        if (batched) {
+                            batch.add(new TransferRequest("DOC" + i, direction[0], direction[1]));
+                        } else if (!service.transferDocument("DOC" + i, direction[0], direction[1])) {
+                            throw new IllegalStateException("Transferência recusada: DOC" + i);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        transfer(service, batch);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static void transfer(DocumentService service, List<TransferRequest> batch) {
+        BatchTransferResult result = service.transferDocuments(batch, false);
+        if (result.getFailedCount() > 0) {
+            throw new IllegalStateException("Lote com falhas: " + result);
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,149 @@
+package dms;
+
+// Vazão das transferências com log de escrita antecipada e tempo de recuperação após reinício
+//
+// Mede transferências por segundo com o serviço só em memória e com o PersistenceEngine
+// (fsync em grupo), depois reabre o diretório para medir a recuperação reaplicando o log
+// inteiro e a recuperação a partir de um snapshot mais a cauda do log. Após cada recuperação
+// o estado reconstruído é comparado com o original.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/PersistenceBenchmark.java
+//   java -cp out dms.PersistenceBenchmark [documentos] [threads] [segundos] [diretório]
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+public class PersistenceBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR", "ADM", "COM", "LOG", "DIR"};
+
+    public static void main(String[] args) throws Exception {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Path directory = args.length > 3 ? Paths.get(args[3]) : Files.createTempDirectory("dms-bench");
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        deleteRecursively(directory);
+
+        console.printf("Documentos: %d, threads: %d, duração: %d s, diretório: %s%n",
+                documentCount, threads, seconds, directory);
+
+        DocumentService memoryOnly = populate(new DocumentService(), documentCount);
+        console.printf("Só memória:          %,12.0f transferências/s%n",
+                runTransfers(memoryOnly, documentCount, threads, seconds));
+
+        DocumentService persisted = new DocumentService();
+        PersistenceEngine engine = PersistenceEngine.open(directory, persisted);
+        populate(persisted, documentCount);
+        long recordsBefore = engine.getLoggedRecords();
+        long syncsBefore = engine.getSyncCount();
+        double throughput = runTransfers(persisted, documentCount, threads, seconds);
+        long records = engine.getLoggedRecords() - recordsBefore;
+        long syncs = engine.getSyncCount() - syncsBefore;
+        console.printf("Com log e fsync:     %,12.0f transferências/s (%.1f registros por fsync)%n",
+                throughput, records / (double) Math.max(1, syncs));
+        engine.close();
+
+        // Recuperação reaplicando o log inteiro
+        DocumentService recovered = new DocumentService();
+        engine = PersistenceEngine.open(directory, recovered);
+        console.printf("Recuperação só com log:      %,8d ms (%,d registros reaplicados)%n",
+                engine.getRecoveryMillis(), engine.getReplayedRecords());
+        verify(persisted, recovered, console);
+
+        // Snapshot com transferências em andamento, seguido de uma cauda curta no log
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        Future<Double> load = background.submit(() -> runTransfers(recovered, documentCount, threads, 2));
+        long snapshotBegin = System.nanoTime();
+        engine.snapshot();
+        long snapshotMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snapshotBegin);
+        load.get();
+        background.shutdown();
+        runTransfers(recovered, documentCount, threads, 1);
+        engine.close();
+        console.printf("Snapshot sob carga:          %,8d ms%n", snapshotMillis);
+
+        DocumentService fromSnapshot = new DocumentService();
+        engine = PersistenceEngine.open(directory, fromSnapshot);
+        console.printf("Recuperação snapshot + log:  %,8d ms (%,d documentos do snapshot, %,d registros reaplicados)%n",
+                engine.getRecoveryMillis(), engine.getRecoveredDocuments(), engine.getReplayedRecords());
+        verify(recovered, fromSnapshot, console);
+        engine.close();
+
+        System.setOut(console);
+        if (args.length <= 3) {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static DocumentService populate(DocumentService service, int documentCount) {
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < documentCount; i++) {
+            Department department = service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length]);
+            service.addDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo do documento " + i, department));
+        }
+        return service;
+    }
+
+    private static double runTransfers(DocumentService service, int documentCount, int threads, int seconds)
+            throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String id = "DOC" + random.nextInt(documentCount);
+                    String source = service.getDocument(id).getCurrentDepartment().getCode();
+                    String target = DEPARTMENTS[random.nextInt(DEPARTMENTS.length)];
+                    if (service.transferDocument(id, source, target)) {
+                        completed.increment();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return completed.sum() / (double) seconds;
+    }
+
+    private static void verify(DocumentService expected, DocumentService actual, PrintStream console) {
+        int mismatches = 0;
+        for (Document document : expected.getAllDocuments()) {
+            Document restored = actual.getDocument(document.getId());
+            if (restored == null
+                    || !restored.getCurrentDepartment().equals(document.getCurrentDepartment())
+                    || restored.getTransferHistory().size() != document.getTransferHistory().size()
+                    || !restored.getUpdatedAt().equals(document.getUpdatedAt())) {
+                mismatches++;
+            }
+        }
+        if (mismatches > 0 || actual.getAllDocuments().size() != expected.getAllDocuments().size()) {
+            console.println("FALHA: " + mismatches + " documentos divergem do estado anterior ao reinício");
+            System.exit(1);
+        }
+        console.println("Estado recuperado idêntico ao original");
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
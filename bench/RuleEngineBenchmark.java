@@ -0,0 +1,119 @@
+package dms;
+
+// Avaliação de milhares de regras de transferência sobre milhões de documentos
+//
+// Cria os setores e documentos com chegadas espalhadas pelos últimos 30 dias e duas regras por
+// setor: uma contínua (mais de N dias no setor vai para o próximo) e uma recorrente a cada 6 horas.
+// Mede a criação das regras (leitura inicial do índice por setor), a primeira avaliação com tudo o
+// que já venceu, avaliações sem nada vencido e um dia simulado com um tique por minuto. Para
+// comparação, mede uma única varredura de todos os documentos conferindo as regras de cada um, que
+// é o que cada tique custaria sem os registros de chegada.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/RuleEngineBenchmark.java
+//   java -cp out dms.RuleEngineBenchmark [documentos] [setores]
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class RuleEngineBenchmark {
+    public static void main(String[] args) {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int departmentCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.setSink((level, message, key1, value1, key2, value2, key3, value3) -> { });
+
+        DocumentService service = new DocumentService();
+        for (int d = 0; d < departmentCount; d++) {
+            service.restoreDepartment(new Department(code(d), "Setor " + d));
+        }
+        Random random = new Random(11);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < documentCount; i++) {
+            Department department = service.getDepartment(code(random.nextInt(departmentCount)));
+            LocalDateTime arrived = now.minusSeconds(random.nextInt(30 * 86_400));
+            service.restoreDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo", department, arrived,
+                    arrived, Collections.singletonList(
+                    new TransferRecord(null, department, TransferHistory.CREATION_REASON, arrived))));
+        }
+
+        AutomaticTransferScheduler scheduler = new AutomaticTransferScheduler(service);
+        TransferRuleEngine engine = scheduler.getRuleEngine();
+        long start = System.nanoTime();
+        for (int d = 0; d < departmentCount; d++) {
+            scheduler.addRule(TransferRuleEngine.Rule.olderThan("idade-" + d, code(d),
+                    code((d + 1) % departmentCount), Duration.ofDays(7 + d % 24)));
+            scheduler.addRule(TransferRuleEngine.Rule.recurring("recorrente-" + d, code(d),
+                    code((d + 2) % departmentCount), Duration.ofDays(3), now.plusHours(d % 6), Duration.ofHours(6)));
+        }
+        // Só o motor, para receber as chegadas das transferências; o tique dele usa o relógio real e
+        // não alcança os instantes simulados abaixo
+        engine.start();
+        double setupMillis = (System.nanoTime() - start) / 1e6;
+        console.printf("Documentos: %,d, setores: %,d, regras: %,d%n", documentCount, departmentCount,
+                engine.getRules().size());
+        console.printf("Criação das regras:           %,10.1f ms (%,d chegadas registradas)%n", setupMillis,
+                engine.getTrackedArrivalCount());
+
+        long nowMillis = TransferRuleEngine.localMillis(now);
+        start = System.nanoTime();
+        int moved = engine.evaluate(nowMillis);
+        double firstMillis = (System.nanoTime() - start) / 1e6;
+        console.printf("Primeira avaliação:           %,10.1f ms, %,d transferidos (%,.0f/s)%n", firstMillis, moved,
+                moved / (firstMillis / 1e3));
+
+        int idleTicks = 1_000;
+        start = System.nanoTime();
+        for (int i = 0; i < idleTicks; i++) {
+            engine.evaluate(nowMillis);
+        }
+        console.printf("Avaliação sem nada vencido:   %,10.3f ms por tique%n",
+                (System.nanoTime() - start) / 1e6 / idleTicks);
+
+        // Um dia simulado, um tique por minuto
+        long[] tickNanos = new long[1_440];
+        long dayMoved = 0;
+        for (int minute = 1; minute <= tickNanos.length; minute++) {
+            long tickStart = System.nanoTime();
+            dayMoved += engine.evaluate(nowMillis + minute * 60_000L);
+            tickNanos[minute - 1] = System.nanoTime() - tickStart;
+        }
+        long[] sorted = tickNanos.clone();
+        Arrays.sort(sorted);
+        console.printf("Dia simulado (1.440 tiques):  %,d transferidos, tique p50 %.2f ms, p99 %.2f ms, máx %.2f ms%n",
+                dayMoved, sorted[sorted.length / 2] / 1e6, sorted[sorted.length * 99 / 100] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+
+        // Varredura completa, para comparação: cada documento contra as regras do seu setor
+        Map<String, List<TransferRuleEngine.Rule>> rulesBySource = new HashMap<>();
+        for (TransferRuleEngine.Rule rule : engine.getRules()) {
+            rulesBySource.computeIfAbsent(rule.getSourceDeptCode(), k -> new ArrayList<>()).add(rule);
+        }
+        start = System.nanoTime();
+        long due = 0;
+        for (Document document : service.getAllDocuments()) {
+            long age = nowMillis - TransferRuleEngine.localMillis(document.getUpdatedAt());
+            for (TransferRuleEngine.Rule rule : rulesBySource.getOrDefault(
+                    document.getCurrentDepartment().getCode(), Collections.emptyList())) {
+                if (age >= rule.getMinimumAge().toMillis()) {
+                    due++;
+                    break;
+                }
+            }
+        }
+        console.printf("Varredura completa (1 tique): %,10.1f ms (%,d vencidos)%n",
+                (System.nanoTime() - start) / 1e6, due);
+        console.printf("Transferências das regras: %,d, falhas: %,d%n", engine.getTransferredCount(),
+                engine.getFailedCount());
+        scheduler.stop();
+    }
+
+    private static String code(int department) {
+        return "S" + department;
+    }
+}
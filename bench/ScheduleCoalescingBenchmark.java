@@ -0,0 +1,99 @@
+package dms;
+
+// Agendamentos repetidos e conflitantes do mesmo documento: execuções, falhas e estado final
+//
+// Cada documento recebe a sequência típica de um usuário que muda de ideia: adia três vezes a
+// mesma transferência A -> B, troca o destino para C e encadeia C -> D. Com o plano por documento
+// do AutomaticTransferScheduler só as duas últimas chegam a executar. Para comparação, a mesma
+// sequência roda como tarefas independentes num ScheduledExecutorService, como o agendador fazia
+// antes (uma tarefa por chave, cada uma acordando uma thread e chamando transferDocument). O
+// programa informa execuções, falhas, quantos documentos terminaram em D e o tempo até esvaziar.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/ScheduleCoalescingBenchmark.java
+//   java -cp out dms.ScheduleCoalescingBenchmark [documentos]
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ScheduleCoalescingBenchmark {
+    private static final String[] DEPARTMENTS = {"A", "B", "C", "D"};
+
+    public static void main(String[] args) throws Exception {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.setSink((level, message, key1, value1, key2, value2, key3, value3) -> { });
+
+        console.printf("Documentos: %,d, agendamentos: %,d%n", documentCount, documentCount * 5L);
+        console.printf("%-22s %12s %12s %12s %12s %14s%n", "agendador", "execuções", "falhas", "descartadas",
+                "em D", "esvaziar ms");
+
+        // Tarefas independentes, uma por agendamento
+        DocumentService baselineService = populate(documentCount);
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+        LongAdder executions = new LongAdder();
+        LongAdder failures = new LongAdder();
+        long start = System.nanoTime();
+        for (int i = 0; i < documentCount; i++) {
+            String id = "DOC" + i;
+            for (String[] step : steps()) {
+                executor.schedule(() -> {
+                    executions.increment();
+                    if (!baselineService.transferDocument(id, step[0], step[1])) {
+                        failures.increment();
+                    }
+                }, Long.parseLong(step[2]), TimeUnit.SECONDS);
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        console.printf("%-22s %,12d %,12d %12s %,12d %,14.0f%n", "tarefas independentes", executions.sum(),
+                failures.sum(), "-", countIn(baselineService, "D"), (System.nanoTime() - start) / 1e6);
+
+        for (TransferSchedulingMode mode : TransferSchedulingMode.values()) {
+            DocumentService service = populate(documentCount);
+            AutomaticTransferScheduler scheduler = new AutomaticTransferScheduler(service, mode, 1);
+            scheduler.start();
+            start = System.nanoTime();
+            for (int i = 0; i < documentCount; i++) {
+                for (String[] step : steps()) {
+                    scheduler.scheduleTransfer("DOC" + i, step[0], step[1], Integer.parseInt(step[2]));
+                }
+            }
+            while (scheduler.getPendingCount() > 0) {
+                Thread.sleep(10);
+            }
+            double drainMillis = (System.nanoTime() - start) / 1e6;
+            console.printf("%-22s %,12d %,12d %,12d %,12d %,14.0f%n", mode,
+                    scheduler.getCompletedCount() + scheduler.getFailedCount(), scheduler.getFailedCount(),
+                    scheduler.getSupersededCount(), countIn(service, "D"), drainMillis);
+            scheduler.stop();
+        }
+        System.exit(0);
+    }
+
+    // Origem, destino e atraso em segundos, na ordem em que o usuário agenda
+    private static String[][] steps() {
+        return new String[][] {
+                {"A", "B", "1"}, {"A", "B", "2"}, {"A", "B", "3"}, {"A", "C", "2"}, {"C", "D", "1"}};
+    }
+
+    private static DocumentService populate(int documentCount) {
+        DocumentService service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.restoreDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < documentCount; i++) {
+            service.restoreDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo", service.getDepartment("A")));
+        }
+        return service;
+    }
+
+    private static int countIn(DocumentService service, String code) {
+        return service.getDocumentCountByDepartment(service.getDepartment(code));
+    }
+}
@@ -0,0 +1,101 @@
+package dms;
+
+// Tempo de inicialização do agendador com a fila de transferências gravada em disco
+//
+// Grava transferências espalhadas por vários dias, mais uma parte já vencida (como se o
+// processo tivesse ficado parado), e compara o tempo para reabrir a fila carregando só as
+// faixas vencidas e a janela próxima com o tempo de ler a fila inteira. Também informa o
+// tamanho do lote de recuperação das transferências atrasadas.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/ScheduleStoreBenchmark.java
+//   java -cp out dms.ScheduleStoreBenchmark [transferências] [dias] [threads] [diretório]
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+public class ScheduleStoreBenchmark {
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final double OVERDUE_FRACTION = 0.01;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Path directory = args.length > 3 ? Paths.get(args[3]) : Files.createTempDirectory("dms-schedule");
+        deleteRecursively(directory);
+
+        long now = System.currentTimeMillis();
+        long spanMillis = TimeUnit.DAYS.toMillis(days);
+        int overdue = (int) (count * OVERDUE_FRACTION);
+        System.out.printf("Transferências: %,d em %d dias (%,d já vencidas), threads: %d, diretório: %s%n",
+                count, days, overdue, threads, directory);
+
+        // Preenchimento concorrente para aproveitar o group commit da fila
+        ScheduledTransferStore filling = new ScheduledTransferStore(directory, AutomaticTransferScheduler.STORE_BUCKET_MILLIS);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long begin = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = first; i < count; i += threads) {
+                    long dueAt = i < overdue
+                            ? now - 1 - random.nextLong(TimeUnit.HOURS.toMillis(1))
+                            : now + random.nextLong(spanMillis);
+                    filling.add(new ScheduledTransfer("DOC" + i, "FIN", "JUR", now - TimeUnit.HOURS.toMillis(2), dueAt));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        filling.close();
+        double fillSeconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("Gravação:                 %,10.0f transferências/s%n", count / fillSeconds);
+
+        // Inicialização lendo só as faixas vencidas e a janela próxima
+        begin = System.nanoTime();
+        ScheduledTransferStore store = new ScheduledTransferStore(directory, AutomaticTransferScheduler.STORE_BUCKET_MILLIS);
+        List<ScheduledTransfer> window = store.loadThrough(System.currentTimeMillis() + WINDOW_MILLIS);
+        double windowMillis = (System.nanoTime() - begin) / 1e6;
+        long catchUp = window.stream().filter(transfer -> transfer.getDueAtMillis() <= System.currentTimeMillis()).count();
+        int unloaded = store.getUnloadedBucketCount();
+        store.close();
+        System.out.printf("Inicialização com janela: %,10.1f ms (%,d carregadas, %,d faixas ainda em disco)%n",
+                windowMillis, window.size(), unloaded);
+        System.out.printf("Lote de recuperação:      %,10d transferências atrasadas%n", catchUp);
+
+        // Referência: ler a fila inteira na inicialização
+        begin = System.nanoTime();
+        store = new ScheduledTransferStore(directory, AutomaticTransferScheduler.STORE_BUCKET_MILLIS);
+        List<ScheduledTransfer> all = store.loadThrough(now + spanMillis + WINDOW_MILLIS);
+        double fullMillis = (System.nanoTime() - begin) / 1e6;
+        store.close();
+        System.out.printf("Inicialização lendo tudo: %,10.1f ms (%,d carregadas)%n", fullMillis, all.size());
+
+        if (all.size() != count || catchUp != overdue) {
+            System.out.println("FALHA: a fila recuperada não corresponde ao que foi gravado");
+            System.exit(1);
+        }
+
+        if (args.length <= 3) {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
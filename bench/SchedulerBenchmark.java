@@ -0,0 +1,100 @@
+package dms;
+
+// Comparação entre os modos de agendamento do AutomaticTransferScheduler
+//
+// Para cada volume de transferências pendentes mede o custo de agendar e de cancelar
+// todas elas, a memória retida enquanto estão pendentes e quanto tempo depois do último
+// vencimento a fila termina de esvaziar quando um lote inteiro vence com 1 segundo de atraso.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/SchedulerBenchmark.java
+//   java -Xmx4g -cp out dms.SchedulerBenchmark [volumes separados por vírgula] [workers]
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+
+public class SchedulerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 100_000, 1_000_000};
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        PrintStream console = System.out;
+        // O agendador imprime cada operação; descartar a saída para medir apenas o agendamento
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        console.printf("%-20s %10s %14s %14s %12s %14s%n",
+                "modo", "pendentes", "agendar ns/op", "cancelar ns/op", "heap MB", "atraso final ms");
+        for (int size : sizes) {
+            for (TransferSchedulingMode mode : TransferSchedulingMode.values()) {
+                // Aquecimento com um volume menor para estabilizar o JIT
+                run(mode, Math.min(size, 10_000), workers);
+                Result result = run(mode, size, workers);
+                console.printf("%-20s %10d %14.1f %14.1f %12.1f %14.1f%n", mode, size,
+                        result.scheduleNanosPerOp, result.cancelNanosPerOp, result.heapMegabytes, result.fireMillis);
+            }
+        }
+        System.setOut(console);
+    }
+
+    private static Result run(TransferSchedulingMode mode, int size, int workers) throws InterruptedException {
+        DocumentService service = new DocumentService();
+        service.registerDepartment(new Department("FIN", "Financeiro"));
+        service.registerDepartment(new Department("JUR", "Jurídico"));
+
+        Result result = new Result();
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = "DOC" + i;
+        }
+
+        AutomaticTransferScheduler scheduler = new AutomaticTransferScheduler(service, mode, workers);
+        scheduler.start();
+
+        // Agendar e cancelar transferências distantes, que nunca chegam a disparar
+        long heapBefore = usedHeap();
+        long begin = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            scheduler.scheduleTransfer(ids[i], "FIN", "JUR", 3_600 + (i % 3_600));
+        }
+        result.scheduleNanosPerOp = (System.nanoTime() - begin) / (double) size;
+        result.heapMegabytes = (usedHeap() - heapBefore) / (1024.0 * 1024.0);
+
+        begin = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            scheduler.cancelScheduledTransfer(ids[i], "FIN", "JUR");
+        }
+        result.cancelNanosPerOp = (System.nanoTime() - begin) / (double) size;
+
+        // Disparo: todas vencem em 1 segundo; os documentos não existem, então cada
+        // execução percorre o caminho de falha do serviço sem alterar estado
+        for (int i = 0; i < size; i++) {
+            scheduler.scheduleTransfer(ids[i], "FIN", "JUR", 1);
+        }
+        long lastDueAt = System.nanoTime() + 1_000_000_000L;
+        while (!scheduler.getScheduledTasks().isEmpty()) {
+            Thread.sleep(1);
+        }
+        result.fireMillis = Math.max(0, System.nanoTime() - lastDueAt) / 1e6;
+
+        scheduler.stop();
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class Result {
+        double scheduleNanosPerOp;
+        double cancelNanosPerOp;
+        double heapMegabytes;
+        double fireMillis;
+    }
+}
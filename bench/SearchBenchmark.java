@@ -0,0 +1,131 @@
+package dms;
+
+// Indexação e latência da busca textual com muitos documentos
+//
+// Gera documentos com vocabulário de distribuição Zipf (poucos termos muito comuns, cauda longa
+// de termos raros) e palavras acentuadas, indexa todos e mede a vazão da indexação. Depois mede
+// p50/p99 de consultas de um termo, de prefixo e de vários termos (E), e confere que buscas com
+// e sem acento devolvem o mesmo resultado.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/SearchBenchmark.java
+//   java -Xmx4g -cp out dms.SearchBenchmark [documentos] [consultas]
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+
+public class SearchBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_DOCUMENT = 24;
+    private static final String[] ACCENTED = {"relatório", "contratação", "licitação", "orçamento", "aquisição",
+            "manutenção", "solicitação", "família", "órgão", "análise"};
+
+    public static void main(String[] args) {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            vocabulary[i] = i < ACCENTED.length ? ACCENTED[i] : word(i);
+        }
+        double[] cumulative = zipf(VOCABULARY);
+        Random random = new Random(42);
+        Department department = new Department("ADM", "Administração");
+
+        Document[] documents = new Document[documentCount];
+        for (int i = 0; i < documentCount; i++) {
+            StringBuilder title = new StringBuilder();
+            StringBuilder content = new StringBuilder();
+            for (int w = 0; w < 4; w++) {
+                title.append(vocabulary[pick(cumulative, random)]).append(' ');
+            }
+            for (int w = 0; w < WORDS_PER_DOCUMENT; w++) {
+                content.append(vocabulary[pick(cumulative, random)]).append(w % 8 == 7 ? ", " : " ");
+            }
+            documents[i] = new Document("DOC" + i, title.toString(), content.toString(), department);
+        }
+
+        SearchIndex index = new SearchIndex();
+        long start = System.nanoTime();
+        for (Document document : documents) {
+            index.add(document);
+        }
+        long elapsed = System.nanoTime() - start;
+        console.printf("Documentos: %,d, indexação: %,d ms (%,.0f documentos/s)%n", documentCount,
+                elapsed / 1_000_000, documentCount / (elapsed / 1e9));
+
+        // Termos de frequência média e rara, prefixos e combinações de dois e três termos
+        String[] single = new String[queries];
+        String[] prefix = new String[queries];
+        String[] and = new String[queries];
+        for (int q = 0; q < queries; q++) {
+            single[q] = vocabulary[pick(cumulative, random)];
+            String base = vocabulary[ACCENTED.length + random.nextInt(2_000)];
+            prefix[q] = base.substring(0, Math.min(base.length(), 4)) + "*";
+            and[q] = vocabulary[pick(cumulative, random)] + " " + vocabulary[pick(cumulative, random)]
+                    + (q % 2 == 0 ? " " + vocabulary[random.nextInt(200)] : "");
+        }
+        measure(console, "termo", index, single);
+        measure(console, "prefixo", index, prefix);
+        measure(console, "vários termos", index, and);
+
+        List<SearchIndex.Hit> accented = index.search("Contratação ORÇAMENTO", 20);
+        List<SearchIndex.Hit> plain = index.search("contratacao orcamento", 20);
+        if (accented.isEmpty() || accented.size() != plain.size()
+                || !accented.get(0).getDocumentId().equals(plain.get(0).getDocumentId())) {
+            console.println("FALHA: busca com e sem acento divergem");
+            System.exit(1);
+        }
+        System.setOut(console);
+    }
+
+    private static void measure(PrintStream console, String label, SearchIndex index, String[] queries) {
+        // Aquecimento com as mesmas consultas
+        for (String query : queries) {
+            index.search(query, 20);
+        }
+        long[] latencies = new long[queries.length];
+        long hits = 0;
+        for (int q = 0; q < queries.length; q++) {
+            long start = System.nanoTime();
+            hits += index.search(queries[q], 20).size();
+            latencies[q] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        console.printf("%-14s p50 %8.3f ms  p99 %8.3f ms  máx %8.3f ms  (%.1f resultados por consulta)%n", label,
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                latencies[latencies.length - 1] / 1e6, hits / (double) queries.length);
+    }
+
+    private static String word(int i) {
+        StringBuilder word = new StringBuilder();
+        int n = i * 7919 + 17;
+        do {
+            word.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return word.toString();
+    }
+
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index < 0 ? -index - 1 : index);
+    }
+}
@@ -0,0 +1,106 @@
+package dms;
+
+// Custo de atualizar e rolar a tabela e as comboboxes de documentos com um acervo grande
+//
+// Compara, na thread de eventos e sem janela (modo headless), o preenchimento antigo de uma
+// DefaultTableModel com uma linha formatada por documento contra o DocumentTableModel, que só
+// relê o tamanho. Em seguida pinta a tabela em posições de rolagem aleatórias e mede o tempo por
+// tela, e cria uma combobox sobre todos os documentos com o LazyComboBoxModel.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/TableModelBenchmark.java
+//   java -Djava.awt.headless=true -Xmx3g -cp out dms.TableModelBenchmark [documentos]
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TableModelBenchmark {
+    private static final int SCREENS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        DocumentService service = new DocumentService();
+        Department department = new Department("ADM", "Administração");
+        service.restoreDepartment(department);
+        for (int i = 0; i < documentCount; i++) {
+            service.restoreDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo " + i, department));
+        }
+        console.printf("Documentos: %,d%n", documentCount);
+
+        SwingUtilities.invokeAndWait(() -> {
+            // Preenchimento como era feito antes: uma linha formatada por documento
+            System.gc();
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            DefaultTableModel eager = new DefaultTableModel(new String[] {"ID", "Título", "Setor Atual", "Data de Criação"}, 0);
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+            for (Document doc : service.getAllDocuments()) {
+                eager.addRow(new Object[] {doc.getId(), doc.getTitle(), doc.getCurrentDepartment().getName(),
+                        doc.getCreatedAt().format(formatter)});
+            }
+            long eagerMillis = (System.nanoTime() - start) / 1_000_000;
+            long eagerHeap = usedHeap() - heapBefore;
+            console.printf("DefaultTableModel: atualização %,6d ms, heap adicional %,d MB%n", eagerMillis, eagerHeap >> 20);
+            eager = null;
+
+            System.gc();
+            heapBefore = usedHeap();
+            start = System.nanoTime();
+            DocumentTableModel model = new DocumentTableModel(service);
+            model.showAll();
+            long lazyMicros = (System.nanoTime() - start) / 1_000;
+            console.printf("DocumentTableModel: atualização %,6d µs, heap adicional %,d KB%n", lazyMicros,
+                    Math.max(0, usedHeap() - heapBefore) >> 10);
+
+            JTable table = new JTable(model);
+            table.setSize(table.getPreferredSize().width, table.getPreferredSize().height);
+            BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+            Random random = new Random(42);
+            long[] screens = new long[SCREENS];
+            for (int i = 0; i < SCREENS * 2; i++) {
+                int y = table.getCellRect(random.nextInt(documentCount), 0, true).y;
+                Graphics2D graphics = image.createGraphics();
+                graphics.translate(0, -y);
+                graphics.setClip(0, y, 800, 600);
+                long paintStart = System.nanoTime();
+                table.paint(graphics);
+                // A primeira metade é aquecimento
+                if (i >= SCREENS) {
+                    screens[i - SCREENS] = System.nanoTime() - paintStart;
+                }
+                graphics.dispose();
+            }
+            Arrays.sort(screens);
+            console.printf("Rolagem: p50 %.2f ms, p99 %.2f ms por tela%n", screens[SCREENS / 2] / 1e6,
+                    screens[SCREENS * 99 / 100] / 1e6);
+
+            start = System.nanoTime();
+            LazyComboBoxModel comboModel = new LazyComboBoxModel(service::getDocumentCount,
+                    index -> service.getDocumentAt(index).getId());
+            JComboBox<String> comboBox = LazyComboBoxModel.createComboBox(comboModel, "DOC000000 - Documento 000000");
+            comboModel.refresh();
+            comboBox.getPreferredSize();
+            comboBox.setSelectedIndex(documentCount - 1);
+            console.printf("Combobox: criação e seleção %,d ms (%s)%n", (System.nanoTime() - start) / 1_000_000,
+                    comboBox.getSelectedItem());
+        });
+        System.setOut(console);
+        System.exit(0);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,109 @@
+package dms;
+
+// Responsividade da thread de eventos com transferências concorrentes chegando à interface
+//
+// Várias threads transferem documentos sem parar enquanto o UiRefreshCoalescer aplica as
+// alterações aos modelos da tabela de documentos e de setores (modo headless, sem janela). Uma
+// sonda posta uma tarefa na thread de eventos a cada 5 ms e mede quanto ela espera para rodar;
+// no fim o programa informa quantos avisos viraram quantas entregas e a latência da sonda.
+//
+// Compilar e executar a partir da raiz do projeto:
+//   javac -d out -sourcepath core/src/main/java:app/src/main/java bench/UiRefreshBenchmark.java
+//   java -Djava.awt.headless=true -cp out dms.UiRefreshBenchmark [documentos] [threads] [segundos]
+
+import javax.swing.*;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class UiRefreshBenchmark {
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR"};
+
+    public static void main(String[] args) throws Exception {
+        int documentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.setSink((level, message, key1, value1, key2, value2, key3, value3) -> { });
+
+        DocumentService service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.restoreDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < documentCount; i++) {
+            service.restoreDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo",
+                    service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length])));
+        }
+
+        DocumentTableModel[] documents = new DocumentTableModel[1];
+        DepartmentTableModel[] departments = new DepartmentTableModel[1];
+        SwingUtilities.invokeAndWait(() -> {
+            documents[0] = new DocumentTableModel(service);
+            documents[0].showAll();
+            departments[0] = new DepartmentTableModel(service);
+            departments[0].refresh();
+            // Simular linhas visíveis em cache, como numa tabela exibindo o começo do acervo
+            for (int row = 0; row < 40; row++) {
+                documents[0].getValueAt(row, 2);
+            }
+        });
+
+        LongAdder flushes = new LongAdder();
+        LongAdder patchedIds = new LongAdder();
+        UiRefreshCoalescer coalescer = new UiRefreshCoalescer(changes -> {
+            flushes.increment();
+            if (changes.isDocumentsTransferred()) {
+                Set<String> ids = changes.getTransferredIds();
+                patchedIds.add(ids == null ? 0 : ids.size());
+                documents[0].rowsChanged(ids);
+                departments[0].countsChanged();
+            }
+        });
+        service.addChangeListener(coalescer);
+
+        AtomicLong transfers = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.execute(() -> {
+                Random random = new Random();
+                while (System.nanoTime() < deadline) {
+                    Document document = service.getDocumentAt(random.nextInt(documentCount));
+                    String source = document.getCurrentDepartment().getCode();
+                    String target = DEPARTMENTS[random.nextInt(DEPARTMENTS.length)];
+                    if (!target.equals(source) && service.transferDocument(document.getId(), source, target)) {
+                        transfers.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        // Sonda: quanto uma tarefa espera na fila da thread de eventos
+        List<Long> probe = new ArrayList<>();
+        while (System.nanoTime() < deadline) {
+            long posted = System.nanoTime();
+            SwingUtilities.invokeAndWait(() -> probe.add(System.nanoTime() - posted));
+            Thread.sleep(5);
+        }
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+        Thread.sleep(2 * UiRefreshCoalescer.FRAME_MILLIS);
+        coalescer.close();
+
+        long[] latencies = probe.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.setOut(console);
+        console.printf("Transferências: %,d em %d s (%,.0f/s), %d threads%n", transfers.get(), seconds,
+                transfers.get() / (double) seconds, threads);
+        console.printf("Entregas à interface: %,d (%.1f por segundo, %,.0f avisos por entrega)%n", flushes.sum(),
+                flushes.sum() / (double) seconds, transfers.get() / (double) Math.max(1, flushes.sum()));
+        console.printf("Espera na thread de eventos: p50 %.2f ms, p99 %.2f ms, máx %.2f ms%n",
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                latencies[latencies.length - 1] / 1e6);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,102 @@
+package dms;
+
+// Simulação de um sistema de gerenciamento de documentos em Java
+
+// Classe principal para demonstração
+public class DocumentManagementSystem {
+    public static void main(String[] args) {
+        System.out.println("Iniciando Sistema de Gerenciamento de Documentos");
+        
+        // Inicializar o sistema
+        DocumentService documentService = new DocumentService();
+        
+        // Criar alguns setores
+        Department financeiro = new Department("FIN", "Financeiro");
+        Department rh = new Department("RH", "Recursos Humanos");
+        Department ti = new Department("TI", "Tecnologia da Informação");
+        Department juridico = new Department("JUR", "Jurídico");
+        
+        documentService.registerDepartment(financeiro);
+        documentService.registerDepartment(rh);
+        documentService.registerDepartment(ti);
+        documentService.registerDepartment(juridico);
+        
+        // Criar alguns documentos
+        Document doc1 = new Document("DOC001", "Relatório Financeiro Q1", "Relatório financeiro do primeiro trimestre", financeiro);
+        Document doc2 = new Document("DOC002", "Contratações Pendentes", "Lista de contratações pendentes", rh);
+        Document doc3 = new Document("DOC003", "Plano de Infraestrutura", "Plano de atualização da infraestrutura", ti);
+        
+        documentService.addDocument(doc1);
+        documentService.addDocument(doc2);
+        documentService.addDocument(doc3);
+        
+        // Iniciar o agendador de transferências
+        AutomaticTransferScheduler scheduler = new AutomaticTransferScheduler(documentService);
+        scheduler.start();
+        
+        // Simular algumas operações; os eventos do serviço são escritos em segundo plano,
+        // então cada seção aguarda a escrita dos eventos anteriores antes do título
+        EventLog.flush();
+        System.out.println("\n--- Documentos por Setor ---");
+        documentService.listDocumentsByDepartment();
+        
+        System.out.println("\n--- Transferindo DOC001 do Financeiro para o Jurídico ---");
+        documentService.transferDocument("DOC001", "FIN", "JUR");
+        
+        EventLog.flush();
+        System.out.println("\n--- Documentos por Setor após transferência manual ---");
+        documentService.listDocumentsByDepartment();
+        
+        // Configurar uma regra de transferência automática
+        EventLog.flush();
+        System.out.println("\n--- Configurando transferência automática de RH para TI ---");
+        scheduler.scheduleTransfer("DOC002", "RH", "TI", 5);
+        
+        // Aguardar a transferência automática
+        try {
+            Thread.sleep(6000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        
+        EventLog.flush();
+        System.out.println("\n--- Documentos por Setor após transferência automática ---");
+        documentService.listDocumentsByDepartment();
+        
+        // Consultar o registro global: tudo o que entrou no Jurídico
+        EventLog.flush();
+        System.out.println("\n--- Transferências para o Jurídico ---");
+        documentService.getAuditLog().stream(new TransferAuditLog.Query(null, null, null, "JUR"))
+                .forEach(System.out::println);
+        
+        // Hierarquia: subsetores do Financeiro e contagens que incluem os setores abaixo
+        EventLog.flush();
+        System.out.println("\n--- Subsetores do Financeiro ---");
+        documentService.registerDepartment(new Department("CONT", "Contabilidade", "FIN"));
+        documentService.registerDepartment(new Department("TES", "Tesouraria", "FIN"));
+        documentService.addDocument(new Document("DOC004", "Balancete Mensal", "Balancete do mês corrente",
+                documentService.getDepartment("CONT")));
+        documentService.addDocument(new Document("DOC005", "Fluxo de Caixa", "Previsão de fluxo de caixa",
+                documentService.getDepartment("TES")));
+        documentService.transferDocument("DOC001", "JUR", "TES");
+        EventLog.flush();
+        System.out.println("Financeiro com subsetores: " + documentService.getSubtreeDocumentCount("FIN")
+                + " documentos");
+        
+        System.out.println("\n--- Transferindo o Financeiro e seus subsetores para o Jurídico ---");
+        BatchTransferResult moved = documentService.transferSubtree("FIN", "JUR");
+        EventLog.flush();
+        System.out.println(moved.getTransferredCount() + " documentos transferidos; Financeiro com subsetores: "
+                + documentService.getSubtreeDocumentCount("FIN") + ", Jurídico: "
+                + documentService.getSubtreeDocumentCount("JUR"));
+        
+        // Parar o agendador
+        scheduler.stop();
+        EventLog.flush();
+        System.out.println("\n--- Métricas de transferência ---");
+        System.out.print(documentService.getMetrics().dump());
+        System.out.println("\n--- Estatísticas de transferência ---");
+        System.out.print(documentService.getAnalytics().report());
+        System.out.println("\nSistema de Gerenciamento de Documentos finalizado");
+    }
+}
@@ -0,0 +1,228 @@
+package dms;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Destino de eventos com buffer circular sem locks e uma thread de escrita em segundo plano
+//
+// Quem publica só reserva uma posição com um CAS, copia as referências para o slot pré-alocado
+// e publica a sequência com uma escrita volátil: não formata texto nem toca no console. A thread
+// de escrita consome os slots em ordem, formata cada evento como "hora NÍVEL mensagem chave=valor"
+// e grava em lotes. Com o buffer cheio o evento é descartado (nunca bloqueia o chamador) e a
+// quantidade descartada é informada num evento próprio.
+class AsyncEventSink implements EventLog.Sink {
+    static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final int WRITE_BATCH_CHARS = 1 << 13;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.");
+
+    private static final class Slot {
+        // Sequência do evento publicado neste slot; o slot é reutilizado a cada volta do buffer
+        volatile long sequence = -1;
+        long timestampMillis;
+        EventLog.Level level;
+        String message;
+        String key1;
+        Object value1;
+        String key2;
+        Object value2;
+        String key3;
+        Object value3;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final EventLog.Level minimumLevel;
+    private final Supplier<PrintStream> output;
+    private final AtomicLong claimSequence = new AtomicLong();
+    // Sequências abaixo destas já foram lidas do buffer / gravadas na saída
+    private volatile long consumedSequence;
+    private volatile long writtenSequence;
+    private final LongAdder dropped = new LongAdder();
+    private final ZoneId zone = ZoneId.systemDefault();
+    // Hora formatada do último segundo visto; só os milissegundos mudam entre eventos próximos
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTime;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // A saída é obtida a cada lote, então trocar System.out depois de criar o destino tem efeito
+    public AsyncEventSink(int capacity, EventLog.Level minimumLevel, Supplier<PrintStream> output) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.minimumLevel = minimumLevel;
+        this.output = output;
+        this.writer = new Thread(this::writeLoop, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public boolean isEnabled(EventLog.Level level) {
+        return level.compareTo(minimumLevel) >= 0;
+    }
+
+    @Override
+    public void publish(EventLog.Level level, String message, String key1, Object value1, String key2, Object value2,
+                        String key3, Object value3) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        if (!running) {
+            // Depois de fechado não há thread de escrita: gravar direto
+            StringBuilder line = new StringBuilder();
+            format(line, System.currentTimeMillis(), level, message, key1, value1, key2, value2, key3, value3);
+            output.get().print(line);
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence - consumedSequence >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.level = level;
+        slot.message = message;
+        slot.key1 = key1;
+        slot.value1 = value1;
+        slot.key2 = key2;
+        slot.value2 = value2;
+        slot.key3 = key3;
+        slot.value3 = value3;
+        slot.sequence = sequence;
+    }
+
+    @Override
+    public void flush() {
+        long target = claimSequence.get();
+        while (writtenSequence < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // Escreve o que já foi publicado e encerra a thread de escrita
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(WRITE_BATCH_CHARS * 2);
+        long next = 0;
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.sequence == next) {
+                format(batch, slot.timestampMillis, slot.level, slot.message,
+                        slot.key1, slot.value1, slot.key2, slot.value2, slot.key3, slot.value3);
+                // Soltar as referências para não reter objetos até a próxima volta do buffer
+                slot.message = null;
+                slot.value1 = null;
+                slot.value2 = null;
+                slot.value3 = null;
+                next++;
+                consumedSequence = next;
+                if (batch.length() >= WRITE_BATCH_CHARS) {
+                    write(batch, next);
+                }
+                continue;
+            }
+
+            long droppedNow = dropped.sumThenReset();
+            if (droppedNow > 0) {
+                format(batch, System.currentTimeMillis(), EventLog.Level.WARN,
+                        "Eventos descartados com o buffer cheio", "quantidade", droppedNow, null, null, null, null);
+            }
+            if (batch.length() > 0 || writtenSequence < next) {
+                write(batch, next);
+            }
+            if (!running && claimSequence.get() == next) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private void write(StringBuilder batch, long next) {
+        PrintStream out = output.get();
+        out.print(batch);
+        out.flush();
+        batch.setLength(0);
+        writtenSequence = next;
+    }
+
+    private void format(StringBuilder line, long timestampMillis, EventLog.Level level, String message,
+                        String key1, Object value1, String key2, Object value2, String key3, Object value3) {
+        long second = Math.floorDiv(timestampMillis, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTime = TIME_FORMAT.format(Instant.ofEpochSecond(second).atZone(zone));
+        }
+        int millis = Math.floorMod(timestampMillis, 1000);
+        line.append(cachedTime).append((char) ('0' + millis / 100)).append((char) ('0' + millis / 10 % 10))
+                .append((char) ('0' + millis % 10));
+        line.append(' ').append(level.name());
+        for (int i = level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(' ').append(message);
+        appendField(line, key1, value1);
+        appendField(line, key2, value2);
+        appendField(line, key3, value3);
+        line.append(System.lineSeparator());
+    }
+
+    private static void appendField(StringBuilder line, String key, Object value) {
+        if (key == null) {
+            return;
+        }
+        String text = String.valueOf(value);
+        line.append(' ').append(key).append('=');
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ' ' || c == '"' || c == '=' || c < 0x20;
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c == '\n') {
+                line.append("\\n");
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,489 @@
+package dms;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Agendador de Transferências Automáticas
+class AutomaticTransferScheduler {
+    private static final long WHEEL_TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_BATCH_SIZE = 256;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+    // Fila em disco: só as transferências que vencem dentro da janela ficam em memória
+    static final long STORE_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long STORE_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    
+    private final DocumentService documentService;
+    private final TransferSchedulingMode mode;
+    // Modo SCHEDULED_EXECUTOR
+    private final ScheduledExecutorService scheduler;
+    // Modo TIMING_WHEEL
+    private final HierarchicalTimingWheel<ScheduledTransfer> timingWheel;
+    private final ExecutorService workers;
+    // Plano por documento: a próxima transferência, única dele na fila do timer, e as encadeadas
+    // depois dela, que só entram na fila quando a anterior conclui. Alterados com o lock do plano.
+    private final Map<String, ScheduledTransfer> scheduledTasks;
+    private final Map<String, Deque<ScheduledTransfer>> chainedTransfers = new ConcurrentHashMap<>();
+    private final Object[] planLocks = new Object[64];
+    // Fila durável opcional e a tarefa que avança a janela carregada
+    private final ScheduledTransferStore store;
+    private final ScheduledExecutorService windowLoader;
+    // Contadores para o painel: agendadas em memória e resultado das execuções
+    private final LongAdder pendingCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder supersededCount = new LongAdder();
+    // Regras por setor e idade, avaliadas sobre os avisos de chegada do serviço
+    private final TransferRuleEngine ruleEngine;
+    // Depois do stop nada mais é agendado nem cancelado: a fila em disco pode já estar fechada
+    private volatile boolean stopped;
+    
+    public AutomaticTransferScheduler(DocumentService documentService) {
+        this(documentService, TransferSchedulingMode.SCHEDULED_EXECUTOR, 1);
+    }
+    
+    public AutomaticTransferScheduler(DocumentService documentService, TransferSchedulingMode mode, int workerThreads) {
+        this(documentService, mode, workerThreads, null);
+    }
+    
+    public AutomaticTransferScheduler(DocumentService documentService, TransferSchedulingMode mode, int workerThreads,
+                                      ScheduledTransferStore store) {
+        this.documentService = documentService;
+        this.mode = mode;
+        this.scheduledTasks = new ConcurrentHashMap<>();
+        for (int i = 0; i < planLocks.length; i++) {
+            planLocks[i] = new Object();
+        }
+        this.store = store;
+        // Sem avisos do serviço nem thread até o start
+        this.ruleEngine = new TransferRuleEngine(documentService);
+        
+        if (mode == TransferSchedulingMode.TIMING_WHEEL) {
+            this.scheduler = null;
+            this.workers = Executors.newFixedThreadPool(workerThreads);
+            this.timingWheel = new HierarchicalTimingWheel<>(WHEEL_TICK_MILLIS, WHEEL_SIZE, WHEEL_BATCH_SIZE,
+                    workers, this::executeBatch);
+        } else {
+            // Agendadas que ainda não venceram não disparam depois do stop: com a fila durável elas
+            // voltam na próxima inicialização, e sem ela o agendador parado não transfere mais nada
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(workerThreads);
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            this.scheduler = executor;
+            this.workers = null;
+            this.timingWheel = null;
+        }
+        
+        if (store != null) {
+            this.windowLoader = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "scheduled-transfer-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.windowLoader = null;
+        }
+    }
+    
+    public void start() {
+        documentService.getMetrics().bindScheduler(this);
+        if (timingWheel != null) {
+            timingWheel.start();
+        }
+        if (store != null) {
+            recoverStoredTransfers();
+            windowLoader.scheduleWithFixedDelay(this::loadWindow,
+                    STORE_BUCKET_MILLIS / 2, STORE_BUCKET_MILLIS / 2, TimeUnit.MILLISECONDS);
+        }
+        ruleEngine.start();
+        EventLog.info("Agendador de transferências automáticas iniciado", "modo", mode);
+    }
+    
+    public void stop() {
+        stopped = true;
+        // Quem já passou pela conferência termina antes de a fila ser fechada
+        for (Object planLock : planLocks) {
+            synchronized (planLock) {
+            }
+        }
+        ruleEngine.stop();
+        if (windowLoader != null) {
+            windowLoader.shutdown();
+        }
+        ExecutorService executor;
+        if (timingWheel != null) {
+            // O ticker para de disparar; os lotes já entregues aos workers terminam
+            timingWheel.stop();
+            executor = workers;
+        } else {
+            executor = scheduler;
+        }
+        executor.shutdown();
+        
+        if (store != null) {
+            // Transferências ainda na fila continuam gravadas e voltam na próxima inicialização.
+            // A fila só é fechada quando nenhuma tarefa pode mais escrever nela.
+            try {
+                if (awaitTermination(executor) && awaitTermination(windowLoader)) {
+                    store.close();
+                } else {
+                    EventLog.error("Fila de agendamentos não fechada: tarefas ainda em execução",
+                            "segundos", 2 * STOP_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                EventLog.error("Falha ao fechar a fila de agendamentos", "erro", e.getMessage());
+            }
+        }
+        EventLog.info("Agendador de transferências automáticas parado");
+    }
+    
+    // Espera as tarefas em execução; no fim do prazo interrompe as que restam e espera mais um prazo
+    private static boolean awaitTermination(ExecutorService executor) throws InterruptedException {
+        if (executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            return true;
+        }
+        executor.shutdownNow();
+        return executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    public TransferSchedulingMode getMode() {
+        return mode;
+    }
+    
+    public void addRule(TransferRuleEngine.Rule rule) {
+        ruleEngine.addRule(rule);
+    }
+    
+    public boolean removeRule(String ruleId) {
+        return ruleEngine.removeRule(ruleId);
+    }
+    
+    public List<TransferRuleEngine.Rule> getRules() {
+        return ruleEngine.getRules();
+    }
+    
+    public TransferRuleEngine getRuleEngine() {
+        return ruleEngine;
+    }
+    
+    // Carrega a janela inicial; o que venceu com o processo parado é executado num único lote
+    private void recoverStoredTransfers() {
+        List<ScheduledTransfer> loaded;
+        try {
+            loaded = store.loadThrough(System.currentTimeMillis() + STORE_WINDOW_MILLIS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        long now = System.currentTimeMillis();
+        List<ScheduledTransfer> overdue = new ArrayList<>();
+        for (ScheduledTransfer transfer : loaded) {
+            boolean due = transfer.getDueAtMillis() <= now;
+            synchronized (planLock(transfer.getDocumentId())) {
+                // As vencidas que ficarem na frente do plano vão para o lote, as demais para o timer
+                if (admit(transfer, !due) == Admission.QUEUED && due) {
+                    overdue.add(transfer);
+                }
+            }
+        }
+        
+        if (!overdue.isEmpty()) {
+            EventLog.info("Executando transferências automáticas atrasadas", "quantidade", overdue.size());
+            (timingWheel != null ? workers : scheduler).execute(() -> executeBatch(overdue));
+        }
+    }
+    
+    private void loadWindow() {
+        try {
+            for (ScheduledTransfer transfer : store.loadThrough(System.currentTimeMillis() + STORE_WINDOW_MILLIS)) {
+                synchronized (planLock(transfer.getDocumentId())) {
+                    admit(transfer, true);
+                }
+            }
+        } catch (IOException e) {
+            EventLog.error("Falha ao carregar transferências agendadas", "erro", e.getMessage());
+        }
+    }
+    
+    // Uma transferência cuja origem é o destino da última planejada para o documento é encadeada:
+    // entra na fila quando a anterior for concluída, nunca antes dela. Qualquer outra substitui o
+    // plano inteiro do documento, que é cancelado.
+    public void scheduleTransfer(String documentId, String sourceDeptCode, String targetDeptCode, int delayInSeconds) {
+        long dueAtMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(delayInSeconds);
+        ScheduledTransfer transfer;
+        Admission admission;
+        synchronized (planLock(documentId)) {
+            checkRunning();
+            ScheduledTransfer last = lastPlanned(documentId);
+            boolean chains = last != null && last.getTargetDeptCode().equals(sourceDeptCode);
+            if (chains) {
+                dueAtMillis = Math.max(dueAtMillis, last.getDueAtMillis());
+            }
+            transfer = new ScheduledTransfer(documentId, sourceDeptCode, targetDeptCode, dueAtMillis);
+            
+            // Com fila durável, gravar antes de agendar; fora da janela carregada a transferência fica só no disco
+            boolean inWindow = true;
+            if (store != null) {
+                try {
+                    inWindow = store.add(transfer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (inWindow) {
+                admission = admit(transfer, true);
+            } else if (last != null && !chains) {
+                // A mais nova vale mesmo vencendo depois da janela: o plano em memória deixa de valer
+                cancelPlan(documentId, 0);
+                admission = Admission.QUEUED;
+            } else {
+                admission = chains ? Admission.CHAINED : Admission.QUEUED;
+            }
+        }
+        
+        EventLog.info(admission == Admission.CHAINED
+                        ? "Transferência automática encadeada" : "Transferência automática agendada",
+                "tarefa", transfer.getTaskId(), "segundos", delayInSeconds);
+    }
+    
+    private enum Admission { QUEUED, CHAINED, STALE }
+    
+    // Encaixa a transferência no plano do documento, com o lock do plano. Transferências carregadas
+    // do disco passam pelo mesmo caminho; uma que conflita com um plano agendado depois dela é velha
+    // e só é marcada como concluída.
+    private Admission admit(ScheduledTransfer transfer, boolean arm) {
+        String documentId = transfer.getDocumentId();
+        ScheduledTransfer last = lastPlanned(documentId);
+        if (last != null && last.getTargetDeptCode().equals(transfer.getSourceDeptCode())) {
+            chainedTransfers.computeIfAbsent(documentId, id -> new ArrayDeque<>()).addLast(transfer);
+            pendingCount.increment();
+            return Admission.CHAINED;
+        }
+        if (last != null) {
+            if (transfer.getScheduledAtMillis() < newestScheduledAt(documentId)) {
+                markDone(transfer);
+                return Admission.STALE;
+            }
+            cancelPlan(documentId, 0);
+        }
+        scheduledTasks.put(documentId, transfer);
+        pendingCount.increment();
+        if (arm) {
+            arm(transfer);
+        }
+        return Admission.QUEUED;
+    }
+    
+    private void arm(ScheduledTransfer transfer) {
+        long delayMillis = Math.max(0, transfer.getDueAtMillis() - System.currentTimeMillis());
+        if (timingWheel != null) {
+            timingWheel.schedule(transfer, delayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            try {
+                transfer.setFuture(scheduler.schedule(() -> executeTransfer(transfer), delayMillis,
+                        TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException e) {
+                // Encadeada liberada depois do stop: continua na fila em disco e volta na próxima inicialização
+                return;
+            }
+        }
+        transfer.setArmed();
+    }
+    
+    private ScheduledTransfer lastPlanned(String documentId) {
+        Deque<ScheduledTransfer> chain = chainedTransfers.get(documentId);
+        return chain != null ? chain.peekLast() : scheduledTasks.get(documentId);
+    }
+    
+    private long newestScheduledAt(String documentId) {
+        long newest = scheduledTasks.get(documentId).getScheduledAtMillis();
+        Deque<ScheduledTransfer> chain = chainedTransfers.get(documentId);
+        if (chain != null) {
+            for (ScheduledTransfer transfer : chain) {
+                newest = Math.max(newest, transfer.getScheduledAtMillis());
+            }
+        }
+        return newest;
+    }
+    
+    // Cancela o plano do documento a partir da posição indicada (0 é a transferência na fila).
+    // Devolve quantas transferências foram canceladas.
+    private int cancelPlan(String documentId, int from) {
+        int cancelled = 0;
+        Deque<ScheduledTransfer> chain = chainedTransfers.get(documentId);
+        if (chain != null) {
+            while (chain.size() > Math.max(0, from - 1)) {
+                markDone(chain.pollLast());
+                cancelled++;
+            }
+            if (chain.isEmpty()) {
+                chainedTransfers.remove(documentId);
+            }
+        }
+        if (from == 0) {
+            ScheduledTransfer queued = scheduledTasks.remove(documentId);
+            if (queued != null) {
+                cancelled++;
+                // Se já estava executando, a própria execução marca a conclusão na fila
+                if (queued.isArmed() && (timingWheel != null
+                        ? timingWheel.cancel(queued)
+                        : queued.getFuture().cancel(false))) {
+                    markDone(queued);
+                }
+            }
+        }
+        pendingCount.add(-cancelled);
+        supersededCount.add(cancelled);
+        return cancelled;
+    }
+    
+    private void executeBatch(List<ScheduledTransfer> batch) {
+        for (ScheduledTransfer transfer : batch) {
+            executeTransfer(transfer);
+        }
+    }
+    
+    private void executeTransfer(ScheduledTransfer transfer) {
+        String documentId = transfer.getDocumentId();
+        // Substituída depois de entrar na fila e tarde demais para sair do timer: não há o que executar
+        if (scheduledTasks.get(documentId) != transfer) {
+            markDone(transfer);
+            return;
+        }
+        documentService.getMetrics().recordSchedulerLag(System.currentTimeMillis() - transfer.getDueAtMillis());
+        boolean success = documentService.transferDocument(documentId,
+                transfer.getSourceDeptCode(), transfer.getTargetDeptCode());
+        if (success) {
+            completedCount.increment();
+            EventLog.info("Transferência automática concluída", "tarefa", transfer.getTaskId());
+        } else {
+            failedCount.increment();
+            EventLog.warn("Falha na transferência automática", "tarefa", transfer.getTaskId());
+        }
+        synchronized (planLock(documentId)) {
+            if (scheduledTasks.remove(documentId, transfer)) {
+                pendingCount.decrement();
+                Deque<ScheduledTransfer> chain = chainedTransfers.get(documentId);
+                if (chain != null && success) {
+                    // A próxima do plano entra na fila agora que a origem dela é o setor atual
+                    ScheduledTransfer next = chain.pollFirst();
+                    if (chain.isEmpty()) {
+                        chainedTransfers.remove(documentId);
+                    }
+                    scheduledTasks.put(documentId, next);
+                    arm(next);
+                } else if (chain != null) {
+                    // Sem a anterior o documento não está na origem das encadeadas: descartar sem executar
+                    int discarded = cancelPlan(documentId, 1);
+                    EventLog.warn("Transferências encadeadas descartadas", "documento", documentId,
+                            "quantidade", discarded);
+                }
+            }
+        }
+        markDone(transfer);
+    }
+    
+    private void markDone(ScheduledTransfer transfer) {
+        if (store != null) {
+            try {
+                store.markDone(transfer);
+            } catch (IOException e) {
+                EventLog.error("Falha ao registrar a conclusão da transferência automática",
+                        "tarefa", transfer.getTaskId(), "erro", e.getMessage());
+            }
+        }
+    }
+    
+    // Cancela a transferência e as encadeadas depois dela, que dependem dela para ter a origem certa
+    public void cancelScheduledTransfer(String documentId, String sourceDeptCode, String targetDeptCode) {
+        String taskId = ScheduledTransfer.taskId(documentId, sourceDeptCode, targetDeptCode);
+        int cancelled = 0;
+        boolean unloaded;
+        synchronized (planLock(documentId)) {
+            checkRunning();
+            ScheduledTransfer queued = scheduledTasks.get(documentId);
+            if (queued != null && queued.getTaskId().equals(taskId)) {
+                cancelled = cancelPlan(documentId, 0);
+            } else {
+                Deque<ScheduledTransfer> chain = chainedTransfers.get(documentId);
+                int position = 1;
+                if (chain != null) {
+                    for (ScheduledTransfer transfer : chain) {
+                        if (transfer.getTaskId().equals(taskId)) {
+                            cancelled = cancelPlan(documentId, position);
+                            break;
+                        }
+                        position++;
+                    }
+                }
+            }
+            // Ainda com o lock do plano, para que o stop não feche a fila no meio da gravação
+            unloaded = cancelled == 0 && cancelUnloaded(taskId);
+        }
+        // Cancelar não é substituir: desfazer a contagem feita por cancelPlan
+        supersededCount.add(-cancelled);
+        
+        if (cancelled > 0) {
+            EventLog.info("Transferência automática cancelada", "tarefa", taskId, "encadeadas", cancelled - 1);
+        } else if (unloaded) {
+            EventLog.info("Transferência automática cancelada", "tarefa", taskId);
+        } else {
+            EventLog.warn("Nenhuma transferência automática encontrada", "tarefa", taskId);
+        }
+    }
+    
+    private boolean cancelUnloaded(String taskId) {
+        if (store == null) {
+            return false;
+        }
+        try {
+            return store.cancelUnloaded(taskId, System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void checkRunning() {
+        if (stopped) {
+            throw new IllegalStateException("Agendador de transferências automáticas parado");
+        }
+    }
+    
+    private Object planLock(String documentId) {
+        int h = documentId.hashCode();
+        return planLocks[(h ^ (h >>> 16)) & (planLocks.length - 1)];
+    }
+    
+    // Próxima transferência de cada documento, a única dele na fila, pelo id do documento
+    public Map<String, ScheduledTransfer> getScheduledTasks() {
+        return Collections.unmodifiableMap(scheduledTasks);
+    }
+    
+    // Agendadas e carregadas em memória, incluindo as encadeadas; com fila em disco, as que vencem depois da janela não entram
+    public long getPendingCount() {
+        return pendingCount.sum();
+    }
+    
+    // Transferências descartadas sem executar: substituídas por um agendamento mais novo do mesmo
+    // documento ou encadeadas a uma que falhou
+    public long getSupersededCount() {
+        return supersededCount.sum();
+    }
+    
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+    
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+    
+    // Faixas da fila em disco ainda não carregadas (0 sem fila em disco)
+    public int getUnloadedBucketCount() {
+        return store == null ? 0 : store.getUnloadedBucketCount();
+    }
+}
@@ -0,0 +1,28 @@
+package dms;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executores para tarefas de fundo que passam a maior parte do tempo esperando (fsync, disco)
+//
+// Em Java 21 ou superior cada tarefa roda numa thread virtual; em versões anteriores, num pool
+// sem limite de threads daemon com nome, que é o comportamento mais próximo. O método de Java 21
+// é obtido por reflexão para que o código continue compilando e rodando em Java 11 e 17.
+final class BackgroundExecutors {
+    private BackgroundExecutors() {
+    }
+
+    static ExecutorService newPerTaskExecutor(String threadName) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, threadName + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
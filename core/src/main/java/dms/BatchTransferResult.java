@@ -0,0 +1,51 @@
+package dms;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Resultado por item de uma transferência em lote, na mesma ordem das requisições
+class BatchTransferResult {
+    private final List<TransferRequest> requests;
+    private final TransferStatus[] statuses;
+    private final int transferredCount;
+    
+    BatchTransferResult(List<TransferRequest> requests, TransferStatus[] statuses, int transferredCount) {
+        this.requests = requests;
+        this.statuses = statuses;
+        this.transferredCount = transferredCount;
+    }
+    
+    public TransferRequest getRequest(int index) {
+        return requests.get(index);
+    }
+    
+    public TransferStatus getStatus(int index) {
+        return statuses[index];
+    }
+    
+    public int size() {
+        return statuses.length;
+    }
+    
+    public int getTransferredCount() {
+        return transferredCount;
+    }
+    
+    public int getFailedCount() {
+        return statuses.length - transferredCount;
+    }
+    
+    public Map<TransferStatus, Integer> getStatusCounts() {
+        Map<TransferStatus, Integer> counts = new EnumMap<>(TransferStatus.class);
+        for (TransferStatus status : statuses) {
+            counts.merge(status, 1, Integer::sum);
+        }
+        return counts;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%d de %d transferidos %s", transferredCount, statuses.length, getStatusCounts());
+    }
+}
@@ -0,0 +1,447 @@
+package dms;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Exportação em fluxo dos documentos com setor atual e histórico completo de transferências
+//
+// Os documentos são percorridos direto no mapa do serviço, sem cópia do acervo. Para cada um,
+// o setor atual, a data de atualização e o tamanho do histórico são lidos sob o lock do documento
+// (operação O(1)); o histórico só cresce por acréscimo, então os registros até esse tamanho são
+// lidos depois, fora do lock. A saída passa por um buffer de tamanho fixo, e a memória usada não
+// depende do número de documentos nem do tamanho dos históricos.
+//
+// Formatos:
+//   CSV         documentos em <arquivo>.csv (id,title,content,department,created_at,updated_at,
+//               importável pelo BulkImporter) e histórico em <arquivo>.historico.csv
+//   JSON_LINES  um objeto por documento, com o histórico num array "history"
+//   BINARY      blocos com os setores antes do primeiro uso e códigos de setor e motivos
+//               referenciados por índice num dicionário, lido de volta por readBinary
+//
+// Cada arquivo é gravado num temporário e renomeado ao final, para que uma exportação
+// interrompida nunca seja confundida com uma completa.
+class BulkExporter {
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int BINARY_MAGIC = 0x444D5345;
+    private static final int BINARY_VERSION = 1;
+    private static final byte DEPARTMENT_BLOCK = 'D';
+    private static final byte DOCUMENT_BLOCK = 'C';
+    private static final byte END_BLOCK = 0;
+    // Limite do dicionário de textos repetidos do formato binário; depois dele os textos vão por extenso
+    private static final int MAX_DICTIONARY_ENTRIES = 4096;
+
+    enum Format {
+        CSV, JSON_LINES, BINARY;
+
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES : BINARY;
+        }
+    }
+
+    static class ExportResult {
+        private final long documents;
+        private final long historyRows;
+        private final long bytes;
+        private final long elapsedMillis;
+        private final LocalDateTime startedAt;
+
+        ExportResult(long documents, long historyRows, long bytes, long elapsedMillis, LocalDateTime startedAt) {
+            this.documents = documents;
+            this.historyRows = historyRows;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+            this.startedAt = startedAt;
+        }
+
+        public long getDocuments() {
+            return documents;
+        }
+
+        public long getHistoryRows() {
+            return historyRows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        // Marca para a próxima exportação incremental: tudo alterado a partir daqui ainda não foi exportado
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d documentos, %d registros de histórico, %d KB em %d ms",
+                    documents, historyRows, bytes / 1024, elapsedMillis);
+        }
+    }
+
+    // Estado do documento lido sob o lock
+    private static class DocumentView {
+        final Department department;
+        final LocalDateTime updatedAt;
+        final int historySize;
+
+        DocumentView(Document document) {
+            this.department = document.getCurrentDepartment();
+            this.updatedAt = document.getUpdatedAt();
+            this.historySize = document.getTransferHistory().size();
+        }
+    }
+
+    // Saída de um formato: recebe cada documento já com a visão consistente. Só os primeiros
+    // view.historySize registros do histórico pertencem à visão; os seguintes são transferências
+    // feitas depois da leitura e ficam para a próxima exportação.
+    private interface Sink extends Closeable {
+        void write(Document document, DocumentView view, List<TransferRecord> history) throws IOException;
+    }
+
+    private final DocumentService documentService;
+
+    public BulkExporter(DocumentService documentService) {
+        this.documentService = documentService;
+    }
+
+    public ExportResult export(Path file, Format format) throws IOException {
+        return export(file, format, null);
+    }
+
+    // Com changedSince, exporta apenas documentos com updatedAt igual ou posterior
+    public ExportResult export(Path file, Format format, LocalDateTime changedSince) throws IOException {
+        long begin = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<Path> targets = new ArrayList<>();
+        targets.add(file);
+        if (format == Format.CSV) {
+            targets.add(historyFile(file));
+        }
+
+        long documents = 0;
+        long historyRows = 0;
+        try (Sink sink = openSink(format, temporaryFiles(targets))) {
+            for (Document document : documentService.getAllDocuments()) {
+                // Filtro barato antes do lock; updatedAt só avança
+                if (changedSince != null && document.getUpdatedAt().isBefore(changedSince)) {
+                    continue;
+                }
+                DocumentView view = documentService.readLocked(document.getId(), DocumentView::new);
+                if (view == null || (changedSince != null && view.updatedAt.isBefore(changedSince))) {
+                    continue;
+                }
+                sink.write(document, view, document.getTransferHistory());
+                documents++;
+                historyRows += view.historySize;
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Path temporary : temporaryFiles(targets)) {
+                Files.deleteIfExists(temporary);
+            }
+            throw e;
+        }
+
+        long bytes = 0;
+        List<Path> temporaries = temporaryFiles(targets);
+        for (int i = 0; i < targets.size(); i++) {
+            Files.move(temporaries.get(i), targets.get(i), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            bytes += Files.size(targets.get(i));
+        }
+
+        ExportResult result = new ExportResult(documents, historyRows, bytes,
+                (System.nanoTime() - begin) / 1_000_000, startedAt);
+        EventLog.info("Exportação concluída", "arquivo", file.getFileName(), "resultado", result);
+        return result;
+    }
+
+    // documentos.csv -> documentos.historico.csv
+    static Path historyFile(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String history = dot < 0 ? name + ".historico" : name.substring(0, dot) + ".historico" + name.substring(dot);
+        return file.resolveSibling(history);
+    }
+
+    private static List<Path> temporaryFiles(List<Path> targets) {
+        List<Path> temporaries = new ArrayList<>(targets.size());
+        for (Path target : targets) {
+            temporaries.add(target.resolveSibling(target.getFileName() + ".tmp"));
+        }
+        return temporaries;
+    }
+
+    private static Sink openSink(Format format, List<Path> files) throws IOException {
+        switch (format) {
+            case CSV:
+                return new CsvSink(files.get(0), files.get(1));
+            case JSON_LINES:
+                return new JsonLinesSink(files.get(0));
+            default:
+                return new BinarySink(files.get(0));
+        }
+    }
+
+    private static Writer openWriter(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+                BUFFER_BYTES);
+    }
+
+    private static class CsvSink implements Sink {
+        private final Writer documents;
+        private final Writer history;
+        private final StringBuilder line = new StringBuilder(256);
+
+        CsvSink(Path documentsFile, Path historyFile) throws IOException {
+            this.documents = openWriter(documentsFile);
+            this.history = openWriter(historyFile);
+            documents.write("id,title,content,department,created_at,updated_at\n");
+            history.write("id,index,source,target,reason,timestamp\n");
+        }
+
+        @Override
+        public void write(Document document, DocumentView view, List<TransferRecord> records) throws IOException {
+            String id = BulkImporter.csvQuote(document.getId());
+            line.setLength(0);
+            line.append(id).append(',')
+                    .append(BulkImporter.csvQuote(document.getTitle())).append(',')
+                    .append(BulkImporter.csvQuote(document.readContent())).append(',')
+                    .append(BulkImporter.csvQuote(view.department.getCode())).append(',')
+                    .append(document.getCreatedAt()).append(',')
+                    .append(view.updatedAt).append('\n');
+            documents.append(line);
+
+            for (int i = 0; i < view.historySize; i++) {
+                TransferRecord record = records.get(i);
+                line.setLength(0);
+                line.append(id).append(',').append(i).append(',')
+                        .append(record.getSource() == null ? "" : BulkImporter.csvQuote(record.getSource().getCode()))
+                        .append(',')
+                        .append(BulkImporter.csvQuote(record.getTarget().getCode())).append(',')
+                        .append(BulkImporter.csvQuote(record.getReason())).append(',')
+                        .append(record.getTimestamp()).append('\n');
+                history.append(line);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                documents.close();
+            } finally {
+                history.close();
+            }
+        }
+    }
+
+    private static class JsonLinesSink implements Sink {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder(512);
+
+        JsonLinesSink(Path file) throws IOException {
+            this.out = openWriter(file);
+        }
+
+        @Override
+        public void write(Document document, DocumentView view, List<TransferRecord> records) throws IOException {
+            line.setLength(0);
+            line.append("{\"id\":").append(Json.quote(document.getId()))
+                    .append(",\"title\":").append(Json.quote(document.getTitle()))
+                    .append(",\"content\":").append(Json.quote(document.readContent()))
+                    .append(",\"department\":").append(Json.quote(view.department.getCode()))
+                    .append(",\"createdAt\":\"").append(document.getCreatedAt())
+                    .append("\",\"updatedAt\":\"").append(view.updatedAt)
+                    .append("\",\"history\":[");
+            for (int i = 0; i < view.historySize; i++) {
+                TransferRecord record = records.get(i);
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append("{\"source\":")
+                        .append(record.getSource() == null ? "null" : Json.quote(record.getSource().getCode()))
+                        .append(",\"target\":").append(Json.quote(record.getTarget().getCode()))
+                        .append(",\"reason\":").append(Json.quote(record.getReason()))
+                        .append(",\"timestamp\":\"").append(record.getTimestamp()).append("\"}");
+                // Históricos longos não acumulam no StringBuilder
+                if (line.length() > BUFFER_BYTES) {
+                    out.append(line);
+                    line.setLength(0);
+                }
+            }
+            line.append("]}\n");
+            out.append(line);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static class BinarySink implements Sink {
+        private final DataOutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final Set<String> writtenDepartments = new HashSet<>();
+        private long documents;
+
+        BinarySink(Path file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES));
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+        }
+
+        @Override
+        public void write(Document document, DocumentView view, List<TransferRecord> records) throws IOException {
+            // Setores antes do documento que os referencia, como nos snapshots
+            writeDepartment(view.department);
+            for (int i = 0; i < view.historySize; i++) {
+                writeDepartment(records.get(i).getTarget());
+            }
+
+            out.writeByte(DOCUMENT_BLOCK);
+            PersistenceEngine.writeString(out, document.getId());
+            PersistenceEngine.writeString(out, document.getTitle());
+            PersistenceEngine.writeString(out, document.readContent());
+            writeReference(view.department.getCode());
+            PersistenceEngine.writeTimestamp(out, document.getCreatedAt());
+            PersistenceEngine.writeTimestamp(out, view.updatedAt);
+            writeVarInt(view.historySize);
+            for (int i = 0; i < view.historySize; i++) {
+                TransferRecord record = records.get(i);
+                writeReference(record.getSource() == null ? null : record.getSource().getCode());
+                writeReference(record.getTarget().getCode());
+                writeReference(record.getReason());
+                PersistenceEngine.writeTimestamp(out, record.getTimestamp());
+            }
+            documents++;
+        }
+
+        private void writeDepartment(Department department) throws IOException {
+            if (writtenDepartments.add(department.getCode())) {
+                out.writeByte(DEPARTMENT_BLOCK);
+                PersistenceEngine.writeString(out, department.getCode());
+                PersistenceEngine.writeString(out, department.getName());
+            }
+        }
+
+        // 0 = nulo, 1 = texto por extenso a seguir, n >= 2 = entrada n - 2 do dicionário
+        private void writeReference(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarInt(index + 2);
+                return;
+            }
+            writeVarInt(1);
+            PersistenceEngine.writeString(out, value);
+            if (dictionary.size() < MAX_DICTIONARY_ENTRIES) {
+                dictionary.put(value, dictionary.size());
+            }
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeByte(END_BLOCK);
+            out.writeLong(documents);
+            out.close();
+        }
+    }
+
+    // Lê uma exportação binária, entregando cada documento reconstruído; devolve quantos foram lidos
+    static long readBinary(Path file, Consumer<Document> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES))) {
+            if (in.readInt() != BINARY_MAGIC || in.readInt() != BINARY_VERSION) {
+                throw new StreamCorruptedException("Arquivo não é uma exportação binária compatível: " + file);
+            }
+            Map<String, Department> departments = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            long documents = 0;
+            while (true) {
+                byte block = in.readByte();
+                if (block == END_BLOCK) {
+                    long expected = in.readLong();
+                    if (expected != documents) {
+                        throw new StreamCorruptedException("Exportação com " + documents + " documentos, esperados "
+                                + expected);
+                    }
+                    return documents;
+                }
+                if (block == DEPARTMENT_BLOCK) {
+                    String code = PersistenceEngine.readString(in);
+                    departments.put(code, new Department(code, PersistenceEngine.readString(in)));
+                    continue;
+                }
+                if (block != DOCUMENT_BLOCK) {
+                    throw new StreamCorruptedException("Bloco desconhecido: " + block);
+                }
+
+                String id = PersistenceEngine.readString(in);
+                String title = PersistenceEngine.readString(in);
+                String content = PersistenceEngine.readString(in);
+                Department department = departments.get(readReference(in, dictionary));
+                LocalDateTime createdAt = PersistenceEngine.readTimestamp(in);
+                LocalDateTime updatedAt = PersistenceEngine.readTimestamp(in);
+                int historySize = readVarInt(in);
+                List<TransferRecord> history = new ArrayList<>(historySize);
+                for (int i = 0; i < historySize; i++) {
+                    String source = readReference(in, dictionary);
+                    String target = readReference(in, dictionary);
+                    String reason = readReference(in, dictionary);
+                    history.add(new TransferRecord(source == null ? null : departments.get(source),
+                            departments.get(target), reason, PersistenceEngine.readTimestamp(in)));
+                }
+                consumer.accept(new Document(id, title, content, department, createdAt, updatedAt, history));
+                documents++;
+            }
+        }
+    }
+
+    private static String readReference(DataInputStream in, List<String> dictionary) throws IOException {
+        int reference = readVarInt(in);
+        if (reference == 0) {
+            return null;
+        }
+        if (reference >= 2) {
+            return dictionary.get(reference - 2);
+        }
+        String value = PersistenceEngine.readString(in);
+        if (dictionary.size() < MAX_DICTIONARY_ENTRIES) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Inteiro variável inválido");
+    }
+}
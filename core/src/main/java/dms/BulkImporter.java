@@ -0,0 +1,760 @@
+package dms;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Importação em massa de setores e documentos a partir de arquivos CSV ou JSON-lines
+//
+// Uma thread lê o arquivo em blocos de bytes pelo FileChannel e corta cada bloco no último fim
+// de registro (fora de aspas, no caso do CSV), sem decodificar o conteúdo. Os blocos passam por
+// uma fila limitada para os workers, que decodificam, validam, resolvem o setor e inserem em
+// lotes; assim a memória usada não depende do tamanho do arquivo.
+//
+// CSV: a primeira linha é o cabeçalho, com as colunas code,name (setores) ou
+// id,title,content,department (documentos) em qualquer ordem; colunas extras são ignoradas.
+// JSON-lines: um objeto por linha com as mesmas chaves; valores aninhados são ignorados.
+//
+// Sem arquivo de rejeitados, o primeiro registro inválido interrompe a importação (os lotes já
+// inseridos permanecem). Com arquivo de rejeitados, os registros inválidos são gravados nele com
+// a linha e o motivo e a importação continua.
+class BulkImporter {
+    private static final int DEFAULT_BATCH_SIZE = 1_000;
+    private static final int BLOCK_BYTES = 1 << 20;
+
+    enum Format {
+        CSV, JSON_LINES;
+
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".csv") ? CSV : JSON_LINES;
+        }
+    }
+
+    private enum RecordType {
+        DEPARTMENTS(new String[] {"code", "name"}),
+        DOCUMENTS(new String[] {"id", "title", "content", "department"});
+
+        final String[] fields;
+
+        RecordType(String[] fields) {
+            this.fields = fields;
+        }
+    }
+
+    static class ImportResult {
+        private final long rowsRead;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedMillis;
+
+        ImportResult(long rowsRead, long imported, long rejected, long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getRowsPerSecond() {
+            return rowsRead * 1000.0 / Math.max(1, elapsedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d registros lidos, %d importados, %d rejeitados em %d ms (%.0f registros/s)",
+                    rowsRead, imported, rejected, elapsedMillis, getRowsPerSecond());
+        }
+    }
+
+    // Bloco de registros completos; firstLine é o número da linha do primeiro byte
+    private static class Chunk {
+        static final Chunk END = new Chunk(new byte[0], 0, 0, 0);
+
+        final byte[] data;
+        final int offset;
+        final int length;
+        final long firstLine;
+
+        Chunk(byte[] data, int offset, int length, long firstLine) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            this.firstLine = firstLine;
+        }
+    }
+
+    // Registro inválido; com arquivo de rejeitados vira uma linha nele, sem arquivo interrompe a importação
+    private static class InvalidRecordException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        InvalidRecordException(String message) {
+            super(message);
+        }
+    }
+
+    private final DocumentService documentService;
+    private final int workerThreads;
+    private final int batchSize;
+    private final Object departmentLock = new Object();
+
+    public BulkImporter(DocumentService documentService) {
+        this(documentService, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkImporter(DocumentService documentService, int workerThreads, int batchSize) {
+        this.documentService = documentService;
+        this.workerThreads = workerThreads;
+        this.batchSize = batchSize;
+    }
+
+    public ImportResult importDepartments(Path file, Path rejectFile) throws IOException {
+        return run(file, rejectFile, RecordType.DEPARTMENTS);
+    }
+
+    public ImportResult importDocuments(Path file, Path rejectFile) throws IOException {
+        return run(file, rejectFile, RecordType.DOCUMENTS);
+    }
+
+    // Arquivo de rejeitados padrão: documentos.csv -> documentos.rejeitados.csv
+    static Path defaultRejectFile(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String rejected = dot < 0 ? name + ".rejeitados" : name.substring(0, dot) + ".rejeitados" + name.substring(dot);
+        return file.resolveSibling(rejected);
+    }
+
+    private ImportResult run(Path file, Path rejectFile, RecordType type) throws IOException {
+        long begin = System.nanoTime();
+        Import job = new Import(Format.of(file), type, rejectFile);
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(workerThreads * 2);
+
+        ExecutorService workers = Executors.newFixedThreadPool(workerThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // O cabeçalho precisa ser conhecido antes de os workers começarem
+            job.readHeader(channel);
+            for (int i = 0; i < workerThreads; i++) {
+                futures.add(workers.submit(() -> job.consume(queue)));
+            }
+            job.produce(channel, queue);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail(new InterruptedIOException("Importação interrompida"));
+        } finally {
+            finishWorkers(job, queue, futures.size());
+            workers.shutdown();
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    job.fail(e.getCause());
+                }
+            }
+            job.closeRejects();
+        }
+
+        if (job.failure != null) {
+            throw job.failure;
+        }
+        ImportResult result = new ImportResult(job.rowsRead.sum(), job.imported.sum(), job.rejected.sum(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        EventLog.info("Importação concluída", "arquivo", file.getFileName(), "resultado", result);
+        return result;
+    }
+
+    // Um END por worker; se a importação falhou os workers já pararam e os blocos pendentes são descartados
+    private static void finishWorkers(Import job, BlockingQueue<Chunk> queue, int workers) {
+        boolean interrupted = false;
+        for (int i = 0; i < workers; i++) {
+            while (true) {
+                try {
+                    if (queue.offer(Chunk.END, 100, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    job.fail(new InterruptedIOException("Importação interrompida"));
+                }
+                if (job.failure != null) {
+                    queue.clear();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Estado de uma execução de importação
+    private class Import {
+        final Format format;
+        final RecordType type;
+        final Path rejectFile;
+        final LongAdder rowsRead = new LongAdder();
+        final LongAdder imported = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        volatile IOException failure;
+        // Posição de cada campo do tipo no registro CSV
+        int[] columns;
+        String csvHeader;
+        private Writer rejects;
+        // Leitura: bytes já consumidos do arquivo pelo cabeçalho
+        private long headerBytes;
+        private long headerLines;
+
+        Import(Format format, RecordType type, Path rejectFile) {
+            this.format = format;
+            this.type = type;
+            this.rejectFile = rejectFile;
+        }
+
+        synchronized void fail(Throwable cause) {
+            if (failure == null) {
+                failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        }
+
+        void readHeader(FileChannel channel) throws IOException {
+            // Ignorar a marca de ordem de bytes do UTF-8
+            ByteBuffer start = ByteBuffer.allocate(3);
+            while (start.hasRemaining() && channel.read(start) >= 0) {
+                // continua até ter 3 bytes ou chegar ao fim
+            }
+            if (start.position() == 3 && (start.get(0) & 0xFF) == 0xEF && (start.get(1) & 0xFF) == 0xBB
+                    && (start.get(2) & 0xFF) == 0xBF) {
+                headerBytes = 3;
+            }
+            if (format != Format.CSV) {
+                return;
+            }
+
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long position = headerBytes;
+            boolean found = false;
+            while (!found && channel.read(buffer, position) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\n') {
+                        found = true;
+                        break;
+                    }
+                    line.write(b);
+                }
+                buffer.clear();
+            }
+            headerBytes = position;
+            headerLines = 1;
+
+            csvHeader = stripCarriageReturn(line.toString(StandardCharsets.UTF_8.name()));
+            List<String> names;
+            try {
+                names = parseCsv(csvHeader, 1);
+            } catch (InvalidRecordException e) {
+                throw new IOException("Cabeçalho CSV inválido: " + e.getMessage());
+            }
+            columns = new int[type.fields.length];
+            for (int i = 0; i < type.fields.length; i++) {
+                columns[i] = names.indexOf(type.fields[i]);
+                if (columns[i] < 0) {
+                    throw new IOException("Coluna obrigatória ausente no cabeçalho: " + type.fields[i]);
+                }
+            }
+        }
+
+        // Lê blocos do arquivo e entrega somente registros completos aos workers
+        void produce(FileChannel channel, BlockingQueue<Chunk> queue) throws IOException, InterruptedException {
+            channel.position(headerBytes);
+            byte[] buffer = new byte[BLOCK_BYTES];
+            int filled = 0;
+            int scanned = 0;
+            boolean inQuotes = false;
+            int boundary = 0;
+            long linesInBuffer = 0;
+            long linesAtBoundary = 0;
+            long nextLine = headerLines + 1;
+            boolean csv = format == Format.CSV;
+
+            while (failure == null) {
+                int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+                if (read > 0) {
+                    filled += read;
+                }
+                for (; scanned < filled; scanned++) {
+                    byte b = buffer[scanned];
+                    if (csv && b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n') {
+                        linesInBuffer++;
+                        if (!inQuotes) {
+                            boundary = scanned + 1;
+                            linesAtBoundary = linesInBuffer;
+                        }
+                    }
+                }
+
+                if (read < 0) {
+                    if (filled > 0) {
+                        queue.put(new Chunk(buffer, 0, filled, nextLine));
+                    }
+                    return;
+                }
+                if (filled < buffer.length) {
+                    continue;
+                }
+                if (boundary == 0) {
+                    // Um único registro maior que o bloco: aumentar o buffer
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+
+                queue.put(new Chunk(buffer, 0, boundary, nextLine));
+                nextLine += linesAtBoundary;
+                byte[] next = new byte[Math.max(BLOCK_BYTES, filled - boundary)];
+                System.arraycopy(buffer, boundary, next, 0, filled - boundary);
+                buffer = next;
+                filled -= boundary;
+                scanned = filled;
+                linesInBuffer -= linesAtBoundary;
+                boundary = 0;
+                linesAtBoundary = 0;
+            }
+        }
+
+        void consume(BlockingQueue<Chunk> queue) {
+            List<String[]> batch = new ArrayList<>(batchSize);
+            List<String> raw = new ArrayList<>(batchSize);
+            List<Long> lines = new ArrayList<>(batchSize);
+            try {
+                while (true) {
+                    Chunk chunk = queue.take();
+                    if (chunk == Chunk.END || failure != null) {
+                        break;
+                    }
+                    String text = new String(chunk.data, chunk.offset, chunk.length, StandardCharsets.UTF_8);
+                    parseChunk(text, chunk.firstLine, batch, raw, lines);
+                }
+                if (failure == null) {
+                    flush(batch, raw, lines);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new InterruptedIOException("Importação interrompida"));
+            }
+        }
+
+        private void parseChunk(String text, long firstLine, List<String[]> batch, List<String> raw, List<Long> lines)
+                throws IOException {
+            int position = 0;
+            long line = firstLine;
+            while (position < text.length() && failure == null) {
+                int end = format == Format.CSV ? csvRecordEnd(text, position) : jsonRecordEnd(text, position);
+                String record = stripCarriageReturn(text.substring(position, end));
+                long recordLine = line;
+                for (int i = position; i < Math.min(end + 1, text.length()); i++) {
+                    if (text.charAt(i) == '\n') {
+                        line++;
+                    }
+                }
+                position = end + 1;
+                if (record.trim().isEmpty()) {
+                    continue;
+                }
+
+                rowsRead.increment();
+                try {
+                    batch.add(format == Format.CSV ? csvFields(record, recordLine) : jsonFields(record));
+                    raw.add(record);
+                    lines.add(recordLine);
+                } catch (InvalidRecordException e) {
+                    reject(record, recordLine, e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    flush(batch, raw, lines);
+                }
+            }
+        }
+
+        // Fim do registro CSV que começa em start: a primeira quebra de linha fora de aspas
+        private int csvRecordEnd(String text, int start) {
+            boolean quoted = false;
+            for (int i = start; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == '\n' && !quoted) {
+                    return i;
+                }
+            }
+            return text.length();
+        }
+
+        private int jsonRecordEnd(String text, int start) {
+            int end = text.indexOf('\n', start);
+            return end < 0 ? text.length() : end;
+        }
+
+        private String[] csvFields(String record, long line) throws InvalidRecordException {
+            List<String> values = parseCsv(record, line);
+            String[] fields = new String[type.fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                if (columns[i] >= values.size()) {
+                    throw new InvalidRecordException("Registro com " + values.size() + " colunas, esperado pelo menos "
+                            + (columns[i] + 1));
+                }
+                fields[i] = values.get(columns[i]);
+            }
+            return fields;
+        }
+
+        private String[] jsonFields(String record) throws InvalidRecordException {
+            Map<String, String> object = new JsonObjectParser(record).parse();
+            String[] fields = new String[type.fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = object.get(type.fields[i]);
+            }
+            return fields;
+        }
+
+        // Valida e insere o lote acumulado pelo worker
+        private void flush(List<String[]> batch, List<String> raw, List<Long> lines) throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (type == RecordType.DOCUMENTS) {
+                flushDocuments(batch, raw, lines);
+            } else {
+                flushDepartments(batch, raw, lines);
+            }
+            batch.clear();
+            raw.clear();
+            lines.clear();
+        }
+
+        private void flushDocuments(List<String[]> batch, List<String> raw, List<Long> lines) throws IOException {
+            List<Document> documents = new ArrayList<>(batch.size());
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                String[] fields = batch.get(i);
+                String id = trimToNull(fields[0]);
+                String title = trimToNull(fields[1]);
+                String departmentCode = trimToNull(fields[3]);
+                String problem = null;
+                Department department = null;
+                if (id == null) {
+                    problem = "Campo id vazio";
+                } else if (title == null) {
+                    problem = "Campo title vazio";
+                } else if (departmentCode == null) {
+                    problem = "Campo department vazio";
+                } else if ((department = documentService.getDepartment(departmentCode)) == null) {
+                    problem = "Setor não encontrado: " + departmentCode;
+                } else if (positions.containsKey(id)) {
+                    problem = "Documento repetido no arquivo: " + id;
+                }
+                if (problem != null) {
+                    reject(raw.get(i), lines.get(i), problem);
+                    continue;
+                }
+                positions.put(id, i);
+                documents.add(new Document(id, title, fields[2] == null ? "" : fields[2], department));
+            }
+
+            List<Document> duplicates = documentService.addDocuments(documents);
+            imported.add(documents.size() - duplicates.size());
+            for (Document duplicate : duplicates) {
+                int i = positions.get(duplicate.getId());
+                reject(raw.get(i), lines.get(i), "Documento já cadastrado: " + duplicate.getId());
+            }
+        }
+
+        private void flushDepartments(List<String[]> batch, List<String> raw, List<Long> lines) throws IOException {
+            for (int i = 0; i < batch.size(); i++) {
+                String code = trimToNull(batch.get(i)[0]);
+                String name = trimToNull(batch.get(i)[1]);
+                String problem = null;
+                if (code == null) {
+                    problem = "Campo code vazio";
+                } else if (name == null) {
+                    problem = "Campo name vazio";
+                } else {
+                    // Verificar e registrar juntos para que códigos repetidos em workers diferentes não se sobrescrevam
+                    synchronized (departmentLock) {
+                        if (documentService.getDepartment(code) != null) {
+                            problem = "Setor já cadastrado: " + code;
+                        } else {
+                            documentService.registerDepartment(new Department(code, name));
+                            imported.increment();
+                        }
+                    }
+                }
+                if (problem != null) {
+                    reject(raw.get(i), lines.get(i), problem);
+                }
+            }
+        }
+
+        private void reject(String record, long line, String reason) throws IOException {
+            rejected.increment();
+            if (rejectFile == null) {
+                throw new IOException("Registro inválido na linha " + line + ": " + reason);
+            }
+            synchronized (this) {
+                if (rejects == null) {
+                    rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+                    if (format == Format.CSV) {
+                        // O arquivo de rejeitados pode ser corrigido e importado de novo: as colunas extras são ignoradas
+                        rejects.write(csvHeader + ",line,error\n");
+                    }
+                }
+                if (format == Format.CSV) {
+                    rejects.write(record + "," + line + "," + csvQuote(reason) + "\n");
+                } else {
+                    rejects.write("{\"line\":" + line + ",\"error\":" + Json.quote(reason)
+                            + ",\"record\":" + Json.quote(record) + "}\n");
+                }
+            }
+        }
+
+        synchronized void closeRejects() {
+            if (rejects != null) {
+                try {
+                    rejects.close();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    // Separa os campos de um registro CSV (RFC 4180: aspas duplas, "" dentro de aspas)
+    private static List<String> parseCsv(String record, long line) throws InvalidRecordException {
+        List<String> values = new ArrayList<>();
+        int end = record.length();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < end; i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < end && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == '"' || wasQuoted) {
+                throw new InvalidRecordException("Aspas inválidas na coluna " + (values.size() + 1));
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidRecordException("Aspas não fechadas na linha " + line);
+        }
+        values.add(field.toString());
+        return values;
+    }
+
+    // Objeto JSON de um nível só, com valores texto, número, booleano ou null
+    private static class JsonObjectParser {
+        private final String text;
+        private int position;
+
+        JsonObjectParser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> parse() throws InvalidRecordException {
+            Map<String, String> object = new HashMap<>();
+            skipSpaces();
+            expect('{');
+            skipSpaces();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    skipSpaces();
+                    String key = readString();
+                    skipSpaces();
+                    expect(':');
+                    skipSpaces();
+                    object.put(key, readValue());
+                    skipSpaces();
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new InvalidRecordException("JSON inválido: esperado ',' ou '}' na posição " + position);
+                    }
+                }
+            }
+            skipSpaces();
+            if (position < text.length()) {
+                throw new InvalidRecordException("JSON inválido: conteúdo após o fim do objeto");
+            }
+            return object;
+        }
+
+        private String readValue() throws InvalidRecordException {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                // Valores aninhados (como o histórico de uma exportação) não são importados
+                skipNested();
+                return null;
+            }
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw new InvalidRecordException("JSON inválido: valor desconhecido '" + literal + "'");
+        }
+
+        private String readString() throws InvalidRecordException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"': case '\\': case '/': value.append(escaped); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new InvalidRecordException("JSON inválido: escape \\u incompleto");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new InvalidRecordException("JSON inválido: escape \\u inválido");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw new InvalidRecordException("JSON inválido: escape desconhecido \\" + escaped);
+                }
+            }
+        }
+
+        private void skipNested() throws InvalidRecordException {
+            int depth = 0;
+            do {
+                char c = peek();
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                position++;
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() throws InvalidRecordException {
+            if (position >= text.length()) {
+                throw new InvalidRecordException("JSON inválido: fim inesperado do registro");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() throws InvalidRecordException {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(char expected) throws InvalidRecordException {
+            if (next() != expected) {
+                throw new InvalidRecordException("JSON inválido: esperado '" + expected + "' na posição " + (position - 1));
+            }
+        }
+    }
+
+    private static String stripCarriageReturn(String value) {
+        return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    static String csvQuote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,356 @@
+package dms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Conteúdo dos documentos fora do heap, em arquivos mapeados em memória
+//
+// O DocumentService guarda aqui o conteúdo de cada documento adicionado e o Document fica só com
+// um número de 64 bits (segmento e posição). Os segmentos (conteudo-<n>.seg) são preenchidos em
+// sequência e mapeados inteiros; quem decide o que fica na RAM é o cache de páginas do sistema
+// operacional, não o heap. Os textos lidos recentemente ficam num cache LRU limitado pelo total
+// de caracteres. Os arquivos não são a cópia durável do conteúdo (essa continua no log e nos
+// snapshots): são apagados ao abrir o diretório e o espaço de documentos substituídos não é
+// reaproveitado.
+//
+// Textos iguais são gravados uma vez só: uma tabela de hash do conteúdo aponta para a cópia já
+// gravada, conferida byte a byte antes de ser reaproveitada (colisões de hash só custam uma cópia
+// a mais). Textos a partir de COMPRESSION_THRESHOLD bytes são comprimidos com Deflate conforme o
+// modo escolhido, e ficam por extenso quando a compressão não ganha espaço. Cada registro tem o
+// tamanho gravado e o tamanho original; quando são iguais o texto está por extenso.
+class ContentStore implements Closeable {
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    static final int COMPRESSION_THRESHOLD = 512;
+    private static final String SEGMENT_PREFIX = "conteudo-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    static final long DEFAULT_CACHE_CHARS = 8 * 1024 * 1024;
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+
+    enum Compression {
+        // Sem compressão; só a deduplicação
+        NONE(Deflater.NO_COMPRESSION),
+        // Deflate nível 1: comprime textos repetitivos quase tão bem quanto o padrão, bem mais rápido
+        FAST(Deflater.BEST_SPEED),
+        // Deflate nível padrão (6)
+        COMPACT(Deflater.DEFAULT_COMPRESSION);
+
+        private final int level;
+
+        Compression(int level) {
+            this.level = level;
+        }
+    }
+
+    private final Path directory;
+    private final long cacheMaxChars;
+    private final Compression compression;
+    // Compressores reaproveitados: criar um Deflater aloca memória nativa, e as tarefas de fundo
+    // rodam em threads virtuais, então um por thread seria um por tarefa
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    // Segmentos publicados antes do número que aponta para eles; leitura sem lock
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private int writePosition;
+    private long storedBytes;
+    private long logicalBytes;
+    private long deduplicated;
+
+    // Hash do conteúdo -> referência da primeira cópia, em endereçamento aberto (0 marca posição livre)
+    private long[] hashes = new long[1024];
+    private long[] references = new long[1024];
+    private int distinct;
+
+    private final LinkedHashMap<Long, String> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedChars;
+    private long cacheHits;
+    private long cacheMisses;
+
+    public ContentStore(Path directory) throws IOException {
+        this(directory, DEFAULT_CACHE_CHARS, Compression.FAST);
+    }
+
+    public ContentStore(Path directory, long cacheMaxChars, Compression compression) throws IOException {
+        this.directory = directory;
+        this.cacheMaxChars = cacheMaxChars;
+        this.compression = compression;
+        Files.createDirectories(directory);
+        // Sobras de uma execução anterior: o conteúdo é regravado a partir do log e dos snapshots
+        try (Stream<Path> files = Files.list(directory)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    // Grava o texto (ou reaproveita uma cópia igual) e devolve a referência para lê-lo depois
+    public long store(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(bytes);
+        long existing;
+        synchronized (this) {
+            logicalBytes += bytes.length;
+            existing = lookup(hash);
+        }
+        // Conferir e comprimir fora do lock: só a gravação no segmento é serializada
+        if (existing >= 0 && Arrays.equals(decode(existing), bytes)) {
+            synchronized (this) {
+                deduplicated++;
+            }
+            return existing;
+        }
+        byte[] stored = bytes;
+        if (compression != Compression.NONE && bytes.length >= COMPRESSION_THRESHOLD) {
+            byte[] compressed = compress(bytes);
+            if (compressed.length < bytes.length) {
+                stored = compressed;
+            }
+        }
+        synchronized (this) {
+            // Outra thread pode ter gravado o mesmo texto enquanto este era comprimido
+            long raced = lookup(hash);
+            if (raced >= 0 && raced != existing && Arrays.equals(decode(raced), bytes)) {
+                deduplicated++;
+                return raced;
+            }
+            long reference = append(stored, bytes.length);
+            if (existing < 0 && raced < 0) {
+                insert(hash, reference);
+            }
+            return reference;
+        }
+    }
+
+    private long append(byte[] stored, int rawLength) {
+        MappedByteBuffer[] current = segments;
+        int needed = RECORD_HEADER + stored.length;
+        if (current.length == 0 || writePosition + needed > current[current.length - 1].capacity()) {
+            current = addSegment(current, Math.max(SEGMENT_SIZE, needed));
+        }
+        int segment = current.length - 1;
+        int offset = writePosition;
+        ByteBuffer target = current[segment].duplicate();
+        target.position(offset);
+        target.putInt(stored.length);
+        target.putInt(rawLength);
+        target.put(stored);
+        writePosition = offset + needed;
+        storedBytes += needed;
+        return (long) segment << 32 | offset;
+    }
+
+    private MappedByteBuffer[] addSegment(MappedByteBuffer[] current, int size) {
+        Path file = directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, current.length, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois de fechar o canal
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            MappedByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = mapped;
+            segments = grown;
+            writePosition = 0;
+            return grown;
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao criar segmento de conteúdo " + file, e);
+        }
+    }
+
+    // Leitura pelo cache, para quem exibe o conteúdo
+    public String get(long reference) {
+        synchronized (cache) {
+            String cached = cache.get(reference);
+            if (cached != null) {
+                cacheHits++;
+                return cached;
+            }
+            cacheMisses++;
+        }
+        String content = read(reference);
+        synchronized (cache) {
+            if (content.length() <= cacheMaxChars && cache.put(reference, content) == null) {
+                cachedChars += content.length();
+                Iterator<Map.Entry<Long, String>> eldest = cache.entrySet().iterator();
+                while (cachedChars > cacheMaxChars) {
+                    cachedChars -= eldest.next().getValue().length();
+                    eldest.remove();
+                }
+            }
+        }
+        return content;
+    }
+
+    // Leitura direta dos segmentos, sem passar pelo cache: para varreduras (snapshot, exportação)
+    // que leriam cada texto uma vez e expulsariam os que estão sendo exibidos
+    public String read(long reference) {
+        return new String(decode(reference), StandardCharsets.UTF_8);
+    }
+
+    private byte[] decode(long reference) {
+        ByteBuffer source = segments[(int) (reference >>> 32)].duplicate();
+        source.position((int) reference);
+        byte[] stored = new byte[source.getInt()];
+        int rawLength = source.getInt();
+        source.get(stored);
+        if (stored.length == rawLength) {
+            return stored;
+        }
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        inflater.setInput(stored);
+        byte[] raw = new byte[rawLength];
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != rawLength) {
+                throw new IllegalStateException("Conteúdo truncado na referência " + reference);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Conteúdo corrompido na referência " + reference, e);
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+        return raw;
+    }
+
+    private byte[] compress(byte[] bytes) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(compression.level);
+        }
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            // Só interessa o resultado se for menor que o original
+            byte[] output = new byte[bytes.length];
+            int length = 0;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            return deflater.finished() ? Arrays.copyOf(output, length) : bytes;
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+        }
+    }
+
+    // Hash de 64 bits do conteúdo, lendo oito bytes por vez
+    private static long hash(byte[] bytes) {
+        long h = 0x9E3779B97F4A7C15L ^ bytes.length;
+        ByteBuffer view = ByteBuffer.wrap(bytes);
+        int i = 0;
+        for (; i + Long.BYTES <= bytes.length; i += Long.BYTES) {
+            h = mix(h ^ view.getLong(i));
+        }
+        long tail = 0;
+        for (; i < bytes.length; i++) {
+            tail = tail << 8 | (bytes[i] & 0xFF);
+        }
+        h = mix(h ^ tail);
+        return h == 0 ? 1 : h;
+    }
+
+    private static long mix(long h) {
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        return h ^ h >>> 29;
+    }
+
+    private long lookup(long hash) {
+        int mask = hashes.length - 1;
+        for (int slot = (int) hash & mask; hashes[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash) {
+                return references[slot];
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long hash, long reference) {
+        if (distinct * 2 >= hashes.length) {
+            long[] oldHashes = hashes;
+            long[] oldReferences = references;
+            hashes = new long[oldHashes.length * 2];
+            references = new long[oldHashes.length * 2];
+            distinct = 0;
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldHashes[i] != 0) {
+                    insert(oldHashes[i], oldReferences[i]);
+                }
+            }
+        }
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while (hashes[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        references[slot] = reference;
+        distinct++;
+    }
+
+    // Bytes ocupados nos segmentos, já descontados os textos repetidos e a compressão
+    public synchronized long getStoredBytes() {
+        return storedBytes;
+    }
+
+    // Bytes UTF-8 de todos os textos recebidos, como se cada um fosse gravado por extenso
+    public synchronized long getLogicalBytes() {
+        return logicalBytes;
+    }
+
+    // Textos que reaproveitaram uma cópia já gravada
+    public synchronized long getDeduplicatedCount() {
+        return deduplicated;
+    }
+
+    public long getCacheHits() {
+        synchronized (cache) {
+            return cacheHits;
+        }
+    }
+
+    public long getCacheMisses() {
+        synchronized (cache) {
+            return cacheMisses;
+        }
+    }
+
+    // Os mapeamentos só são liberados pelo coletor; fechar apenas esvazia o cache
+    @Override
+    public void close() {
+        synchronized (cache) {
+            cache.clear();
+            cachedChars = 0;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dms;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Pasta de dados da aplicação (-Ddms.dataDir, "dados" por padrão), aberta do mesmo jeito pela
+// interface gráfica e pelo servidor HTTP: conteúdo dos documentos fora do heap, log e snapshots, e
+// a fila de transferências agendadas.
+//
+// Cada parte que não abre é registrada no log de eventos e fica de fora: sem o ContentStore os
+// textos continuam no heap, sem o log o serviço funciona só em memória e sem a fila os agendamentos
+// não sobrevivem ao reinício.
+class DataDirectory {
+    private final Path path;
+    private final PersistenceEngine persistence;
+    private final ScheduledTransferStore scheduleStore;
+
+    private DataDirectory(Path path, PersistenceEngine persistence, ScheduledTransferStore scheduleStore) {
+        this.path = path;
+        this.persistence = persistence;
+        this.scheduleStore = scheduleStore;
+    }
+
+    static DataDirectory open(DocumentService documentService) {
+        Path path = Paths.get(System.getProperty("dms.dataDir", "dados"));
+        // Conteúdo em arquivos mapeados, antes da recuperação para que ela já o mova para fora do heap.
+        // Compressão configurável com -Ddms.contentCompression=NONE|FAST|COMPACT
+        String configured = System.getProperty("dms.contentCompression", "FAST");
+        ContentStore.Compression compression;
+        try {
+            compression = ContentStore.Compression.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            EventLog.error("Compressão de conteúdo desconhecida, usando FAST", "valor", configured);
+            compression = ContentStore.Compression.FAST;
+        }
+        try {
+            documentService.attachContentStore(new ContentStore(path.resolve("conteudo"),
+                    ContentStore.DEFAULT_CACHE_CHARS, compression));
+        } catch (IOException e) {
+            EventLog.error("Falha ao abrir o armazenamento de conteúdo", "pasta", path, "erro", e.getMessage());
+        }
+
+        PersistenceEngine persistence;
+        try {
+            persistence = PersistenceEngine.open(path, documentService);
+            persistence.startPeriodicSnapshots(5, TimeUnit.MINUTES);
+            EventLog.info("Estado recuperado", "documentosSnapshot", persistence.getRecoveredDocuments(),
+                    "registrosLog", persistence.getReplayedRecords(), "ms", persistence.getRecoveryMillis());
+        } catch (IOException e) {
+            EventLog.error("Falha ao abrir o log de dados, funcionando só em memória", "pasta", path,
+                    "erro", e.getMessage());
+            return new DataDirectory(path, null, null);
+        }
+
+        // Transferências agendadas sobrevivem ao reinício na mesma pasta de dados
+        ScheduledTransferStore scheduleStore = null;
+        try {
+            scheduleStore = new ScheduledTransferStore(path.resolve("agendamentos"),
+                    AutomaticTransferScheduler.STORE_BUCKET_MILLIS);
+        } catch (IOException e) {
+            EventLog.error("Falha ao abrir a fila de agendamentos", "pasta", path, "erro", e.getMessage());
+        }
+        return new DataDirectory(path, persistence, scheduleStore);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Nulos quando a parte correspondente não abriu
+    public PersistenceEngine getPersistence() {
+        return persistence;
+    }
+
+    public ScheduledTransferStore getScheduleStore() {
+        return scheduleStore;
+    }
+
+    // Um único hook de desligamento, em ordem: primeiro o que ainda altera o serviço (servidor,
+    // agendador, que fecha a fila de agendamentos), depois o snapshot e o fechamento do log. Hooks
+    // separados rodariam ao mesmo tempo e o log poderia fechar com escritas ainda chegando.
+    void closeOnShutdown(Runnable stopWriters) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopWriters.run();
+            close();
+        }, "data-shutdown"));
+    }
+
+    // Grava um snapshot para que a próxima inicialização não precise reaplicar o log
+    void close() {
+        if (persistence == null) {
+            return;
+        }
+        try {
+            persistence.snapshot();
+            persistence.close();
+        } catch (IOException e) {
+            EventLog.error("Falha ao gravar o snapshot de saída", "pasta", path, "erro", e.getMessage());
+        }
+    }
+}
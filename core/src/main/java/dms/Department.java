@@ -0,0 +1,51 @@
+package dms;
+
+import java.util.Objects;
+
+// Modelo de Setor
+class Department {
+    private final String code;
+    private final String name;
+    // Setor imediatamente acima na hierarquia; nulo nos setores de topo
+    private final String parentCode;
+    
+    public Department(String code, String name) {
+        this(code, name, null);
+    }
+    
+    public Department(String code, String name, String parentCode) {
+        this.code = code;
+        this.name = name;
+        this.parentCode = parentCode;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getParentCode() {
+        return parentCode;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s - %s", code, name);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Department that = (Department) obj;
+        return code.equals(that.code);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(code);
+    }
+}
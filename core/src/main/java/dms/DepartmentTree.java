@@ -0,0 +1,266 @@
+package dms;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Hierarquia de setores (diretorias com setores, setores com equipes) e contagem de documentos por subárvore
+//
+// Cada setor guarda quantos documentos há nele e em todos os setores abaixo dele. Um documento novo
+// incrementa o setor e os ancestrais; uma transferência decrementa a partir da origem e incrementa a
+// partir do destino só até o primeiro ancestral comum, cujo total não muda. São alguns LongAdder por
+// transferência (a profundidade da árvore) e a consulta do total de uma subárvore é uma leitura.
+//
+// Para saber se um setor está abaixo de outro e listar uma subárvore, os setores são numerados na
+// ordem de uma busca em profundidade (Euler tour): a subárvore de um setor ocupa o intervalo
+// [posição, fim) dessa numeração. Ela é refeita por inteiro na primeira consulta depois de um setor
+// registrado, o que é raro, e publicada como objeto imutável. A posição de um setor na árvore não
+// muda depois de registrado, então uma numeração anterior continua válida para os setores que conhece.
+//
+// Documentos de um setor ainda não registrado ficam num saldo à parte, alterado com o lock da árvore;
+// o registro do setor o consome com o mesmo lock, então nenhuma contagem concorrente se perde.
+class DepartmentTree {
+    private static final class Node {
+        final String code;
+        final Node parent;
+        final List<Node> children = new ArrayList<>();
+        final LongAdder subtreeDocuments = new LongAdder();
+
+        Node(String code, Node parent) {
+            this.code = code;
+            this.parent = parent;
+        }
+    }
+
+    // Numeração da árvore numa versão: nodes em pré-ordem, com a subárvore de i em [i, ends[i])
+    private static final class Layout {
+        final Node[] nodes;
+        final int[] parents;
+        final int[] ends;
+        final Map<String, Integer> positions;
+
+        Layout(List<Node> roots, int size) {
+            nodes = new Node[size];
+            parents = new int[size];
+            ends = new int[size];
+            positions = new HashMap<>(size * 2);
+            int next = 0;
+            // Pilha explícita: árvores profundas não estouram a pilha de chamadas
+            Deque<Node> pending = new ArrayDeque<>();
+            Deque<Integer> open = new ArrayDeque<>();
+            for (int r = roots.size() - 1; r >= 0; r--) {
+                pending.push(roots.get(r));
+            }
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                // Fechar as subárvores que terminam antes deste nó
+                int parent = node.parent == null ? -1 : positions.get(node.parent.code);
+                while (!open.isEmpty() && open.peek() != parent) {
+                    ends[open.pop()] = next;
+                }
+                nodes[next] = node;
+                parents[next] = parent;
+                positions.put(node.code, next);
+                open.push(next);
+                next++;
+                for (int c = node.children.size() - 1; c >= 0; c--) {
+                    pending.push(node.children.get(c));
+                }
+            }
+            while (!open.isEmpty()) {
+                ends[open.pop()] = next;
+            }
+        }
+
+        boolean contains(int ancestor, int position) {
+            return ancestor <= position && position < ends[ancestor];
+        }
+    }
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final List<Node> roots = new ArrayList<>();
+    // Saldo de documentos dos setores fora da árvore, com o lock da árvore
+    private final Map<String, Long> pending = new HashMap<>();
+    // Nula quando um setor foi registrado depois da última numeração
+    private volatile Layout layout;
+
+    // Valida antes de o registro ir para o log: o setor superior precisa existir e um setor já
+    // registrado não muda de lugar. Como o superior já existe, não há como formar ciclos.
+    void checkPlacement(String code, String parentCode) {
+        if (code.equals(parentCode)) {
+            throw new IllegalArgumentException("Setor não pode ser superior de si mesmo: " + code);
+        }
+        Node existing = nodes.get(code);
+        if (existing != null) {
+            String currentParent = existing.parent == null ? null : existing.parent.code;
+            if (!Objects.equals(currentParent, parentCode)) {
+                throw new IllegalArgumentException("Setor " + code + " já está registrado sob "
+                        + (currentParent == null ? "nenhum setor" : currentParent));
+            }
+        } else if (parentCode != null && !nodes.containsKey(parentCode)) {
+            throw new IllegalArgumentException("Setor superior não encontrado: " + parentCode);
+        }
+    }
+
+    // Os documentos que chegaram antes do registro passam do saldo pendente para o setor e os superiores
+    synchronized void add(String code, String parentCode) {
+        if (nodes.containsKey(code)) {
+            return;
+        }
+        checkPlacement(code, parentCode);
+        Node parent = parentCode == null ? null : nodes.get(parentCode);
+        Node node = new Node(code, parent);
+        (parent == null ? roots : parent.children).add(node);
+        nodes.put(code, node);
+        layout = null;
+        Long documents = pending.remove(code);
+        for (Node n = node; n != null && documents != null; n = n.parent) {
+            n.subtreeDocuments.add(documents);
+        }
+    }
+
+    synchronized void clear() {
+        nodes.clear();
+        roots.clear();
+        pending.clear();
+        layout = null;
+    }
+
+    private Layout layout() {
+        Layout current = layout;
+        return current != null ? current : rebuild();
+    }
+
+    private synchronized Layout rebuild() {
+        if (layout == null) {
+            layout = new Layout(roots, nodes.size());
+        }
+        return layout;
+    }
+
+    void documentAdded(String code) {
+        count(code, 1);
+    }
+
+    void documentRemoved(String code) {
+        count(code, -1);
+    }
+
+    // Sem lock quando o setor já está na árvore; senão conferir de novo com o lock, que o registro
+    // também segura, e deixar a contagem no saldo pendente
+    private void count(String code, long delta) {
+        Node node = nodes.get(code);
+        if (node == null) {
+            synchronized (this) {
+                node = nodes.get(code);
+                if (node == null) {
+                    pending.merge(code, delta, (a, b) -> a + b == 0 ? null : a + b);
+                    return;
+                }
+            }
+        }
+        for (Node n = node; n != null; n = n.parent) {
+            n.subtreeDocuments.add(delta);
+        }
+    }
+
+    // Só os ramos abaixo do ancestral comum mudam: transferir entre equipes de um mesmo setor
+    // não toca o setor nem a diretoria
+    void documentMoved(String sourceCode, String targetCode) {
+        if (sourceCode.equals(targetCode)) {
+            return;
+        }
+        Node source = nodes.get(sourceCode);
+        Node target = nodes.get(targetCode);
+        if (source == null || target == null) {
+            documentRemoved(sourceCode);
+            documentAdded(targetCode);
+            return;
+        }
+        Layout current = layout();
+        Integer sourcePosition = current.positions.get(sourceCode);
+        Integer targetPosition = current.positions.get(targetCode);
+        if (sourcePosition == null || targetPosition == null) {
+            current = rebuild();
+            sourcePosition = current.positions.get(sourceCode);
+            targetPosition = current.positions.get(targetCode);
+        }
+        int[] parents = current.parents;
+        for (int p = sourcePosition; p >= 0 && !current.contains(p, targetPosition); p = parents[p]) {
+            current.nodes[p].subtreeDocuments.decrement();
+        }
+        for (int p = targetPosition; p >= 0 && !current.contains(p, sourcePosition); p = parents[p]) {
+            current.nodes[p].subtreeDocuments.increment();
+        }
+    }
+
+    public boolean contains(String code) {
+        return nodes.containsKey(code);
+    }
+
+    // Documentos no setor e em todos os setores abaixo dele
+    public long getSubtreeDocumentCount(String code) {
+        Node node = nodes.get(code);
+        return node == null ? 0 : node.subtreeDocuments.sum();
+    }
+
+    public boolean isInSubtree(String ancestorCode, String code) {
+        Layout current = layout();
+        Integer ancestor = current.positions.get(ancestorCode);
+        Integer position = current.positions.get(code);
+        return ancestor != null && position != null && current.contains(ancestor, position);
+    }
+
+    // O setor e todos os abaixo dele, em pré-ordem: um trecho contíguo da numeração
+    public List<String> getSubtree(String code) {
+        Layout current = layout();
+        Integer start = current.positions.get(code);
+        if (start == null) {
+            return Collections.emptyList();
+        }
+        List<String> codes = new ArrayList<>(current.ends[start] - start);
+        for (int p = start; p < current.ends[start]; p++) {
+            codes.add(current.nodes[p].code);
+        }
+        return codes;
+    }
+
+    public List<String> getChildren(String code) {
+        Node node = nodes.get(code);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        synchronized (this) {
+            List<String> codes = new ArrayList<>(node.children.size());
+            for (Node child : node.children) {
+                codes.add(child.code);
+            }
+            return codes;
+        }
+    }
+
+    public synchronized List<String> getRoots() {
+        List<String> codes = new ArrayList<>(roots.size());
+        for (Node root : roots) {
+            codes.add(root.code);
+        }
+        return codes;
+    }
+
+    // Caminho da raiz até o setor, para exibição ("DIRFIN / FIN / CONT")
+    public List<String> getPath(String code) {
+        LinkedList<String> path = new LinkedList<>();
+        for (Node n = nodes.get(code); n != null; n = n.parent) {
+            path.addFirst(n.code);
+        }
+        return path;
+    }
+
+    public int getDepth(String code) {
+        int depth = -1;
+        for (Node n = nodes.get(code); n != null; n = n.parent) {
+            depth++;
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,150 @@
+package dms;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Modelo de Documento
+class Document {
+    // Textos até este tamanho ficam no próprio documento: a referência ao ContentStore custaria quase o mesmo
+    static final int INLINE_CONTENT_CHARS = 64;
+    
+    private final String id;
+    private final String title;
+    // Conteúdo no heap até o DocumentService movê-lo para o ContentStore; depois fica só a referência.
+    // A referência e o store são escritos antes de o conteúdo virar nulo, então quem lê nulo os enxerga.
+    private volatile String content;
+    private long contentReference;
+    private volatile ContentStore contentStore;
+    private volatile Department currentDepartment;
+    // Histórico compacto: leitores percorrem sem bloqueio enquanto o DocumentService
+    // serializa as escritas de cada documento através do lock do seu stripe
+    private final TransferHistory transferHistory;
+    // Setor de cada código do histórico: os setores do DocumentService depois que o documento entra
+    // nele, antes disso os setores com que o documento foi criado
+    private volatile Function<String, Department> departments;
+    private final LocalDateTime createdAt;
+    private volatile LocalDateTime updatedAt;
+    
+    public Document(String id, String title, String content, Department department) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.currentDepartment = department;
+        this.transferHistory = new TransferHistory(1);
+        this.departments = code -> code.equals(department.getCode()) ? department : null;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = createdAt;
+        
+        // Registrar a criação como primeira transferência
+        this.transferHistory.append(null, department, TransferHistory.CREATION_REASON, createdAt);
+    }
+    
+    // Reconstrução a partir do armazenamento, preservando datas e histórico originais
+    Document(String id, String title, String content, Department department,
+             LocalDateTime createdAt, LocalDateTime updatedAt, List<TransferRecord> history) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.currentDepartment = department;
+        this.transferHistory = TransferHistory.of(history);
+        Map<String, Department> known = new HashMap<>();
+        for (TransferRecord record : history) {
+            if (record.getSource() != null) {
+                known.put(record.getSource().getCode(), record.getSource());
+            }
+            known.put(record.getTarget().getCode(), record.getTarget());
+        }
+        this.departments = known::get;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getContent() {
+        String inline = content;
+        if (inline != null) {
+            return inline;
+        }
+        ContentStore store = contentStore;
+        return store == null ? null : store.get(contentReference);
+    }
+    
+    // Mesmo texto de getContent sem passar pelo cache, para varreduras de todos os documentos
+    String readContent() {
+        String inline = content;
+        if (inline != null) {
+            return inline;
+        }
+        ContentStore store = contentStore;
+        return store == null ? null : store.read(contentReference);
+    }
+    
+    // Chamado pelo DocumentService com o lock do documento, depois de indexar o texto
+    void moveContentTo(ContentStore store) {
+        String inline = content;
+        if (inline == null || inline.length() <= INLINE_CONTENT_CHARS) {
+            return;
+        }
+        contentReference = store.store(inline);
+        contentStore = store;
+        content = null;
+    }
+    
+    public Department getCurrentDepartment() {
+        return currentDepartment;
+    }
+    
+    public void setCurrentDepartment(Department department) {
+        this.currentDepartment = department;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    public void addTransferRecord(Department source, Department target, String reason) {
+        this.transferHistory.append(source, target, reason, LocalDateTime.now());
+    }
+    
+    // Registra a transferência e move o documento para o destino no mesmo instante do registro
+    void applyTransfer(TransferRecord record) {
+        this.transferHistory.append(record.getSource(), record.getTarget(), record.getReason(), record.getTimestamp());
+        this.currentDepartment = record.getTarget();
+        this.updatedAt = record.getTimestamp();
+    }
+    
+    // Chamado pelo DocumentService ao receber o documento
+    void attachDepartments(Function<String, Department> departments) {
+        this.departments = departments;
+    }
+    
+    // Visão somente leitura com os registros existentes no momento da chamada
+    public List<TransferRecord> getTransferHistory() {
+        return transferHistory.view(departments);
+    }
+    
+    // Histórico no formato compacto, para copiar para o registro global sem montar os registros
+    long[] getEncodedHistory() {
+        return transferHistory.encoded();
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Documento [%s] %s - Setor Atual: %s", id, title, currentDepartment.getName());
+    }
+}
@@ -0,0 +1,48 @@
+package dms;
+
+import java.util.Arrays;
+
+// Ids dos documentos na ordem em que foram adicionados, com acesso por posição
+//
+// Só cresce (documentos não são removidos), em blocos de tamanho fixo: acrescentar não copia os
+// ids já existentes e ler uma posição não precisa de lock. Quem escreve publica o bloco antes do
+// tamanho, então qualquer posição abaixo de size() já está visível para quem lê.
+class DocumentSequence {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile String[][] chunks = new String[16][];
+    private volatile int size;
+
+    public synchronized void append(String documentId) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        String[][] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, chunk * 2);
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new String[CHUNK_SIZE];
+        }
+        current[chunk][index & CHUNK_MASK] = documentId;
+        chunks = current;
+        size = index + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Posição " + index + " de " + size);
+        }
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public synchronized void clear() {
+        chunks = new String[16][];
+        size = 0;
+    }
+}
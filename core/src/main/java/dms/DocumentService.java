@@ -0,0 +1,671 @@
+package dms;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Serviço de Documentos
+class DocumentService {
+    // Avisos de alteração para telas e outros observadores. Chamados na thread que alterou o estado,
+    // com o lock do documento adquirido: devem só registrar a alteração e retornar.
+    interface ChangeListener {
+        default void documentAdded(Document document) {
+        }
+        
+        default void documentTransferred(Document document) {
+        }
+        
+        default void departmentRegistered(Department department) {
+        }
+    }
+    
+    private final Map<String, Document> documents;
+    private final Map<String, Department> departments;
+    // Os históricos guardam só o código do setor; o setor é o registrado aqui no momento da leitura
+    private final Function<String, Department> departmentLookup;
+    // Índice secundário: código do setor -> ids dos documentos que estão nele,
+    // com um contador por setor para que contagens não dependam do total de documentos
+    private final Map<String, Set<String>> documentIdsByDepartment;
+    private final Map<String, LongAdder> documentCountByDepartment;
+    // Hierarquia dos setores, com o total de documentos de cada subárvore mantido a cada alteração
+    private final DepartmentTree departmentTree = new DepartmentTree();
+    // Locks particionados por documento: transferências de documentos diferentes
+    // correm em paralelo, enquanto o check-then-act de um mesmo documento é atômico
+    private final ReentrantLock[] documentLocks;
+    private final int lockMask;
+    // Faz para os setores o papel dos stripes: registro no log e aplicação na memória numa só seção
+    private final ReentrantLock departmentLock = new ReentrantLock();
+    // Log de escrita antecipada e snapshots; nulo quando o serviço roda só em memória
+    private volatile PersistenceEngine persistence;
+    // Busca textual sobre título e conteúdo, atualizada a cada documento adicionado
+    private final SearchIndex searchIndex = new SearchIndex();
+    // Conteúdo dos documentos fora do heap; nulo quando os textos ficam na memória
+    private volatile ContentStore contentStore;
+    // Ordem de inserção, para listagens que leem os documentos por posição
+    private final DocumentSequence documentOrder = new DocumentSequence();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // Transferências aplicadas (inclusive as reaplicadas na recuperação), para o painel
+    private final LongAdder transferCount = new LongAdder();
+    // Latência e resultado das transferências pedidas ao serviço, e o estado do agendador
+    private final TransferMetrics metrics = new TransferMetrics();
+    // Todas as transferências aplicadas, inclusive os históricos dos documentos adicionados, com
+    // índices por data e por setor para consultas de auditoria
+    private final TransferAuditLog auditLog;
+    // Fluxo entre setores, tempo de permanência e vazão, atualizados a cada transferência
+    private final TransferAnalytics analytics = new TransferAnalytics();
+    
+    public DocumentService() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+    
+    public DocumentService(int lockStripes) {
+        this.documents = new ConcurrentHashMap<>();
+        this.departments = new ConcurrentHashMap<>();
+        this.departmentLookup = departments::get;
+        this.documentIdsByDepartment = new ConcurrentHashMap<>();
+        this.documentCountByDepartment = new ConcurrentHashMap<>();
+        
+        // Arredondar para potência de dois para escolher o stripe com uma máscara
+        int stripes = Integer.highestOneBit(Math.max(16, lockStripes) - 1) << 1;
+        this.documentLocks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            documentLocks[i] = new ReentrantLock();
+        }
+        this.lockMask = stripes - 1;
+        this.auditLog = new TransferAuditLog(departmentLookup, stripes);
+    }
+    
+    private ReentrantLock lockFor(String documentId) {
+        return documentLocks[stripeFor(documentId)];
+    }
+    
+    private int stripeFor(String documentId) {
+        int h = documentId.hashCode();
+        return (h ^ (h >>> 16)) & lockMask;
+    }
+    
+    private void indexDocument(String documentId, Department department) {
+        documentIdsByDepartment.computeIfAbsent(department.getCode(), code -> ConcurrentHashMap.newKeySet())
+                .add(documentId);
+        documentCountByDepartment.computeIfAbsent(department.getCode(), code -> new LongAdder()).increment();
+    }
+    
+    private boolean unindexDocument(String documentId, Department department) {
+        Set<String> ids = documentIdsByDepartment.get(department.getCode());
+        if (ids != null && ids.remove(documentId)) {
+            documentCountByDepartment.get(department.getCode()).decrement();
+            return true;
+        }
+        return false;
+    }
+    
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+    
+    void attachPersistence(PersistenceEngine persistence) {
+        this.persistence = persistence;
+    }
+    
+    // Documentos adicionados daqui em diante têm o conteúdo movido para o store
+    void attachContentStore(ContentStore contentStore) {
+        this.contentStore = contentStore;
+    }
+    
+    // Toda escrita segue a mesma ordem: registro no log e aplicação na memória sob o mesmo lock (o
+    // stripe do documento ou o de setores), e o fsync aguardado depois de soltá-lo, para que o group
+    // commit junte várias threads. A alteração fica visível antes de durável; se o log falhar, quem
+    // escreveu recebe a exceção e o log recusa todas as escritas seguintes (ver PersistenceEngine).
+    public void registerDepartment(Department department) {
+        PersistenceEngine engine = persistence;
+        long sequence = 0;
+        departmentLock.lock();
+        try {
+            departmentTree.checkPlacement(department.getCode(), department.getParentCode());
+            if (engine != null) {
+                sequence = engine.logDepartmentRegistered(department);
+            }
+            restoreDepartment(department);
+        } finally {
+            departmentLock.unlock();
+        }
+        if (engine != null) {
+            engine.awaitDurable(sequence);
+        }
+        if (department.getParentCode() == null) {
+            EventLog.info("Setor registrado", "codigo", department.getCode(), "nome", department.getName());
+        } else {
+            EventLog.info("Setor registrado", "codigo", department.getCode(), "nome", department.getName(),
+                    "superior", department.getParentCode());
+        }
+    }
+    
+    void restoreDepartment(Department department) {
+        documentIdsByDepartment.computeIfAbsent(department.getCode(), code -> ConcurrentHashMap.newKeySet());
+        // Na árvore antes do mapa: quem encontra o setor pelo código já o encontra na hierarquia
+        departmentTree.add(department.getCode(), department.getParentCode());
+        departments.put(department.getCode(), department);
+        for (ChangeListener listener : changeListeners) {
+            listener.departmentRegistered(department);
+        }
+    }
+    
+    public Department getDepartment(String code) {
+        return departments.get(code);
+    }
+    
+    public Collection<Department> getAllDepartments() {
+        return departments.values();
+    }
+    
+    public DepartmentTree getDepartmentTree() {
+        return departmentTree;
+    }
+    
+    // Documentos no setor e em todos os subsetores, lido do total mantido na árvore
+    public long getSubtreeDocumentCount(String departmentCode) {
+        return departmentTree.getSubtreeDocumentCount(departmentCode);
+    }
+    
+    public int getDepartmentCount() {
+        return departments.size();
+    }
+    
+    public long getTransferCount() {
+        return transferCount.sum();
+    }
+    
+    public TransferMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public TransferAuditLog getAuditLog() {
+        return auditLog;
+    }
+    
+    public TransferAnalytics getAnalytics() {
+        return analytics;
+    }
+    
+    // Recalcula as estatísticas a partir dos históricos, em paralelo. Feito na carga, antes de o
+    // serviço receber transferências: as aplicadas durante o cálculo podem ficar de fora.
+    public void rebuildAnalytics() {
+        long begin = System.nanoTime();
+        analytics.rebuild(documents.values());
+        EventLog.info("Estatísticas recalculadas", "documentos", documents.size(),
+                "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+    
+    public void addDocument(Document document) {
+        PersistenceEngine engine = persistence;
+        long sequence = 0;
+        ReentrantLock lock = lockFor(document.getId());
+        lock.lock();
+        try {
+            // Registrar no log sob o lock mantém a ordem do log igual à ordem aplicada ao documento
+            if (engine != null) {
+                sequence = engine.logDocumentAdded(document);
+            }
+            putDocument(document);
+        } finally {
+            lock.unlock();
+        }
+        // Aguardar o fsync fora do lock para que o group commit junte várias threads
+        if (engine != null) {
+            engine.awaitDurable(sequence);
+        }
+        EventLog.info("Documento adicionado", "id", document.getId(),
+                "setor", document.getCurrentDepartment().getCode());
+    }
+
+    // Inserção em lote para importações: um único fsync cobre o lote inteiro.
+    // Documentos cujo id já existe não são substituídos e voltam para o chamador.
+    public List<Document> addDocuments(List<Document> batch) {
+        PersistenceEngine engine = persistence;
+        long sequence = 0;
+        List<Document> duplicates = new ArrayList<>();
+        for (Document document : batch) {
+            ReentrantLock lock = lockFor(document.getId());
+            lock.lock();
+            try {
+                if (documents.containsKey(document.getId())) {
+                    duplicates.add(document);
+                    continue;
+                }
+                if (engine != null) {
+                    sequence = engine.logDocumentAdded(document);
+                }
+                putDocument(document);
+            } finally {
+                lock.unlock();
+            }
+        }
+        // As sequências desta thread são crescentes: aguardar a última cobre todas
+        if (engine != null && sequence > 0) {
+            engine.awaitDurable(sequence);
+        }
+        EventLog.info("Lote de documentos adicionado", "documentos", batch.size() - duplicates.size(),
+                "repetidos", duplicates.size());
+        return duplicates;
+    }
+
+    void restoreDocument(Document document) {
+        ReentrantLock lock = lockFor(document.getId());
+        lock.lock();
+        try {
+            putDocument(document);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void putDocument(Document document) {
+        document.attachDepartments(departmentLookup);
+        Document previous = documents.put(document.getId(), document);
+        if (previous != null) {
+            if (unindexDocument(previous.getId(), previous.getCurrentDepartment())) {
+                departmentTree.documentRemoved(previous.getCurrentDepartment().getCode());
+            }
+        } else {
+            documentOrder.append(document.getId());
+        }
+        indexDocument(document.getId(), document.getCurrentDepartment());
+        departmentTree.documentAdded(document.getCurrentDepartment().getCode());
+        if (previous != null) {
+            // O registro global já tem o histórico anterior: trocar só o que vem depois do trecho comum
+            auditLog.replace(document.getId(), previous.getEncodedHistory(), document.getEncodedHistory());
+            searchIndex.remove(previous.getId());
+        } else {
+            auditLog.appendAll(document.getId(), document.getEncodedHistory());
+        }
+        searchIndex.add(document);
+        ContentStore store = contentStore;
+        if (store != null) {
+            document.moveContentTo(store);
+        }
+        for (ChangeListener listener : changeListeners) {
+            listener.documentAdded(document);
+        }
+    }
+    
+    // Executa a ação com o lock de setores e todos os stripes presos, em ordem crescente como nos lotes:
+    // nenhuma escrita fica entre o registro no log e a aplicação na memória durante a chamada
+    <R> R withWritesPaused(Supplier<R> action) {
+        departmentLock.lock();
+        int locked = 0;
+        try {
+            for (; locked < documentLocks.length; locked++) {
+                documentLocks[locked].lock();
+            }
+            return action.get();
+        } finally {
+            while (locked > 0) {
+                documentLocks[--locked].unlock();
+            }
+            departmentLock.unlock();
+        }
+    }
+    
+    // Executa a leitura com o lock do documento, vendo um estado que nenhuma transferência altera no meio
+    <R> R readLocked(String documentId, Function<Document, R> reader) {
+        ReentrantLock lock = lockFor(documentId);
+        lock.lock();
+        try {
+            Document document = documents.get(documentId);
+            return document == null ? null : reader.apply(document);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void resetForRecovery() {
+        documents.clear();
+        departments.clear();
+        documentIdsByDepartment.clear();
+        documentCountByDepartment.clear();
+        departmentTree.clear();
+        transferCount.reset();
+        searchIndex.clear();
+        documentOrder.clear();
+        auditLog.clear();
+    }
+    
+    public Document getDocument(String id) {
+        return documents.get(id);
+    }
+    
+    public Collection<Document> getAllDocuments() {
+        return documents.values();
+    }
+    
+    // Acesso por posição na ordem de inserção, para telas que só leem as linhas visíveis
+    public int getDocumentCount() {
+        return documentOrder.size();
+    }
+    
+    public Document getDocumentAt(int index) {
+        return documents.get(documentOrder.get(index));
+    }
+    
+    // Documentos que contêm todos os termos da consulta, do mais relevante ao menos relevante.
+    // Um termo terminado em * busca por prefixo ("contr*" encontra contrato e controle).
+    public List<Document> searchDocuments(String query, int limit) {
+        List<Document> result = new ArrayList<>();
+        for (SearchIndex.Hit hit : searchIndex.search(query, limit)) {
+            Document document = documents.get(hit.getDocumentId());
+            if (document != null) {
+                result.add(document);
+            }
+        }
+        return result;
+    }
+    
+    public int getDocumentCountByDepartment(Department department) {
+        LongAdder count = documentCountByDepartment.get(department.getCode());
+        return count == null ? 0 : count.intValue();
+    }
+    
+    public List<Document> getDocumentsByDepartment(String departmentCode) {
+        Set<String> ids = documentIdsByDepartment.get(departmentCode);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        
+        List<Document> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Document document = documents.get(id);
+            if (document != null) {
+                result.add(document);
+            }
+        }
+        return result;
+    }
+    
+    // Documentos do setor e de todos os subsetores, setor a setor na ordem da hierarquia
+    public List<Document> getDocumentsInSubtree(String departmentCode) {
+        List<Document> result = new ArrayList<>();
+        for (String code : departmentTree.getSubtree(departmentCode)) {
+            result.addAll(getDocumentsByDepartment(code));
+        }
+        return result;
+    }
+    
+    public boolean transferDocument(String documentId, String sourceDeptCode, String targetDeptCode) {
+        long started = metrics.startTimer();
+        Document document = documents.get(documentId);
+        Department sourceDept = departments.get(sourceDeptCode);
+        Department targetDept = departments.get(targetDeptCode);
+        
+        if (document == null || sourceDept == null || targetDept == null) {
+            metrics.recordTransfer(started, document == null
+                    ? TransferStatus.DOCUMENT_NOT_FOUND : TransferStatus.DEPARTMENT_NOT_FOUND);
+            EventLog.warn("Transferência recusada: documento ou setor não encontrado",
+                    "documento", documentId, "origem", sourceDeptCode, "destino", targetDeptCode);
+            return false;
+        }
+        
+        PersistenceEngine engine = persistence;
+        long sequence = 0;
+        ReentrantLock lock = lockFor(documentId);
+        lock.lock();
+        try {
+            if (!document.getCurrentDepartment().equals(sourceDept)) {
+                metrics.recordTransfer(started, TransferStatus.NOT_IN_SOURCE);
+                EventLog.warn("Transferência recusada: documento fora do setor de origem",
+                        "documento", documentId, "origem", sourceDeptCode,
+                        "atual", document.getCurrentDepartment().getCode());
+                return false;
+            }
+            
+            // Registrar a transferência
+            TransferRecord record = new TransferRecord(sourceDept, targetDept, TransferHistory.MANUAL_REASON);
+            if (engine != null) {
+                sequence = engine.logTransfer(documentId, record);
+            }
+            applyTransfer(document, record);
+        } finally {
+            lock.unlock();
+        }
+        if (engine != null) {
+            engine.awaitDurable(sequence);
+        }
+        metrics.recordTransfer(started, TransferStatus.TRANSFERRED);
+        
+        EventLog.info("Documento transferido", "documento", documentId, "origem", sourceDeptCode,
+                "destino", targetDeptCode);
+        return true;
+    }
+    
+    public BatchTransferResult transferDocuments(List<TransferRequest> batch, boolean allOrNothing) {
+        return transferDocuments(batch, allOrNothing, TransferHistory.BATCH_REASON);
+    }
+    
+    // Move para o destino todos os documentos do setor e dos subsetores, como um lote: cada documento
+    // é transferido a partir do setor em que estava na listagem, e um que mude de setor entre a
+    // listagem e a aplicação aparece como falha no resultado. Os que já estão no destino ficam de fora.
+    public BatchTransferResult transferSubtree(String rootDeptCode, String targetDeptCode) {
+        if (!departmentTree.contains(rootDeptCode)) {
+            throw new IllegalArgumentException("Setor não encontrado: " + rootDeptCode);
+        }
+        if (!departments.containsKey(targetDeptCode)) {
+            throw new IllegalArgumentException("Setor de destino não encontrado: " + targetDeptCode);
+        }
+        List<TransferRequest> requests = new ArrayList<>();
+        for (String code : departmentTree.getSubtree(rootDeptCode)) {
+            Set<String> ids = documentIdsByDepartment.get(code);
+            if (ids == null || code.equals(targetDeptCode)) {
+                continue;
+            }
+            for (String id : ids) {
+                requests.add(new TransferRequest(id, code, targetDeptCode));
+            }
+        }
+        BatchTransferResult result = transferDocuments(requests, false, TransferHistory.SUBTREE_REASON);
+        EventLog.info("Setor transferido com subsetores", "setor", rootDeptCode, "destino", targetDeptCode,
+                "documentos", result.getTransferredCount());
+        return result;
+    }
+    
+    // Transferência em lote: documentos e setores são resolvidos numa única passada sem locks e
+    // cada stripe é travado uma única vez para todos os itens dele. Um documento pode aparecer
+    // mais de uma vez; os itens são aplicados na ordem do lote. Com allOrNothing, todos os stripes
+    // envolvidos são travados juntos e nada é aplicado se algum item falhar.
+    public BatchTransferResult transferDocuments(List<TransferRequest> batch, boolean allOrNothing, String reason) {
+        long started = metrics.startTimer();
+        int size = batch.size();
+        TransferStatus[] statuses = new TransferStatus[size];
+        Document[] batchDocuments = new Document[size];
+        Department[] sources = new Department[size];
+        Department[] targets = new Department[size];
+        
+        boolean valid = true;
+        for (int i = 0; i < size; i++) {
+            TransferRequest request = batch.get(i);
+            batchDocuments[i] = documents.get(request.getDocumentId());
+            sources[i] = departments.get(request.getSourceDeptCode());
+            targets[i] = departments.get(request.getTargetDeptCode());
+            if (batchDocuments[i] == null) {
+                statuses[i] = TransferStatus.DOCUMENT_NOT_FOUND;
+            } else if (sources[i] == null || targets[i] == null) {
+                statuses[i] = TransferStatus.DEPARTMENT_NOT_FOUND;
+            }
+            valid &= statuses[i] == null;
+        }
+        if (allOrNothing && !valid) {
+            return finishBatch(batch, statuses, 0, started);
+        }
+        
+        // Ordenar por stripe e, dentro dele, pela posição no lote
+        long[] order = new long[size];
+        int pending = 0;
+        for (int i = 0; i < size; i++) {
+            if (statuses[i] == null) {
+                order[pending++] = ((long) stripeFor(batchDocuments[i].getId()) << 32) | i;
+            }
+        }
+        Arrays.sort(order, 0, pending);
+        
+        PersistenceEngine engine = persistence;
+        long sequence = 0;
+        int transferred = 0;
+        if (allOrNothing) {
+            List<ReentrantLock> locked = new ArrayList<>();
+            try {
+                // Travar em ordem crescente de stripe, a mesma para todos os lotes, evita deadlock
+                for (int k = 0; k < pending; k++) {
+                    int stripe = (int) (order[k] >>> 32);
+                    if (k == 0 || stripe != (int) (order[k - 1] >>> 32)) {
+                        documentLocks[stripe].lock();
+                        locked.add(documentLocks[stripe]);
+                    }
+                }
+                
+                // Conferir a origem de todos os itens antes de aplicar qualquer um
+                Map<Document, Department> projected = new HashMap<>();
+                for (int k = 0; k < pending; k++) {
+                    int i = (int) order[k];
+                    Department current = projected.getOrDefault(batchDocuments[i],
+                            batchDocuments[i].getCurrentDepartment());
+                    if (!current.equals(sources[i])) {
+                        statuses[i] = TransferStatus.NOT_IN_SOURCE;
+                        valid = false;
+                    } else {
+                        projected.put(batchDocuments[i], targets[i]);
+                    }
+                }
+                if (!valid) {
+                    return finishBatch(batch, statuses, 0, started);
+                }
+                
+                LocalDateTime timestamp = LocalDateTime.now();
+                for (int k = 0; k < pending; k++) {
+                    int i = (int) order[k];
+                    TransferRecord record = new TransferRecord(sources[i], targets[i], reason, timestamp);
+                    if (engine != null) {
+                        sequence = engine.logTransfer(batchDocuments[i].getId(), record);
+                    }
+                    applyTransfer(batchDocuments[i], record);
+                    statuses[i] = TransferStatus.TRANSFERRED;
+                    transferred++;
+                }
+            } finally {
+                for (int k = locked.size() - 1; k >= 0; k--) {
+                    locked.get(k).unlock();
+                }
+            }
+        } else {
+            int k = 0;
+            while (k < pending) {
+                int stripe = (int) (order[k] >>> 32);
+                ReentrantLock lock = documentLocks[stripe];
+                lock.lock();
+                try {
+                    // Carimbo tirado sob o lock: updatedAt de um documento nunca volta no tempo
+                    LocalDateTime timestamp = LocalDateTime.now();
+                    for (; k < pending && (int) (order[k] >>> 32) == stripe; k++) {
+                        int i = (int) order[k];
+                        if (!batchDocuments[i].getCurrentDepartment().equals(sources[i])) {
+                            statuses[i] = TransferStatus.NOT_IN_SOURCE;
+                            continue;
+                        }
+                        TransferRecord record = new TransferRecord(sources[i], targets[i], reason, timestamp);
+                        if (engine != null) {
+                            sequence = engine.logTransfer(batchDocuments[i].getId(), record);
+                        }
+                        applyTransfer(batchDocuments[i], record);
+                        statuses[i] = TransferStatus.TRANSFERRED;
+                        transferred++;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        
+        // Um único fsync cobre o lote inteiro
+        if (engine != null && sequence > 0) {
+            engine.awaitDurable(sequence);
+        }
+        return finishBatch(batch, statuses, transferred, started);
+    }
+    
+    private BatchTransferResult finishBatch(List<TransferRequest> batch, TransferStatus[] statuses, int transferred,
+                                            long started) {
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == null) {
+                statuses[i] = TransferStatus.ABORTED;
+            }
+        }
+        metrics.recordBatch(started, statuses);
+        BatchTransferResult result = new BatchTransferResult(batch, statuses, transferred);
+        EventLog.info("Lote de transferências", "transferidos", transferred, "total", statuses.length,
+                "falhas", result.getFailedCount());
+        return result;
+    }
+    
+    void restoreTransfer(String documentId, TransferRecord record) {
+        ReentrantLock lock = lockFor(documentId);
+        lock.lock();
+        try {
+            Document document = documents.get(documentId);
+            if (document != null) {
+                applyTransfer(document, record);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void applyTransfer(Document document, TransferRecord record) {
+        // Chegada à origem: a data do último registro, antes de o documento sair dela
+        LocalDateTime arrival = document.getUpdatedAt();
+        document.applyTransfer(record);
+        analytics.recordTransfer(record, arrival);
+        unindexDocument(document.getId(), record.getSource());
+        indexDocument(document.getId(), record.getTarget());
+        departmentTree.documentMoved(record.getSource().getCode(), record.getTarget().getCode());
+        // Só entra no buffer do stripe no registro global; os índices são atualizados em lote
+        auditLog.append(document.getId(), record);
+        transferCount.increment();
+        for (ChangeListener listener : changeListeners) {
+            listener.documentTransferred(document);
+        }
+    }
+    
+    public void listDocumentsByDepartment() {
+        for (Department dept : departments.values()) {
+            System.out.println(dept.getName() + ":");
+            List<Document> deptDocs = getDocumentsByDepartment(dept.getCode());
+            if (deptDocs.isEmpty()) {
+                System.out.println("  Nenhum documento");
+            } else {
+                deptDocs.forEach(doc -> System.out.println("  - " + doc.getTitle() + " (" + doc.getId() + ")"));
+            }
+        }
+    }
+    
+    public String getDocumentHistory(String documentId) {
+        Document document = documents.get(documentId);
+        if (document == null) {
+            return "Documento não encontrado: " + documentId;
+        }
+        
+        StringBuilder history = new StringBuilder();
+        history.append("Histórico de transferências para ").append(document.getTitle())
+               .append(" (").append(document.getId()).append("):\n\n");
+        
+        for (TransferRecord record : document.getTransferHistory()) {
+            history.append(record.toString()).append("\n");
+        }
+        
+        return history.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package dms;
+
+import java.util.Locale;
+
+// Registro de eventos estruturados: mensagem fixa mais até três campos chave=valor
+//
+// Os métodos têm aridade fixa para não criar arrays de varargs no caminho quente, e a mensagem
+// só é formatada pelo destino (no AsyncEventSink, numa thread de fundo). O destino padrão é um
+// AsyncEventSink escrevendo em System.out a partir do nível INFO (ou -Ddms.logLevel=<nível>);
+// setSink troca o destino, por exemplo para enviar os eventos a outro sistema.
+final class EventLog {
+    enum Level { DEBUG, INFO, WARN, ERROR }
+
+    interface Sink {
+        void publish(Level level, String message, String key1, Object value1, String key2, Object value2,
+                     String key3, Object value3);
+
+        default boolean isEnabled(Level level) {
+            return true;
+        }
+
+        // Aguarda até que os eventos já publicados tenham sido escritos
+        default void flush() {
+        }
+    }
+
+    private static volatile Sink sink = createDefaultSink();
+
+    private EventLog() {
+    }
+
+    private static Sink createDefaultSink() {
+        Level minimum = Level.valueOf(System.getProperty("dms.logLevel", "INFO").toUpperCase(Locale.ROOT));
+        AsyncEventSink defaultSink = new AsyncEventSink(AsyncEventSink.DEFAULT_CAPACITY, minimum, () -> System.out);
+        // Escrever o que ainda estiver no buffer ao encerrar o processo
+        Runtime.getRuntime().addShutdownHook(new Thread(defaultSink::close, "event-log-shutdown"));
+        return defaultSink;
+    }
+
+    static Sink getSink() {
+        return sink;
+    }
+
+    static void setSink(Sink newSink) {
+        sink.flush();
+        sink = newSink;
+    }
+
+    static boolean isEnabled(Level level) {
+        return sink.isEnabled(level);
+    }
+
+    static void flush() {
+        sink.flush();
+    }
+
+    static void log(Level level, String message) {
+        sink.publish(level, message, null, null, null, null, null, null);
+    }
+
+    static void log(Level level, String message, String key1, Object value1) {
+        sink.publish(level, message, key1, value1, null, null, null, null);
+    }
+
+    static void log(Level level, String message, String key1, Object value1, String key2, Object value2) {
+        sink.publish(level, message, key1, value1, key2, value2, null, null);
+    }
+
+    static void log(Level level, String message, String key1, Object value1, String key2, Object value2,
+                    String key3, Object value3) {
+        sink.publish(level, message, key1, value1, key2, value2, key3, value3);
+    }
+
+    static void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    static void info(String message, String key1, Object value1) {
+        log(Level.INFO, message, key1, value1);
+    }
+
+    static void info(String message, String key1, Object value1, String key2, Object value2) {
+        log(Level.INFO, message, key1, value1, key2, value2);
+    }
+
+    static void info(String message, String key1, Object value1, String key2, Object value2,
+                     String key3, Object value3) {
+        log(Level.INFO, message, key1, value1, key2, value2, key3, value3);
+    }
+
+    static void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    static void warn(String message, String key1, Object value1) {
+        log(Level.WARN, message, key1, value1);
+    }
+
+    static void warn(String message, String key1, Object value1, String key2, Object value2) {
+        log(Level.WARN, message, key1, value1, key2, value2);
+    }
+
+    static void warn(String message, String key1, Object value1, String key2, Object value2,
+                     String key3, Object value3) {
+        log(Level.WARN, message, key1, value1, key2, value2, key3, value3);
+    }
+
+    static void error(String message, String key1, Object value1) {
+        log(Level.ERROR, message, key1, value1);
+    }
+
+    static void error(String message, String key1, Object value1, String key2, Object value2) {
+        log(Level.ERROR, message, key1, value1, key2, value2);
+    }
+}
@@ -0,0 +1,270 @@
+package dms;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Roda de temporização hierárquica para grandes volumes de agendamentos
+//
+// Cada nível tem wheelSize posições; uma posição do nível N cobre wheelSize^N ticks.
+// As entradas são nós intrusivos de listas duplamente ligadas, então agendar e cancelar
+// custam O(1) e não alocam nada além da própria entrada. Apenas a thread do relógio
+// mexe na estrutura das rodas: agendamentos e cancelamentos chegam por filas concorrentes
+// e as entradas vencidas são entregues em lotes ao pool de workers.
+class HierarchicalTimingWheel<T extends HierarchicalTimingWheel.Timeout> {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    // Entrada da roda; subclasses carregam os dados da tarefa agendada
+    static class Timeout {
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private volatile int state = PENDING;
+        private long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private int level = -1;
+        private int slot;
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private boolean transition(int target) {
+            return STATE.compareAndSet(this, PENDING, target);
+        }
+    }
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final Timeout[][] slots;
+    private final int maxBatchSize;
+    private final Executor workers;
+    private final Consumer<List<T>> batchHandler;
+    private final Queue<T> pendingSchedules;
+    private final Queue<T> pendingCancels;
+    private final AtomicInteger pendingCount;
+    private final long startNanos;
+    private final Thread ticker;
+    private volatile boolean running;
+
+    // Acessados apenas pela thread do relógio
+    private long currentTick;
+    private List<T> expired;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int maxBatchSize,
+                                   Executor workers, Consumer<List<T>> batchHandler) {
+        if (tickMillis <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Tick deve ser positivo e o tamanho da roda potência de dois");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.wheelMask = wheelSize - 1;
+        // Níveis suficientes para cobrir qualquer tick positivo de 63 bits
+        this.slots = new Timeout[(63 + wheelBits - 1) / wheelBits][];
+        this.maxBatchSize = maxBatchSize;
+        this.workers = workers;
+        this.batchHandler = batchHandler;
+        this.pendingSchedules = new ConcurrentLinkedQueue<>();
+        this.pendingCancels = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger();
+        this.startNanos = System.nanoTime();
+        this.expired = new ArrayList<>();
+        this.ticker = new Thread(this::run, "transfer-timing-wheel");
+    }
+
+    public void start() {
+        running = true;
+        ticker.start();
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void schedule(T timeout, long delay, TimeUnit unit) {
+        long deadlineNanos = System.nanoTime() + unit.toNanos(delay) - startNanos;
+        Timeout entry = timeout;
+        // Arredondar para cima: a entrada nunca dispara antes do atraso pedido
+        entry.deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        pendingCount.incrementAndGet();
+        pendingSchedules.add(timeout);
+    }
+
+    public boolean cancel(T timeout) {
+        Timeout entry = timeout;
+        if (!entry.transition(CANCELLED)) {
+            return false;
+        }
+        pendingCount.decrementAndGet();
+        pendingCancels.add(timeout);
+        return true;
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    private void run() {
+        while (running) {
+            long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+
+            drainSchedules();
+            drainCancels();
+            while (currentTick < targetTick) {
+                advance(++currentTick);
+            }
+            dispatchExpired();
+
+            long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            LockSupport.parkNanos(this, nextTickNanos - System.nanoTime());
+        }
+    }
+
+    private void drainSchedules() {
+        Timeout timeout;
+        while ((timeout = pendingSchedules.poll()) != null) {
+            // Cancelada antes de entrar na roda: nada a desfazer
+            if (timeout.state == PENDING) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void drainCancels() {
+        Timeout timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.level >= 0) {
+                unlink(timeout);
+            }
+        }
+    }
+
+    private void advance(long tick) {
+        // Ao entrar numa nova posição de um nível superior, redistribuir suas entradas
+        for (int level = slots.length - 1; level >= 1; level--) {
+            if ((tick & ((1L << (wheelBits * level)) - 1)) == 0) {
+                cascade(level, (int) ((tick >>> (wheelBits * level)) & wheelMask));
+            }
+        }
+
+        Timeout[] levelZero = slots[0];
+        if (levelZero == null) {
+            return;
+        }
+        int slot = (int) (tick & wheelMask);
+        Timeout entry = levelZero[slot];
+        levelZero[slot] = null;
+        while (entry != null) {
+            Timeout next = entry.next;
+            detach(entry);
+            expire(entry);
+            entry = next;
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout[] wheel = slots[level];
+        if (wheel == null) {
+            return;
+        }
+        Timeout entry = wheel[slot];
+        wheel[slot] = null;
+        while (entry != null) {
+            Timeout next = entry.next;
+            detach(entry);
+            if (entry.state == PENDING) {
+                place(entry);
+            }
+            entry = next;
+        }
+    }
+
+    // Escolhe o nível mais baixo cuja posição-pai coincide com a do tick atual
+    private void place(Timeout timeout) {
+        long deadline = timeout.deadlineTick;
+        if (deadline <= currentTick) {
+            expire(timeout);
+            return;
+        }
+
+        int level = 0;
+        while (level < slots.length - 1
+                && (deadline >>> (wheelBits * (level + 1))) != (currentTick >>> (wheelBits * (level + 1)))) {
+            level++;
+        }
+
+        Timeout[] wheel = slots[level];
+        if (wheel == null) {
+            wheel = new Timeout[wheelMask + 1];
+            slots[level] = wheel;
+        }
+        int slot = (int) ((deadline >>> (wheelBits * level)) & wheelMask);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = wheel[slot];
+        if (wheel[slot] != null) {
+            wheel[slot].prev = timeout;
+        }
+        wheel[slot] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        detach(timeout);
+    }
+
+    private void detach(Timeout timeout) {
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expire(Timeout timeout) {
+        if (timeout.transition(EXPIRED)) {
+            pendingCount.decrementAndGet();
+            expired.add((T) timeout);
+            if (expired.size() >= maxBatchSize) {
+                dispatchExpired();
+            }
+        }
+    }
+
+    private void dispatchExpired() {
+        if (expired.isEmpty()) {
+            return;
+        }
+        List<T> batch = expired;
+        expired = new ArrayList<>();
+        try {
+            workers.execute(() -> batchHandler.accept(batch));
+        } catch (RejectedExecutionException e) {
+            // Pool encerrado durante o desligamento: as entradas vencidas são descartadas
+        }
+    }
+}
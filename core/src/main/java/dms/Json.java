@@ -0,0 +1,307 @@
+package dms;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Leitura e escrita de JSON sem dependências, para a API HTTP e as exportações
+//
+// parse devolve Map (objetos, na ordem do texto), List, String, Long (inteiros), Double, Boolean
+// ou null; texto inválido gera IllegalArgumentException com a posição do erro. Writer monta a
+// resposta direto num StringBuilder, colocando as vírgulas entre os itens.
+final class Json {
+    private Json() {
+    }
+
+    static Object parse(String text) {
+        Parser parser = new Parser(text);
+        parser.skipSpaces();
+        Object value = parser.readValue();
+        parser.skipSpaces();
+        if (parser.position < text.length()) {
+            throw parser.error("conteúdo após o fim do valor");
+        }
+        return value;
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        appendQuoted(quoted, value);
+        return quoted.toString();
+    }
+
+    private static void appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object readValue() {
+            if (position == text.length()) {
+                throw error("fim inesperado");
+            }
+            char c = text.charAt(position);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    return readLiteral("true", Boolean.TRUE);
+                case 'f':
+                    return readLiteral("false", Boolean.FALSE);
+                case 'n':
+                    return readLiteral("null", null);
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipSpaces();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipSpaces();
+                if (peek() != '"') {
+                    throw error("esperado nome entre aspas");
+                }
+                String key = readString();
+                skipSpaces();
+                expect(':');
+                skipSpaces();
+                object.put(key, readValue());
+                skipSpaces();
+                char c = next();
+                if (c == '}') {
+                    return object;
+                }
+                if (c != ',') {
+                    throw error("esperado ',' ou '}'");
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipSpaces();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            while (true) {
+                skipSpaces();
+                array.add(readValue());
+                skipSpaces();
+                char c = next();
+                if (c == ']') {
+                    return array;
+                }
+                if (c != ',') {
+                    throw error("esperado ',' ou ']'");
+                }
+            }
+        }
+
+        private String readString() {
+            position++;
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"': case '\\': case '/': value.append(escaped); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("escape \\u incompleto");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("escape \\u inválido");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw error("escape inválido");
+                }
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, position)) {
+                throw error("valor inválido");
+            }
+            position += literal.length();
+            return value;
+        }
+
+        private Object readNumber() {
+            int start = position;
+            boolean decimal = false;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    decimal = true;
+                } else if (!(c >= '0' && c <= '9' || c == '-' || c == '+')) {
+                    break;
+                }
+                position++;
+            }
+            String number = text.substring(start, position);
+            try {
+                return decimal ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("valor inválido");
+            }
+        }
+
+        void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        private char next() {
+            if (position == text.length()) {
+                throw error("fim inesperado");
+            }
+            return text.charAt(position++);
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                position--;
+                throw error("esperado '" + expected + "'");
+            }
+        }
+
+        IllegalArgumentException error(String problem) {
+            return new IllegalArgumentException("JSON inválido: " + problem + " na posição " + position);
+        }
+    }
+
+    // Escrita sequencial: name antes de cada valor dentro de objetos, valores soltos dentro de arrays
+    static final class Writer {
+        private final StringBuilder out = new StringBuilder(256);
+        private boolean afterValue;
+
+        Writer beginObject() {
+            comma();
+            out.append('{');
+            afterValue = false;
+            return this;
+        }
+
+        Writer endObject() {
+            out.append('}');
+            afterValue = true;
+            return this;
+        }
+
+        Writer beginArray() {
+            comma();
+            out.append('[');
+            afterValue = false;
+            return this;
+        }
+
+        Writer endArray() {
+            out.append(']');
+            afterValue = true;
+            return this;
+        }
+
+        Writer name(String name) {
+            comma();
+            appendQuoted(out, name);
+            out.append(':');
+            afterValue = false;
+            return this;
+        }
+
+        Writer value(String value) {
+            comma();
+            if (value == null) {
+                out.append("null");
+            } else {
+                appendQuoted(out, value);
+            }
+            afterValue = true;
+            return this;
+        }
+
+        Writer value(long value) {
+            comma();
+            out.append(value);
+            afterValue = true;
+            return this;
+        }
+
+        Writer value(boolean value) {
+            comma();
+            out.append(value);
+            afterValue = true;
+            return this;
+        }
+
+        private void comma() {
+            if (afterValue) {
+                out.append(',');
+            }
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package dms;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Persistência do DocumentService: log de escrita antecipada mais snapshots periódicos
+//
+// Cada registerDepartment, addDocument e transferDocument vira um registro no log antes de
+// alterar a memória, sob o mesmo lock que a alteração, e a chamada só retorna depois do fsync do
+// lote em que o registro entrou. A alteração fica visível aos leitores antes do fsync: se ele
+// falhar, a chamada recebe a exceção, a alteração some na reinicialização e o log passa a recusar
+// todas as escritas seguintes, deixando o serviço só para leitura até ser reiniciado.
+//
+// O snapshot é feito sem parar o serviço: a sequência de partida é lida com todas as escritas
+// pausadas entre o log e a memória, então tudo o que o log tem até ela já está nos mapas que o
+// snapshot percorre. Cada documento é lido sob o lock do seu stripe junto com a última sequência do
+// log naquele instante, e na recuperação os registros do log até essa marca são ignorados para
+// aquele documento. Assim a reinicialização carrega o snapshot mais recente e reaplica apenas a
+// cauda do log.
+class PersistenceEngine implements Closeable {
+    static final byte DEPARTMENT_REGISTERED = 1;
+    static final byte DOCUMENT_ADDED = 2;
+    static final byte DOCUMENT_TRANSFERRED = 3;
+    // Setor com setor superior; os de topo continuam como DEPARTMENT_REGISTERED
+    static final byte DEPARTMENT_REGISTERED_UNDER = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x444D5353;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte DEPARTMENT_BLOCK = 'D';
+    private static final byte SUBDEPARTMENT_BLOCK = 'S';
+    private static final byte DOCUMENT_BLOCK = 'C';
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int RETAINED_SNAPSHOTS = 2;
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final DocumentService documentService;
+    private final WriteAheadLog log;
+    private ScheduledExecutorService snapshotExecutor;
+    // A falha do log é registrada uma vez; as chamadas seguintes só recebem a exceção
+    private volatile boolean failureReported;
+
+    // Resultado da última recuperação
+    private long recoveredSnapshotSequence;
+    private long recoveredDocuments;
+    private long replayedRecords;
+    private long recoveryMillis;
+
+    private PersistenceEngine(Path directory, DocumentService documentService, long maxSegmentBytes) throws IOException {
+        this.directory = directory;
+        this.documentService = documentService;
+        this.log = new WriteAheadLog(directory.resolve("wal"), maxSegmentBytes);
+    }
+
+    public static PersistenceEngine open(Path directory, DocumentService documentService) throws IOException {
+        return open(directory, documentService, DEFAULT_SEGMENT_BYTES);
+    }
+
+    // Recupera o estado gravado em directory para o serviço (que deve estar vazio) e passa a registrar nele
+    public static PersistenceEngine open(Path directory, DocumentService documentService, long maxSegmentBytes)
+            throws IOException {
+        Files.createDirectories(directory);
+        PersistenceEngine engine = new PersistenceEngine(directory, documentService, maxSegmentBytes);
+        engine.recover();
+        engine.log.start();
+        documentService.attachPersistence(engine);
+        return engine;
+    }
+
+    public void startPeriodicSnapshots(long period, TimeUnit unit) {
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                EventLog.error("Falha ao gravar snapshot", "erro", e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            try {
+                snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        documentService.attachPersistence(null);
+        log.close();
+    }
+
+    // Registro dos eventos, chamado pelo DocumentService antes de alterar a memória
+
+    long logDepartmentRegistered(Department department) {
+        String parentCode = department.getParentCode();
+        return append(parentCode == null ? DEPARTMENT_REGISTERED : DEPARTMENT_REGISTERED_UNDER, out -> {
+            writeString(out, department.getCode());
+            writeString(out, department.getName());
+            if (parentCode != null) {
+                writeString(out, parentCode);
+            }
+        });
+    }
+
+    long logDocumentAdded(Document document) {
+        return append(DOCUMENT_ADDED, out -> {
+            writeString(out, document.getId());
+            writeString(out, document.getTitle());
+            writeString(out, document.getContent());
+            writeString(out, document.getCurrentDepartment().getCode());
+            writeTimestamp(out, document.getCreatedAt());
+        });
+    }
+
+    long logTransfer(String documentId, TransferRecord record) {
+        return append(DOCUMENT_TRANSFERRED, out -> {
+            writeString(out, documentId);
+            writeString(out, record.getSource().getCode());
+            writeString(out, record.getTarget().getCode());
+            writeString(out, record.getReason());
+            writeTimestamp(out, record.getTimestamp());
+        });
+    }
+
+    void awaitDurable(long sequence) {
+        try {
+            log.awaitDurable(sequence);
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    private UncheckedIOException failed(IOException e) {
+        if (!failureReported) {
+            failureReported = true;
+            EventLog.error("Log de dados falhou, escritas recusadas até reiniciar", "erro", e.getMessage());
+        }
+        return new UncheckedIOException(e);
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private long append(byte type, RecordWriter writer) {
+        try {
+            return log.append(type, encode(writer));
+        } catch (IOException e) {
+            throw failed(e);
+        }
+    }
+
+    // Snapshots
+
+    public synchronized long snapshot() throws IOException {
+        // Depois de uma falha a memória pode ter alterações que o log não garantiu: não gravá-las
+        log.checkHealthy();
+        long snapshotSequence = documentService.withWritesPaused(log::getLastSequence);
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+        Set<String> writtenDepartments = new HashSet<>();
+
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(snapshotSequence);
+
+            for (Department department : documentService.getAllDepartments()) {
+                writeDepartmentBlock(out, department, writtenDepartments);
+            }
+            List<TransferRecord> history = new ArrayList<>();
+            long[] watermark = new long[1];
+            for (Document document : documentService.getAllDocuments()) {
+                // Copiar o histórico e ler a marca do log sob o lock do documento:
+                // nenhuma transferência dele pode ser registrada entre as duas leituras
+                history.clear();
+                Document locked = documentService.readLocked(document.getId(), current -> {
+                    history.addAll(current.getTransferHistory());
+                    watermark[0] = log.getLastSequence();
+                    return current;
+                });
+                if (locked == null) {
+                    continue;
+                }
+                // Setores registrados durante o snapshot entram antes do documento que os usa
+                for (TransferRecord record : history) {
+                    writeDepartmentBlock(out, record.getTarget(), writtenDepartments);
+                }
+                writeBlock(out, encodeDocumentBlock(locked, history, watermark[0]));
+            }
+            out.writeInt(0);
+            out.flush();
+            file.getFD().sync();
+        }
+
+        Path target = directory.resolve(snapshotName(snapshotSequence));
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Manter os snapshots mais recentes e o log necessário para recuperar a partir do mais antigo deles
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - RETAINED_SNAPSHOTS; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        snapshots = listSnapshots();
+        log.deleteSegmentsThrough(snapshotSequence(snapshots.get(0)));
+        return snapshotSequence;
+    }
+
+    // O setor superior é gravado antes: na recuperação cada setor entra na árvore já com o pai presente
+    private void writeDepartmentBlock(DataOutputStream out, Department department, Set<String> written)
+            throws IOException {
+        if (!written.add(department.getCode())) {
+            return;
+        }
+        String parentCode = department.getParentCode();
+        if (parentCode != null) {
+            writeDepartmentBlock(out, documentService.getDepartment(parentCode), written);
+        }
+        writeBlock(out, encode(data -> {
+            data.writeByte(parentCode == null ? DEPARTMENT_BLOCK : SUBDEPARTMENT_BLOCK);
+            writeString(data, department.getCode());
+            writeString(data, department.getName());
+            if (parentCode != null) {
+                writeString(data, parentCode);
+            }
+        }));
+    }
+
+    private static byte[] encodeDocumentBlock(Document document, List<TransferRecord> history, long watermark)
+            throws IOException {
+        return encode(data -> {
+            data.writeByte(DOCUMENT_BLOCK);
+            data.writeLong(watermark);
+            writeString(data, document.getId());
+            writeString(data, document.getTitle());
+            writeString(data, document.readContent());
+            writeTimestamp(data, document.getCreatedAt());
+            data.writeInt(history.size());
+            for (TransferRecord record : history) {
+                writeString(data, record.getSource() == null ? null : record.getSource().getCode());
+                writeString(data, record.getTarget().getCode());
+                writeString(data, record.getReason());
+                writeTimestamp(data, record.getTimestamp());
+            }
+        });
+    }
+
+    // Bloco do snapshot: [int tamanho][int crc32c][byte tipo + dados]
+    private static void writeBlock(DataOutputStream out, byte[] body) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        out.writeInt(body.length);
+        out.writeInt((int) crc.getValue());
+        out.write(body);
+    }
+
+    // Recuperação
+
+    private void recover() throws IOException {
+        long begin = System.nanoTime();
+        Map<String, Long> watermarks = new HashMap<>();
+        long snapshotSequence = 0;
+
+        // Tentar do snapshot mais recente para o mais antigo
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                watermarks.clear();
+                snapshotSequence = loadSnapshot(snapshots.get(i), watermarks);
+                break;
+            } catch (IOException e) {
+                EventLog.warn("Snapshot inválido ignorado", "arquivo", snapshots.get(i).getFileName(),
+                        "erro", e.getMessage());
+                documentService.resetForRecovery();
+                recoveredDocuments = 0;
+                snapshotSequence = 0;
+            }
+        }
+        recoveredSnapshotSequence = snapshotSequence;
+
+        replayedRecords = 0;
+        log.replay(snapshotSequence, (sequence, type, in) -> {
+            switch (type) {
+                case DEPARTMENT_REGISTERED:
+                    documentService.restoreDepartment(new Department(readString(in), readString(in)));
+                    break;
+                case DEPARTMENT_REGISTERED_UNDER:
+                    documentService.restoreDepartment(
+                            new Department(readString(in), readString(in), readString(in)));
+                    break;
+                case DOCUMENT_ADDED: {
+                    String id = readString(in);
+                    if (sequence <= watermarks.getOrDefault(id, 0L)) {
+                        return;
+                    }
+                    String title = readString(in);
+                    String content = readString(in);
+                    Department department = requireDepartment(readString(in));
+                    LocalDateTime createdAt = readTimestamp(in);
+                    List<TransferRecord> history = new ArrayList<>();
+                    history.add(new TransferRecord(null, department, "Criação do documento", createdAt));
+                    documentService.restoreDocument(
+                            new Document(id, title, content, department, createdAt, createdAt, history));
+                    break;
+                }
+                case DOCUMENT_TRANSFERRED: {
+                    String id = readString(in);
+                    if (sequence <= watermarks.getOrDefault(id, 0L)) {
+                        return;
+                    }
+                    Department source = requireDepartment(readString(in));
+                    Department target = requireDepartment(readString(in));
+                    String reason = readString(in);
+                    documentService.restoreTransfer(id, new TransferRecord(source, target, reason, readTimestamp(in)));
+                    break;
+                }
+                default:
+                    throw new StreamCorruptedException("Tipo de registro desconhecido: " + type);
+            }
+            replayedRecords++;
+        });
+        // Os históricos do snapshot não passam pelas transferências: recalcular as estatísticas de uma vez
+        documentService.rebuildAnalytics();
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    }
+
+    private long loadSnapshot(Path path, Map<String, Long> watermarks) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new StreamCorruptedException("Cabeçalho de snapshot inválido");
+            }
+            long snapshotSequence = in.readLong();
+            CRC32C crc = new CRC32C();
+            long documents = 0;
+
+            int length;
+            while ((length = in.readInt()) > 0) {
+                int storedCrc = in.readInt();
+                byte[] body = new byte[length];
+                in.readFully(body);
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != storedCrc) {
+                    throw new StreamCorruptedException("Checksum inválido no snapshot");
+                }
+
+                DataInputStream data = new DataInputStream(new ByteArrayInputStream(body, 1, length - 1));
+                if (body[0] == DEPARTMENT_BLOCK) {
+                    documentService.restoreDepartment(new Department(readString(data), readString(data)));
+                } else if (body[0] == SUBDEPARTMENT_BLOCK) {
+                    documentService.restoreDepartment(
+                            new Department(readString(data), readString(data), readString(data)));
+                } else if (body[0] == DOCUMENT_BLOCK) {
+                    long watermark = data.readLong();
+                    String id = readString(data);
+                    String title = readString(data);
+                    String content = readString(data);
+                    LocalDateTime createdAt = readTimestamp(data);
+                    int historySize = data.readInt();
+                    List<TransferRecord> history = new ArrayList<>(historySize);
+                    for (int i = 0; i < historySize; i++) {
+                        String sourceCode = readString(data);
+                        Department source = sourceCode == null ? null : requireDepartment(sourceCode);
+                        Department target = requireDepartment(readString(data));
+                        history.add(new TransferRecord(source, target, readString(data), readTimestamp(data)));
+                    }
+                    TransferRecord last = history.get(history.size() - 1);
+                    documentService.restoreDocument(new Document(id, title, content, last.getTarget(),
+                            createdAt, last.getTimestamp(), history));
+                    // Só interessam as marcas posteriores ao início do snapshot
+                    if (watermark > snapshotSequence) {
+                        watermarks.put(id, watermark);
+                    }
+                    documents++;
+                } else {
+                    throw new StreamCorruptedException("Bloco de snapshot desconhecido: " + body[0]);
+                }
+            }
+            recoveredDocuments = documents;
+            return snapshotSequence;
+        }
+    }
+
+    private Department requireDepartment(String code) throws IOException {
+        Department department = documentService.getDepartment(code);
+        if (department == null) {
+            throw new StreamCorruptedException("Setor desconhecido no armazenamento: " + code);
+        }
+        return department;
+    }
+
+    public long getRecoveredSnapshotSequence() {
+        return recoveredSnapshotSequence;
+    }
+
+    public long getRecoveredDocuments() {
+        return recoveredDocuments;
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    public long getLoggedRecords() {
+        return log.getRecordCount();
+    }
+
+    public long getSyncCount() {
+        return log.getSyncCount();
+    }
+
+    // Codificação
+
+    private static byte[] encode(RecordWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writer.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // LocalDateTime gravado como segundos e nanos num deslocamento fixo, sem depender do fuso da máquina
+    static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static String snapshotName(long sequence) {
+        return String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX);
+    }
+
+    private static long snapshotSequence(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).sorted(Comparator.comparingLong(PersistenceEngine::snapshotSequence)).collect(Collectors.toList());
+        }
+    }
+}
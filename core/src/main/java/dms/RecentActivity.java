@@ -0,0 +1,116 @@
+package dms;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Últimos eventos do sistema para o painel de atividades recentes
+//
+// Fica entre o EventLog e o destino original: repassa todos os eventos e guarda os de nível INFO
+// ou acima num buffer circular de tamanho fixo. Gravar é um incremento atômico e uma escrita no
+// array, sem lock; o texto só é formatado quando o painel lê as últimas entradas. Com o buffer
+// cheio as entradas mais antigas são sobrescritas.
+class RecentActivity implements EventLog.Sink {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    static final class Entry {
+        private final long sequence;
+        private final long timestampMillis;
+        private final String message;
+        private final String key1;
+        private final Object value1;
+        private final String key2;
+        private final Object value2;
+        private final String key3;
+        private final Object value3;
+
+        Entry(long sequence, long timestampMillis, String message, String key1, Object value1, String key2,
+              Object value2, String key3, Object value3) {
+            this.sequence = sequence;
+            this.timestampMillis = timestampMillis;
+            this.message = message;
+            this.key1 = key1;
+            this.value1 = value1;
+            this.key2 = key2;
+            this.value2 = value2;
+            this.key3 = key3;
+            this.value3 = value3;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(TIME_FORMAT.format(Instant.ofEpochMilli(timestampMillis).atZone(ZoneId.systemDefault())))
+                    .append("  ").append(message);
+            appendField(text, key1, value1);
+            appendField(text, key2, value2);
+            appendField(text, key3, value3);
+            return text.toString();
+        }
+
+        private static void appendField(StringBuilder text, String key, Object value) {
+            if (key != null) {
+                text.append(' ').append(key).append('=').append(value);
+            }
+        }
+    }
+
+    private final EventLog.Sink delegate;
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    public RecentActivity(EventLog.Sink delegate, int capacity) {
+        this.delegate = delegate;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public boolean isEnabled(EventLog.Level level) {
+        return level.compareTo(EventLog.Level.INFO) >= 0 || delegate.isEnabled(level);
+    }
+
+    @Override
+    public void publish(EventLog.Level level, String message, String key1, Object value1, String key2, Object value2,
+                        String key3, Object value3) {
+        if (level.compareTo(EventLog.Level.INFO) >= 0) {
+            long sequence = nextSequence.getAndIncrement();
+            entries.set((int) sequence & mask, new Entry(sequence, System.currentTimeMillis(), message,
+                    key1, value1, key2, value2, key3, value3));
+        }
+        if (delegate.isEnabled(level)) {
+            delegate.publish(level, message, key1, value1, key2, value2, key3, value3);
+        }
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    // Total de eventos registrados desde a criação; serve para saber se há algo novo sem ler o buffer
+    public long getRecordedCount() {
+        return nextSequence.get();
+    }
+
+    // Até limit entradas, da mais recente para a mais antiga
+    public List<Entry> latest(int limit) {
+        List<Entry> result = new ArrayList<>(Math.min(limit, entries.length()));
+        long newest = nextSequence.get() - 1;
+        long oldest = Math.max(0, newest - Math.min(limit, entries.length()) + 1);
+        for (long sequence = newest; sequence >= oldest; sequence--) {
+            Entry entry = entries.get((int) sequence & mask);
+            // Posição ainda não escrita ou já sobrescrita por um evento mais novo
+            if (entry != null && entry.sequence == sequence) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+}
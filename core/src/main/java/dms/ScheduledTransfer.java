@@ -0,0 +1,76 @@
+package dms;
+
+import java.util.concurrent.ScheduledFuture;
+
+// Transferência automática pendente
+class ScheduledTransfer extends HierarchicalTimingWheel.Timeout {
+    private final String documentId;
+    private final String sourceDeptCode;
+    private final String targetDeptCode;
+    private final long scheduledAtMillis;
+    private final long dueAtMillis;
+    private volatile ScheduledFuture<?> future;
+    // Entregue ao timer; as que aguardam no plano ou no lote de recuperação não têm o que cancelar
+    private volatile boolean armed;
+    
+    public ScheduledTransfer(String documentId, String sourceDeptCode, String targetDeptCode, long dueAtMillis) {
+        this(documentId, sourceDeptCode, targetDeptCode, System.currentTimeMillis(), dueAtMillis);
+    }
+    
+    ScheduledTransfer(String documentId, String sourceDeptCode, String targetDeptCode,
+                      long scheduledAtMillis, long dueAtMillis) {
+        this.documentId = documentId;
+        this.sourceDeptCode = sourceDeptCode;
+        this.targetDeptCode = targetDeptCode;
+        this.scheduledAtMillis = scheduledAtMillis;
+        this.dueAtMillis = dueAtMillis;
+    }
+    
+    public static String taskId(String documentId, String sourceDeptCode, String targetDeptCode) {
+        return documentId + "_" + sourceDeptCode + "_" + targetDeptCode;
+    }
+    
+    public String getTaskId() {
+        return taskId(documentId, sourceDeptCode, targetDeptCode);
+    }
+    
+    public String getDocumentId() {
+        return documentId;
+    }
+    
+    public String getSourceDeptCode() {
+        return sourceDeptCode;
+    }
+    
+    public String getTargetDeptCode() {
+        return targetDeptCode;
+    }
+    
+    public long getScheduledAtMillis() {
+        return scheduledAtMillis;
+    }
+    
+    public long getDueAtMillis() {
+        return dueAtMillis;
+    }
+    
+    public long getRemainingSeconds() {
+        return Math.max(0, (dueAtMillis - System.currentTimeMillis() + 999) / 1000);
+    }
+    
+    ScheduledFuture<?> getFuture() {
+        return future;
+    }
+    
+    void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+    }
+    
+    boolean isArmed() {
+        return armed;
+    }
+    
+    void setArmed() {
+        this.armed = true;
+    }
+}
@@ -0,0 +1,423 @@
+package dms;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Fila em disco das transferências agendadas, ordenada pelo horário de vencimento
+//
+// As transferências são gravadas em arquivos por faixa de vencimento (bucket-<início da faixa>.q).
+// Na inicialização só os nomes dos arquivos são listados; apenas as faixas já vencidas e as da
+// janela próxima são lidas, e as seguintes são carregadas à medida que a janela avança.
+// Execuções e cancelamentos viram marcas no próprio arquivo da faixa, que é apagado quando
+// todas as suas transferências terminam. Cancelamentos de transferências ainda não carregadas
+// ficam em cancelled.log até que todas as faixas que poderiam contê-las tenham sido lidas.
+class ScheduledTransferStore implements Closeable {
+    private static final byte SCHEDULED = 1;
+    private static final byte DONE = 2;
+    private static final byte CANCELLED = 3;
+    private static final String BUCKET_PREFIX = "bucket-";
+    private static final String BUCKET_SUFFIX = ".q";
+    private static final String CANCELLATIONS_FILE = "cancelled.log";
+    private static final int MAX_OPEN_BUCKETS = 64;
+    // Textos são gravados com o tamanho em dois bytes
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    // Maior registro possível: tipo, três textos de até 64 KB com o tamanho e dois instantes
+    private static final int MAX_RECORD_BYTES = 1 + 3 * (2 + MAX_STRING_BYTES) + 2 * 8;
+
+    // Faixa já carregada em memória
+    private static class LoadedBucket {
+        int live;
+    }
+
+    // Cancelamento de uma transferência que ainda estava fora da janela carregada
+    private static class Cancellation {
+        final long cancelledAtMillis;
+        // Maior faixa existente no momento do cancelamento: depois dela nada pode ser afetado
+        final long lastAffectedBucket;
+
+        Cancellation(long cancelledAtMillis, long lastAffectedBucket) {
+            this.cancelledAtMillis = cancelledAtMillis;
+            this.lastAffectedBucket = lastAffectedBucket;
+        }
+    }
+
+    private final Path directory;
+    private final long bucketMillis;
+    private final TreeSet<Long> bucketsOnDisk;
+    private final Map<Long, LoadedBucket> loadedBuckets;
+    private final Map<String, Cancellation> cancellations;
+    private FileChannel cancellationLog;
+    private final LinkedHashMap<Long, FileChannel> openChannels;
+    // Faixas cuja cauda já foi conferida neste processo antes de receber novas gravações
+    private final Set<Long> validatedBuckets;
+    private long loadedThrough = Long.MIN_VALUE;
+
+    // Group commit: quem chega primeiro em sync() força todos os canais sujos
+    private final Object syncLock = new Object();
+    private Set<FileChannel> dirtyChannels = new HashSet<>();
+    private long writeGeneration;
+    private volatile long durableGeneration;
+
+    public ScheduledTransferStore(Path directory, long bucketMillis) throws IOException {
+        this.directory = directory;
+        this.bucketMillis = bucketMillis;
+        this.bucketsOnDisk = new TreeSet<>();
+        this.loadedBuckets = new HashMap<>();
+        this.cancellations = new HashMap<>();
+        this.openChannels = new LinkedHashMap<>(16, 0.75f, true);
+        this.validatedBuckets = new HashSet<>();
+        Files.createDirectories(directory);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(BUCKET_PREFIX) && name.endsWith(BUCKET_SUFFIX))
+                    .forEach(name -> bucketsOnDisk.add(Long.parseLong(
+                            name.substring(BUCKET_PREFIX.length(), name.length() - BUCKET_SUFFIX.length()))));
+        }
+
+        Path cancellationPath = directory.resolve(CANCELLATIONS_FILE);
+        if (Files.exists(cancellationPath)) {
+            long validBytes = readRecords(cancellationPath, (type, in) -> cancellations.merge(readString(in),
+                    new Cancellation(in.readLong(), in.readLong()),
+                    (a, b) -> a.cancelledAtMillis >= b.cancelledAtMillis ? a : b));
+            truncateTail(cancellationPath, validBytes);
+        }
+        this.cancellationLog = openForAppend(cancellationPath);
+    }
+
+    // Carrega as faixas que começam antes do fim da faixa de horizonMillis, incluindo as vencidas.
+    // Devolve as transferências pendentes dessas faixas, para serem agendadas em memória.
+    public List<ScheduledTransfer> loadThrough(long horizonMillis) throws IOException {
+        List<ScheduledTransfer> loaded = new ArrayList<>();
+        long generation;
+        synchronized (this) {
+            long boundary = bucketStart(horizonMillis) + bucketMillis;
+            if (boundary <= loadedThrough) {
+                return loaded;
+            }
+            for (Long bucket : new ArrayList<>(bucketsOnDisk.subSet(loadedThrough, boundary))) {
+                loaded.addAll(loadBucket(bucket));
+            }
+            loadedThrough = boundary;
+            pruneCancellations();
+            generation = writeGeneration;
+        }
+        // Marcas de cancelamento gravadas nas faixas lidas
+        sync(generation);
+        return loaded;
+    }
+
+    // Grava a transferência; devolve true se a faixa dela já está carregada e ela deve ir para a memória.
+    // Ids e códigos com mais de 64 KB em UTF-8 são recusados com IllegalArgumentException, sem gravar nada.
+    public boolean add(ScheduledTransfer transfer) throws IOException {
+        long generation;
+        boolean loaded;
+        synchronized (this) {
+            long bucket = bucketStart(transfer.getDueAtMillis());
+            generation = write(bucket, encode(SCHEDULED, transfer, true));
+            bucketsOnDisk.add(bucket);
+            loaded = bucket < loadedThrough;
+            if (loaded) {
+                loadedBuckets.computeIfAbsent(bucket, b -> new LoadedBucket()).live++;
+            }
+        }
+        sync(generation);
+        return loaded;
+    }
+
+    // Marca uma transferência carregada como executada ou cancelada
+    public void markDone(ScheduledTransfer transfer) throws IOException {
+        long generation;
+        synchronized (this) {
+            long bucket = bucketStart(transfer.getDueAtMillis());
+            LoadedBucket loaded = loadedBuckets.get(bucket);
+            if (loaded == null) {
+                return;
+            }
+            if (--loaded.live > 0) {
+                generation = write(bucket, encode(DONE, transfer, false));
+            } else {
+                // Última pendente da faixa: o arquivo inteiro deixa de ser necessário
+                deleteBucket(bucket);
+                loadedBuckets.remove(bucket);
+                return;
+            }
+        }
+        sync(generation);
+    }
+
+    // Cancela transferências com esta chave que ainda estão fora da janela carregada
+    public boolean cancelUnloaded(String taskId, long cancelledAtMillis) throws IOException {
+        long generation;
+        synchronized (this) {
+            if (bucketsOnDisk.isEmpty() || bucketsOnDisk.last() < loadedThrough) {
+                return false;
+            }
+            Cancellation cancellation = new Cancellation(cancelledAtMillis, bucketsOnDisk.last());
+            cancellations.put(taskId, cancellation);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, taskId);
+            out.writeLong(cancellation.cancelledAtMillis);
+            out.writeLong(cancellation.lastAffectedBucket);
+            generation = append(cancellationLog, frame(CANCELLED, bytes.toByteArray()));
+        }
+        sync(generation);
+        return true;
+    }
+
+    public synchronized int getUnloadedBucketCount() {
+        return bucketsOnDisk.tailSet(loadedThrough).size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel channel : openChannels.values()) {
+            channel.force(false);
+            channel.close();
+        }
+        openChannels.clear();
+        cancellationLog.force(false);
+        cancellationLog.close();
+    }
+
+    private List<ScheduledTransfer> loadBucket(long bucket) throws IOException {
+        Map<String, ScheduledTransfer> pending = new LinkedHashMap<>();
+        Path path = bucketPath(bucket);
+        long validBytes = readRecords(path, (type, in) -> {
+            String documentId = readString(in);
+            String sourceDeptCode = readString(in);
+            String targetDeptCode = readString(in);
+            long scheduledAtMillis = in.readLong();
+            String key = ScheduledTransfer.taskId(documentId, sourceDeptCode, targetDeptCode) + "@" + scheduledAtMillis;
+            if (type == SCHEDULED) {
+                pending.put(key, new ScheduledTransfer(documentId, sourceDeptCode, targetDeptCode,
+                        scheduledAtMillis, in.readLong()));
+            } else {
+                pending.remove(key);
+            }
+        });
+        truncateTail(path, validBytes);
+        validatedBuckets.add(bucket);
+
+        List<ScheduledTransfer> live = new ArrayList<>(pending.size());
+        List<ScheduledTransfer> cancelled = new ArrayList<>();
+        for (ScheduledTransfer transfer : pending.values()) {
+            Cancellation cancellation = cancellations.get(transfer.getTaskId());
+            if (cancellation == null || cancellation.cancelledAtMillis < transfer.getScheduledAtMillis()) {
+                live.add(transfer);
+            } else {
+                cancelled.add(transfer);
+            }
+        }
+
+        if (live.isEmpty()) {
+            deleteBucket(bucket);
+        } else {
+            // O cancelamento sai de cancelled.log quando todas as faixas forem lidas: a faixa precisa
+            // guardar a marca, senão a transferência volta na próxima inicialização
+            for (ScheduledTransfer transfer : cancelled) {
+                write(bucket, encode(DONE, transfer, false));
+            }
+            loadedBuckets.computeIfAbsent(bucket, b -> new LoadedBucket()).live += live.size();
+        }
+        return live;
+    }
+
+    // Descarta cancelamentos cujas faixas afetadas já foram todas carregadas e reescreve o arquivo
+    private void pruneCancellations() throws IOException {
+        if (!cancellations.values().removeIf(c -> c.lastAffectedBucket < loadedThrough)) {
+            return;
+        }
+        Path path = directory.resolve(CANCELLATIONS_FILE);
+        Path temporary = directory.resolve(CANCELLATIONS_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, Cancellation> entry : cancellations.entrySet()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().cancelledAtMillis);
+                out.writeLong(entry.getValue().lastAffectedBucket);
+                channel.write(ByteBuffer.wrap(frame(CANCELLED, bytes.toByteArray())));
+            }
+            channel.force(true);
+        }
+        cancellationLog.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        cancellationLog = openForAppend(path);
+    }
+
+    private void deleteBucket(long bucket) throws IOException {
+        FileChannel channel = openChannels.remove(bucket);
+        if (channel != null) {
+            channel.close();
+        }
+        bucketsOnDisk.remove(bucket);
+        Files.deleteIfExists(bucketPath(bucket));
+    }
+
+    private long write(long bucket, byte[] frame) throws IOException {
+        FileChannel channel = openChannels.get(bucket);
+        if (channel == null) {
+            Path path = bucketPath(bucket);
+            // Antes da primeira gravação no processo, cortar uma cauda deixada por uma queda
+            if (validatedBuckets.add(bucket) && Files.exists(path)) {
+                truncateTail(path, readRecords(path, (type, in) -> { }));
+            }
+            channel = openForAppend(path);
+            openChannels.put(bucket, channel);
+            if (openChannels.size() > MAX_OPEN_BUCKETS) {
+                Iterator<FileChannel> eldest = openChannels.values().iterator();
+                FileChannel evicted = eldest.next();
+                eldest.remove();
+                evicted.force(false);
+                evicted.close();
+            }
+        }
+        return append(channel, frame);
+    }
+
+    private static FileChannel openForAppend(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void truncateTail(Path path, long validBytes) throws IOException {
+        if (Files.size(path) > validBytes) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+    }
+
+    private long append(FileChannel channel, byte[] frame) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dirtyChannels.add(channel);
+        return ++writeGeneration;
+    }
+
+    private void sync(long generation) throws IOException {
+        if (durableGeneration >= generation) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableGeneration >= generation) {
+                return;
+            }
+            Set<FileChannel> channels;
+            long target;
+            synchronized (this) {
+                channels = dirtyChannels;
+                dirtyChannels = new HashSet<>();
+                target = writeGeneration;
+            }
+            for (FileChannel channel : channels) {
+                try {
+                    channel.force(false);
+                } catch (ClosedChannelException e) {
+                    // Canal fechado: a faixa foi apagada ou já forçada ao sair do cache
+                }
+            }
+            durableGeneration = target;
+        }
+    }
+
+    private Path bucketPath(long bucket) {
+        return directory.resolve(String.format("%s%020d%s", BUCKET_PREFIX, bucket, BUCKET_SUFFIX));
+    }
+
+    private long bucketStart(long millis) {
+        return Math.floorDiv(millis, bucketMillis) * bucketMillis;
+    }
+
+    // Codificação: [int tamanho][int crc32c][byte tipo][dados]
+
+    private interface RecordReader {
+        void accept(byte type, DataInputStream in) throws IOException;
+    }
+
+    private static byte[] encode(byte type, ScheduledTransfer transfer, boolean withDueAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, transfer.getDocumentId());
+        writeString(out, transfer.getSourceDeptCode());
+        writeString(out, transfer.getTargetDeptCode());
+        out.writeLong(transfer.getScheduledAtMillis());
+        if (withDueAt) {
+            out.writeLong(transfer.getDueAtMillis());
+        }
+        return frame(type, bytes.toByteArray());
+    }
+
+    private static byte[] frame(byte type, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(9 + payload.length);
+        frame.putInt(1 + payload.length);
+        frame.putInt(0);
+        frame.put(type);
+        frame.put(payload);
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), 8, 1 + payload.length);
+        frame.putInt(4, (int) crc.getValue());
+        return frame.array();
+    }
+
+    // Lê os registros válidos e devolve quantos bytes eles ocupam; uma cauda truncada por
+    // queda durante a escrita, ou com um tamanho impossível, encerra a leitura
+    private static long readRecords(Path path, RecordReader reader) throws IOException {
+        long fileSize = Files.size(path);
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            CRC32C crc = new CRC32C();
+            while (true) {
+                byte[] body;
+                int storedCrc;
+                try {
+                    int length = in.readInt();
+                    storedCrc = in.readInt();
+                    // Conferir antes de alocar: um tamanho corrompido não pode pedir gigabytes
+                    if (length <= 0 || length > MAX_RECORD_BYTES || length > fileSize - validBytes - 8) {
+                        return validBytes;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    return validBytes;
+                }
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != storedCrc) {
+                    return validBytes;
+                }
+                reader.accept(body[0], new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1)));
+                validBytes += 8 + body.length;
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // writeShort guardaria só os 16 bits de baixo e o resto do registro seria lido fora do lugar
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Texto com " + bytes.length + " bytes não cabe na fila de agendamentos");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
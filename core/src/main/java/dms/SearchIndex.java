@@ -0,0 +1,570 @@
+package dms;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice invertido em memória sobre título e conteúdo dos documentos
+//
+// Tokenização para português: letras e dígitos, sem acentos (ç vira c), em minúsculas e sem
+// palavras muito comuns. Cada documento recebe um número sequencial; as listas de ocorrências de
+// cada termo guardam esses números em ordem crescente, com a frequência do termo (ocorrências no
+// título valem TITLE_WEIGHT vezes). A ordenação usa BM25, com as estatísticas do índice inteiro.
+//
+// Os documentos são repartidos pelo id entre segmentos independentes, cada um com suas listas, sua
+// numeração e seu lock: indexações de documentos em segmentos diferentes (uma importação em lote
+// com várias threads) correm em paralelo. O dicionário ordenado, usado para expandir prefixos, é
+// um só e não usa lock. Uma consulta lê todos os segmentos. Um documento reindexado ou removido
+// deixa ocorrências mortas na versão anterior; quando elas passam da metade das ocorrências do
+// segmento, ele é compactado e renumerado.
+//
+// Consultas: todos os termos precisam aparecer (E). Um termo terminado em * é um prefixo e casa
+// com todos os termos do dicionário que começam com ele. A busca percorre a lista do termo mais raro
+// e avança as demais em saltos até cada candidato, então o custo acompanha o termo mais seletivo.
+class SearchIndex {
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    // Acima desta quantidade de termos, as listas de um prefixo são juntadas numa só antes da busca:
+    // avançar centenas de cursores a cada candidato custaria mais que ler as listas uma vez
+    private static final int MAX_PREFIX_CURSORS = 32;
+    // Compactar só a partir deste tanto de ocorrências mortas, para não renumerar segmentos pequenos a toda hora
+    private static final int MIN_DEAD_POSTINGS = 4_096;
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "ao", "aos", "as", "com", "como", "da", "das", "de", "do", "dos", "e", "em", "na", "nas",
+            "no", "nos", "o", "os", "ou", "para", "pela", "pelas", "pelo", "pelos", "por", "que", "se", "um",
+            "uma", "umas", "uns"));
+    // Letra sem acento e em minúscula para os caracteres latinos mais comuns
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            FOLD[c] = Character.toLowerCase(decomposed.charAt(0));
+        }
+    }
+
+    static class Hit {
+        private final String documentId;
+        private final double score;
+
+        Hit(String documentId, double score) {
+            this.documentId = documentId;
+            this.score = score;
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    // Lista de ocorrências de um termo, em ordem crescente de número de documento
+    private static class Postings {
+        int[] documents = new int[2];
+        int[] frequencies = new int[2];
+        int size;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    // Parte dos documentos, com numeração própria; tudo acessado com o lock do segmento
+    private static class Segment {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // Listas dos termos que aparecem no segmento, com as chaves do dicionário compartilhado
+        final Map<String, Postings> terms = new HashMap<>();
+        final Map<String, Integer> numberById = new HashMap<>();
+        String[] idByNumber = new String[64];
+        int[] lengthByNumber = new int[64];
+        // Quantos termos distintos cada documento tem: as ocorrências que ficam mortas quando ele sai
+        int[] termsByNumber = new int[64];
+        final BitSet replaced = new BitSet();
+        int documentCount;
+        int liveDocuments;
+        long totalLength;
+        long postingCount;
+        long deadPostings;
+
+        // Um termo novo no segmento entra também no dicionário compartilhado, de onde vem a chave
+        void add(String documentId, int length, Map<String, Integer> frequencies,
+                 ConcurrentSkipListMap<String, String> dictionary) {
+            int number = documentCount++;
+            if (number == idByNumber.length) {
+                idByNumber = Arrays.copyOf(idByNumber, number * 2);
+                lengthByNumber = Arrays.copyOf(lengthByNumber, number * 2);
+                termsByNumber = Arrays.copyOf(termsByNumber, number * 2);
+            }
+            // Um documento reindexado com o mesmo id substitui a versão anterior
+            Integer previous = numberById.put(documentId, number);
+            if (previous != null) {
+                retire(previous);
+            } else {
+                liveDocuments++;
+            }
+            idByNumber[number] = documentId;
+            lengthByNumber[number] = length;
+            termsByNumber[number] = frequencies.size();
+            totalLength += length;
+            postingCount += frequencies.size();
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings postings = terms.get(entry.getKey());
+                if (postings == null) {
+                    String term = dictionary.putIfAbsent(entry.getKey(), entry.getKey());
+                    postings = new Postings();
+                    terms.put(term == null ? entry.getKey() : term, postings);
+                }
+                postings.add(number, entry.getValue());
+            }
+            compactIfNeeded();
+        }
+
+        void remove(String documentId) {
+            Integer previous = numberById.remove(documentId);
+            if (previous != null) {
+                retire(previous);
+                liveDocuments--;
+                compactIfNeeded();
+            }
+        }
+
+        // A versão deixa de aparecer nas buscas; as ocorrências dela ficam até a próxima compactação
+        private void retire(int number) {
+            replaced.set(number);
+            totalLength -= lengthByNumber[number];
+            deadPostings += termsByNumber[number];
+        }
+
+        private void compactIfNeeded() {
+            if (deadPostings >= MIN_DEAD_POSTINGS && deadPostings * 2 >= postingCount) {
+                compact();
+            }
+        }
+
+        // Renumera os documentos vivos na mesma ordem, então as listas continuam crescentes, e
+        // reescreve cada lista sem as ocorrências mortas; termos que ficam sem nenhuma saem do dicionário
+        void compact() {
+            int[] renumbered = new int[documentCount];
+            int live = 0;
+            for (int number = 0; number < documentCount; number++) {
+                if (replaced.get(number)) {
+                    renumbered[number] = -1;
+                    continue;
+                }
+                renumbered[number] = live;
+                idByNumber[live] = idByNumber[number];
+                lengthByNumber[live] = lengthByNumber[number];
+                termsByNumber[live] = termsByNumber[number];
+                numberById.put(idByNumber[live], live);
+                live++;
+            }
+            Arrays.fill(idByNumber, live, documentCount, null);
+            for (Iterator<Postings> it = terms.values().iterator(); it.hasNext(); ) {
+                Postings postings = it.next();
+                int kept = 0;
+                for (int i = 0; i < postings.size; i++) {
+                    int number = renumbered[postings.documents[i]];
+                    if (number >= 0) {
+                        postings.documents[kept] = number;
+                        postings.frequencies[kept] = postings.frequencies[i];
+                        kept++;
+                    }
+                }
+                if (kept == 0) {
+                    it.remove();
+                } else if (kept < postings.documents.length / 4) {
+                    postings.documents = Arrays.copyOf(postings.documents, Math.max(2, kept));
+                    postings.frequencies = Arrays.copyOf(postings.frequencies, Math.max(2, kept));
+                }
+                postings.size = kept;
+            }
+            documentCount = live;
+            replaced.clear();
+            postingCount -= deadPostings;
+            deadPostings = 0;
+        }
+
+        void clear() {
+            terms.clear();
+            numberById.clear();
+            replaced.clear();
+            idByNumber = new String[64];
+            lengthByNumber = new int[64];
+            termsByNumber = new int[64];
+            documentCount = 0;
+            liveDocuments = 0;
+            totalLength = 0;
+            postingCount = 0;
+            deadPostings = 0;
+        }
+
+    }
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    // Todos os termos já indexados, cada um com uma única instância de String para todos os segmentos.
+    // Termos que deixam de aparecer continuam aqui; a expansão de um prefixo só os ignora.
+    private final ConcurrentSkipListMap<String, String> dictionary = new ConcurrentSkipListMap<>();
+
+    public SearchIndex() {
+        // Cada segmento a mais custa uma inserção no dicionário por termo novo no segmento e uma
+        // lista a mais por termo consultado; só compensa com escritores em paralelo
+        this(Math.min(8, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Quantidade de segmentos arredondada para potência de dois
+    public SearchIndex(int segments) {
+        int count = segments <= 1 ? 1 : Integer.highestOneBit(segments - 1) << 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            this.segments[i] = new Segment();
+        }
+        this.segmentMask = count - 1;
+    }
+
+    private Segment segmentFor(String documentId) {
+        int h = documentId.hashCode();
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
+    public void add(Document document) {
+        // Tokenizar fora do lock: é a parte cara e não depende do índice
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = count(document.getTitle(), TITLE_WEIGHT, frequencies)
+                + count(document.getContent(), 1, frequencies);
+
+        Segment segment = segmentFor(document.getId());
+        segment.lock.writeLock().lock();
+        try {
+            segment.add(document.getId(), length, frequencies, dictionary);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    // A versão anterior deixa de aparecer nas buscas
+    public void remove(String documentId) {
+        Segment segment = segmentFor(documentId);
+        segment.lock.writeLock().lock();
+        try {
+            segment.remove(documentId);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        dictionary.clear();
+        for (Segment segment : segments) {
+            segment.lock.writeLock().lock();
+            try {
+                segment.clear();
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                size += segment.liveDocuments;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    // Ocorrências guardadas, inclusive as mortas ainda não compactadas
+    long getPostingCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                count += segment.postingCount;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return count;
+    }
+
+    public List<Hit> search(String query, int limit) {
+        List<String> words = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        for (String part : query.trim().split("\\s+")) {
+            boolean prefix = part.endsWith("*");
+            List<String> tokens = tokenize(prefix ? part.substring(0, part.length() - 1) : part);
+            for (int i = 0; i < tokens.size(); i++) {
+                words.add(tokens.get(i));
+                // Só o último pedaço de uma palavra com * é prefixo ("pré-aprov*" -> pre, aprov*)
+                prefixes.add(prefix && i == tokens.size() - 1);
+            }
+        }
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Todos os segmentos travados para leitura, em ordem: as estatísticas e as listas da consulta
+        // são do mesmo instante. Quem indexa trava um segmento só, então não há como formar um ciclo.
+        int locked = 0;
+        try {
+            for (; locked < segments.length; locked++) {
+                segments[locked].lock.readLock().lock();
+            }
+            int liveDocuments = 0;
+            long totalLength = 0;
+            for (Segment segment : segments) {
+                liveDocuments += segment.liveDocuments;
+                totalLength += segment.totalLength;
+            }
+            double averageLength = totalLength / (double) Math.max(1, liveDocuments);
+
+            // Para cada termo da consulta, os termos do dicionário que casam com ele e em quantos
+            // documentos de todos os segmentos cada um aparece, para o idf
+            List<Map<String, Integer>> frequencies = new ArrayList<>(words.size());
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                Collection<String> expansion = prefixes.get(i)
+                        ? dictionary.subMap(word, true, word + Character.MAX_VALUE, false).keySet()
+                        : Collections.singleton(word);
+                Map<String, Integer> clause = new LinkedHashMap<>();
+                for (String term : expansion) {
+                    int documents = 0;
+                    for (Segment segment : segments) {
+                        Postings postings = segment.terms.get(term);
+                        documents += postings == null ? 0 : postings.size;
+                    }
+                    if (documents > 0) {
+                        clause.put(term, documents);
+                    }
+                }
+                if (clause.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                frequencies.add(clause);
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Hit::getScore));
+            for (Segment segment : segments) {
+                searchSegment(segment, frequencies, liveDocuments, averageLength, limit, top);
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(Hit::getScore).reversed());
+            return hits;
+        } finally {
+            while (locked > 0) {
+                segments[--locked].lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static void searchSegment(Segment segment, List<Map<String, Integer>> frequencies, int liveDocuments,
+                                      double averageLength, int limit, PriorityQueue<Hit> top) {
+        List<Cursor[]> clauses = new ArrayList<>(frequencies.size());
+        long[] clauseSizes = new long[frequencies.size()];
+        for (int i = 0; i < frequencies.size(); i++) {
+            List<Cursor> cursors = new ArrayList<>();
+            for (Map.Entry<String, Integer> term : frequencies.get(i).entrySet()) {
+                Postings postings = segment.terms.get(term.getKey());
+                if (postings != null) {
+                    cursors.add(new Cursor(postings, idf(liveDocuments, term.getValue())));
+                    clauseSizes[i] += postings.size;
+                }
+            }
+            if (cursors.isEmpty()) {
+                return;
+            }
+            Cursor[] clause = cursors.toArray(new Cursor[0]);
+            clauses.add(clause.length > MAX_PREFIX_CURSORS ? new Cursor[]{merge(segment, clause, averageLength)} : clause);
+        }
+        Integer[] order = new Integer[clauses.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> clauseSizes[i]));
+
+        // A cláusula mais rara fornece os candidatos; as demais só avançam até cada candidato
+        Cursor[] seeds = clauses.get(order[0]);
+        int candidate = nextCandidate(seeds, -1);
+        while (candidate != Integer.MAX_VALUE) {
+            if (!segment.replaced.get(candidate)) {
+                double score = clauseScore(segment, seeds, candidate, averageLength);
+                for (int c = 1; c < order.length && score > 0; c++) {
+                    double clauseScore = clauseScore(segment, clauses.get(order[c]), candidate, averageLength);
+                    score = clauseScore > 0 ? score + clauseScore : 0;
+                }
+                if (score > 0) {
+                    if (top.size() < limit) {
+                        top.add(new Hit(segment.idByNumber[candidate], score));
+                    } else if (score > top.peek().getScore()) {
+                        top.poll();
+                        top.add(new Hit(segment.idByNumber[candidate], score));
+                    }
+                }
+            }
+            candidate = nextCandidate(seeds, candidate);
+        }
+    }
+
+    // Posição de leitura numa lista de ocorrências; só anda para frente durante uma consulta.
+    // Uma lista juntada de um prefixo traz a pontuação já calculada de cada documento em scores.
+    private static class Cursor {
+        final Postings postings;
+        final double idf;
+        final double[] scores;
+        int position;
+
+        Cursor(Postings postings, double idf) {
+            this(postings, idf, null);
+        }
+
+        Cursor(Postings postings, double idf, double[] scores) {
+            this.postings = postings;
+            this.idf = idf;
+            this.scores = scores;
+        }
+
+        // Avança até o primeiro documento >= target, em saltos crescentes e depois busca binária
+        int advanceTo(int target) {
+            int[] documents = postings.documents;
+            int size = postings.size;
+            if (position >= size || documents[position] >= target) {
+                return position;
+            }
+            int step = 1;
+            int low = position;
+            int high = position + 1;
+            while (high < size && documents[high] < target) {
+                low = high;
+                step <<= 1;
+                high = position + step;
+            }
+            int index = Arrays.binarySearch(documents, low + 1, Math.min(high + 1, size), target);
+            position = index < 0 ? -index - 1 : index;
+            return position;
+        }
+
+        int current() {
+            return position < postings.size ? postings.documents[position] : Integer.MAX_VALUE;
+        }
+
+        double score(Segment segment, double averageLength) {
+            if (scores != null) {
+                return scores[position];
+            }
+            return SearchIndex.score(idf, postings.frequencies[position], segment.lengthByNumber[current()],
+                    averageLength);
+        }
+    }
+
+    // Junta as listas de um prefixo numa só, somando a pontuação de cada documento nas listas que o
+    // contêm: o mesmo que a cláusula daria documento a documento
+    private static Cursor merge(Segment segment, Cursor[] cursors, double averageLength) {
+        int total = 0;
+        for (Cursor cursor : cursors) {
+            total += cursor.postings.size;
+        }
+        long[] keys = new long[total];
+        double[] partial = new double[total];
+        int next = 0;
+        for (Cursor cursor : cursors) {
+            for (; cursor.position < cursor.postings.size; cursor.position++) {
+                keys[next] = (long) cursor.current() << 32 | next;
+                partial[next] = cursor.score(segment, averageLength);
+                next++;
+            }
+        }
+        Arrays.sort(keys);
+        Postings merged = new Postings();
+        double[] scores = new double[total];
+        for (int i = 0; i < total; i++) {
+            int document = (int) (keys[i] >>> 32);
+            double score = partial[(int) keys[i]];
+            if (merged.size > 0 && merged.documents[merged.size - 1] == document) {
+                scores[merged.size - 1] += score;
+            } else {
+                scores[merged.size] = score;
+                merged.add(document, 0);
+            }
+        }
+        return new Cursor(merged, 0, scores);
+    }
+
+    // Menor documento depois de previous em qualquer uma das listas (união das expansões)
+    private static int nextCandidate(Cursor[] cursors, int previous) {
+        int next = Integer.MAX_VALUE;
+        for (Cursor cursor : cursors) {
+            cursor.advanceTo(previous + 1);
+            next = Math.min(next, cursor.current());
+        }
+        return next;
+    }
+
+    // Soma das pontuações das listas da cláusula que contêm o documento; zero se nenhuma contém
+    private static double clauseScore(Segment segment, Cursor[] cursors, int document, double averageLength) {
+        double score = 0;
+        for (Cursor cursor : cursors) {
+            cursor.advanceTo(document);
+            if (cursor.current() == document) {
+                score += cursor.score(segment, averageLength);
+            }
+        }
+        return score;
+    }
+
+    private static double idf(int liveDocuments, int documentFrequency) {
+        return Math.log(1 + (liveDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double score(double idf, int frequency, int length, double averageLength) {
+        double norm = BM25_K1 * (1 - BM25_B + BM25_B * length / averageLength);
+        return idf * frequency * (BM25_K1 + 1) / (frequency + norm);
+    }
+
+    private static int count(String text, int weight, Map<String, Integer> frequencies) {
+        int tokens = 0;
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Integer::sum);
+            tokens += weight;
+        }
+        return tokens;
+    }
+
+    // Separa o texto em termos sem acento, em minúsculas e sem palavras muito comuns
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c < FOLD.length ? FOLD[c] : Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                String term = token.toString();
+                if (term.length() >= MIN_TOKEN_LENGTH && !STOPWORDS.contains(term)) {
+                    tokens.add(term);
+                }
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,463 @@
+package dms;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Estatísticas de transferências atualizadas a cada transferência, sem percorrer os históricos
+//
+// Mantém a matriz de fluxo entre setores (transferências de cada origem para cada destino), o
+// tempo de permanência em cada setor (da chegada do documento até a saída, em segundos, num
+// histograma do TransferMetrics) e a vazão em janelas de tempo (contadores por minuto nas últimas
+// 24 horas e por dia no último ano). Cada transferência custa alguns incrementos atômicos e os
+// relatórios leem só os agregados. Criações de documentos não entram: não saem de setor nenhum.
+//
+// rebuild() recalcula tudo a partir dos históricos dos documentos, dividindo o acervo entre as
+// threads do ForkJoinPool comum: cada parte acumula em arrays próprios, sem disputa, e as partes
+// são somadas na volta. Os agregados novos substituem os antigos de uma vez; transferências
+// aplicadas durante a reconstrução podem ficar de fora, então ela é feita na carga, antes de o
+// serviço receber transferências.
+class TransferAnalytics {
+    private static final long SECONDS_PER_MINUTE = 60;
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int MINUTE_SLOTS = 24 * 60;
+    private static final int DAY_SLOTS = 366;
+    private static final int FLOWS_SHOWN = 20;
+
+    // Contagens por janela de tempo num anel: a posição de uma janela é reaproveitada na volta seguinte
+    //
+    // Cada posição é um long só, com a volta do anel (número da janela / windowCount) nos bits altos e
+    // a contagem nos COUNT_BITS de baixo, trocado por compareAndSet: somar numa janela e reiniciar a
+    // posição para uma janela mais nova não se intercalam, então uma soma atrasada nunca cai na janela
+    // seguinte nem some com o reinício.
+    static final class WindowCounter {
+        private static final int COUNT_BITS = 40;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+        // Volta menor que qualquer outra, contagem 0
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private final long windowSeconds;
+        private final int windowCount;
+        private final AtomicLongArray slots;
+
+        WindowCounter(long windowSeconds, int windowCount) {
+            this.windowSeconds = windowSeconds;
+            this.windowCount = windowCount;
+            this.slots = new AtomicLongArray(windowCount);
+            for (int i = 0; i < windowCount; i++) {
+                slots.set(i, EMPTY);
+            }
+        }
+
+        void add(long epochSecond, long count) {
+            long window = Math.floorDiv(epochSecond, windowSeconds);
+            int slot = Math.floorMod(window, windowCount);
+            long lap = Math.floorDiv(window, windowCount);
+            while (true) {
+                long current = slots.get(slot);
+                long currentLap = current >> COUNT_BITS;
+                if (currentLap > lap) {
+                    // Mais antiga que todo o anel
+                    return;
+                }
+                long next = currentLap == lap ? current + count : lap << COUNT_BITS | count;
+                if (slots.compareAndSet(slot, current, next)) {
+                    return;
+                }
+            }
+        }
+
+        // Soma das últimas count janelas, terminando na que contém epochSecond
+        long sum(long epochSecond, int count) {
+            long last = Math.floorDiv(epochSecond, windowSeconds);
+            long total = 0;
+            for (long window = last - Math.min(count, windowCount) + 1; window <= last; window++) {
+                long current = slots.get(Math.floorMod(window, windowCount));
+                if (current >> COUNT_BITS == Math.floorDiv(window, windowCount)) {
+                    total += current & COUNT_MASK;
+                }
+            }
+            return total;
+        }
+    }
+
+    // Agregados publicados; setores pelo id do código em TransferHistory.DEPARTMENTS
+    private static final class Aggregates {
+        final LongAdder transfers = new LongAdder();
+        final WindowCounter perMinute = new WindowCounter(SECONDS_PER_MINUTE, MINUTE_SLOTS);
+        final WindowCounter perDay = new WindowCounter(SECONDS_PER_DAY, DAY_SLOTS);
+        // flows[origem][destino]; linhas e células criadas na primeira transferência do par
+        volatile LongAdder[][] flows = new LongAdder[16][];
+        volatile TransferMetrics.Histogram[] dwell = new TransferMetrics.Histogram[16];
+
+        LongAdder flow(int source, int target) {
+            LongAdder[][] rows = flows;
+            LongAdder[] row = source < rows.length ? rows[source] : null;
+            LongAdder cell = row != null && target < row.length ? row[target] : null;
+            return cell != null ? cell : createFlow(source, target);
+        }
+
+        // Quem leu a matriz antiga continua vendo as mesmas células: só os arrays são copiados
+        private synchronized LongAdder createFlow(int source, int target) {
+            LongAdder[][] rows = flows;
+            if (source >= rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(source + 1, rows.length * 2));
+            }
+            LongAdder[] row = rows[source];
+            if (row == null || target >= row.length) {
+                row = row == null ? new LongAdder[Math.max(16, target + 1)]
+                        : Arrays.copyOf(row, Math.max(target + 1, row.length * 2));
+                rows[source] = row;
+            }
+            if (row[target] == null) {
+                row[target] = new LongAdder();
+            }
+            flows = rows;
+            return row[target];
+        }
+
+        TransferMetrics.Histogram dwell(int department) {
+            TransferMetrics.Histogram[] histograms = dwell;
+            TransferMetrics.Histogram histogram = department < histograms.length ? histograms[department] : null;
+            return histogram != null ? histogram : createDwell(department);
+        }
+
+        // Uma cópia só por setor: as saídas se espalham pelos setores e cada cópia ocupa 31 KB
+        private synchronized TransferMetrics.Histogram createDwell(int department) {
+            TransferMetrics.Histogram[] histograms = dwell;
+            if (department >= histograms.length) {
+                histograms = Arrays.copyOf(histograms, Math.max(department + 1, histograms.length * 2));
+            }
+            if (histograms[department] == null) {
+                histograms[department] = new TransferMetrics.Histogram(1);
+            }
+            dwell = histograms;
+            return histograms[department];
+        }
+    }
+
+    // Acumulado de uma parte do acervo na reconstrução, em arrays comuns de uma thread só
+    private static final class Partial {
+        private final long nowSecond;
+        long transfers;
+        long[][] flows = new long[16][];
+        long[][] dwellCounts = new long[16][];
+        long[] dwellMax = new long[16];
+        // Por minutos (e dias) antes de nowSecond
+        final long[] minutes = new long[MINUTE_SLOTS];
+        final long[] days = new long[DAY_SLOTS];
+
+        Partial(long nowSecond) {
+            this.nowSecond = nowSecond;
+        }
+
+        void add(int source, int target, long arrivalNanos, long nanos) {
+            transfers++;
+            if (source >= flows.length) {
+                flows = Arrays.copyOf(flows, Math.max(source + 1, flows.length * 2));
+            }
+            if (flows[source] == null || target >= flows[source].length) {
+                flows[source] = flows[source] == null ? new long[Math.max(16, target + 1)]
+                        : Arrays.copyOf(flows[source], Math.max(target + 1, flows[source].length * 2));
+            }
+            flows[source][target]++;
+
+            if (source >= dwellCounts.length) {
+                dwellCounts = Arrays.copyOf(dwellCounts, Math.max(source + 1, dwellCounts.length * 2));
+                dwellMax = Arrays.copyOf(dwellMax, dwellCounts.length);
+            }
+            if (dwellCounts[source] == null) {
+                dwellCounts[source] = new long[TransferMetrics.Histogram.BUCKETS];
+            }
+            long dwellSeconds = Math.max(0, Math.floorDiv(nanos - arrivalNanos, NANOS_PER_SECOND));
+            dwellCounts[source][TransferMetrics.Histogram.indexFor(
+                    Math.min(dwellSeconds, TransferMetrics.Histogram.HIGHEST_TRACKABLE))]++;
+            dwellMax[source] = Math.max(dwellMax[source], dwellSeconds);
+
+            long second = Math.floorDiv(nanos, NANOS_PER_SECOND);
+            long minutesAgo = Math.floorDiv(nowSecond, SECONDS_PER_MINUTE) - Math.floorDiv(second, SECONDS_PER_MINUTE);
+            if (minutesAgo >= 0 && minutesAgo < MINUTE_SLOTS) {
+                minutes[(int) minutesAgo]++;
+            }
+            long daysAgo = Math.floorDiv(nowSecond, SECONDS_PER_DAY) - Math.floorDiv(second, SECONDS_PER_DAY);
+            if (daysAgo >= 0 && daysAgo < DAY_SLOTS) {
+                days[(int) daysAgo]++;
+            }
+        }
+
+        Partial merge(Partial other) {
+            transfers += other.transfers;
+            for (int source = 0; source < other.flows.length; source++) {
+                long[] row = other.flows[source];
+                for (int target = 0; row != null && target < row.length; target++) {
+                    if (row[target] != 0) {
+                        if (source >= flows.length) {
+                            flows = Arrays.copyOf(flows, other.flows.length);
+                        }
+                        if (flows[source] == null || target >= flows[source].length) {
+                            flows[source] = flows[source] == null ? new long[row.length]
+                                    : Arrays.copyOf(flows[source], row.length);
+                        }
+                        flows[source][target] += row[target];
+                    }
+                }
+            }
+            if (other.dwellCounts.length > dwellCounts.length) {
+                dwellCounts = Arrays.copyOf(dwellCounts, other.dwellCounts.length);
+                dwellMax = Arrays.copyOf(dwellMax, other.dwellCounts.length);
+            }
+            for (int department = 0; department < other.dwellCounts.length; department++) {
+                long[] counts = other.dwellCounts[department];
+                if (counts == null) {
+                    continue;
+                }
+                if (dwellCounts[department] == null) {
+                    dwellCounts[department] = counts;
+                } else {
+                    for (int i = 0; i < counts.length; i++) {
+                        dwellCounts[department][i] += counts[i];
+                    }
+                }
+                dwellMax[department] = Math.max(dwellMax[department], other.dwellMax[department]);
+            }
+            for (int i = 0; i < MINUTE_SLOTS; i++) {
+                minutes[i] += other.minutes[i];
+            }
+            for (int i = 0; i < DAY_SLOTS; i++) {
+                days[i] += other.days[i];
+            }
+            return this;
+        }
+
+        void publishTo(Aggregates aggregates) {
+            aggregates.transfers.add(transfers);
+            for (int source = 0; source < flows.length; source++) {
+                for (int target = 0; flows[source] != null && target < flows[source].length; target++) {
+                    if (flows[source][target] != 0) {
+                        aggregates.flow(source, target).add(flows[source][target]);
+                    }
+                }
+            }
+            for (int department = 0; department < dwellCounts.length; department++) {
+                if (dwellCounts[department] != null) {
+                    aggregates.dwell(department).add(dwellCounts[department], dwellMax[department]);
+                }
+            }
+            for (int ago = 0; ago < MINUTE_SLOTS; ago++) {
+                if (minutes[ago] != 0) {
+                    aggregates.perMinute.add(nowSecond - ago * SECONDS_PER_MINUTE, minutes[ago]);
+                }
+            }
+            for (int ago = 0; ago < DAY_SLOTS; ago++) {
+                if (days[ago] != 0) {
+                    aggregates.perDay.add(nowSecond - ago * SECONDS_PER_DAY, days[ago]);
+                }
+            }
+        }
+    }
+
+    // Divide os documentos ao meio até o tamanho da folha; cada folha lê os históricos compactos
+    private static final class Backfill extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+        private final Document[] documents;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final long nowSecond;
+
+        Backfill(Document[] documents, int from, int to, int leafSize, long nowSecond) {
+            this.documents = documents;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.nowSecond = nowSecond;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > leafSize) {
+                int middle = (from + to) >>> 1;
+                Backfill left = new Backfill(documents, from, middle, leafSize, nowSecond);
+                left.fork();
+                Partial right = new Backfill(documents, middle, to, leafSize, nowSecond).compute();
+                return left.join().merge(right);
+            }
+            Partial partial = new Partial(nowSecond);
+            for (int d = from; d < to; d++) {
+                // [encode, nanossegundos] por registro; a origem de cada registro é onde o anterior chegou
+                long[] history = documents[d].getEncodedHistory();
+                for (int i = 2; i < history.length; i += 2) {
+                    int source = TransferHistory.sourceOf(history[i]);
+                    if (source != 0) {
+                        partial.add(source - 1, TransferHistory.targetOf(history[i]), history[i - 1], history[i + 1]);
+                    }
+                }
+            }
+            return partial;
+        }
+    }
+
+    private volatile Aggregates aggregates = new Aggregates();
+
+    // Chamado pelo DocumentService a cada transferência aplicada; arrival é quando o documento chegou à origem
+    void recordTransfer(TransferRecord record, LocalDateTime arrival) {
+        if (record.getSource() == null) {
+            return;
+        }
+        Aggregates current = aggregates;
+        int source = TransferHistory.DEPARTMENTS.intern(record.getSource().getCode());
+        int target = TransferHistory.DEPARTMENTS.intern(record.getTarget().getCode());
+        long nanos = TransferHistory.toNanos(record.getTimestamp());
+        long second = Math.floorDiv(nanos, NANOS_PER_SECOND);
+        current.transfers.increment();
+        current.flow(source, target).increment();
+        // Como na reconstrução: diferença das datas completas, truncada em segundos
+        current.dwell(source).record(Math.floorDiv(nanos - TransferHistory.toNanos(arrival), NANOS_PER_SECOND));
+        current.perMinute.add(second, 1);
+        current.perDay.add(second, 1);
+    }
+
+    // Recalcula os agregados a partir dos históricos e substitui os atuais
+    void rebuild(Collection<Document> documents) {
+        Document[] all = documents.toArray(new Document[0]);
+        long nowSecond = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        // Algumas folhas por thread, para equilibrar a carga sem multiplicar os acumulados
+        int leafSize = Math.max(1_024, all.length / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+        Partial total = ForkJoinPool.commonPool().invoke(new Backfill(all, 0, all.length, leafSize, nowSecond));
+        Aggregates rebuilt = new Aggregates();
+        total.publishTo(rebuilt);
+        aggregates = rebuilt;
+    }
+
+    public long getTransferCount() {
+        return aggregates.transfers.sum();
+    }
+
+    // Transferências no minuto atual e nos anteriores, até 24 horas
+    public long getTransfersInLastMinutes(int minutes) {
+        return aggregates.perMinute.sum(now(), Math.min(minutes, MINUTE_SLOTS));
+    }
+
+    // Transferências no dia atual e nos anteriores, até 366 dias
+    public long getTransfersInLastDays(int days) {
+        return aggregates.perDay.sum(now(), Math.min(days, DAY_SLOTS));
+    }
+
+    public long getFlow(String sourceCode, String targetCode) {
+        int source = departmentId(sourceCode);
+        int target = departmentId(targetCode);
+        if (source < 0 || target < 0) {
+            return 0;
+        }
+        LongAdder[][] rows = aggregates.flows;
+        LongAdder[] row = source < rows.length ? rows[source] : null;
+        return row != null && target < row.length && row[target] != null ? row[target].sum() : 0;
+    }
+
+    // Origem -> destino -> transferências, só com os pares que tiveram alguma
+    public Map<String, Map<String, Long>> getFlowMatrix() {
+        Map<String, Map<String, Long>> matrix = new TreeMap<>();
+        LongAdder[][] rows = aggregates.flows;
+        for (int source = 0; source < rows.length; source++) {
+            for (int target = 0; rows[source] != null && target < rows[source].length; target++) {
+                LongAdder cell = rows[source][target];
+                if (cell != null && cell.sum() > 0) {
+                    matrix.computeIfAbsent(departmentCode(source), code -> new TreeMap<>())
+                            .put(departmentCode(target), cell.sum());
+                }
+            }
+        }
+        return matrix;
+    }
+
+    // Tempo de permanência em segundos dos documentos que já saíram do setor; nulo se nenhum saiu
+    public TransferMetrics.Snapshot getDwellTime(String departmentCode) {
+        int department = departmentId(departmentCode);
+        TransferMetrics.Histogram[] histograms = aggregates.dwell;
+        if (department < 0 || department >= histograms.length || histograms[department] == null) {
+            return null;
+        }
+        return histograms[department].snapshot();
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder("Estatísticas de transferências\n");
+        report.append(String.format("  transferências: %,d no total, %,d na última hora, %,d nas últimas 24 horas, "
+                        + "%,d nos últimos 7 dias, %,d nos últimos 30 dias%n", getTransferCount(),
+                getTransfersInLastMinutes(60), getTransfersInLastMinutes(MINUTE_SLOTS), getTransfersInLastDays(7),
+                getTransfersInLastDays(30)));
+
+        report.append("  permanência antes de sair, por setor:\n");
+        TransferMetrics.Histogram[] histograms = aggregates.dwell;
+        Map<String, TransferMetrics.Snapshot> dwellByCode = new TreeMap<>();
+        for (int department = 0; department < histograms.length; department++) {
+            if (histograms[department] != null) {
+                dwellByCode.put(departmentCode(department), histograms[department].snapshot());
+            }
+        }
+        if (dwellByCode.isEmpty()) {
+            report.append("    nenhuma saída registrada\n");
+        }
+        for (Map.Entry<String, TransferMetrics.Snapshot> entry : dwellByCode.entrySet()) {
+            TransferMetrics.Snapshot dwell = entry.getValue();
+            report.append(String.format("    %s: %,d saídas, mediana %s, p90 %s, máx %s%n", entry.getKey(),
+                    dwell.getCount(), formatDuration(dwell.valueAtPercentile(50)),
+                    formatDuration(dwell.valueAtPercentile(90)), formatDuration(dwell.getMax())));
+        }
+
+        report.append("  maiores fluxos (origem -> destino):\n");
+        List<long[]> cells = new ArrayList<>();
+        LongAdder[][] rows = aggregates.flows;
+        for (int source = 0; source < rows.length; source++) {
+            for (int target = 0; rows[source] != null && target < rows[source].length; target++) {
+                if (rows[source][target] != null && rows[source][target].sum() > 0) {
+                    cells.add(new long[] {rows[source][target].sum(), source, target});
+                }
+            }
+        }
+        cells.sort((a, b) -> Long.compare(b[0], a[0]));
+        for (long[] cell : cells.subList(0, Math.min(FLOWS_SHOWN, cells.size()))) {
+            report.append(String.format("    %s -> %s: %,d%n", departmentCode((int) cell[1]),
+                    departmentCode((int) cell[2]), cell[0]));
+        }
+        if (cells.size() > FLOWS_SHOWN) {
+            report.append(String.format("    ... mais %,d pares%n", cells.size() - FLOWS_SHOWN));
+        }
+        return report.toString();
+    }
+
+    static String formatDuration(long seconds) {
+        if (seconds < SECONDS_PER_MINUTE) {
+            return seconds + "s";
+        }
+        if (seconds < 3_600) {
+            return String.format("%dmin %02ds", seconds / 60, seconds % 60);
+        }
+        if (seconds < SECONDS_PER_DAY) {
+            return String.format("%dh %02dmin", seconds / 3_600, seconds % 3_600 / 60);
+        }
+        return String.format("%dd %02dh", seconds / SECONDS_PER_DAY, seconds % SECONDS_PER_DAY / 3_600);
+    }
+
+    private static long now() {
+        return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int departmentId(String code) {
+        return TransferHistory.DEPARTMENTS.find(code);
+    }
+
+    private static String departmentCode(int department) {
+        return TransferHistory.departmentCode(department);
+    }
+}
@@ -0,0 +1,714 @@
+package dms;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Registro global, só de acréscimo, das transferências de todos os documentos
+//
+// Cada registro recebe uma posição sequencial e ocupa colunas em blocos de tamanho fixo: id do
+// documento, setores e motivo codificados como no TransferHistory, e a data em nanossegundos.
+// Quatro índices apontam para as posições em ordem de data (e de posição, no empate): um geral,
+// um por setor de origem, um por setor de destino e um por par origem/destino. Cada índice é uma
+// lista de faixas de tempo com até BLOCK_CAPACITY posições ordenadas; uma faixa cheia se divide
+// ao meio, então registros em ordem de data, o caso normal, só escrevem no fim da última faixa, e
+// registros antigos (históricos carregados na recuperação) entram no meio sem mover o resto.
+//
+// Uma consulta usa o índice dos filtros pedidos, acha o início do intervalo com duas buscas
+// binárias e percorre só as posições dentro dele: o custo acompanha o tamanho do resultado, não
+// o do acervo. Uma página continua do cursor da anterior (data e posição do último registro
+// devolvido), então registros acrescentados entre duas páginas não deslocam as seguintes.
+//
+// As transferências não passam pelo lock global: cada uma entra no buffer do seu stripe (o mesmo
+// particionamento por documento do DocumentService, então a ordem de um documento se mantém), e os
+// buffers são juntados aos índices de uma vez, em ordem de data, com o write lock. A junção é feita
+// pela próxima consulta ou por quem encher um buffer, se o lock estiver livre. Leituras usam o read
+// lock uma página por vez: percorrer um resultado grande não segura as junções até o fim.
+class TransferAuditLog {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int BLOCK_CAPACITY = 512;
+    private static final int STREAM_PAGE_SIZE = 1_024;
+    // Registros num buffer a partir dos quais quem acrescenta tenta juntá-los aos índices
+    private static final int MERGE_THRESHOLD = 1_024;
+
+    // Filtros de uma consulta; datas e setores nulos não restringem
+    static final class Query {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final String sourceCode;
+        private final String targetCode;
+
+        // De from (inclusive) até to (exclusive), saindo de sourceCode e entrando em targetCode
+        Query(LocalDateTime from, LocalDateTime to, String sourceCode, String targetCode) {
+            this.from = from;
+            this.to = to;
+            this.sourceCode = sourceCode;
+            this.targetCode = targetCode;
+        }
+
+        public LocalDateTime getFrom() {
+            return from;
+        }
+
+        public LocalDateTime getTo() {
+            return to;
+        }
+
+        public String getSourceCode() {
+            return sourceCode;
+        }
+
+        public String getTargetCode() {
+            return targetCode;
+        }
+    }
+
+    static final class Entry {
+        private final int position;
+        private final String documentId;
+        private final TransferRecord record;
+
+        Entry(int position, String documentId, TransferRecord record) {
+            this.position = position;
+            this.documentId = documentId;
+            this.record = record;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public TransferRecord getRecord() {
+            return record;
+        }
+
+        @Override
+        public String toString() {
+            return documentId + " " + record;
+        }
+    }
+
+    // Ponto de continuação: a próxima página começa no primeiro registro depois deste
+    static final class Cursor {
+        private final long nanos;
+        private final int position;
+
+        Cursor(long nanos, int position) {
+            this.nanos = nanos;
+            this.position = position;
+        }
+
+        // Forma textual "nanos:posição", devolvida aos clientes da API HTTP para pedir a página seguinte
+        static Cursor parse(String text) {
+            int separator = text.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cursor inválido: " + text);
+            }
+            try {
+                return new Cursor(Long.parseLong(text.substring(0, separator)),
+                        Integer.parseInt(text.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + text);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return nanos + ":" + position;
+        }
+    }
+
+    static final class Page {
+        private final List<Entry> entries;
+        private final Cursor next;
+
+        Page(List<Entry> entries, Cursor next) {
+            this.entries = entries;
+            this.next = next;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        // Nulo quando não há mais registros no intervalo
+        public Cursor getNext() {
+            return next;
+        }
+    }
+
+    // Faixa de um índice: posições ordenadas por data e posição
+    private static final class Block {
+        int[] positions = new int[8];
+        int size;
+    }
+
+    // Registros de um stripe ainda fora dos índices, na ordem em que chegaram. Acesso com o monitor
+    // do próprio buffer; size pode ser lido sem ele para saber se há algo a juntar.
+    private static final class Pending {
+        long[] metas;
+        long[] nanos;
+        String[] documentIds;
+        volatile int size;
+
+        Pending(int capacity) {
+            metas = new long[capacity];
+            nanos = new long[capacity];
+            documentIds = new String[capacity];
+        }
+
+        // Devolve os registros acumulados e recomeça vazio
+        synchronized Pending drain() {
+            Pending drained = new Pending(0);
+            drained.metas = metas;
+            drained.nanos = nanos;
+            drained.documentIds = documentIds;
+            drained.size = size;
+            metas = new long[64];
+            nanos = new long[64];
+            documentIds = new String[64];
+            size = 0;
+            return drained;
+        }
+
+        void add(String documentId, long meta, long timestamp) {
+            if (size == metas.length) {
+                metas = Arrays.copyOf(metas, size * 2);
+                nanos = Arrays.copyOf(nanos, size * 2);
+                documentIds = Arrays.copyOf(documentIds, size * 2);
+            }
+            metas[size] = meta;
+            nanos[size] = timestamp;
+            documentIds[size] = documentId;
+            size++;
+        }
+    }
+
+    // Índice em ordem de data sobre um subconjunto das posições
+    private final class TimeIndex {
+        private final ArrayList<Block> blocks = new ArrayList<>();
+
+        void insert(int position, long nanos) {
+            if (blocks.isEmpty()) {
+                blocks.add(new Block());
+            }
+            // A posição nova é a maior de todas: fica depois de todos os registros com data até a dela
+            int b = blocks.size() - 1;
+            Block block = blocks.get(b);
+            if (block.size > 0 && nanosAt(block.positions[block.size - 1]) > nanos) {
+                b = firstBlockAfter(nanos);
+                block = blocks.get(b);
+            }
+            int offset = firstAfter(block, nanos);
+            if (block.size == BLOCK_CAPACITY) {
+                Block upper = new Block();
+                if (offset == BLOCK_CAPACITY && b == blocks.size() - 1) {
+                    // Acréscimo no fim: começar uma faixa nova em vez de deixar duas pela metade
+                    blocks.add(upper);
+                    block = upper;
+                    offset = 0;
+                } else {
+                    int half = BLOCK_CAPACITY / 2;
+                    upper.positions = Arrays.copyOfRange(block.positions, half, BLOCK_CAPACITY);
+                    upper.size = BLOCK_CAPACITY - half;
+                    block.size = half;
+                    blocks.add(b + 1, upper);
+                    if (offset > half) {
+                        block = upper;
+                        offset -= half;
+                    }
+                }
+            }
+            if (block.size == block.positions.length) {
+                block.positions = Arrays.copyOf(block.positions, Math.min(BLOCK_CAPACITY, block.size * 2));
+            }
+            System.arraycopy(block.positions, offset, block.positions, offset + 1, block.size - offset);
+            block.positions[offset] = position;
+            block.size++;
+        }
+
+        // Faixa onde entra um registro com esta data: a primeira cujo último registro é mais novo
+        private int firstBlockAfter(long nanos) {
+            int low = 0;
+            int high = blocks.size() - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                Block block = blocks.get(middle);
+                if (nanosAt(block.positions[block.size - 1]) > nanos) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        // Tira a posição do índice, se estiver nele
+        void remove(int position, long nanos) {
+            int b = firstBlockAfter(nanos, position - 1);
+            if (b == blocks.size()) {
+                return;
+            }
+            Block block = blocks.get(b);
+            int offset = firstAfter(block, nanos, position - 1);
+            if (offset == block.size || block.positions[offset] != position) {
+                return;
+            }
+            System.arraycopy(block.positions, offset + 1, block.positions, offset, block.size - offset - 1);
+            // As buscas leem o último registro de cada faixa: faixas vazias saem da lista
+            if (--block.size == 0) {
+                blocks.remove(b);
+            }
+        }
+
+        // Primeira posição com exatamente esta data que satisfaz match, ou -1
+        int find(long nanos, IntPredicate match) {
+            int b = firstBlockAfter(nanos, -1);
+            int offset = b < blocks.size() ? firstAfter(blocks.get(b), nanos, -1) : 0;
+            for (; b < blocks.size(); b++, offset = 0) {
+                Block block = blocks.get(b);
+                for (; offset < block.size; offset++) {
+                    int current = block.positions[offset];
+                    if (nanosAt(current) != nanos) {
+                        return -1;
+                    }
+                    if (match.test(current)) {
+                        return current;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private int firstAfter(Block block, long nanos) {
+            int low = 0;
+            int high = block.size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (nanosAt(block.positions[middle]) > nanos) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        // Registros depois de (nanos, position), em ordem, até toNanos (exclusive) ou limit registros.
+        // Devolve o cursor do último registro se ainda houver outro no intervalo, senão nulo.
+        Cursor collect(long nanos, int position, long toNanos, int limit, List<Entry> result) {
+            int b = firstBlockAfter(nanos, position);
+            int offset = b < blocks.size() ? firstAfter(blocks.get(b), nanos, position) : 0;
+            int last = -1;
+            for (; b < blocks.size(); b++, offset = 0) {
+                Block block = blocks.get(b);
+                for (; offset < block.size; offset++) {
+                    int current = block.positions[offset];
+                    if (nanosAt(current) >= toNanos) {
+                        return null;
+                    }
+                    if (result.size() == limit) {
+                        return new Cursor(nanosAt(last), last);
+                    }
+                    result.add(entryAt(current));
+                    last = current;
+                }
+            }
+            return null;
+        }
+
+        private int firstBlockAfter(long nanos, int position) {
+            int low = 0;
+            int high = blocks.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                Block block = blocks.get(middle);
+                if (after(block.positions[block.size - 1], nanos, position)) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        private int firstAfter(Block block, long nanos, int position) {
+            int low = 0;
+            int high = block.size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (after(block.positions[middle], nanos, position)) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        private boolean after(int current, long nanos, int position) {
+            long currentNanos = nanosAt(current);
+            return currentNanos > nanos || currentNanos == nanos && current > position;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Pending[] pending;
+    private final int pendingMask;
+    private long[][] metas = new long[16][];
+    private long[][] timestamps = new long[16][];
+    private String[][] documentIds = new String[16][];
+    private int size;
+    // Posições de históricos substituídos, fora de todos os índices
+    private int removed;
+    private TimeIndex all = new TimeIndex();
+    // Por id de origem (0 é a criação do documento) e de destino, como em TransferHistory
+    private TimeIndex[] bySource = new TimeIndex[16];
+    private TimeIndex[] byTarget = new TimeIndex[16];
+    private TimeIndex[][] byPair = new TimeIndex[16][];
+    // Setor de cada código, resolvido ao montar as entradas
+    private final Function<String, Department> departments;
+
+    // stripes: quantos buffers de entrada, arredondado para potência de dois
+    TransferAuditLog(Function<String, Department> departments, int stripes) {
+        this.departments = departments;
+        int buffers = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.pending = new Pending[buffers];
+        for (int i = 0; i < buffers; i++) {
+            pending[i] = new Pending(64);
+        }
+        this.pendingMask = buffers - 1;
+    }
+
+    private Pending pendingFor(String documentId) {
+        int h = documentId.hashCode();
+        return pending[(h ^ (h >>> 16)) & pendingMask];
+    }
+
+    public void append(String documentId, TransferRecord record) {
+        long meta = TransferHistory.encode(record.getSource(), record.getTarget(), record.getReason());
+        long nanos = TransferHistory.toNanos(record.getTimestamp());
+        Pending buffer = pendingFor(documentId);
+        int buffered;
+        synchronized (buffer) {
+            buffer.add(documentId, meta, nanos);
+            buffered = buffer.size;
+        }
+        mergeIfFull(buffered);
+    }
+
+    // Histórico inteiro de um documento, no formato de TransferHistory.encoded()
+    public void appendAll(String documentId, long[] encoded) {
+        Pending buffer = pendingFor(documentId);
+        int buffered;
+        synchronized (buffer) {
+            for (int i = 0; i < encoded.length; i += 2) {
+                buffer.add(documentId, encoded[i], encoded[i + 1]);
+            }
+            buffered = buffer.size;
+        }
+        mergeIfFull(buffered);
+    }
+
+    // Documento substituído: os registros do histórico anterior depois do trecho em comum com o novo
+    // saem do registro e os do novo entram no lugar. Chamado com o lock do documento, então tudo o
+    // que o histórico anterior acrescentou já está nos buffers.
+    public void replace(String documentId, long[] previous, long[] encoded) {
+        int mismatch = Arrays.mismatch(previous, encoded);
+        if (mismatch < 0) {
+            return;
+        }
+        int common = mismatch / 2 * 2;
+        lock.writeLock().lock();
+        try {
+            merge();
+            for (int i = common; i < previous.length; i += 2) {
+                remove(documentId, previous[i], previous[i + 1]);
+            }
+            for (int i = common; i < encoded.length; i += 2) {
+                add(documentId, encoded[i], encoded[i + 1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Buffer cheio: juntar agora se ninguém estiver lendo ou juntando, senão fica para o próximo
+    private void mergeIfFull(int buffered) {
+        if (buffered >= MERGE_THRESHOLD && lock.writeLock().tryLock()) {
+            try {
+                merge();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private boolean hasPending() {
+        for (Pending buffer : pending) {
+            if (buffer.size > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Com o write lock: esvazia os buffers e intercala os registros pela data, então quase todos
+    // entram no fim da última faixa de cada índice. Cada buffer é consumido na ordem em que chegou,
+    // o que mantém a ordem dos registros de um mesmo documento; o que vier fora de ordem entra no
+    // meio das faixas como os históricos antigos.
+    private void merge() {
+        List<Pending> drained = new ArrayList<>();
+        for (Pending buffer : pending) {
+            if (buffer.size > 0) {
+                drained.add(buffer.drain());
+            }
+        }
+        int[] cursors = new int[drained.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, drained.size()),
+                Comparator.comparingLong((Integer b) -> drained.get(b).nanos[cursors[b]]).thenComparingInt(b -> b));
+        for (int b = 0; b < drained.size(); b++) {
+            heads.add(b);
+        }
+        while (!heads.isEmpty()) {
+            int b = heads.poll();
+            Pending buffer = drained.get(b);
+            int i = cursors[b]++;
+            add(buffer.documentIds[i], buffer.metas[i], buffer.nanos[i]);
+            if (cursors[b] < buffer.size) {
+                heads.add(b);
+            }
+        }
+    }
+
+    // Leitura com os buffers já juntados: quem consulta vê tudo o que foi acrescentado antes
+    private void lockForRead() {
+        if (hasPending()) {
+            lock.writeLock().lock();
+            try {
+                merge();
+                lock.readLock().lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else {
+            lock.readLock().lock();
+        }
+    }
+
+    private void add(String documentId, long meta, long nanos) {
+        int position = size;
+        int chunk = position >>> CHUNK_BITS;
+        if (chunk == metas.length) {
+            metas = Arrays.copyOf(metas, chunk * 2);
+            timestamps = Arrays.copyOf(timestamps, chunk * 2);
+            documentIds = Arrays.copyOf(documentIds, chunk * 2);
+        }
+        if (metas[chunk] == null) {
+            metas[chunk] = new long[CHUNK_SIZE];
+            timestamps[chunk] = new long[CHUNK_SIZE];
+            documentIds[chunk] = new String[CHUNK_SIZE];
+        }
+        metas[chunk][position & CHUNK_MASK] = meta;
+        timestamps[chunk][position & CHUNK_MASK] = nanos;
+        documentIds[chunk][position & CHUNK_MASK] = documentId;
+        size = position + 1;
+
+        int source = TransferHistory.sourceOf(meta);
+        int target = TransferHistory.targetOf(meta);
+        all.insert(position, nanos);
+        sourceIndex(source).insert(position, nanos);
+        targetIndex(target).insert(position, nanos);
+        pairIndex(source, target).insert(position, nanos);
+    }
+
+    private void remove(String documentId, long meta, long nanos) {
+        int position = all.find(nanos, current -> documentId.equals(documentIdAt(current)) && metaAt(current) == meta);
+        if (position < 0) {
+            return;
+        }
+        int source = TransferHistory.sourceOf(meta);
+        int target = TransferHistory.targetOf(meta);
+        all.remove(position, nanos);
+        sourceIndex(source).remove(position, nanos);
+        targetIndex(target).remove(position, nanos);
+        pairIndex(source, target).remove(position, nanos);
+        documentIds[position >>> CHUNK_BITS][position & CHUNK_MASK] = null;
+        removed++;
+    }
+
+    private TimeIndex sourceIndex(int source) {
+        if (source >= bySource.length) {
+            bySource = Arrays.copyOf(bySource, Math.max(source + 1, bySource.length * 2));
+        }
+        if (bySource[source] == null) {
+            bySource[source] = new TimeIndex();
+        }
+        return bySource[source];
+    }
+
+    private TimeIndex targetIndex(int target) {
+        if (target >= byTarget.length) {
+            byTarget = Arrays.copyOf(byTarget, Math.max(target + 1, byTarget.length * 2));
+        }
+        if (byTarget[target] == null) {
+            byTarget[target] = new TimeIndex();
+        }
+        return byTarget[target];
+    }
+
+    private TimeIndex pairIndex(int source, int target) {
+        if (source >= byPair.length) {
+            byPair = Arrays.copyOf(byPair, Math.max(source + 1, byPair.length * 2));
+        }
+        TimeIndex[] targets = byPair[source];
+        if (targets == null || target >= targets.length) {
+            targets = targets == null ? new TimeIndex[Math.max(16, target + 1)]
+                    : Arrays.copyOf(targets, Math.max(target + 1, targets.length * 2));
+            byPair[source] = targets;
+        }
+        if (targets[target] == null) {
+            targets[target] = new TimeIndex();
+        }
+        return targets[target];
+    }
+
+    private long nanosAt(int position) {
+        return timestamps[position >>> CHUNK_BITS][position & CHUNK_MASK];
+    }
+
+    private long metaAt(int position) {
+        return metas[position >>> CHUNK_BITS][position & CHUNK_MASK];
+    }
+
+    private String documentIdAt(int position) {
+        return documentIds[position >>> CHUNK_BITS][position & CHUNK_MASK];
+    }
+
+    private Entry entryAt(int position) {
+        int chunk = position >>> CHUNK_BITS;
+        int offset = position & CHUNK_MASK;
+        return new Entry(position, documentIds[chunk][offset],
+                TransferHistory.decode(metas[chunk][offset], timestamps[chunk][offset], departments));
+    }
+
+    public int size() {
+        lockForRead();
+        try {
+            return size - removed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Até limit registros da consulta, em ordem de data, a partir do cursor (nulo para o início)
+    public Page query(Query query, Cursor after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Tamanho de página inválido: " + limit);
+        }
+        long fromNanos = query.getFrom() == null ? Long.MIN_VALUE : TransferHistory.toNanos(query.getFrom());
+        long toNanos = query.getTo() == null ? Long.MAX_VALUE : TransferHistory.toNanos(query.getTo());
+        // Sem cursor, a posição -1 inclui os registros com a data exata de from
+        long nanos = after == null ? fromNanos : after.nanos;
+        int position = after == null ? -1 : after.position;
+        int source = query.getSourceCode() == null ? -1 : TransferHistory.DEPARTMENTS.find(query.getSourceCode());
+        int target = query.getTargetCode() == null ? -1 : TransferHistory.DEPARTMENTS.find(query.getTargetCode());
+        if (query.getSourceCode() != null && source < 0 || query.getTargetCode() != null && target < 0) {
+            return new Page(Collections.emptyList(), null);
+        }
+
+        List<Entry> entries = new ArrayList<>(Math.min(limit, 1_024));
+        lockForRead();
+        try {
+            TimeIndex index = indexFor(source < 0 ? -1 : source + 1, target);
+            Cursor next = index == null ? null : index.collect(nanos, position, toNanos, limit, entries);
+            return new Page(entries, next);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Índice mais seletivo para os filtros; nulo se a combinação nunca apareceu
+    private TimeIndex indexFor(int source, int target) {
+        if (source >= 0 && target >= 0) {
+            TimeIndex[] targets = source < byPair.length ? byPair[source] : null;
+            return targets != null && target < targets.length ? targets[target] : null;
+        }
+        if (source >= 0) {
+            return source < bySource.length ? bySource[source] : null;
+        }
+        if (target >= 0) {
+            return target < byTarget.length ? byTarget[target] : null;
+        }
+        return all;
+    }
+
+    // Todos os registros da consulta, lidos em páginas à medida que o stream avança
+    public Stream<Entry> stream(Query query) {
+        Spliterator<Entry> pages = new Spliterators.AbstractSpliterator<Entry>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private List<Entry> buffer = Collections.emptyList();
+            private int next;
+            private Cursor cursor;
+            private boolean finished;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Entry> action) {
+                if (next == buffer.size()) {
+                    if (finished) {
+                        return false;
+                    }
+                    Page page = query(query, cursor, STREAM_PAGE_SIZE);
+                    buffer = page.getEntries();
+                    next = 0;
+                    cursor = page.getNext();
+                    finished = cursor == null;
+                    if (buffer.isEmpty()) {
+                        return false;
+                    }
+                }
+                action.accept(buffer.get(next++));
+                return true;
+            }
+        };
+        return StreamSupport.stream(pages, false);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (Pending buffer : pending) {
+                buffer.drain();
+            }
+            metas = new long[16][];
+            timestamps = new long[16][];
+            documentIds = new String[16][];
+            size = 0;
+            removed = 0;
+            all = new TimeIndex();
+            bySource = new TimeIndex[16];
+            byTarget = new TimeIndex[16];
+            byPair = new TimeIndex[16][];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
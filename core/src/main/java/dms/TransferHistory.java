@@ -0,0 +1,217 @@
+package dms;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Histórico de transferências de um documento em formato compacto
+//
+// Cada registro ocupa dois longs num único array: no primeiro vão os ids de origem, destino e
+// motivo (códigos de setor e motivos ficam num dicionário compartilhado por todos os documentos, com
+// os motivos mais comuns pré-cadastrados), no segundo a data em nanossegundos desde 1970. Objetos
+// TransferRecord só são criados quando alguém lê o registro, e o setor de cada código é pedido a
+// quem lê (no DocumentService, os setores registrados nele): um setor registrado de novo com outro
+// nome aparece com o nome atual em todos os históricos.
+//
+// Um único escritor por vez (o DocumentService serializa as escritas de cada documento pelo
+// lock do stripe) e leitores sem lock: o array é publicado antes do tamanho, então qualquer
+// posição abaixo do tamanho lido já está visível. A visão devolvida por view() fica com o
+// tamanho do momento em que foi criada, como um snapshot.
+class TransferHistory {
+    static final String CREATION_REASON = "Criação do documento";
+    static final String MANUAL_REASON = "Transferência manual";
+    static final String BATCH_REASON = "Transferência em lote";
+    static final String SUBTREE_REASON = "Transferência de setor com subsetores";
+
+    private static final int DEPARTMENT_BITS = 21;
+    private static final int REASON_BITS = 64 - 2 * DEPARTMENT_BITS;
+    private static final long DEPARTMENT_MASK = (1L << DEPARTMENT_BITS) - 1;
+    private static final long REASON_MASK = (1L << REASON_BITS) - 1;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // Dicionário de códigos de setor e de motivos compartilhado por todos os históricos
+    static final class Dictionary {
+        private final ConcurrentHashMap<Object, Integer> ids = new ConcurrentHashMap<>();
+        private volatile Object[] values = new Object[16];
+        private int size;
+        private final long limit;
+
+        Dictionary(long limit) {
+            this.limit = limit;
+        }
+
+        int intern(Object value) {
+            Integer id = ids.get(value);
+            return id != null ? id : add(value);
+        }
+
+        private synchronized int add(Object value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (size == limit) {
+                throw new IllegalStateException("Dicionário do histórico cheio: " + limit + " valores distintos");
+            }
+            Object[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            // Publicar o array antes do id: quem ler o id encontra o valor
+            values = current;
+            ids.put(value, size);
+            return size++;
+        }
+
+        Object get(int id) {
+            return values[id];
+        }
+
+        // Id de um valor já cadastrado, sem cadastrar; -1 se nunca apareceu
+        int find(Object value) {
+            Integer id = ids.get(value);
+            return id == null ? -1 : id;
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+
+    static final Dictionary DEPARTMENTS = new Dictionary(DEPARTMENT_MASK);
+    static final Dictionary REASONS = new Dictionary(REASON_MASK + 1);
+
+    static {
+        REASONS.intern(CREATION_REASON);
+        REASONS.intern(MANUAL_REASON);
+        REASONS.intern(BATCH_REASON);
+        REASONS.intern(SUBTREE_REASON);
+    }
+
+    private volatile long[] records;
+    private volatile int size;
+
+    TransferHistory(int capacity) {
+        this.records = new long[Math.max(1, capacity) * 2];
+    }
+
+    static TransferHistory of(List<TransferRecord> history) {
+        TransferHistory compact = new TransferHistory(history.size());
+        for (TransferRecord record : history) {
+            compact.append(record.getSource(), record.getTarget(), record.getReason(), record.getTimestamp());
+        }
+        return compact;
+    }
+
+    // Origem nula (criação do documento) vira o id 0; os demais setores são deslocados em um
+    static long encode(Department source, Department target, String reason) {
+        return ((source == null ? 0L : DEPARTMENTS.intern(source.getCode()) + 1L) << (DEPARTMENT_BITS + REASON_BITS))
+                | ((long) DEPARTMENTS.intern(target.getCode()) << REASON_BITS)
+                | REASONS.intern(reason);
+    }
+
+    static long toNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + timestamp.getNano();
+    }
+
+    // Id da origem no formato de encode: 0 para a criação, id do setor + 1 para os demais
+    static int sourceOf(long meta) {
+        return (int) (meta >>> (DEPARTMENT_BITS + REASON_BITS));
+    }
+
+    static int targetOf(long meta) {
+        return (int) ((meta >>> REASON_BITS) & DEPARTMENT_MASK);
+    }
+
+    void append(Department source, Department target, String reason, LocalDateTime timestamp) {
+        long meta = encode(source, target, reason);
+        long nanos = toNanos(timestamp);
+
+        int index = size;
+        long[] current = records;
+        if (index * 2 == current.length) {
+            current = Arrays.copyOf(current, current.length + Math.max(2, current.length / 2 & ~1));
+        }
+        current[index * 2] = meta;
+        current[index * 2 + 1] = nanos;
+        records = current;
+        size = index + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Cópia dos registros no formato interno (encode e nanossegundos, alternados), sem montar objetos
+    long[] encoded() {
+        int encodedSize = size;
+        return Arrays.copyOf(records, encodedSize * 2);
+    }
+
+    TransferRecord get(int index, Function<String, Department> departments) {
+        return decode(records, index, departments);
+    }
+
+    // Snapshot dos registros existentes agora; os registros só são montados ao serem lidos
+    List<TransferRecord> view(Function<String, Department> departments) {
+        int viewSize = size;
+        long[] viewRecords = records;
+        return new HistoryView(viewRecords, viewSize, departments);
+    }
+
+    private static TransferRecord decode(long[] records, int index, Function<String, Department> departments) {
+        return decode(records[index * 2], records[index * 2 + 1], departments);
+    }
+
+    static TransferRecord decode(long meta, long nanos, Function<String, Department> departments) {
+        int source = sourceOf(meta);
+        int target = targetOf(meta);
+        int reason = (int) (meta & REASON_MASK);
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+        return new TransferRecord(source == 0 ? null : department(source - 1, departments),
+                department(target, departments), (String) REASONS.get(reason), timestamp);
+    }
+
+    static String departmentCode(int department) {
+        return (String) DEPARTMENTS.get(department);
+    }
+
+    private static Department department(int id, Function<String, Department> departments) {
+        String code = departmentCode(id);
+        Department department = departments.apply(code);
+        // Setor que quem lê não conhece (documento com um setor nunca registrado): só o código
+        return department != null ? department : new Department(code, code);
+    }
+
+    private static final class HistoryView extends AbstractList<TransferRecord> implements RandomAccess {
+        private final long[] records;
+        private final int size;
+        private final Function<String, Department> departments;
+
+        HistoryView(long[] records, int size, Function<String, Department> departments) {
+            this.records = records;
+            this.size = size;
+            this.departments = departments;
+        }
+
+        @Override
+        public TransferRecord get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Registro " + index + " de " + size);
+            }
+            return decode(records, index, departments);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package dms;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Métricas das transferências e do agendador: latência, vazão, falhas por motivo e atraso da fila
+//
+// Cada medição custa uma chamada a System.nanoTime e um incremento atômico num histograma no
+// estilo do HdrHistogram: faixas por potência de dois divididas em 128 partes iguais, o que dá
+// erro relativo abaixo de 1% de nanossegundos a minutos sem alocar nem travar. Cada histograma tem
+// uma cópia por grupo de threads para que threads diferentes não disputem a mesma linha de cache;
+// as leituras (JMX e relatório periódico) somam as cópias. Com -Ddms.metrics=false, ou
+// setEnabled(false), sobra só a leitura de um campo volatile por transferência.
+final class TransferMetrics implements TransferMetricsMXBean {
+    static final String MBEAN_NAME = "dms:type=TransferMetrics";
+
+    // Histograma concorrente de valores não negativos. Os acima do limite contam no último bucket,
+    // mas entram inteiros no máximo, que é o valor informado para esse bucket.
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // 2^37 - 1 unidades: 137 s em nanossegundos, mais de quatro anos em milissegundos
+        private static final int MAX_MAGNITUDE = 36;
+        static final long HIGHEST_TRACKABLE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+        static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS;
+        // Depois dos buckets, o máximo de cada cópia
+        private static final int MAX_SLOT = BUCKETS;
+
+        private final AtomicLongArray[] stripes;
+        private final int stripeMask;
+
+        Histogram() {
+            this(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        }
+
+        // Cada cópia ocupa cerca de 31 KB; histogramas com pouca disputa podem usar uma só
+        Histogram(int stripeLimit) {
+            int stripeCount = Integer.highestOneBit(Math.max(1, stripeLimit));
+            this.stripes = new AtomicLongArray[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new AtomicLongArray(BUCKETS + 1);
+            }
+            this.stripeMask = stripeCount - 1;
+        }
+
+        static int indexFor(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+        }
+
+        // Maior valor que cai no mesmo bucket, o que o HdrHistogram informa nos percentis
+        static long highestEquivalent(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index >>> SUB_BUCKET_BITS) - 1;
+            long lowest = (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+
+        void record(long value) {
+            long positive = Math.max(0, value);
+            AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+            stripe.incrementAndGet(indexFor(Math.min(positive, HIGHEST_TRACKABLE)));
+            long max;
+            while (positive > (max = stripe.get(MAX_SLOT)) && !stripe.compareAndSet(MAX_SLOT, max, positive)) {
+                // Outra thread do mesmo grupo registrou um máximo no meio: reler
+            }
+        }
+
+        // Soma contagens já agrupadas nos buckets deste histograma (BUCKETS posições, de indexFor)
+        void add(long[] counts, long max) {
+            AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+            for (int i = 0; i < BUCKETS; i++) {
+                if (counts[i] != 0) {
+                    stripe.addAndGet(i, counts[i]);
+                }
+            }
+            long current;
+            while (max > (current = stripe.get(MAX_SLOT)) && !stripe.compareAndSet(MAX_SLOT, current, max)) {
+                // Outra thread do mesmo grupo registrou um máximo no meio: reler
+            }
+        }
+
+        Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long max = 0;
+            for (AtomicLongArray stripe : stripes) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += stripe.get(i);
+                }
+                max = Math.max(max, stripe.get(MAX_SLOT));
+            }
+            return new Snapshot(counts, max);
+        }
+    }
+
+    // Contagens de um histograma num instante; since() dá as medições de um intervalo
+    static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long bucket : counts) {
+                total += bucket;
+            }
+            this.count = total;
+            this.max = max;
+        }
+
+        // O máximo do intervalo é estimado pelo bucket mais alto com medições nele
+        Snapshot since(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            int highest = -1;
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+                if (delta[i] > 0) {
+                    highest = i;
+                }
+            }
+            return new Snapshot(delta, highest < 0 ? 0 : valueAt(highest));
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getMax() {
+            return max;
+        }
+
+        // Pelo meio de cada bucket, como no HdrHistogram: poupa um incremento atômico por medição
+        double getMean() {
+            if (count == 0) {
+                return 0;
+            }
+            double total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    long highest = valueAt(i);
+                    long lowest = i == 0 ? 0 : Math.min(Histogram.highestEquivalent(i - 1) + 1, highest);
+                    total += counts[i] * ((lowest + highest) / 2.0);
+                }
+            }
+            return total / count;
+        }
+
+        long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return valueAt(i);
+                }
+            }
+            return max;
+        }
+
+        private long valueAt(int index) {
+            return index == counts.length - 1 ? max : Math.min(Histogram.highestEquivalent(index), max);
+        }
+    }
+
+    private volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("dms.metrics"));
+    // transferDocument e transferDocuments em nanossegundos, atraso do agendador em milissegundos
+    private final Histogram transferLatency = new Histogram();
+    private final Histogram batchLatency = new Histogram();
+    private final Histogram schedulerLag = new Histogram();
+    // Itens por resultado, somando transferências individuais e itens de lotes
+    private final LongAdder[] outcomes = new LongAdder[TransferStatus.values().length];
+    private final LongAdder batchItems = new LongAdder();
+    // Agendador cujo estado aparece nos relatórios; o último iniciado com este serviço
+    private volatile AutomaticTransferScheduler scheduler;
+    private ScheduledExecutorService dumpExecutor;
+
+    TransferMetrics() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Início de uma medição; 0 com a coleta desligada, e as medições iniciadas assim são ignoradas
+    long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void recordTransfer(long startNanos, TransferStatus status) {
+        if (startNanos == 0) {
+            return;
+        }
+        if (status == TransferStatus.TRANSFERRED) {
+            transferLatency.record(System.nanoTime() - startNanos);
+        }
+        outcomes[status.ordinal()].increment();
+    }
+
+    void recordBatch(long startNanos, TransferStatus[] statuses) {
+        if (startNanos == 0) {
+            return;
+        }
+        batchLatency.record(System.nanoTime() - startNanos);
+        batchItems.add(statuses.length);
+        int[] counts = new int[outcomes.length];
+        for (TransferStatus status : statuses) {
+            counts[status.ordinal()]++;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                outcomes[i].add(counts[i]);
+            }
+        }
+    }
+
+    void recordSchedulerLag(long lagMillis) {
+        if (enabled) {
+            schedulerLag.record(lagMillis);
+        }
+    }
+
+    void bindScheduler(AutomaticTransferScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // Registra no servidor JMX da plataforma, substituindo métricas registradas antes com o mesmo nome
+    void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            EventLog.warn("Falha ao registrar as métricas no JMX", "erro", e.getMessage());
+        }
+    }
+
+    // Escreve o relatório do intervalo a cada período, numa thread de fundo; a saída é obtida a cada relatório
+    synchronized void startPeriodicDump(long period, TimeUnit unit, Supplier<PrintStream> output) {
+        stopPeriodicDump();
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "transfer-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Sample[] previous = {sample()};
+        dumpExecutor.scheduleAtFixedRate(() -> {
+            Sample current = sample();
+            output.get().print(describe(current, previous[0]));
+            previous[0] = current;
+        }, period, period, unit);
+    }
+
+    synchronized void stopPeriodicDump() {
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            dumpExecutor = null;
+        }
+    }
+
+    // Relatório desde o início do processo
+    @Override
+    public String dump() {
+        return describe(sample(), null);
+    }
+
+    // Leitura de todos os contadores num instante, para calcular o intervalo entre dois relatórios
+    private final class Sample {
+        final long nanos = System.nanoTime();
+        final Snapshot transfers = transferLatency.snapshot();
+        final Snapshot batches = batchLatency.snapshot();
+        final Snapshot lag = schedulerLag.snapshot();
+        final long[] outcomeCounts = new long[outcomes.length];
+        final long items = batchItems.sum();
+
+        Sample() {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomeCounts[i] = outcomes[i].sum();
+            }
+        }
+    }
+
+    private Sample sample() {
+        return new Sample();
+    }
+
+    private String describe(Sample current, Sample previous) {
+        Snapshot transfers = previous == null ? current.transfers : current.transfers.since(previous.transfers);
+        Snapshot batches = previous == null ? current.batches : current.batches.since(previous.batches);
+        Snapshot lag = previous == null ? current.lag : current.lag.since(previous.lag);
+        long[] outcomeCounts = current.outcomeCounts.clone();
+        long items = current.items;
+        if (previous != null) {
+            for (int i = 0; i < outcomeCounts.length; i++) {
+                outcomeCounts[i] -= previous.outcomeCounts[i];
+            }
+            items -= previous.items;
+        }
+
+        StringBuilder text = new StringBuilder();
+        if (previous == null) {
+            text.append("Métricas de transferência desde o início").append(enabled ? "" : " (coleta desligada)");
+        } else {
+            double seconds = (current.nanos - previous.nanos) / 1e9;
+            text.append(String.format("Métricas de transferência nos últimos %.0f s: %,.1f transferências/s", seconds,
+                    outcomeCounts[TransferStatus.TRANSFERRED.ordinal()] / seconds));
+        }
+        text.append('\n');
+        text.append(String.format("  resultados: transferidas %,d", outcomeCounts[TransferStatus.TRANSFERRED.ordinal()]));
+        for (TransferStatus status : TransferStatus.values()) {
+            if (status != TransferStatus.TRANSFERRED) {
+                text.append(String.format(", %s %,d", status, outcomeCounts[status.ordinal()]));
+            }
+        }
+        text.append('\n');
+        text.append("  transferDocument:   ").append(percentiles(transfers, 1_000, "µs")).append('\n');
+        text.append("  transferDocuments:  ").append(percentiles(batches, 1_000, "µs"))
+                .append(String.format(", %,d itens", items)).append('\n');
+        text.append("  atraso do agendador: ").append(percentiles(lag, 1, "ms")).append('\n');
+        AutomaticTransferScheduler boundScheduler = scheduler;
+        if (boundScheduler != null) {
+            text.append(String.format("  fila do agendador: %,d na fila do timer, %,d pendentes, %,d faixas em disco, "
+                            + "%,d substituídas%n", boundScheduler.getScheduledTasks().size(),
+                    boundScheduler.getPendingCount(), boundScheduler.getUnloadedBucketCount(),
+                    boundScheduler.getSupersededCount()));
+        }
+        return text.toString();
+    }
+
+    private static String percentiles(Snapshot snapshot, double divisor, String unit) {
+        return String.format("%,d medições, média %,.1f, p50 %,.1f, p90 %,.1f, p99 %,.1f, p99,9 %,.1f, máx %,.1f %s",
+                snapshot.getCount(), snapshot.getMean() / divisor, snapshot.valueAtPercentile(50) / divisor,
+                snapshot.valueAtPercentile(90) / divisor, snapshot.valueAtPercentile(99) / divisor,
+                snapshot.valueAtPercentile(99.9) / divisor, snapshot.getMax() / divisor, unit);
+    }
+
+    Snapshot getTransferLatency() {
+        return transferLatency.snapshot();
+    }
+
+    Snapshot getBatchLatency() {
+        return batchLatency.snapshot();
+    }
+
+    Snapshot getSchedulerLag() {
+        return schedulerLag.snapshot();
+    }
+
+    long getOutcomeCount(TransferStatus status) {
+        return outcomes[status.ordinal()].sum();
+    }
+
+    // Atributos JMX
+
+    @Override
+    public long getTransferCount() {
+        return getOutcomeCount(TransferStatus.TRANSFERRED);
+    }
+
+    @Override
+    public long getTransferFailureCount() {
+        long failures = 0;
+        for (TransferStatus status : TransferStatus.values()) {
+            if (status != TransferStatus.TRANSFERRED) {
+                failures += getOutcomeCount(status);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public Map<String, Long> getFailureCountsByReason() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TransferStatus status : TransferStatus.values()) {
+            if (status != TransferStatus.TRANSFERRED) {
+                counts.put(status.name(), getOutcomeCount(status));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public double getTransferLatencyMeanMicros() {
+        return transferLatency.snapshot().getMean() / 1_000;
+    }
+
+    @Override
+    public long getTransferLatencyP50Micros() {
+        return transferLatency.snapshot().valueAtPercentile(50) / 1_000;
+    }
+
+    @Override
+    public long getTransferLatencyP90Micros() {
+        return transferLatency.snapshot().valueAtPercentile(90) / 1_000;
+    }
+
+    @Override
+    public long getTransferLatencyP99Micros() {
+        return transferLatency.snapshot().valueAtPercentile(99) / 1_000;
+    }
+
+    @Override
+    public long getTransferLatencyP999Micros() {
+        return transferLatency.snapshot().valueAtPercentile(99.9) / 1_000;
+    }
+
+    @Override
+    public long getTransferLatencyMaxMicros() {
+        return transferLatency.snapshot().getMax() / 1_000;
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batchLatency.snapshot().getCount();
+    }
+
+    @Override
+    public long getBatchItemCount() {
+        return batchItems.sum();
+    }
+
+    @Override
+    public long getBatchLatencyP50Micros() {
+        return batchLatency.snapshot().valueAtPercentile(50) / 1_000;
+    }
+
+    @Override
+    public long getBatchLatencyP99Micros() {
+        return batchLatency.snapshot().valueAtPercentile(99) / 1_000;
+    }
+
+    @Override
+    public long getBatchLatencyMaxMicros() {
+        return batchLatency.snapshot().getMax() / 1_000;
+    }
+
+    @Override
+    public long getSchedulerExecutionCount() {
+        return schedulerLag.snapshot().getCount();
+    }
+
+    @Override
+    public long getSchedulerLagP50Millis() {
+        return schedulerLag.snapshot().valueAtPercentile(50);
+    }
+
+    @Override
+    public long getSchedulerLagP99Millis() {
+        return schedulerLag.snapshot().valueAtPercentile(99);
+    }
+
+    @Override
+    public long getSchedulerLagMaxMillis() {
+        return schedulerLag.snapshot().getMax();
+    }
+
+    @Override
+    public long getSchedulerQueueDepth() {
+        AutomaticTransferScheduler boundScheduler = scheduler;
+        return boundScheduler == null ? 0 : boundScheduler.getScheduledTasks().size();
+    }
+
+    @Override
+    public long getSchedulerPendingCount() {
+        AutomaticTransferScheduler boundScheduler = scheduler;
+        return boundScheduler == null ? 0 : boundScheduler.getPendingCount();
+    }
+
+    @Override
+    public long getSchedulerUnloadedBuckets() {
+        AutomaticTransferScheduler boundScheduler = scheduler;
+        return boundScheduler == null ? 0 : boundScheduler.getUnloadedBucketCount();
+    }
+
+    @Override
+    public long getSchedulerSupersededCount() {
+        AutomaticTransferScheduler boundScheduler = scheduler;
+        return boundScheduler == null ? 0 : boundScheduler.getSupersededCount();
+    }
+}
@@ -0,0 +1,65 @@
+package dms;
+
+import java.util.Map;
+
+// Interface JMX das métricas de transferência, registrada como dms:type=TransferMetrics
+//
+// Fica pública num arquivo próprio porque o JMX só aceita interfaces de MBean públicas. Os
+// percentis são calculados sobre todas as medições desde o início do processo; o relatório
+// periódico do TransferMetrics mostra os mesmos números por intervalo.
+public interface TransferMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    // Itens transferidos e recusados, somando transferências individuais e itens de lotes
+    long getTransferCount();
+
+    long getTransferFailureCount();
+
+    Map<String, Long> getFailureCountsByReason();
+
+    // Latência de transferDocument bem-sucedidas, incluindo a espera pelo fsync
+    double getTransferLatencyMeanMicros();
+
+    long getTransferLatencyP50Micros();
+
+    long getTransferLatencyP90Micros();
+
+    long getTransferLatencyP99Micros();
+
+    long getTransferLatencyP999Micros();
+
+    long getTransferLatencyMaxMicros();
+
+    // Transferências em lote (transferDocuments): uma medição por lote
+    long getBatchCount();
+
+    long getBatchItemCount();
+
+    long getBatchLatencyP50Micros();
+
+    long getBatchLatencyP99Micros();
+
+    long getBatchLatencyMaxMicros();
+
+    // Atraso das transferências automáticas: início da execução menos o horário agendado
+    long getSchedulerExecutionCount();
+
+    long getSchedulerLagP50Millis();
+
+    long getSchedulerLagP99Millis();
+
+    long getSchedulerLagMaxMillis();
+
+    // Estado atual do agendador (0 sem agendador iniciado)
+    long getSchedulerQueueDepth();
+
+    long getSchedulerPendingCount();
+
+    long getSchedulerUnloadedBuckets();
+
+    long getSchedulerSupersededCount();
+
+    String dump();
+}
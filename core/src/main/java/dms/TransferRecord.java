@@ -0,0 +1,47 @@
+package dms;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Registro de Transferência
+class TransferRecord {
+    private final Department source;
+    private final Department target;
+    private final String reason;
+    private final LocalDateTime timestamp;
+    
+    public TransferRecord(Department source, Department target, String reason) {
+        this(source, target, reason, LocalDateTime.now());
+    }
+    
+    TransferRecord(Department source, Department target, String reason, LocalDateTime timestamp) {
+        this.source = source;
+        this.target = target;
+        this.reason = reason;
+        this.timestamp = timestamp;
+    }
+    
+    public Department getSource() {
+        return source;
+    }
+    
+    public Department getTarget() {
+        return target;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+        String sourceStr = source == null ? "Criação" : source.getCode();
+        return String.format("[%s] %s -> %s: %s", 
+                timestamp.format(formatter), sourceStr, target.getCode(), reason);
+    }
+}
@@ -0,0 +1,26 @@
+package dms;
+
+// Item de uma transferência em lote
+class TransferRequest {
+    private final String documentId;
+    private final String sourceDeptCode;
+    private final String targetDeptCode;
+    
+    public TransferRequest(String documentId, String sourceDeptCode, String targetDeptCode) {
+        this.documentId = documentId;
+        this.sourceDeptCode = sourceDeptCode;
+        this.targetDeptCode = targetDeptCode;
+    }
+    
+    public String getDocumentId() {
+        return documentId;
+    }
+    
+    public String getSourceDeptCode() {
+        return sourceDeptCode;
+    }
+    
+    public String getTargetDeptCode() {
+        return targetDeptCode;
+    }
+}
@@ -0,0 +1,401 @@
+package dms;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Regras de transferência automática: "documentos no setor X há mais de N dias vão para Y",
+// avaliadas continuamente ou em horários recorrentes
+//
+// Cada setor de origem com regras tem um registro de chegadas: documento e horário de chegada
+// (updatedAt), na ordem em que chegaram. O registro é montado uma vez a partir do índice por setor
+// quando a primeira regra do setor é criada e depois acompanha o serviço pelos avisos de
+// alteração, recebidos só entre start e stop; no start os registros das regras criadas antes são
+// montados de novo, já com os avisos chegando. Cada regra guarda até onde já leu o registro e, a cada avaliação, avança só sobre as
+// chegadas que atingiram a idade mínima; chegadas de documentos que já saíram do setor (ou
+// voltaram depois, com outra chegada mais nova) são ignoradas. Assim uma avaliação sem nada
+// vencido custa o mesmo com mil ou com milhões de documentos. O que venceu é transferido em
+// lotes pelo DocumentService.transferDocuments, com o motivo "Regra <id>".
+//
+// Os horários são comparados em milissegundos do horário local (o mesmo do updatedAt), então uma
+// regra diária às 18:00 continua às 18:00 na troca de horário de verão. Chegadas registradas por
+// threads diferentes podem ficar alguns milissegundos fora de ordem; a que estiver atrás de uma
+// mais nova só é alcançada quando a mais nova vencer.
+class TransferRuleEngine implements DocumentService.ChangeListener {
+    static final long TICK_MILLIS = 1_000;
+    static final int BATCH_SIZE = 1_000;
+    private static final String REASON_PREFIX = "Regra ";
+
+    static final class Rule {
+        private final String id;
+        private final String sourceDeptCode;
+        private final String targetDeptCode;
+        private final long minimumAgeMillis;
+        // Regras recorrentes: primeira execução e intervalo; intervalo 0 avalia a cada tique
+        private final LocalDateTime firstRun;
+        private final long periodMillis;
+
+        private Rule(String id, String sourceDeptCode, String targetDeptCode, Duration minimumAge,
+                     LocalDateTime firstRun, Duration period) {
+            if (sourceDeptCode.equals(targetDeptCode)) {
+                throw new IllegalArgumentException("Regra " + id + ": origem e destino iguais");
+            }
+            if (minimumAge.isNegative() || (period != null && (period.isZero() || period.isNegative()))) {
+                throw new IllegalArgumentException("Regra " + id + ": idade ou intervalo inválido");
+            }
+            this.id = id;
+            this.sourceDeptCode = sourceDeptCode;
+            this.targetDeptCode = targetDeptCode;
+            this.minimumAgeMillis = minimumAge.toMillis();
+            this.firstRun = firstRun;
+            this.periodMillis = period == null ? 0 : period.toMillis();
+        }
+
+        // Move cada documento assim que ele completa a idade mínima no setor de origem
+        static Rule olderThan(String id, String sourceDeptCode, String targetDeptCode, Duration minimumAge) {
+            return new Rule(id, sourceDeptCode, targetDeptCode, minimumAge, null, null);
+        }
+
+        // A partir de firstRun, a cada period, move os documentos com a idade mínima naquele momento
+        static Rule recurring(String id, String sourceDeptCode, String targetDeptCode, Duration minimumAge,
+                              LocalDateTime firstRun, Duration period) {
+            return new Rule(id, sourceDeptCode, targetDeptCode, minimumAge, firstRun, period);
+        }
+
+        // Todo dia no horário indicado
+        static Rule daily(String id, String sourceDeptCode, String targetDeptCode, Duration minimumAge,
+                          LocalTime at) {
+            LocalDateTime firstRun = LocalDateTime.now().with(at);
+            if (firstRun.isBefore(LocalDateTime.now())) {
+                firstRun = firstRun.plusDays(1);
+            }
+            return new Rule(id, sourceDeptCode, targetDeptCode, minimumAge, firstRun, Duration.ofDays(1));
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getSourceDeptCode() {
+            return sourceDeptCode;
+        }
+
+        public String getTargetDeptCode() {
+            return targetDeptCode;
+        }
+
+        public Duration getMinimumAge() {
+            return Duration.ofMillis(minimumAgeMillis);
+        }
+
+        public boolean isRecurring() {
+            return periodMillis > 0;
+        }
+
+        @Override
+        public String toString() {
+            String when = periodMillis > 0
+                    ? "a cada " + Duration.ofMillis(periodMillis) + " desde " + firstRun
+                    : "contínua";
+            return String.format("Regra %s: %s -> %s após %s (%s)", id, sourceDeptCode, targetDeptCode,
+                    getMinimumAge(), when);
+        }
+    }
+
+    // Estado de avaliação de uma regra; só a thread de avaliação o altera
+    private static final class RuleState {
+        final Rule rule;
+        final String reason;
+        long cursor;
+        long nextRunMillis;
+
+        RuleState(Rule rule, long cursor) {
+            this.rule = rule;
+            this.reason = REASON_PREFIX + rule.getId();
+            this.cursor = cursor;
+            this.nextRunMillis = rule.periodMillis > 0 ? localMillis(rule.firstRun) : Long.MIN_VALUE;
+        }
+    }
+
+    // Chegadas a um setor em ordem, endereçadas por número de sequência; o começo é descartado
+    // quando todas as regras do setor já passaram dele
+    private static final class ArrivalLog {
+        private Document[] documents = new Document[64];
+        private long[] arrivals = new long[64];
+        private int head;
+        private int tail;
+        private long firstSequence;
+        // Chegadas avisadas enquanto o registro ainda é montado a partir do índice
+        private List<Document> seedingArrivals = new ArrayList<>();
+
+        synchronized void append(Document document, long arrivalMillis) {
+            if (seedingArrivals != null) {
+                seedingArrivals.add(document);
+                return;
+            }
+            add(document, arrivalMillis);
+        }
+
+        // Documentos já no setor, ordenados pela chegada, seguidos do que chegou durante a leitura
+        synchronized void finishSeeding(List<Document> present) {
+            Map<Document, Long> seeded = new IdentityHashMap<>(present.size() * 2);
+            for (Document document : present) {
+                long arrival = localMillis(document.getUpdatedAt());
+                seeded.put(document, arrival);
+                add(document, arrival);
+            }
+            for (Document document : seedingArrivals) {
+                long arrival = localMillis(document.getUpdatedAt());
+                Long already = seeded.get(document);
+                if (already == null || already != arrival) {
+                    add(document, arrival);
+                }
+            }
+            seedingArrivals = null;
+        }
+
+        private void add(Document document, long arrivalMillis) {
+            if (tail == documents.length) {
+                int live = tail - head;
+                int capacity = live * 2 > documents.length ? documents.length * 2 : documents.length;
+                Document[] grownDocuments = new Document[capacity];
+                long[] grownArrivals = new long[capacity];
+                System.arraycopy(documents, head, grownDocuments, 0, live);
+                System.arraycopy(arrivals, head, grownArrivals, 0, live);
+                documents = grownDocuments;
+                arrivals = grownArrivals;
+                head = 0;
+                tail = live;
+            }
+            documents[tail] = document;
+            arrivals[tail] = arrivalMillis;
+            tail++;
+        }
+
+        synchronized long getFirstSequence() {
+            return firstSequence;
+        }
+
+        // Copia até out.length chegadas a partir de fromSequence com horário até cutoff
+        synchronized int collect(long fromSequence, long cutoffMillis, Document[] outDocuments, long[] outArrivals) {
+            int start = head + (int) (fromSequence - firstSequence);
+            int count = 0;
+            for (int i = start; i < tail && count < outDocuments.length && arrivals[i] <= cutoffMillis; i++) {
+                outDocuments[count] = documents[i];
+                outArrivals[count] = arrivals[i];
+                count++;
+            }
+            return count;
+        }
+
+        synchronized void discardBefore(long sequence) {
+            int discard = (int) Math.min(sequence - firstSequence, tail - head);
+            if (discard <= 0) {
+                return;
+            }
+            Arrays.fill(documents, head, head + discard, null);
+            head += discard;
+            firstSequence += discard;
+        }
+
+        synchronized int size() {
+            return tail - head;
+        }
+    }
+
+    private final DocumentService documentService;
+    private final Map<String, ArrivalLog> logs = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, RuleState> rules = new LinkedHashMap<>();
+    // Criado no start e encerrado no stop, com o lock da instância
+    private ScheduledExecutorService ticker;
+    private final Document[] dueDocuments = new Document[BATCH_SIZE];
+    private final long[] dueArrivals = new long[BATCH_SIZE];
+    private final LongAdder transferredCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    public TransferRuleEngine(DocumentService documentService) {
+        this.documentService = documentService;
+    }
+
+    // Passa a receber os avisos do serviço e começa os tiques. O que chegou antes disso não foi
+    // avisado: os registros já existentes são montados de novo depois de o aviso estar ativo.
+    public synchronized void start() {
+        if (ticker != null) {
+            throw new IllegalStateException("Regras de transferência já iniciadas");
+        }
+        documentService.addChangeListener(this);
+        for (String source : new ArrayList<>(logs.keySet())) {
+            long firstSequence = seed(source).getFirstSequence();
+            for (RuleState state : rules.values()) {
+                if (state.rule.getSourceDeptCode().equals(source)) {
+                    state.cursor = firstSequence;
+                }
+            }
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "transfer-rules");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(() -> {
+            try {
+                evaluate(localMillis(LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                EventLog.error("Falha ao avaliar regras de transferência", "erro", e.getMessage());
+            }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        documentService.removeChangeListener(this);
+        if (ticker != null) {
+            ticker.shutdown();
+            ticker = null;
+        }
+    }
+
+    @Override
+    public void documentAdded(Document document) {
+        recordArrival(document);
+    }
+
+    @Override
+    public void documentTransferred(Document document) {
+        recordArrival(document);
+    }
+
+    private void recordArrival(Document document) {
+        ArrivalLog log = logs.get(document.getCurrentDepartment().getCode());
+        if (log != null) {
+            log.append(document, localMillis(document.getUpdatedAt()));
+        }
+    }
+
+    // Uma regra com o mesmo id substitui a anterior
+    public synchronized void addRule(Rule rule) {
+        removeRule(rule.getId());
+        ArrivalLog log = logs.get(rule.getSourceDeptCode());
+        if (log == null) {
+            log = seed(rule.getSourceDeptCode());
+        }
+        rules.put(rule.getId(), new RuleState(rule, log.getFirstSequence()));
+        EventLog.info("Regra de transferência criada", "regra", rule.getId(), "origem", rule.getSourceDeptCode(),
+                "destino", rule.getTargetDeptCode());
+    }
+
+    // Registrar antes de ler o índice: o que chegar durante a leitura fica guardado à parte
+    private ArrivalLog seed(String sourceDeptCode) {
+        ArrivalLog log = new ArrivalLog();
+        logs.put(sourceDeptCode, log);
+        List<Document> present = documentService.getDocumentsByDepartment(sourceDeptCode);
+        present.sort(Comparator.comparingLong(document -> localMillis(document.getUpdatedAt())));
+        log.finishSeeding(present);
+        return log;
+    }
+
+    public synchronized boolean removeRule(String ruleId) {
+        RuleState removed = rules.remove(ruleId);
+        if (removed == null) {
+            return false;
+        }
+        String source = removed.rule.getSourceDeptCode();
+        if (rules.values().stream().noneMatch(state -> state.rule.getSourceDeptCode().equals(source))) {
+            logs.remove(source);
+        }
+        EventLog.info("Regra de transferência removida", "regra", ruleId);
+        return true;
+    }
+
+    public synchronized List<Rule> getRules() {
+        List<Rule> result = new ArrayList<>(rules.size());
+        for (RuleState state : rules.values()) {
+            result.add(state.rule);
+        }
+        return result;
+    }
+
+    // Avalia as regras no instante indicado (milissegundos do horário local) e devolve quantos
+    // documentos foram transferidos. Chamado pelo tique; público para testes de carga.
+    public synchronized int evaluate(long nowMillis) {
+        int transferred = 0;
+        for (RuleState state : rules.values()) {
+            if (state.rule.periodMillis > 0) {
+                if (nowMillis < state.nextRunMillis) {
+                    continue;
+                }
+                // Execuções perdidas (processo parado, tique atrasado) viram uma só
+                long missed = (nowMillis - state.nextRunMillis) / state.rule.periodMillis;
+                state.nextRunMillis += (missed + 1) * state.rule.periodMillis;
+            }
+            transferred += fire(state, nowMillis - state.rule.minimumAgeMillis);
+        }
+
+        // Descartar as chegadas pelas quais todas as regras do setor já passaram
+        Map<String, Long> minimumCursor = new HashMap<>();
+        for (RuleState state : rules.values()) {
+            minimumCursor.merge(state.rule.getSourceDeptCode(), state.cursor, Math::min);
+        }
+        for (Map.Entry<String, Long> entry : minimumCursor.entrySet()) {
+            logs.get(entry.getKey()).discardBefore(entry.getValue());
+        }
+        return transferred;
+    }
+
+    private int fire(RuleState state, long cutoffMillis) {
+        ArrivalLog log = logs.get(state.rule.getSourceDeptCode());
+        String source = state.rule.getSourceDeptCode();
+        int transferred = 0;
+        int collected;
+        do {
+            collected = log.collect(state.cursor, cutoffMillis, dueDocuments, dueArrivals);
+            state.cursor += collected;
+            List<TransferRequest> batch = new ArrayList<>(collected);
+            for (int i = 0; i < collected; i++) {
+                Document document = dueDocuments[i];
+                dueDocuments[i] = null;
+                // Ainda no setor e sem ter saído e voltado desde esta chegada
+                if (document.getCurrentDepartment().getCode().equals(source)
+                        && localMillis(document.getUpdatedAt()) == dueArrivals[i]) {
+                    batch.add(new TransferRequest(document.getId(), source, state.rule.getTargetDeptCode()));
+                }
+            }
+            if (!batch.isEmpty()) {
+                BatchTransferResult result = documentService.transferDocuments(batch, false, state.reason);
+                transferred += result.getTransferredCount();
+                transferredCount.add(result.getTransferredCount());
+                failedCount.add(result.getFailedCount());
+                EventLog.info("Regra de transferência executada", "regra", state.rule.getId(),
+                        "transferidos", result.getTransferredCount(), "falhas", result.getFailedCount());
+            }
+        } while (collected == BATCH_SIZE);
+        return transferred;
+    }
+
+    public long getTransferredCount() {
+        return transferredCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    // Chegadas guardadas em todos os setores com regras
+    public long getTrackedArrivalCount() {
+        long total = 0;
+        for (ArrivalLog log : logs.values()) {
+            total += log.size();
+        }
+        return total;
+    }
+
+    static long localMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000 + time.getNano() / 1_000_000;
+    }
+}
@@ -0,0 +1,9 @@
+package dms;
+
+// Modo de agendamento das transferências automáticas
+enum TransferSchedulingMode {
+    // Um ScheduledFuture por transferência na fila de atraso do ScheduledThreadPoolExecutor
+    SCHEDULED_EXECUTOR,
+    // Roda de temporização hierárquica com disparo em lotes num pool de workers
+    TIMING_WHEEL
+}
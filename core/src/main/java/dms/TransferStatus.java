@@ -0,0 +1,10 @@
+package dms;
+
+enum TransferStatus {
+    TRANSFERRED,
+    DOCUMENT_NOT_FOUND,
+    DEPARTMENT_NOT_FOUND,
+    NOT_IN_SOURCE,
+    // Item válido não aplicado porque outro item de um lote tudo-ou-nada falhou
+    ABORTED
+}
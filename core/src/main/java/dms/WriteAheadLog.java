@@ -0,0 +1,308 @@
+package dms;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Log de escrita antecipada segmentado, com checksum por registro e group commit
+//
+// Formato de cada registro: [int tamanho][int crc32c][long sequência][byte tipo][dados],
+// onde o CRC cobre sequência, tipo e dados. Os segmentos se chamam wal-<primeira sequência>.log.
+// Quem grava só enfileira o registro e recebe a sequência; uma única thread escreve todos os
+// registros acumulados de uma vez e faz um único fsync para o lote inteiro.
+class WriteAheadLog implements Closeable {
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 1;
+    // Limite de um registro: um tamanho maior lido do disco só pode ser lixo de uma escrita interrompida
+    static final int MAX_RECORD_BYTES = 256 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Recebe os registros válidos durante a recuperação
+    interface RecordHandler {
+        void accept(long sequence, byte type, DataInputStream data) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final Object appendLock = new Object();
+    private final Object durableLock = new Object();
+    private List<byte[]> pending = new ArrayList<>();
+    private long nextSequence = 1;
+    private volatile long durableSequence;
+    private volatile boolean running;
+    private volatile IOException failure;
+    private Thread flusher;
+
+    // Estado da thread de escrita
+    private FileChannel segment;
+    private long segmentBytes;
+    private volatile long syncCount;
+    private volatile long recordCount;
+
+    public WriteAheadLog(Path directory, long maxSegmentBytes) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(directory);
+    }
+
+    // Lê os registros com sequência maior que afterSequence, na ordem em que foram gravados.
+    // Um registro truncado ou com checksum inválido encerra a leitura; se estiver no último
+    // segmento (escrita interrompida por uma queda), o segmento é cortado nesse ponto.
+    public long replay(long afterSequence, RecordHandler handler) throws IOException {
+        List<Path> segments = listSegments();
+        long lastSequence = afterSequence;
+
+        for (int i = 0; i < segments.size(); i++) {
+            // Segmentos cujo sucessor começa até afterSequence + 1 só têm registros já aplicados
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+
+            boolean lastSegment = i == segments.size() - 1;
+            long segmentSize = Files.size(segments.get(i));
+            long validBytes = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(segments.get(i)), 1 << 16))) {
+                CRC32C crc = new CRC32C();
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    int storedCrc = in.readInt();
+                    // Conferir o tamanho antes de alocar: uma cauda corrompida não pode pedir gigabytes
+                    if (length < 9 || length > MAX_RECORD_BYTES || length > segmentSize - validBytes - 8) {
+                        throw new StreamCorruptedException("Tamanho de registro inválido: " + length);
+                    }
+                    byte[] body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body);
+                    if ((int) crc.getValue() != storedCrc) {
+                        throw new StreamCorruptedException("Checksum inválido");
+                    }
+
+                    ByteBuffer header = ByteBuffer.wrap(body, 0, 9);
+                    long sequence = header.getLong();
+                    byte type = header.get();
+                    if (sequence > afterSequence) {
+                        handler.accept(sequence, type,
+                                new DataInputStream(new ByteArrayInputStream(body, 9, length - 9)));
+                    }
+                    lastSequence = Math.max(lastSequence, sequence);
+                    validBytes += 8 + length;
+                }
+            } catch (EOFException | StreamCorruptedException e) {
+                if (!lastSegment) {
+                    throw new IOException("Log corrompido no segmento " + segments.get(i).getFileName(), e);
+                }
+                // Registro parcial no fim do último segmento: descartar a cauda interrompida
+                try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                    channel.force(true);
+                }
+            }
+        }
+
+        synchronized (appendLock) {
+            nextSequence = lastSequence + 1;
+        }
+        durableSequence = lastSequence;
+        return lastSequence;
+    }
+
+    public void start() throws IOException {
+        openSegment(nextSequence);
+        running = true;
+        flusher = new Thread(this::flushLoop, "write-ahead-log");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Enfileira o registro e devolve sua sequência; a durabilidade é aguardada com awaitDurable
+    public long append(byte type, byte[] payload) throws IOException {
+        if (payload.length > MAX_RECORD_BYTES - 9) {
+            throw new IOException("Registro grande demais para o log: " + payload.length + " bytes");
+        }
+        byte[] frame = new byte[HEADER_BYTES + payload.length];
+        System.arraycopy(payload, 0, frame, HEADER_BYTES, payload.length);
+        ByteBuffer header = ByteBuffer.wrap(frame);
+        header.putInt(frame.length - 8);
+
+        synchronized (appendLock) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (!running) {
+                throw new IOException("Log de escrita antecipada fechado");
+            }
+            long sequence = nextSequence++;
+            header.putLong(8, sequence);
+            frame[16] = type;
+            pending.add(frame);
+            if (pending.size() == 1) {
+                appendLock.notify();
+            }
+            return sequence;
+        }
+    }
+
+    // Lança a falha de escrita ou fsync, se houve alguma; depois dela o log não aceita registros
+    public void checkHealthy() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public long getLastSequence() {
+        synchronized (appendLock) {
+            return nextSequence - 1;
+        }
+    }
+
+    public void awaitDurable(long sequence) throws IOException {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (durableLock) {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrompido aguardando o fsync do log");
+                }
+            }
+        }
+    }
+
+    // Remove os segmentos que só contêm registros com sequência até a informada
+    public void deleteSegmentsThrough(long sequence) throws IOException {
+        List<Path> segments = listSegments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequence(segments.get(i + 1)) <= sequence + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            running = false;
+            appendLock.notify();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            segment.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushLoop() {
+        CRC32C crc = new CRC32C();
+        while (true) {
+            List<byte[]> batch;
+            long batchLastSequence;
+            synchronized (appendLock) {
+                while (pending.isEmpty() && running) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchLastSequence = nextSequence - 1;
+            }
+
+            try {
+                if (segmentBytes >= maxSegmentBytes) {
+                    segment.close();
+                    openSegment(ByteBuffer.wrap(batch.get(0)).getLong(8));
+                }
+
+                ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+                long batchBytes = 0;
+                for (int i = 0; i < buffers.length; i++) {
+                    byte[] frame = batch.get(i);
+                    crc.reset();
+                    crc.update(frame, 8, frame.length - 8);
+                    ByteBuffer.wrap(frame).putInt(4, (int) crc.getValue());
+                    buffers[i] = ByteBuffer.wrap(frame);
+                    batchBytes += frame.length;
+                }
+                while (batchBytes > 0) {
+                    batchBytes -= segment.write(buffers);
+                }
+                segment.force(false);
+                segmentBytes = segment.size();
+                syncCount++;
+                recordCount += batch.size();
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            synchronized (durableLock) {
+                if (failure == null) {
+                    durableSequence = batchLastSequence;
+                }
+                durableLock.notifyAll();
+            }
+            if (failure != null) {
+                return;
+            }
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = segment.size();
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted(Comparator.comparingLong(WriteAheadLog::firstSequence)).collect(Collectors.toList());
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,146 @@
+package dms;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Exportação em massa relida: formato binário pelo readBinary, CSV e JSON-lines pelo BulkImporter,
+// e exportação incremental
+class BulkExporterTest {
+    private static final String[] DEPARTMENTS = {"FIN", "JUR", "RH", "TI"};
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @TempDir
+    Path directory;
+
+    private DocumentService service;
+
+    // Históricos restaurados com motivos distintos, mais que o dicionário do formato binário comporta
+    @BeforeEach
+    void populate() {
+        service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        for (int i = 0; i < 3_000; i++) {
+            List<TransferRecord> history = new ArrayList<>();
+            Department current = department(i);
+            history.add(new TransferRecord(null, current, TransferHistory.CREATION_REASON, START.plusMinutes(i)));
+            for (int hop = 1; hop <= i % 4; hop++) {
+                Department next = department(i + hop);
+                history.add(new TransferRecord(current, next, "Regra " + i + "-" + hop,
+                        START.plusMinutes(i).plusSeconds(hop)));
+                current = next;
+            }
+            String content = i % 5 == 0 ? "Texto com \"aspas\", vírgula\ne linha " + i : "Conteúdo " + i;
+            service.restoreDocument(new Document("DOC" + i, "Título " + i, content, current, START.plusMinutes(i),
+                    history.get(history.size() - 1).getTimestamp(), history));
+        }
+    }
+
+    private Department department(int i) {
+        return service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length]);
+    }
+
+    private static String describe(Document document) {
+        return document.getId() + "|" + document.getTitle() + "|" + document.getContent() + "|"
+                + document.getCurrentDepartment().getCode();
+    }
+
+    private static String history(Document document) {
+        return document.getTransferHistory().stream().map(TransferRecord::toString).collect(Collectors.joining(";"));
+    }
+
+    @Test
+    void binaryExportReadsBackEveryDocumentAndHistory() throws IOException {
+        Path file = directory.resolve("exportacao.dmsx");
+        BulkExporter.ExportResult result = new BulkExporter(service).export(file, BulkExporter.Format.BINARY);
+        assertEquals(3_000, result.getDocuments());
+
+        Map<String, Document> read = new HashMap<>();
+        assertEquals(3_000, BulkExporter.readBinary(file, document -> read.put(document.getId(), document)));
+        long historyRows = 0;
+        for (Document original : service.getAllDocuments()) {
+            Document copy = read.get(original.getId());
+            assertNotNull(copy, original.getId());
+            assertEquals(describe(original), describe(copy));
+            assertEquals(original.getCreatedAt(), copy.getCreatedAt());
+            assertEquals(original.getUpdatedAt(), copy.getUpdatedAt());
+            assertEquals(history(original), history(copy), original.getId());
+            historyRows += original.getTransferHistory().size();
+        }
+        assertEquals(historyRows, result.getHistoryRows());
+        assertFalse(Files.exists(directory.resolve("exportacao.dmsx.tmp")));
+    }
+
+    @Test
+    void truncatedBinaryExportIsRejected() throws IOException {
+        Path file = directory.resolve("exportacao.dmsx");
+        new BulkExporter(service).export(file, BulkExporter.Format.BINARY);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> BulkExporter.readBinary(file, document -> { }));
+    }
+
+    // Os documentos exportados em CSV e JSON-lines voltam pelo importador; o histórico em CSV fica
+    // num arquivo à parte, uma linha por registro
+    @Test
+    void csvAndJsonLinesExportsReimport() throws IOException {
+        BulkExporter exporter = new BulkExporter(service);
+        Path csv = directory.resolve("exportacao.csv");
+        Path jsonl = directory.resolve("exportacao.jsonl");
+        exporter.export(csv, BulkExporter.Format.CSV);
+        exporter.export(jsonl, BulkExporter.Format.JSON_LINES);
+
+        long historyRows = service.getAllDocuments().stream().mapToLong(d -> d.getTransferHistory().size()).sum();
+        try (Stream<String> lines = Files.lines(BulkExporter.historyFile(csv), StandardCharsets.UTF_8)) {
+            assertEquals(historyRows + 1, lines.count());
+        }
+
+        for (Path file : new Path[] {csv, jsonl}) {
+            DocumentService imported = new DocumentService();
+            for (String code : DEPARTMENTS) {
+                imported.registerDepartment(new Department(code, "Setor " + code));
+            }
+            BulkImporter.ImportResult result = new BulkImporter(imported, 2, 500).importDocuments(file, null);
+            assertEquals(3_000, result.getImported(), file.toString());
+            for (Document original : service.getAllDocuments()) {
+                assertEquals(describe(original), describe(imported.getDocument(original.getId())), file.toString());
+            }
+        }
+    }
+
+    // Como no ExportBenchmark: a exportação incremental a partir da marca da anterior traz todos os
+    // documentos transferidos depois dela
+    @Test
+    void incrementalExportContainsEveryChangedDocument() throws IOException {
+        BulkExporter exporter = new BulkExporter(service);
+        BulkExporter.ExportResult full = exporter.export(directory.resolve("completa.dmsx"), BulkExporter.Format.BINARY);
+        Set<String> changed = new HashSet<>();
+        for (int i = 0; i < 3_000; i += 7) {
+            Document document = service.getDocument("DOC" + i);
+            String source = document.getCurrentDepartment().getCode();
+            String target = DEPARTMENTS[(Arrays.asList(DEPARTMENTS).indexOf(source) + 1) % DEPARTMENTS.length];
+            assertTrue(service.transferDocument(document.getId(), source, target));
+            changed.add(document.getId());
+        }
+
+        Path incremental = directory.resolve("incremental.dmsx");
+        BulkExporter.ExportResult delta = exporter.export(incremental, BulkExporter.Format.BINARY, full.getStartedAt());
+        Set<String> exported = new HashSet<>();
+        BulkExporter.readBinary(incremental, document -> exported.add(document.getId()));
+        assertEquals(changed, exported);
+        assertEquals(changed.size(), delta.getDocuments());
+    }
+}
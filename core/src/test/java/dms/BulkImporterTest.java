@@ -0,0 +1,195 @@
+package dms;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Importação em massa: aspas e quebras de linha no CSV, escapes no JSON-lines, arquivo de
+// rejeitados e documentos repetidos
+class BulkImporterTest {
+    @TempDir
+    Path directory;
+
+    private DocumentService service;
+    private BulkImporter importer;
+
+    @BeforeEach
+    void departments() throws IOException {
+        service = new DocumentService();
+        importer = new BulkImporter(service, 4, 100);
+        Path departments = write("setores.csv", "name,code\nFinanceiro,FIN\nJurídico,JUR\nRH,RH\n");
+        assertEquals(3, importer.importDepartments(departments, null).getImported());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    void csvQuotesCommasAndLineBreaks() throws IOException {
+        Path file = write("documentos.csv", "department,id,extra,title,content\r\n"
+                + "FIN,D1,x,\"Contrato, versão 2\",\"Linha 1\nLinha 2 com \"\"aspas\"\"\"\r\n"
+                + "JUR,D2,,Parecer,\r\n"
+                + "\r\n"
+                + "RH,D3,y,\"Férias\",\"texto, com vírgula\"\r\n");
+        BulkImporter.ImportResult result = importer.importDocuments(file, null);
+        assertEquals(3, result.getRowsRead());
+        assertEquals(3, result.getImported());
+
+        Document d1 = service.getDocument("D1");
+        assertEquals("Contrato, versão 2", d1.getTitle());
+        assertEquals("Linha 1\nLinha 2 com \"aspas\"", d1.getContent());
+        assertEquals("FIN", d1.getCurrentDepartment().getCode());
+        assertEquals("", service.getDocument("D2").getContent());
+        assertEquals("texto, com vírgula", service.getDocument("D3").getContent());
+        assertEquals("RH", service.getDocument("D3").getCurrentDepartment().getCode());
+    }
+
+    @Test
+    void jsonLinesUnescapesAndIgnoresNestedValues() throws IOException {
+        Path file = write("documentos.jsonl",
+                "{\"id\":\"D1\",\"title\":\"Of\\u00edcio\",\"content\":\"a\\n\\\"b\\\"\\t\\\\\",\"department\":\"FIN\"}\n"
+                + "{\"meta\":{\"id\":\"X\",\"lista\":[1,2]},\"department\":\"JUR\",\"id\":\"D2\",\"title\":\"Parecer\"}\n");
+        assertEquals(2, importer.importDocuments(file, null).getImported());
+        assertEquals("Ofício", service.getDocument("D1").getTitle());
+        assertEquals("a\n\"b\"\t\\", service.getDocument("D1").getContent());
+        assertNull(service.getDocument("X"));
+        assertEquals("JUR", service.getDocument("D2").getCurrentDepartment().getCode());
+    }
+
+    // Registros inválidos vão para o arquivo de rejeitados com linha e motivo; corrigido o problema,
+    // o próprio arquivo de rejeitados é importado de novo
+    @Test
+    void rejectsAreWrittenWithLineAndReasonAndCanBeReimported() throws IOException {
+        service.addDocument(new Document("EXISTENTE", "Antigo", "texto", service.getDepartment("FIN")));
+        Path file = write("documentos.csv", "id,title,content,department\n"
+                + "D1,Um,\"duas\nlinhas\",FIN\n"
+                + "D2,Dois,texto,XXX\n"
+                + ",Sem id,texto,FIN\n"
+                + "D1,Repetido,texto,FIN\n"
+                + "EXISTENTE,Já cadastrado,texto,JUR\n"
+                + "D3,Três,texto,JUR\n");
+        Path rejects = BulkImporter.defaultRejectFile(file);
+        BulkImporter.ImportResult result = importer.importDocuments(file, rejects);
+        assertEquals(6, result.getRowsRead());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getRejected());
+        assertEquals("Antigo", service.getDocument("EXISTENTE").getTitle());
+
+        List<String> lines = Files.readAllLines(rejects, StandardCharsets.UTF_8);
+        assertEquals("id,title,content,department,line,error", lines.get(0));
+        assertEquals(5, lines.size());
+        String all = String.join("\n", lines);
+        // D1 ocupa as linhas 2 e 3: a contagem segue as quebras dentro de aspas
+        assertTrue(all.contains("D2,Dois,texto,XXX,4,Setor não encontrado: XXX"), all);
+        assertTrue(all.contains(",Sem id,texto,FIN,5,Campo id vazio"), all);
+        assertTrue(all.contains("D1,Repetido,texto,FIN,6,Documento repetido no arquivo: D1"), all);
+        assertTrue(all.contains("EXISTENTE,Já cadastrado,texto,JUR,7,Documento já cadastrado: EXISTENTE"), all);
+
+        service.registerDepartment(new Department("XXX", "Novo setor"));
+        BulkImporter.ImportResult retry = importer.importDocuments(rejects, directory.resolve("de-novo.csv"));
+        assertEquals(1, retry.getImported());
+        assertEquals(3, retry.getRejected());
+        assertEquals("XXX", service.getDocument("D2").getCurrentDepartment().getCode());
+    }
+
+    @Test
+    void jsonRejectsKeepTheOriginalRecord() throws IOException {
+        Path file = write("documentos.jsonl", "{\"id\":\"D1\",\"title\":\"Um\",\"department\":\"FIN\"}\n"
+                + "{\"id\":\"D2\",\"title\":\"Dois\",\"department\":\"NADA\"}\n"
+                + "{\"id\":\"D3\",\"title\":\n");
+        Path rejects = BulkImporter.defaultRejectFile(file);
+        BulkImporter.ImportResult result = importer.importDocuments(file, rejects);
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getRejected());
+        // Erros de leitura são gravados na hora e os de setor só no fim do lote: ordenar pela linha
+        List<String> lines = Files.readAllLines(rejects, StandardCharsets.UTF_8);
+        lines.sort(null);
+        assertEquals(2, lines.size());
+        assertEquals("{\"line\":2,\"error\":\"Setor não encontrado: NADA\",\"record\":"
+                + Json.quote("{\"id\":\"D2\",\"title\":\"Dois\",\"department\":\"NADA\"}") + "}", lines.get(0));
+        assertTrue(lines.get(1).startsWith("{\"line\":3,"), lines.get(1));
+    }
+
+    @Test
+    void withoutRejectFileTheFirstInvalidRecordStopsTheImport() throws IOException {
+        Path file = write("documentos.csv", "id,title,content,department\nD1,Um,texto,FIN\nD2,Dois,texto,XXX\n");
+        IOException failure = assertThrows(IOException.class, () -> importer.importDocuments(file, null));
+        assertTrue(failure.getMessage().contains("linha 3"), failure.getMessage());
+        assertTrue(failure.getMessage().contains("XXX"), failure.getMessage());
+    }
+
+    @Test
+    void repeatedDepartmentsAreRejected() throws IOException {
+        Path file = write("setores.jsonl", "{\"code\":\"TI\",\"name\":\"Tecnologia\"}\n"
+                + "{\"code\":\"FIN\",\"name\":\"Outro financeiro\"}\n"
+                + "{\"code\":\"TI\",\"name\":\"De novo\"}\n");
+        BulkImporter.ImportResult result = importer.importDepartments(file, BulkImporter.defaultRejectFile(file));
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals("Tecnologia", service.getDepartment("TI").getName());
+        assertEquals("Financeiro", service.getDepartment("FIN").getName());
+    }
+
+    // Como no BulkImportBenchmark: arquivos maiores que um bloco de leitura, com registros de várias
+    // linhas cortados entre blocos, importados por vários workers
+    @Test
+    void largeFilesSplitAcrossBlocksImportEveryRecord() throws IOException {
+        int count = 30_000;
+        Path csv = directory.resolve("grande.csv");
+        Path jsonl = directory.resolve("grande.jsonl");
+        long invalid = 0;
+        try (Writer csvOut = new BufferedWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8));
+             Writer jsonOut = new BufferedWriter(Files.newBufferedWriter(jsonl, StandardCharsets.UTF_8))) {
+            csvOut.write("id,title,department,content\n");
+            for (int i = 0; i < count; i++) {
+                String department = i % 97 == 96 ? "XXX" : i % 2 == 0 ? "FIN" : "JUR";
+                if (department.equals("XXX")) {
+                    invalid++;
+                }
+                String title = "Relatório " + i + ", revisão " + (i % 7);
+                csvOut.write("G" + i + "," + BulkImporter.csvQuote(title) + "," + department + ","
+                        + BulkImporter.csvQuote(content(i)) + "\n");
+                jsonOut.write("{\"id\":\"G" + i + "\",\"title\":" + Json.quote(title) + ",\"content\":"
+                        + Json.quote(content(i)) + ",\"department\":\"" + department + "\"}\n");
+            }
+        }
+        assertTrue(Files.size(csv) > 2 << 20);
+
+        for (Path file : new Path[] {csv, jsonl}) {
+            DocumentService fresh = new DocumentService();
+            fresh.registerDepartment(new Department("FIN", "Financeiro"));
+            fresh.registerDepartment(new Department("JUR", "Jurídico"));
+            BulkImporter.ImportResult result = new BulkImporter(fresh, 4, 500)
+                    .importDocuments(file, BulkImporter.defaultRejectFile(file));
+            assertEquals(count, result.getRowsRead(), file.toString());
+            assertEquals(count - invalid, result.getImported(), file.toString());
+            assertEquals(invalid, result.getRejected(), file.toString());
+            assertEquals(count - invalid, fresh.getAllDocuments().size());
+            for (int i = 0; i < count; i += 10) {
+                Document document = fresh.getDocument("G" + i);
+                if (i % 97 != 96) {
+                    assertEquals(content(i), document.getContent(), file + " G" + i);
+                }
+            }
+        }
+    }
+
+    private static String content(int i) {
+        return i % 10 == 0
+                ? "Conteúdo com \"aspas\", vírgulas\ne quebra de linha " + i + " " + "x".repeat(60)
+                : "Conteúdo do documento " + i + " " + "y".repeat(i % 50);
+    }
+}
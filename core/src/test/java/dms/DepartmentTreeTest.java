@@ -0,0 +1,98 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Contagem de documentos por subárvore de setores, conferida contra uma contagem direta
+class DepartmentTreeTest {
+    private static final int SECTORS = 10;
+    private static final int TEAMS = 5;
+
+    // Diretoria, setores e equipes, na ordem em que podem ser registrados
+    private static List<Department> hierarchy() {
+        List<Department> departments = new ArrayList<>();
+        departments.add(new Department("DIR", "Diretoria"));
+        for (int s = 0; s < SECTORS; s++) {
+            departments.add(new Department("S" + s, "Setor " + s, "DIR"));
+        }
+        for (int s = 0; s < SECTORS; s++) {
+            for (int t = 0; t < TEAMS; t++) {
+                departments.add(new Department("S" + s + "E" + t, "Equipe " + t, "S" + s));
+            }
+        }
+        return departments;
+    }
+
+    private static void assertMatchesBruteForce(DocumentService service, List<Department> departments) {
+        DepartmentTree tree = service.getDepartmentTree();
+        for (Department department : departments) {
+            Set<String> subtree = new HashSet<>(tree.getSubtree(department.getCode()));
+            long expected = service.getAllDocuments().stream()
+                    .filter(document -> subtree.contains(document.getCurrentDepartment().getCode())).count();
+            assertEquals(expected, tree.getSubtreeDocumentCount(department.getCode()), department.getCode());
+        }
+    }
+
+    @Test
+    void countsFollowAddsReplacementsAndTransfers() {
+        DocumentService service = new DocumentService();
+        List<Department> departments = hierarchy();
+        departments.forEach(service::registerDepartment);
+        for (int i = 0; i < 500; i++) {
+            Department department = departments.get(i % departments.size());
+            service.addDocument(new Document("D" + i, "Documento " + i, "texto", service.getDepartment(department.getCode())));
+        }
+        // Entre equipes do mesmo setor, entre setores e para a diretoria
+        for (int i = 0; i < 500; i += 3) {
+            Document document = service.getDocument("D" + i);
+            String target = departments.get((i * 7 + 1) % departments.size()).getCode();
+            service.transferDocument(document.getId(), document.getCurrentDepartment().getCode(), target);
+        }
+        assertMatchesBruteForce(service, departments);
+        assertEquals(500, service.getSubtreeDocumentCount("DIR"));
+    }
+
+    // Documentos chegando (pela recuperação, antes dos setores) enquanto os setores são registrados:
+    // o saldo de quem chegou antes do registro não pode se perder nem ser contado duas vezes
+    @Test
+    void concurrentAddsAndRegistrationsMatchBruteForce() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            DocumentService service = new DocumentService();
+            List<Department> departments = hierarchy();
+            int threads = 4;
+            int perThread = 1_000;
+            ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            long seed = round * 31L;
+            futures.add(executor.submit(() -> {
+                go.await();
+                departments.forEach(service::registerDepartment);
+                return null;
+            }));
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed + thread);
+                    go.await();
+                    for (int i = 0; i < perThread; i++) {
+                        Department department = departments.get(random.nextInt(departments.size()));
+                        service.restoreDocument(new Document("T" + thread + "-" + random.nextInt(perThread / 2),
+                                "Documento", "texto", department));
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            assertMatchesBruteForce(service, departments);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Recuperação a partir do log e dos snapshots gravados pelo PersistenceEngine
+class PersistenceEngineTest {
+    private static final String[] DEPARTMENTS = {"FIN", "JUR", "RH", "TI"};
+
+    @TempDir
+    Path directory;
+
+    // Setores, documentos e algumas transferências de cada documento
+    private static void populate(DocumentService service, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Department department = service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length]);
+            service.addDocument(new Document("DOC" + i, "Documento " + i, "Conteúdo " + i, department));
+            for (int hop = 1; hop <= i % 3; hop++) {
+                service.transferDocument("DOC" + i, DEPARTMENTS[(i + hop - 1) % DEPARTMENTS.length],
+                        DEPARTMENTS[(i + hop) % DEPARTMENTS.length]);
+            }
+        }
+    }
+
+    // O que o PersistenceBenchmark confere depois do reinício
+    private static void assertSameState(DocumentService expected, DocumentService actual) {
+        assertEquals(expected.getAllDocuments().size(), actual.getAllDocuments().size());
+        for (Document document : expected.getAllDocuments()) {
+            Document restored = actual.getDocument(document.getId());
+            assertNotNull(restored, document.getId());
+            assertEquals(document.getCurrentDepartment(), restored.getCurrentDepartment(), document.getId());
+            assertEquals(document.getTransferHistory().size(), restored.getTransferHistory().size(), document.getId());
+            assertEquals(document.getUpdatedAt(), restored.getUpdatedAt(), document.getId());
+            assertEquals(document.getContent(), restored.getContent(), document.getId());
+        }
+    }
+
+    private DocumentService recover() throws Exception {
+        DocumentService recovered = new DocumentService();
+        PersistenceEngine.open(directory, recovered).close();
+        return recovered;
+    }
+
+    private DocumentService populated(PersistenceEngine[] engine) throws Exception {
+        DocumentService service = new DocumentService();
+        engine[0] = PersistenceEngine.open(directory, service, 4_096);
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        return service;
+    }
+
+    @Test
+    void logAloneRestoresEverything() throws Exception {
+        PersistenceEngine[] engine = new PersistenceEngine[1];
+        DocumentService service = populated(engine);
+        populate(service, 0, 200);
+        engine[0].close();
+
+        DocumentService recovered = new DocumentService();
+        PersistenceEngine reopened = PersistenceEngine.open(directory, recovered);
+        assertEquals(0, reopened.getRecoveredDocuments());
+        assertTrue(reopened.getReplayedRecords() >= 200 + DEPARTMENTS.length);
+        reopened.close();
+        assertSameState(service, recovered);
+        assertEquals(DEPARTMENTS.length, recovered.getDepartmentCount());
+    }
+
+    @Test
+    void snapshotPlusLogTailRestoresEverything() throws Exception {
+        PersistenceEngine[] engine = new PersistenceEngine[1];
+        DocumentService service = populated(engine);
+        populate(service, 0, 300);
+        long snapshotSequence = engine[0].snapshot();
+        // Cauda depois do snapshot: documentos novos e transferências de documentos já no snapshot
+        populate(service, 300, 350);
+        service.transferDocument("DOC0", service.getDocument("DOC0").getCurrentDepartment().getCode(), "TI");
+        engine[0].close();
+
+        DocumentService recovered = new DocumentService();
+        PersistenceEngine reopened = PersistenceEngine.open(directory, recovered);
+        assertEquals(snapshotSequence, reopened.getRecoveredSnapshotSequence());
+        assertEquals(300, reopened.getRecoveredDocuments());
+        reopened.close();
+        assertSameState(service, recovered);
+        // Os segmentos anteriores ao snapshot foram apagados e a recuperação não precisou deles
+        assertSameState(service, recover());
+    }
+
+    // Queda no meio da última gravação: o registro parcial é descartado e o resto volta
+    @Test
+    void truncatedLogTailIsDropped() throws Exception {
+        PersistenceEngine[] engine = new PersistenceEngine[1];
+        DocumentService service = populated(engine);
+        populate(service, 0, 100);
+        engine[0].close();
+        Path last;
+        try (Stream<Path> files = Files.list(directory.resolve("wal"))) {
+            List<Path> segments = files.sorted().collect(Collectors.toList());
+            last = segments.get(segments.size() - 1);
+        }
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 9, 9, 9, 9, 0, 0, 0}));
+        }
+
+        DocumentService recovered = recover();
+        assertSameState(service, recovered);
+        // Depois do corte o log volta a aceitar gravações que a próxima recuperação lê
+        DocumentService again = new DocumentService();
+        engine[0] = PersistenceEngine.open(directory, again);
+        populate(again, 100, 110);
+        engine[0].close();
+        assertSameState(again, recover());
+        assertEquals(110, again.getAllDocuments().size());
+    }
+
+    // Setores e documentos registrados enquanto snapshots são gravados: o snapshot mais recente mais a
+    // cauda do log precisam trazer de volta tudo o que foi confirmado ao chamador
+    @Test
+    void snapshotsTakenDuringWritesLoseNothing() throws Exception {
+        DocumentService service = new DocumentService();
+        PersistenceEngine engine = PersistenceEngine.open(directory, service);
+        int threads = 4;
+        int departmentsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(executor.submit(() -> {
+                for (int d = 0; d < departmentsPerThread; d++) {
+                    String code = "S" + thread + "_" + d;
+                    service.registerDepartment(new Department(code, "Setor " + code));
+                    // Metade dos setores fica sem documento: só o bloco de setores do snapshot os guarda
+                    if (d % 2 == 0) {
+                        continue;
+                    }
+                    service.addDocument(new Document("DOC" + code, "Documento " + code, "Conteúdo " + code,
+                            service.getDepartment(code)));
+                }
+                // O último snapshot começa antes de todos terminarem, com escritas ainda chegando
+                done.set(true);
+                return null;
+            }));
+        }
+        ExecutorService snapshotter = Executors.newSingleThreadExecutor();
+        Future<?> snapshots = snapshotter.submit(() -> {
+            while (!done.get()) {
+                engine.snapshot();
+            }
+            return null;
+        });
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        snapshots.get();
+        executor.shutdown();
+        snapshotter.shutdown();
+        engine.close();
+
+        DocumentService recovered = new DocumentService();
+        PersistenceEngine.open(directory, recovered).close();
+        assertEquals(threads * departmentsPerThread, recovered.getDepartmentCount());
+        assertEquals(threads * departmentsPerThread / 2, recovered.getAllDocuments().size());
+        for (Document document : service.getAllDocuments()) {
+            Document copy = recovered.getDocument(document.getId());
+            assertNotNull(copy, document.getId());
+            assertEquals(document.getCurrentDepartment(), copy.getCurrentDepartment());
+        }
+    }
+}
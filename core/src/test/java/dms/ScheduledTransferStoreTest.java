@@ -0,0 +1,166 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Fila em disco das transferências agendadas: faixas gravadas e relidas, caudas corrompidas e
+// recusas de gravação
+class ScheduledTransferStoreTest {
+    private static final long BUCKET_MILLIS = 60_000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private ScheduledTransferStore open() throws IOException {
+        return new ScheduledTransferStore(directory, BUCKET_MILLIS);
+    }
+
+    private static ScheduledTransfer transfer(String documentId, long dueAtMillis) {
+        return new ScheduledTransfer(documentId, "FIN", "JUR", NOW - 1_000, dueAtMillis);
+    }
+
+    private static Set<String> ids(List<ScheduledTransfer> transfers) {
+        return transfers.stream().map(ScheduledTransfer::getDocumentId).collect(Collectors.toSet());
+    }
+
+    private List<Path> buckets() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("bucket-")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Gravação concorrente e releitura: o que foi confirmado volta, com as vencidas e a janela
+    // carregadas primeiro e o resto só quando a janela avança
+    @Test
+    void bucketsRoundTripAcrossRestarts() throws Exception {
+        int count = 2_000;
+        int overdue = 200;
+        ScheduledTransferStore filling = open();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t;
+            futures.add(pool.submit(() -> {
+                for (int i = first; i < count; i += 4) {
+                    long dueAt = i < overdue ? NOW - 1 - i * 10L : NOW + 1 + (i % 100) * BUCKET_MILLIS;
+                    assertFalse(filling.add(transfer("DOC" + i, dueAt)));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        filling.close();
+
+        ScheduledTransferStore store = open();
+        List<ScheduledTransfer> window = store.loadThrough(NOW + 10 * BUCKET_MILLIS);
+        assertEquals(overdue, window.stream().filter(transfer -> transfer.getDueAtMillis() <= NOW).count());
+        assertTrue(window.stream().allMatch(transfer -> transfer.getDueAtMillis() < NOW + 11 * BUCKET_MILLIS));
+        assertEquals(89, store.getUnloadedBucketCount());
+
+        // Uma executada e uma cancelada fora da janela não voltam
+        ScheduledTransfer executed = window.get(0);
+        store.markDone(executed);
+        assertTrue(store.cancelUnloaded(ScheduledTransfer.taskId("DOC1999", "FIN", "JUR"), NOW));
+        List<ScheduledTransfer> rest = store.loadThrough(NOW + 100 * BUCKET_MILLIS);
+        store.close();
+        assertEquals(count - 1, window.size() + rest.size());
+        assertFalse(ids(rest).contains("DOC1999"));
+
+        store = open();
+        Set<String> recovered = ids(store.loadThrough(NOW + 100 * BUCKET_MILLIS));
+        store.close();
+        assertEquals(count - 2, recovered.size());
+        assertFalse(recovered.contains(executed.getDocumentId()));
+        assertFalse(recovered.contains("DOC1999"));
+    }
+
+    // Queda no meio de uma gravação: os registros completos continuam valendo, a cauda é cortada e a
+    // faixa volta a aceitar gravações legíveis
+    @Test
+    void corruptTailIsTruncated() throws IOException {
+        ScheduledTransferStore store = open();
+        for (int i = 0; i < 10; i++) {
+            store.add(transfer("DOC" + i, NOW + 1_000));
+        }
+        store.close();
+        Path bucket = buckets().get(0);
+        long complete = Files.size(bucket);
+        try (FileChannel channel = FileChannel.open(bucket, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // Registro pela metade: tamanho e CRC sem o corpo inteiro
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 1, 0, 5}));
+        }
+
+        store = open();
+        store.add(transfer("DOC10", NOW + 2_000));
+        store.close();
+        assertTrue(Files.size(bucket) > complete);
+
+        // Registro inteiro com o CRC errado também encerra a leitura
+        store = open();
+        assertEquals(11, store.loadThrough(NOW).size());
+        store.close();
+        byte[] bytes = Files.readAllBytes(bucket);
+        bytes[(int) complete + 8] ^= 0x7F;
+        Files.write(bucket, bytes);
+
+        store = open();
+        Set<String> recovered = ids(store.loadThrough(NOW));
+        store.close();
+        assertEquals(10, recovered.size());
+        assertFalse(recovered.contains("DOC10"));
+        assertEquals(complete, Files.size(bucket));
+    }
+
+    // Um texto maior que o tamanho de dois bytes é recusado sem deixar nada na faixa
+    @Test
+    void oversizedValuesAreRejected() throws IOException {
+        ScheduledTransferStore store = open();
+        store.add(transfer("DOC1", NOW + 1_000));
+        char[] huge = new char[0x10000];
+        Arrays.fill(huge, 'x');
+        assertThrows(IllegalArgumentException.class, () -> store.add(transfer(new String(huge), NOW + 1_000)));
+        // Dois bytes por caractere: 40.000 caracteres passam do limite mesmo sendo menos de 64 K
+        char[] accented = new char[40_000];
+        Arrays.fill(accented, 'ç');
+        assertThrows(IllegalArgumentException.class, () -> store.add(transfer(new String(accented), NOW + 1_000)));
+        store.add(transfer("DOC2", NOW + 1_000));
+        store.close();
+
+        ScheduledTransferStore reopened = open();
+        assertEquals(new HashSet<>(Arrays.asList("DOC1", "DOC2")), ids(reopened.loadThrough(NOW)));
+        reopened.close();
+    }
+
+    @Test
+    void stoppedSchedulerRejectsNewWork() throws IOException {
+        DocumentService service = new DocumentService();
+        AutomaticTransferScheduler scheduler = new AutomaticTransferScheduler(service,
+                TransferSchedulingMode.SCHEDULED_EXECUTOR, 1, open());
+        scheduler.start();
+        scheduler.scheduleTransfer("DOC1", "FIN", "JUR", 3_600);
+        scheduler.stop();
+        assertThrows(IllegalStateException.class, () -> scheduler.scheduleTransfer("DOC2", "FIN", "JUR", 60));
+        assertThrows(IllegalStateException.class, () -> scheduler.cancelScheduledTransfer("DOC1", "FIN", "JUR"));
+
+        // A agendada antes do stop continua na fila fechada
+        ScheduledTransferStore store = open();
+        assertEquals(Collections.singleton("DOC1"), ids(store.loadThrough(System.currentTimeMillis() + 7_200_000)));
+        store.close();
+    }
+}
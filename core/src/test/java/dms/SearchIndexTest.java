@@ -0,0 +1,155 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ordenação BM25, consultas por prefixo e atualização de documentos no índice de busca
+class SearchIndexTest {
+    private static final Department DEPARTMENT = new Department("FIN", "Financeiro");
+
+    private final SearchIndex index = new SearchIndex(4);
+
+    private void add(String id, String title, String content) {
+        index.add(new Document(id, title, content, DEPARTMENT));
+    }
+
+    private List<String> search(String query) {
+        return index.search(query, 100).stream().map(SearchIndex.Hit::getDocumentId).collect(Collectors.toList());
+    }
+
+    @Test
+    void titleAndFrequencyRankHigher() {
+        add("CONTEUDO", "Relatório anual", "O contrato foi assinado pela diretoria");
+        add("TITULO", "Contrato de locação", "Assinado pela diretoria");
+        add("REPETIDO", "Relatório mensal", "Contrato, contrato e mais contrato");
+        add("OUTRO", "Memorando", "Nada a ver");
+
+        List<String> hits = search("contrato");
+        assertEquals(Arrays.asList("TITULO", "REPETIDO", "CONTEUDO"), hits);
+        assertTrue(search("memorando contrato").isEmpty(), "todos os termos precisam aparecer");
+    }
+
+    @Test
+    void rareTermsWeighMoreThanCommonOnes() {
+        for (int i = 0; i < 20; i++) {
+            add("COMUM" + i, "Processo " + i, "processo administrativo");
+        }
+        add("RARO", "Processo sigiloso", "processo administrativo sigiloso");
+        List<SearchIndex.Hit> hits = index.search("processo sigiloso", 5);
+        assertEquals("RARO", hits.get(0).getDocumentId());
+        assertEquals(1, hits.size());
+        assertEquals(21, index.search("processo", 50).size());
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() {
+        add("D1", "Contratação", "ORÇAMENTO aprovado");
+        assertEquals(Collections.singletonList("D1"), search("contratacao orcamento"));
+        assertEquals(Collections.singletonList("D1"), search("Contratação Orçamento"));
+    }
+
+    @Test
+    void prefixMatchesEveryExpansion() {
+        add("CONTRATO", "Contrato", "texto");
+        add("CONTROLE", "Controle", "texto");
+        add("CONTA", "Conta", "texto");
+        assertEquals(new HashSet<>(Arrays.asList("CONTRATO", "CONTROLE")), new HashSet<>(search("contr*")));
+        assertEquals(3, search("con*").size());
+        assertEquals(Collections.singletonList("CONTRATO"), search("contr* texto contrato"));
+
+        // Mais termos que o limite de cursores: as listas são juntadas e nenhuma expansão fica de fora
+        for (int i = 0; i < 500; i++) {
+            add("P" + i, "Protocolo", "prefixo" + String.format("%03d", i));
+        }
+        assertEquals(500, index.search("prefixo*", 1_000).size());
+        assertEquals(Collections.singletonList("P499"), search("prefixo499*"));
+        assertEquals(500, index.search("prefixo* protocolo", 1_000).size());
+    }
+
+    @Test
+    void mergedPrefixScoresEqualTheSumOfTermScores() {
+        for (int i = 0; i < 100; i++) {
+            add("D" + i, "Documento", "termo" + i + " termo" + (i + 1));
+        }
+        // termo* expande para mais listas do que se avança uma a uma: a pontuação juntada de cada
+        // documento tem de ser a soma das pontuações dos seus dois termos
+        Map<String, Double> merged = index.search("termo*", 200).stream()
+                .collect(Collectors.toMap(SearchIndex.Hit::getDocumentId, SearchIndex.Hit::getScore));
+        assertEquals(100, merged.size());
+        for (int i = 0; i < 100; i++) {
+            double expected = score("termo" + i, "D" + i) + score("termo" + (i + 1), "D" + i);
+            assertEquals(expected, merged.get("D" + i), 1e-9, "D" + i);
+        }
+    }
+
+    private double score(String term, String documentId) {
+        return index.search(term, 10).stream().filter(hit -> hit.getDocumentId().equals(documentId))
+                .mapToDouble(SearchIndex.Hit::getScore).findFirst().orElse(0);
+    }
+
+    @Test
+    void updatesReplaceTheOldVersion() {
+        add("D1", "Ofício", "pagamento pendente");
+        add("D1", "Ofício", "pagamento quitado");
+        assertTrue(search("pendente").isEmpty());
+        assertEquals(Collections.singletonList("D1"), search("quitado"));
+        assertEquals(1, index.size());
+
+        index.remove("D1");
+        assertTrue(search("pagamento").isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void deadPostingsAreCompacted() {
+        for (int i = 0; i < 100; i++) {
+            add("D" + i, "Documento " + i, "conteudo versao0 termo" + i);
+        }
+        long initial = index.getPostingCount();
+        for (int version = 1; version <= 200; version++) {
+            for (int i = 0; i < 100; i++) {
+                add("D" + i, "Documento " + i, "conteudo versao" + version + " termo" + i);
+            }
+        }
+        // Sem compactação seriam 201 versões de cada ocorrência
+        assertTrue(index.getPostingCount() <= 3 * initial + 4 * 4_096,
+                "ocorrências mortas acumuladas: " + index.getPostingCount());
+        assertEquals(100, index.size());
+        assertEquals(100, search("versao200").size());
+        assertTrue(search("versao199").isEmpty());
+        assertEquals(Collections.singletonList("D42"), search("termo42 versao200"));
+    }
+
+    @Test
+    void concurrentIndexingKeepsEveryDocument() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    add("T" + thread + "-" + i, "Lote " + thread, "importado numero" + i);
+                    if (i % 500 == 0) {
+                        index.search("importado", 10);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(threads * perThread, index.size());
+        assertEquals(threads * perThread, index.search("importado", 1_000_000).size());
+        assertEquals(threads, index.search("numero7", 100).size());
+    }
+}
@@ -0,0 +1,113 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Janelas de vazão e agregados das transferências, incrementais e reconstruídos dos históricos
+class TransferAnalyticsTest {
+    @Test
+    void windowsAreReusedOnTheNextLap() {
+        TransferAnalytics.WindowCounter counter = new TransferAnalytics.WindowCounter(60, 4);
+        counter.add(0, 1);
+        counter.add(59, 2);
+        counter.add(60, 5);
+        counter.add(3 * 60, 7);
+        assertEquals(3, counter.sum(59, 1));
+        assertEquals(15, counter.sum(3 * 60, 4));
+        assertEquals(12, counter.sum(3 * 60, 3));
+        // Mais janelas que o anel valem como o anel inteiro
+        assertEquals(15, counter.sum(3 * 60, 100));
+
+        // A janela 4 ocupa a posição da 0; a 0 deixa de contar e somas atrasadas nela são ignoradas
+        counter.add(4 * 60, 11);
+        counter.add(30, 100);
+        assertEquals(23, counter.sum(4 * 60, 4));
+        assertEquals(0, counter.sum(0, 1));
+
+        // Antes de 1970 também: voltas negativas
+        TransferAnalytics.WindowCounter past = new TransferAnalytics.WindowCounter(60, 4);
+        past.add(-1, 3);
+        past.add(-4 * 60, 4);
+        assertEquals(3, past.sum(-1, 1));
+        assertEquals(7, past.sum(-1, 4));
+    }
+
+    // Threads avançando pelas janelas ao mesmo tempo: uma soma atrasada numa janela que já saiu do
+    // anel é descartada, nunca levada para a janela que ocupou a posição
+    @Test
+    void concurrentAddsNeverLeakIntoTheNextLap() throws Exception {
+        int threads = 4;
+        int windows = 2_000;
+        int perWindow = 50;
+        TransferAnalytics.WindowCounter counter = new TransferAnalytics.WindowCounter(1, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int window = 0; window < windows; window++) {
+                    for (int i = 0; i < perWindow; i++) {
+                        counter.add(window, 1);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        for (int window = windows - 4; window < windows; window++) {
+            assertEquals(threads * perWindow, counter.sum(window, 1), "janela " + window);
+        }
+    }
+
+    @Test
+    void incrementalAggregatesMatchTheRebuild() {
+        DocumentService service = new DocumentService();
+        for (String code : new String[]{"A", "B", "C"}) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Históricos antigos: três dias e duas horas atrás
+        for (int i = 0; i < 10; i++) {
+            LocalDateTime created = now.minusDays(3);
+            LocalDateTime moved = i % 2 == 0 ? now.minusDays(3).plusMinutes(1) : now.minusHours(2);
+            service.restoreDocument(new Document("OLD" + i, "Antigo", "texto", service.getDepartment("B"),
+                    created, moved, Arrays.asList(
+                    new TransferRecord(null, service.getDepartment("A"), TransferHistory.CREATION_REASON, created),
+                    new TransferRecord(service.getDepartment("A"), service.getDepartment("B"),
+                            TransferHistory.MANUAL_REASON, moved))));
+        }
+        service.rebuildAnalytics();
+        TransferAnalytics analytics = service.getAnalytics();
+        assertEquals(10, analytics.getTransferCount());
+        assertEquals(5, analytics.getTransfersInLastMinutes(4 * 60));
+        assertEquals(10, analytics.getTransfersInLastDays(5));
+
+        for (int i = 0; i < 20; i++) {
+            service.addDocument(new Document("NEW" + i, "Novo", "texto", service.getDepartment("A")));
+            service.transferDocument("NEW" + i, "A", "C");
+            if (i % 4 == 0) {
+                service.transferDocument("NEW" + i, "C", "B");
+            }
+        }
+        assertEquals(35, analytics.getTransferCount());
+        assertEquals(25, analytics.getTransfersInLastMinutes(5));
+        assertEquals(20, analytics.getFlow("A", "C"));
+        assertEquals(5, analytics.getFlow("C", "B"));
+        assertEquals(10, analytics.getFlow("A", "B"));
+
+        Map<String, Map<String, Long>> incremental = analytics.getFlowMatrix();
+        long lastDays = analytics.getTransfersInLastDays(5);
+        service.rebuildAnalytics();
+        assertEquals(35, analytics.getTransferCount());
+        assertEquals(incremental, analytics.getFlowMatrix());
+        assertEquals(lastDays, analytics.getTransfersInLastDays(5));
+        assertEquals(25, analytics.getTransfersInLastMinutes(5));
+    }
+}
@@ -0,0 +1,160 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Consultas do registro global de transferências: intervalos de datas, filtros por setor,
+// paginação por cursor e substituição de documentos
+class TransferAuditLogTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final Map<String, Department> departments = new ConcurrentHashMap<>();
+    private final TransferAuditLog log = new TransferAuditLog(departments::get, 4);
+
+    private Department department(String code) {
+        return departments.computeIfAbsent(code, c -> new Department(c, "Setor " + c));
+    }
+
+    private TransferRecord record(String source, String target, int minutes) {
+        return new TransferRecord(source == null ? null : department(source), department(target),
+                TransferHistory.MANUAL_REASON, START.plusMinutes(minutes));
+    }
+
+    private static List<String> ids(List<TransferAuditLog.Entry> entries) {
+        return entries.stream().map(entry -> entry.getDocumentId() + "@"
+                + entry.getRecord().getTimestamp().getMinute()).collect(Collectors.toList());
+    }
+
+    private List<TransferAuditLog.Entry> all(TransferAuditLog.Query query) {
+        return log.stream(query).collect(Collectors.toList());
+    }
+
+    @Test
+    void rangeQueriesIncludeFromAndExcludeTo() {
+        // Fora de ordem de propósito: registros antigos entram no meio dos índices
+        log.append("D1", record("A", "B", 30));
+        log.append("D2", record("A", "C", 10));
+        log.append("D3", record("B", "C", 20));
+        log.append("D4", record("C", "A", 40));
+
+        List<TransferAuditLog.Entry> range = all(new TransferAuditLog.Query(START.plusMinutes(10),
+                START.plusMinutes(30), null, null));
+        assertEquals(Arrays.asList("D2@10", "D3@20"), ids(range));
+        assertEquals(Arrays.asList("D2@10", "D3@20", "D1@30", "D4@40"),
+                ids(all(new TransferAuditLog.Query(null, null, null, null))));
+    }
+
+    @Test
+    void departmentFiltersUseTheirIndexes() {
+        log.append("D1", record("A", "B", 1));
+        log.append("D2", record("A", "C", 2));
+        log.append("D3", record("B", "C", 3));
+        log.append("D4", record("A", "C", 4));
+
+        assertEquals(Arrays.asList("D1@1", "D2@2", "D4@4"), ids(all(new TransferAuditLog.Query(null, null, "A", null))));
+        assertEquals(Arrays.asList("D2@2", "D3@3", "D4@4"), ids(all(new TransferAuditLog.Query(null, null, null, "C"))));
+        assertEquals(Arrays.asList("D2@2", "D4@4"), ids(all(new TransferAuditLog.Query(null, null, "A", "C"))));
+        assertTrue(all(new TransferAuditLog.Query(null, null, "C", "A")).isEmpty());
+        assertTrue(all(new TransferAuditLog.Query(null, null, "NUNCA", null)).isEmpty());
+    }
+
+    @Test
+    void pagesContinueFromTheCursor() {
+        for (int i = 0; i < 25; i++) {
+            log.append("D" + i, record("A", "B", i));
+        }
+        TransferAuditLog.Query query = new TransferAuditLog.Query(null, null, "A", "B");
+        List<TransferAuditLog.Entry> collected = new ArrayList<>();
+        TransferAuditLog.Cursor cursor = null;
+        int pages = 0;
+        do {
+            TransferAuditLog.Page page = log.query(query, cursor, 10);
+            collected.addAll(page.getEntries());
+            // O cursor sobrevive à forma textual usada pela API HTTP
+            cursor = page.getNext() == null ? null : TransferAuditLog.Cursor.parse(page.getNext().toString());
+            pages++;
+            // Registro acrescentado entre duas páginas, antes do intervalo já lido: não desloca as seguintes
+            log.append("X" + pages, record("C", "D", 0));
+        } while (cursor != null);
+        assertEquals(3, pages);
+        assertEquals(25, collected.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals("D" + i, collected.get(i).getDocumentId());
+        }
+    }
+
+    @Test
+    void replacingWithDivergentHistoryDropsTheOldTail() {
+        DocumentService service = new DocumentService();
+        for (String code : new String[]{"A", "B", "C"}) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        Department a = service.getDepartment("A");
+        Department b = service.getDepartment("B");
+        Department c = service.getDepartment("C");
+        List<TransferRecord> oldHistory = Arrays.asList(
+                new TransferRecord(null, a, TransferHistory.CREATION_REASON, START),
+                new TransferRecord(a, b, TransferHistory.MANUAL_REASON, START.plusMinutes(1)),
+                new TransferRecord(b, c, TransferHistory.MANUAL_REASON, START.plusMinutes(2)));
+        service.restoreDocument(new Document("D1", "t", "c", c, START, START.plusMinutes(2), oldHistory));
+        List<TransferRecord> newHistory = Arrays.asList(oldHistory.get(0), oldHistory.get(1),
+                new TransferRecord(b, a, TransferHistory.MANUAL_REASON, START.plusMinutes(5)));
+        service.restoreDocument(new Document("D1", "t", "c", a, START, START.plusMinutes(5), newHistory));
+
+        TransferAuditLog audit = service.getAuditLog();
+        assertEquals(3, audit.size());
+        List<TransferAuditLog.Entry> entries = audit.stream(new TransferAuditLog.Query(null, null, null, null))
+                .collect(Collectors.toList());
+        assertEquals(newHistory.stream().map(TransferRecord::toString).collect(Collectors.toList()),
+                entries.stream().map(entry -> entry.getRecord().toString()).collect(Collectors.toList()));
+        assertEquals(0, audit.stream(new TransferAuditLog.Query(null, null, "B", "C")).count());
+        assertEquals(1, audit.stream(new TransferAuditLog.Query(null, null, "B", "A")).count());
+
+        // Substituir pelo mesmo histórico não duplica nada
+        service.restoreDocument(new Document("D1", "t", "c", a, START, START.plusMinutes(5), newHistory));
+        assertEquals(3, audit.size());
+    }
+
+    @Test
+    void concurrentAppendsAreAllIndexedInTimeOrder() throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.append("T" + thread + "-" + (i % 50), record("A", thread % 2 == 0 ? "B" : "C", i));
+                    if (i % 1_000 == 0) {
+                        log.query(new TransferAuditLog.Query(null, null, "A", null), null, 10);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread, log.size());
+        List<TransferAuditLog.Entry> entries = all(new TransferAuditLog.Query(null, null, null, null));
+        assertEquals(threads * perThread, entries.size());
+        for (int i = 1; i < entries.size(); i++) {
+            assertTrue(!entries.get(i).getRecord().getTimestamp().isBefore(entries.get(i - 1).getRecord().getTimestamp()));
+        }
+        assertEquals(threads / 2 * perThread, all(new TransferAuditLog.Query(null, null, "A", "B")).size());
+        TransferAuditLog.Page empty = log.query(new TransferAuditLog.Query(START.plusDays(10), null, null, null), null, 10);
+        assertTrue(empty.getEntries().isEmpty());
+        assertNull(empty.getNext());
+    }
+}
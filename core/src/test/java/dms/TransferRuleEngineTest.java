@@ -0,0 +1,45 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Ciclo de vida do motor de regras: avisos do serviço e tique só entre start e stop
+class TransferRuleEngineTest {
+    private static boolean tickerRunning() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("transfer-rules") && thread.isAlive());
+    }
+
+    @Test
+    void listensOnlyBetweenStartAndStop() throws Exception {
+        DocumentService service = new DocumentService();
+        service.registerDepartment(new Department("A", "Setor A"));
+        service.registerDepartment(new Department("B", "Setor B"));
+        TransferRuleEngine engine = new TransferRuleEngine(service);
+        assertFalse(tickerRunning(), "o construtor não cria threads");
+
+        // Regra criada antes do start: a chegada anterior ao start entra na nova leitura do índice
+        engine.addRule(TransferRuleEngine.Rule.olderThan("r1", "A", "B", Duration.ZERO));
+        service.addDocument(new Document("ANTES", "Antes", "texto", service.getDepartment("A")));
+        engine.start();
+        assertTrue(tickerRunning());
+        assertThrows(IllegalStateException.class, engine::start);
+        service.addDocument(new Document("DURANTE", "Durante", "texto", service.getDepartment("A")));
+        long later = TransferRuleEngine.localMillis(LocalDateTime.now().plusMinutes(1));
+        assertEquals(2, engine.evaluate(later));
+        assertEquals("B", service.getDocument("ANTES").getCurrentDepartment().getCode());
+        assertEquals("B", service.getDocument("DURANTE").getCurrentDepartment().getCode());
+
+        engine.stop();
+        service.addDocument(new Document("DEPOIS", "Depois", "texto", service.getDepartment("A")));
+        assertEquals(0, engine.evaluate(later), "sem avisos depois do stop");
+        for (int i = 0; i < 100 && tickerRunning(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(tickerRunning());
+    }
+}
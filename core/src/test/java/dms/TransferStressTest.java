@@ -0,0 +1,89 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Transferências concorrentes no DocumentService: várias threads movem documentos sorteados a
+// partir do setor lido sem lock, então parte das tentativas chega com a origem obsoleta e deve ser
+// recusada. No fim o histórico de cada documento precisa formar uma cadeia desde a criação até o
+// setor atual, com um registro por transferência aceita, e o índice por setor precisa acompanhar.
+class TransferStressTest {
+    private static final int THREADS = 8;
+    private static final int DOCUMENTS = 1_000;
+    private static final int TRANSFERS_PER_THREAD = 20_000;
+    private static final String[] DEPARTMENTS = {"FIN", "RH", "TI", "JUR", "ADM", "COM", "LOG", "DIR"};
+
+    @Test
+    void concurrentTransfersKeepHistoriesConsistent() throws Exception {
+        DocumentService service = new DocumentService();
+        for (String code : DEPARTMENTS) {
+            service.registerDepartment(new Department(code, "Setor " + code));
+        }
+        String[] documentIds = new String[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            documentIds[i] = "DOC" + i;
+            service.addDocument(new Document(documentIds[i], "Documento " + i, "Conteúdo " + i,
+                    service.getDepartment(DEPARTMENTS[i % DEPARTMENTS.length])));
+        }
+
+        AtomicLong succeeded = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                long ok = 0;
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    String id = documentIds[random.nextInt(DOCUMENTS)];
+                    String source = service.getDocument(id).getCurrentDepartment().getCode();
+                    if (service.transferDocument(id, source, DEPARTMENTS[random.nextInt(DEPARTMENTS.length)])) {
+                        ok++;
+                    }
+                }
+                succeeded.addAndGet(ok);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        long historyTransfers = 0;
+        for (String id : documentIds) {
+            Document document = service.getDocument(id);
+            List<TransferRecord> history = document.getTransferHistory();
+            assertTrue(!history.isEmpty() && history.get(0).getSource() == null,
+                    id + ": histórico não começa pelo registro de criação");
+            for (int i = 1; i < history.size(); i++) {
+                assertEquals(history.get(i - 1).getTarget(), history.get(i).getSource(),
+                        id + ": registro " + i + " não parte do destino anterior");
+            }
+            assertEquals(history.get(history.size() - 1).getTarget(), document.getCurrentDepartment(),
+                    id + ": setor atual diverge do último registro");
+            historyTransfers += history.size() - 1;
+        }
+        assertEquals(succeeded.get(), historyTransfers, "transferências aceitas diferem dos registros no histórico");
+
+        for (String code : DEPARTMENTS) {
+            Department department = service.getDepartment(code);
+            long expected = Arrays.stream(documentIds)
+                    .filter(id -> service.getDocument(id).getCurrentDepartment().equals(department))
+                    .count();
+            List<Document> indexed = service.getDocumentsByDepartment(code);
+            assertEquals(expected, service.getDocumentCountByDepartment(department), code + ": contador por setor");
+            assertEquals(expected, indexed.size(), code + ": listagem por setor");
+            assertTrue(indexed.stream().allMatch(document -> document.getCurrentDepartment().equals(department)),
+                    code + ": listagem com documento de outro setor");
+        }
+    }
+}
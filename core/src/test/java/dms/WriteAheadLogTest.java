@@ -0,0 +1,126 @@
+package dms;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Log de escrita antecipada: releitura em ordem entre segmentos, corte de cauda interrompida e
+// recusa de segmentos intermediários corrompidos
+class WriteAheadLogTest {
+    private static final byte TYPE = 7;
+    // Pequeno para que poucos registros já se espalhem por vários segmentos
+    private static final long SEGMENT_BYTES = 256;
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog write(int from, int to) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_BYTES);
+        log.replay(0, (sequence, type, data) -> { });
+        log.start();
+        for (int i = from; i <= to; i++) {
+            log.awaitDurable(log.append(TYPE, payload(i)));
+        }
+        return log;
+    }
+
+    private static byte[] payload(int i) {
+        return ("registro " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Sequência e conteúdo de cada registro relido depois de afterSequence
+    private Map<Long, String> replay(long afterSequence) throws IOException {
+        Map<Long, String> records = new LinkedHashMap<>();
+        WriteAheadLog log = new WriteAheadLog(directory, SEGMENT_BYTES);
+        log.replay(afterSequence, (sequence, type, data) -> {
+            assertEquals(TYPE, type);
+            records.put(sequence, new String(data.readAllBytes(), StandardCharsets.UTF_8));
+        });
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("wal-")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void replayReadsEverySegmentInOrder() throws IOException {
+        write(1, 50).close();
+        assertTrue(segments().size() > 3, "segmentos: " + segments().size());
+
+        Map<Long, String> all = replay(0);
+        assertEquals(50, all.size());
+        long expected = 1;
+        for (Map.Entry<Long, String> record : all.entrySet()) {
+            assertEquals(expected, record.getKey());
+            assertEquals("registro " + expected, record.getValue());
+            expected++;
+        }
+        assertEquals(new ArrayList<>(all.keySet()).subList(30, 50), new ArrayList<>(replay(30).keySet()));
+
+        // Reaberto, o log continua a numeração
+        WriteAheadLog log = write(51, 51);
+        assertEquals(51, log.getLastSequence());
+        log.close();
+        assertEquals("registro 51", replay(50).get(51L));
+    }
+
+    @Test
+    void interruptedTailIsCutFromTheLastSegment() throws IOException {
+        write(1, 10).close();
+        Path last = segments().get(segments().size() - 1);
+        long complete = Files.size(last);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // Tamanho e CRC de um registro cujo corpo não chegou ao disco
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 30, 1, 2, 3, 4, 0, 0}));
+        }
+
+        assertEquals(10, replay(0).size());
+        assertEquals(complete, Files.size(last));
+        write(11, 12).close();
+        assertEquals(12, replay(0).size());
+    }
+
+    @Test
+    void corruptionBeforeTheLastSegmentFailsTheReplay() throws IOException {
+        write(1, 20).close();
+        Path first = segments().get(0);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(first, bytes);
+        IOException failure = assertThrows(IOException.class, () -> replay(0));
+        assertTrue(failure.getMessage().contains(first.getFileName().toString()), failure.getMessage());
+    }
+
+    @Test
+    void segmentsCoveredByASnapshotAreDeleted() throws IOException {
+        WriteAheadLog log = write(1, 20);
+        int before = segments().size();
+        log.deleteSegmentsThrough(10);
+        log.close();
+        assertTrue(segments().size() < before);
+        Map<Long, String> rest = replay(10);
+        assertEquals(10, rest.size());
+        assertEquals(11L, rest.keySet().iterator().next());
+    }
+
+    @Test
+    void appendsAfterCloseAreRefused() throws IOException {
+        WriteAheadLog log = write(1, 1);
+        log.close();
+        assertThrows(IOException.class, () -> log.append(TYPE, payload(2)));
+    }
+}
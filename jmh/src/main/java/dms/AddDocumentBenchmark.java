@@ -0,0 +1,53 @@
+package dms;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// addDocument num acervo do tamanho indicado
+//
+// Adicionar muda o tamanho do acervo, então cada medição parte de um serviço recém-carregado e
+// adiciona um lote fixo de documentos novos (modo SingleShotTime com batchSize): o resultado é o
+// tempo do lote inteiro, e o acervo cresce no máximo BATCH_SIZE documentos durante a medição.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = AddDocumentBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = AddDocumentBenchmark.BATCH_SIZE)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Ddms.logLevel=WARN"})
+public class AddDocumentBenchmark {
+    static final int BATCH_SIZE = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int corpusSize;
+
+    private SyntheticCorpus corpus;
+    private Document[] newDocuments;
+    private DocumentService service;
+    private int added;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        corpus = new SyntheticCorpus(corpusSize, 42);
+        Random random = new Random(43);
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 0, 0);
+        newDocuments = new Document[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            newDocuments[i] = corpus.document(corpusSize + i, random, now);
+        }
+    }
+
+    // Documentos novos entram em serviços diferentes a cada iteração, então podem ser reaproveitados
+    @Setup(Level.Iteration)
+    public void load() {
+        service = corpus.newService();
+        added = 0;
+    }
+
+    @Benchmark
+    public void addDocument() {
+        service.addDocument(newDocuments[added++]);
+    }
+}
@@ -0,0 +1,79 @@
+package dms;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Consultas ao registro global de transferências sobre um acervo já carregado
+//
+// firstPageByTargetAndMonth lê a primeira página (200 registros) do que entrou num setor sorteado
+// ao longo de um mês; streamByPairAndWeek percorre tudo o que foi de um setor para outro numa semana.
+// scanHistoriesByTargetAndMonth responde à primeira pergunta sem o registro, percorrendo o histórico
+// de todos os documentos, e ainda sem ordenar o resultado: é a referência que cresce com o acervo.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Ddms.logLevel=WARN"})
+public class AuditLogQueryBenchmark {
+    private static final int RANDOM_INDEXES = 1 << 16;
+    private static final int PAGE_SIZE = 200;
+    // O acervo sintético tem documentos criados ao longo de 2023
+    private static final LocalDateTime MONTH_START = LocalDateTime.of(2023, 3, 1, 0, 0);
+    private static final LocalDateTime WEEK_START = LocalDateTime.of(2023, 6, 5, 0, 0);
+
+    @Param({"10000", "100000", "1000000"})
+    public int corpusSize;
+
+    private DocumentService service;
+    private String[] departmentCodes;
+    private int[] randomDepartments;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SyntheticCorpus(corpusSize, 42).newService();
+        departmentCodes = new String[SyntheticCorpus.DEPARTMENT_COUNT];
+        for (int d = 0; d < departmentCodes.length; d++) {
+            departmentCodes[d] = SyntheticCorpus.departmentCode(d);
+        }
+        randomDepartments = SyntheticCorpus.randomIndexes(SyntheticCorpus.DEPARTMENT_COUNT, RANDOM_INDEXES, 11);
+    }
+
+    private String nextDepartment() {
+        return departmentCodes[randomDepartments[cursor++ & (RANDOM_INDEXES - 1)]];
+    }
+
+    @Benchmark
+    public int firstPageByTargetAndMonth() {
+        TransferAuditLog.Query query = new TransferAuditLog.Query(MONTH_START, MONTH_START.plusMonths(1), null,
+                nextDepartment());
+        return service.getAuditLog().query(query, null, PAGE_SIZE).getEntries().size();
+    }
+
+    @Benchmark
+    public long streamByPairAndWeek() {
+        TransferAuditLog.Query query = new TransferAuditLog.Query(WEEK_START, WEEK_START.plusWeeks(1),
+                nextDepartment(), nextDepartment());
+        return service.getAuditLog().stream(query).count();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int scanHistoriesByTargetAndMonth() {
+        String target = nextDepartment();
+        LocalDateTime end = MONTH_START.plusMonths(1);
+        int found = 0;
+        for (Document document : service.getAllDocuments()) {
+            for (TransferRecord record : document.getTransferHistory()) {
+                if (record.getTarget().getCode().equals(target) && !record.getTimestamp().isBefore(MONTH_START)
+                        && record.getTimestamp().isBefore(end) && found < PAGE_SIZE) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,125 @@
+package dms;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Consultas e transferências com os setores do acervo numa hierarquia de três níveis
+//
+// Quatro diretorias (DIR0..DIR3) com quatro gerências cada (G00..G15), e os setores S00..S63 do
+// acervo distribuídos quatro por gerência. subtreeDocumentCount lê o total mantido na árvore para um
+// nó sorteado; scanSubtreeDocumentCount conta os documentos de uma diretoria subindo pela hierarquia a
+// partir do setor de cada um, a referência sem os agregados. As transferências levam documentos
+// sorteados para outro setor da mesma gerência (atualiza só os dois setores) ou para um setor de outra
+// diretoria (atualiza os três níveis dos dois lados); compare com DocumentServiceBenchmark.transferDocument.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Ddms.logLevel=WARN"})
+public class DepartmentTreeBenchmark {
+    private static final int RANDOM_INDEXES = 1 << 16;
+    private static final int DIRECTORATES = 4;
+    private static final int MANAGEMENTS = 16;
+
+    @Param({"10000", "100000", "1000000"})
+    public int corpusSize;
+
+    private DocumentService service;
+    private String[] documentIds;
+    private String[] departmentCodes;
+    // Diretorias, gerências e setores, para sortear o nó consultado
+    private String[] nodeCodes;
+    private int[] currentDepartment;
+    private int[] randomDocuments;
+    private int[] randomNodes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(corpusSize, 42);
+        service = new DocumentService();
+        nodeCodes = new String[DIRECTORATES + MANAGEMENTS + SyntheticCorpus.DEPARTMENT_COUNT];
+        int node = 0;
+        for (int d = 0; d < DIRECTORATES; d++) {
+            service.restoreDepartment(new Department(nodeCodes[node++] = "DIR" + d, "Diretoria " + d));
+        }
+        for (int m = 0; m < MANAGEMENTS; m++) {
+            service.restoreDepartment(new Department(nodeCodes[node++] = String.format("G%02d", m), "Gerência " + m,
+                    "DIR" + m / (MANAGEMENTS / DIRECTORATES)));
+        }
+        departmentCodes = new String[SyntheticCorpus.DEPARTMENT_COUNT];
+        for (int d = 0; d < departmentCodes.length; d++) {
+            departmentCodes[d] = SyntheticCorpus.departmentCode(d);
+            service.restoreDepartment(new Department(nodeCodes[node++] = departmentCodes[d], "Setor " + d,
+                    String.format("G%02d", d / (SyntheticCorpus.DEPARTMENT_COUNT / MANAGEMENTS))));
+        }
+        documentIds = new String[corpusSize];
+        currentDepartment = new int[corpusSize];
+        for (int i = 0; i < corpusSize; i++) {
+            service.restoreDocument(corpus.documents[i]);
+            documentIds[i] = SyntheticCorpus.documentId(i);
+            currentDepartment[i] = Integer.parseInt(corpus.documents[i].getCurrentDepartment().getCode().substring(1));
+        }
+        randomDocuments = SyntheticCorpus.randomIndexes(corpusSize, RANDOM_INDEXES, 7);
+        randomNodes = SyntheticCorpus.randomIndexes(nodeCodes.length, RANDOM_INDEXES, 11);
+    }
+
+    private int next() {
+        return cursor++ & (RANDOM_INDEXES - 1);
+    }
+
+    @Benchmark
+    public long subtreeDocumentCount() {
+        return service.getSubtreeDocumentCount(nodeCodes[randomNodes[next()]]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long scanSubtreeDocumentCount() {
+        String directorate = "DIR" + (next() % DIRECTORATES);
+        long count = 0;
+        for (Document document : service.getAllDocuments()) {
+            String code = document.getCurrentDepartment().getCode();
+            while (code != null && !code.equals(directorate)) {
+                code = service.getDepartment(code).getParentCode();
+            }
+            if (code != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Document> documentsInSubtree() {
+        return service.getDocumentsInSubtree(String.format("G%02d", next() % MANAGEMENTS));
+    }
+
+    // Para o próximo setor da mesma gerência
+    @Benchmark
+    public boolean transferWithinManagement() {
+        int document = randomDocuments[next()];
+        int source = currentDepartment[document];
+        int perManagement = SyntheticCorpus.DEPARTMENT_COUNT / MANAGEMENTS;
+        int target = source - source % perManagement + (source + 1) % perManagement;
+        return transfer(document, source, target);
+    }
+
+    // Para o setor de mesma posição na diretoria seguinte
+    @Benchmark
+    public boolean transferAcrossDirectorates() {
+        int document = randomDocuments[next()];
+        int source = currentDepartment[document];
+        int target = (source + SyntheticCorpus.DEPARTMENT_COUNT / DIRECTORATES) % SyntheticCorpus.DEPARTMENT_COUNT;
+        return transfer(document, source, target);
+    }
+
+    private boolean transfer(int document, int source, int target) {
+        currentDepartment[document] = target;
+        return service.transferDocument(documentIds[document], departmentCodes[source], departmentCodes[target]);
+    }
+}
@@ -0,0 +1,89 @@
+package dms;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// Operações do DocumentService sobre um acervo já carregado
+//
+// transferDocument leva documentos sorteados do setor atual para o seguinte (o histórico deles cresce
+// durante a medição, como em produção). listDocumentsByDepartment escreve cada documento em System.out,
+// que aqui é trocado por uma saída vazia: mede montar as listas e os textos, não o console.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Ddms.logLevel=WARN"})
+public class DocumentServiceBenchmark {
+    private static final int RANDOM_INDEXES = 1 << 16;
+
+    @Param({"10000", "100000", "1000000"})
+    public int corpusSize;
+
+    private DocumentService service;
+    private String[] documentIds;
+    private String[] departmentCodes;
+    // Setor atual de cada documento, para transferDocument não precisar consultá-lo
+    private int[] currentDepartment;
+    private int[] randomDocuments;
+    private int[] randomDepartments;
+    private int cursor;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(corpusSize, 42);
+        service = corpus.newService();
+        documentIds = new String[corpusSize];
+        currentDepartment = new int[corpusSize];
+        for (int i = 0; i < corpusSize; i++) {
+            documentIds[i] = SyntheticCorpus.documentId(i);
+            currentDepartment[i] = Integer.parseInt(corpus.documents[i].getCurrentDepartment().getCode().substring(1));
+        }
+        departmentCodes = new String[SyntheticCorpus.DEPARTMENT_COUNT];
+        for (int d = 0; d < departmentCodes.length; d++) {
+            departmentCodes[d] = SyntheticCorpus.departmentCode(d);
+        }
+        randomDocuments = SyntheticCorpus.randomIndexes(corpusSize, RANDOM_INDEXES, 7);
+        randomDepartments = SyntheticCorpus.randomIndexes(SyntheticCorpus.DEPARTMENT_COUNT, RANDOM_INDEXES, 11);
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    private int next() {
+        return cursor++ & (RANDOM_INDEXES - 1);
+    }
+
+    @Benchmark
+    public boolean transferDocument() {
+        int document = randomDocuments[next()];
+        int source = currentDepartment[document];
+        int target = (source + 1) % departmentCodes.length;
+        currentDepartment[document] = target;
+        return service.transferDocument(documentIds[document], departmentCodes[source], departmentCodes[target]);
+    }
+
+    @Benchmark
+    public int getDocumentCountByDepartment() {
+        return service.getDocumentCountByDepartment(service.getDepartment(departmentCodes[randomDepartments[next()]]));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void listDocumentsByDepartment() {
+        service.listDocumentsByDepartment();
+    }
+
+    @Benchmark
+    public String getDocumentHistory() {
+        return service.getDocumentHistory(documentIds[randomDocuments[next()]]);
+    }
+}
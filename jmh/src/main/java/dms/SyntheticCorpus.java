@@ -0,0 +1,81 @@
+package dms;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Acervo sintético e reproduzível para os benchmarks
+//
+// Setores com códigos S00..S63 e documentos com título e conteúdo curtos, criados ao longo do
+// último ano, cada um com 0 a 8 transferências no histórico entre setores sorteados. A mesma
+// semente gera sempre o mesmo acervo, então as execuções de versões diferentes são comparáveis.
+final class SyntheticCorpus {
+    static final int DEPARTMENT_COUNT = 64;
+    private static final int MAX_HISTORY_TRANSFERS = 8;
+    private static final String[] WORDS = {"Relatório", "Contrato", "Pagamento", "Fornecedor", "Processo",
+            "Análise", "Orçamento", "Projeto", "Reunião", "Aprovação", "Licitação", "Auditoria"};
+
+    final Department[] departments = new Department[DEPARTMENT_COUNT];
+    final Document[] documents;
+
+    SyntheticCorpus(int documentCount, long seed) {
+        for (int d = 0; d < DEPARTMENT_COUNT; d++) {
+            departments[d] = new Department(departmentCode(d), "Setor " + d);
+        }
+        Random random = new Random(seed);
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 0, 0);
+        documents = new Document[documentCount];
+        for (int i = 0; i < documentCount; i++) {
+            documents[i] = document(i, random, now);
+        }
+    }
+
+    static String departmentCode(int department) {
+        return String.format("S%02d", department);
+    }
+
+    static String documentId(int document) {
+        return "DOC" + document;
+    }
+
+    // Documento com a mesma distribuição dos do acervo, para benchmarks que adicionam documentos novos
+    Document document(int index, Random random, LocalDateTime now) {
+        LocalDateTime created = now.minusSeconds(random.nextInt(365 * 86_400));
+        Department current = departments[random.nextInt(DEPARTMENT_COUNT)];
+        List<TransferRecord> history = new ArrayList<>();
+        history.add(new TransferRecord(null, current, TransferHistory.CREATION_REASON, created));
+        LocalDateTime timestamp = created;
+        for (int t = random.nextInt(MAX_HISTORY_TRANSFERS + 1); t > 0; t--) {
+            Department target = departments[random.nextInt(DEPARTMENT_COUNT)];
+            timestamp = timestamp.plusSeconds(1 + random.nextInt(86_400));
+            history.add(new TransferRecord(current, target, TransferHistory.MANUAL_REASON, timestamp));
+            current = target;
+        }
+        String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + index;
+        return new Document(documentId(index), title, "Conteúdo do documento " + index, current, created, timestamp,
+                history);
+    }
+
+    // Serviço em memória com todo o acervo, sem passar pelo log nem pelos avisos de eventos
+    DocumentService newService() {
+        DocumentService service = new DocumentService();
+        for (Department department : departments) {
+            service.restoreDepartment(department);
+        }
+        for (Document document : documents) {
+            service.restoreDocument(document);
+        }
+        return service;
+    }
+
+    // Índices sorteados de 0 a bound - 1, percorridos em ciclo pelos benchmarks (tamanho potência de dois)
+    static int[] randomIndexes(int bound, int count, long seed) {
+        Random random = new Random(seed);
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = random.nextInt(bound);
+        }
+        return indexes;
+    }
+}
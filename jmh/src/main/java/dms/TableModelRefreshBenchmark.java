@@ -0,0 +1,90 @@
+package dms;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.JComboBox;
+import javax.swing.JTable;
+import java.util.concurrent.TimeUnit;
+
+// Atualização dos modelos da interface sem janela (java.awt.headless=true)
+//
+// Os modelos ficam ligados a uma JTable ou JComboBox, como na interface, para que os avisos de
+// alteração passem pelos mesmos listeners. Cada operação recarrega o modelo e lê uma tela de
+// células numa posição sorteada, que é o que a tela pinta depois da atualização. Os componentes
+// são usados só pela thread do benchmark, o que substitui a thread de eventos.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Ddms.logLevel=WARN", "-Djava.awt.headless=true"})
+public class TableModelRefreshBenchmark {
+    private static final int RANDOM_INDEXES = 1 << 16;
+    private static final int VISIBLE_ROWS = 40;
+
+    @Param({"10000", "100000", "1000000"})
+    public int corpusSize;
+
+    private DocumentTableModel documentsTableModel;
+    private DepartmentTableModel departmentsTableModel;
+    private LazyComboBoxModel documentComboBoxModel;
+    private int[] randomRows;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DocumentService service = new SyntheticCorpus(corpusSize, 42).newService();
+        documentsTableModel = new DocumentTableModel(service);
+        new JTable(documentsTableModel);
+        departmentsTableModel = new DepartmentTableModel(service);
+        new JTable(departmentsTableModel);
+        documentComboBoxModel = new LazyComboBoxModel(service::getDocumentCount, index -> {
+            Document doc = service.getDocumentAt(index);
+            return doc.getId() + " - " + doc.getTitle();
+        });
+        JComboBox<String> comboBox = LazyComboBoxModel.createComboBox(documentComboBoxModel,
+                "DOC000000 - Título de documento com tamanho típico");
+        comboBox.getModel();
+        randomRows = SyntheticCorpus.randomIndexes(corpusSize - VISIBLE_ROWS, RANDOM_INDEXES, 13);
+    }
+
+    private int nextRow() {
+        return randomRows[cursor++ & (RANDOM_INDEXES - 1)];
+    }
+
+    @Benchmark
+    public int documentTableShowAll() {
+        documentsTableModel.showAll();
+        int first = nextRow();
+        int hash = 0;
+        for (int row = first; row < first + VISIBLE_ROWS; row++) {
+            for (int column = 0; column < documentsTableModel.getColumnCount(); column++) {
+                hash += documentsTableModel.getValueAt(row, column).hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int departmentTableRefresh() {
+        departmentsTableModel.refresh();
+        int hash = 0;
+        for (int row = 0; row < departmentsTableModel.getRowCount(); row++) {
+            for (int column = 0; column < departmentsTableModel.getColumnCount(); column++) {
+                hash += departmentsTableModel.getValueAt(row, column).hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int documentComboBoxRefresh() {
+        documentComboBoxModel.refresh();
+        int first = nextRow();
+        int hash = 0;
+        for (int index = first; index < first + VISIBLE_ROWS; index++) {
+            hash += documentComboBoxModel.getElementAt(index).hashCode();
+        }
+        return hash;
+    }
+}
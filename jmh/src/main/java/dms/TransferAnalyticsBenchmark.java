@@ -0,0 +1,63 @@
+package dms;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Estatísticas de transferências sobre um acervo já carregado
+//
+// report e flowMatrix leem os agregados mantidos a cada transferência; rebuild recalcula tudo a
+// partir dos históricos no ForkJoinPool comum, como na recuperação. scanFlowMatrix monta a matriz
+// de fluxo percorrendo o histórico de todos os documentos: é a referência sem os agregados.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Ddms.logLevel=WARN"})
+public class TransferAnalyticsBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int corpusSize;
+
+    private DocumentService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SyntheticCorpus(corpusSize, 42).newService();
+        service.rebuildAnalytics();
+    }
+
+    @Benchmark
+    public String report() {
+        return service.getAnalytics().report();
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Long>> flowMatrix() {
+        return service.getAnalytics().getFlowMatrix();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long rebuild() {
+        service.rebuildAnalytics();
+        return service.getAnalytics().getTransferCount();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, Map<String, Long>> scanFlowMatrix() {
+        Map<String, Map<String, Long>> matrix = new HashMap<>();
+        for (Document document : service.getAllDocuments()) {
+            for (TransferRecord record : document.getTransferHistory()) {
+                if (record.getSource() != null) {
+                    matrix.computeIfAbsent(record.getSource().getCode(), code -> new HashMap<>())
+                            .merge(record.getTarget().getCode(), 1L, Long::sum);
+                }
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,72 @@
+package dms;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// scheduleTransfer e cancelScheduledTransfer com corpusSize transferências pendentes no agendador
+//
+// Cada documento do acervo começa com uma transferência agendada para daqui a uma hora, que não vence
+// durante a medição. scheduleTransfer reagenda a mesma transferência de um documento sorteado, o que
+// substitui o plano dele (cancela a anterior no timer e agenda a nova); cancelAndReschedule cancela a
+// transferência e a agenda de novo. Nos dois casos o número de pendentes não muda.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Ddms.logLevel=WARN"})
+public class TransferSchedulingBenchmark {
+    private static final int RANDOM_INDEXES = 1 << 16;
+    private static final int DELAY_SECONDS = 3_600;
+
+    @Param({"10000", "100000", "1000000"})
+    public int corpusSize;
+
+    // Nome de um TransferSchedulingMode: o código gerado pelo JMH não enxerga o enum, que é do pacote
+    @Param({"SCHEDULED_EXECUTOR", "TIMING_WHEEL"})
+    public String mode;
+
+    private AutomaticTransferScheduler scheduler;
+    private String[] documentIds;
+    private String[] sources;
+    private String[] targets;
+    private int[] randomDocuments;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(corpusSize, 42);
+        scheduler = new AutomaticTransferScheduler(corpus.newService(), TransferSchedulingMode.valueOf(mode), 1);
+        scheduler.start();
+        documentIds = new String[corpusSize];
+        sources = new String[corpusSize];
+        targets = new String[corpusSize];
+        for (int i = 0; i < corpusSize; i++) {
+            documentIds[i] = SyntheticCorpus.documentId(i);
+            int source = Integer.parseInt(corpus.documents[i].getCurrentDepartment().getCode().substring(1));
+            sources[i] = SyntheticCorpus.departmentCode(source);
+            targets[i] = SyntheticCorpus.departmentCode((source + 1) % SyntheticCorpus.DEPARTMENT_COUNT);
+            scheduler.scheduleTransfer(documentIds[i], sources[i], targets[i], DELAY_SECONDS);
+        }
+        randomDocuments = SyntheticCorpus.randomIndexes(corpusSize, RANDOM_INDEXES, 7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.stop();
+    }
+
+    @Benchmark
+    public void scheduleTransfer() {
+        int document = randomDocuments[cursor++ & (RANDOM_INDEXES - 1)];
+        scheduler.scheduleTransfer(documentIds[document], sources[document], targets[document], DELAY_SECONDS);
+    }
+
+    @Benchmark
+    public void cancelAndReschedule() {
+        int document = randomDocuments[cursor++ & (RANDOM_INDEXES - 1)];
+        scheduler.cancelScheduledTransfer(documentIds[document], sources[document], targets[document]);
+        scheduler.scheduleTransfer(documentIds[document], sources[document], targets[document], DELAY_SECONDS);
+    }
+}